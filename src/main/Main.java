@@ -17,9 +17,11 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import solverController.ALNSCheckpoint;
 import solverController.Controller;
 import solverController.Controller.Solvers;
 import solverController.ParametersBean;
+import solverController.SolverLog;
 import solverView.MainWindow;
 
 /**
@@ -45,9 +47,8 @@ public class Main {
 
                 // Run the controller, if it was created correctly
                 if (cnt != null) {
-                    //SwingUtilities.invokeAndWait(cnt);
-                    cnt.execute();
-                    cnt.get();
+                    // No GUI to update: solve the batch on this thread
+                    cnt.optimize();
                 }
             }
         } catch (ParseException e) {
@@ -167,7 +168,7 @@ public class Main {
 
         Option solverOpt = Option.builder("s")
                 .argName("solver")
-                .desc("solver to use. Options: SOLVE_ALNS (default), SOLVE_MIPS, SOLVE_RELAXED")
+                .desc("solver to use. Options: SOLVE_ALNS (default), SOLVE_MIPS, SOLVE_RELAXED, SOLVE_BENCHMARK (repeated ALNS runs with fixed seeds, compared with the reference values), SOLVE_HYBRID (ALNS and MIP at the same time, exchanging solutions)")
                 .hasArg()
                 .longOpt("solver")
                 .numberOfArgs(1)
@@ -209,6 +210,83 @@ public class Main {
                 .type(Integer.class)
                 .build();
 
+        Option logLevelOpt = Option.builder("l")
+                .argName("level")
+                .desc("verbosity of the solver log. Options: OFF, INFO (default), TRACE (also logs every ALNS iteration)")
+                .hasArg()
+                .longOpt("log-level")
+                .numberOfArgs(1)
+                .optionalArg(false)
+                .required(false)
+                .type(String.class)
+                .build();
+        
+        Option logTargetOpt = Option.builder("L")
+                .argName("target")
+                .desc("where the solver log is written. Options: GUROBI (default, the Gurobi log file), JUL (java.util.logging), NONE")
+                .hasArg()
+                .longOpt("log-target")
+                .numberOfArgs(1)
+                .optionalArg(false)
+                .required(false)
+                .type(String.class)
+                .build();
+
+        Option metricsPortOpt = Option.builder("m")
+                .argName("port")
+                .desc("expose the live state of the ALNS run in Prometheus text format on http://127.0.0.1:port/metrics (default: disabled)")
+                .hasArg()
+                .longOpt("metrics-port")
+                .numberOfArgs(1)
+                .optionalArg(false)
+                .required(false)
+                .type(Integer.class)
+                .build();
+
+        Option seedOpt = Option.builder("S")
+                .argName("seed")
+                .desc("seed of the random number generators, for repeatable runs (default: 0, a different seed at every run). With SOLVE_BENCHMARK, the seed of the first run")
+                .hasArg()
+                .longOpt("seed")
+                .numberOfArgs(1)
+                .optionalArg(false)
+                .required(false)
+                .type(Long.class)
+                .build();
+
+        Option repetitionsOpt = Option.builder("r")
+                .argName("runs")
+                .desc("number of runs of every instance with SOLVE_BENCHMARK (default: 3)")
+                .hasArg()
+                .longOpt("repetitions")
+                .numberOfArgs(1)
+                .optionalArg(false)
+                .required(false)
+                .type(Integer.class)
+                .build();
+
+        Option referencesOpt = Option.builder("b")
+                .argName("path")
+                .desc("path to the reference objective values for SOLVE_BENCHMARK (default: Istanze di prova/benchmarks.txt)")
+                .hasArg()
+                .longOpt("benchmarks")
+                .numberOfArgs(1)
+                .optionalArg(false)
+                .required(false)
+                .type(String.class)
+                .build();
+
+        Option resumeOpt = Option.builder("R")
+                .argName("checkpointPath")
+                .desc("resume an ALNS run from a checkpoint written in its output folder. The instance, parameters and solver of the checkpoint are used, unless given with -f, -p or -s (the first instance resumes)")
+                .hasArg()
+                .longOpt("resume")
+                .numberOfArgs(1)
+                .optionalArg(false)
+                .required(false)
+                .type(String.class)
+                .build();
+
         options.addOption(helpOpt);
         options.addOption(modelPathsOpt);
         options.addOption(parametersOpt);
@@ -216,6 +294,13 @@ public class Main {
         options.addOption(timeOpt);
         options.addOption(outputOpt);
         options.addOption(coresOpt);
+        options.addOption(logLevelOpt);
+        options.addOption(logTargetOpt);
+        options.addOption(metricsPortOpt);
+        options.addOption(seedOpt);
+        options.addOption(repetitionsOpt);
+        options.addOption(referencesOpt);
+        options.addOption(resumeOpt);
 
         // Parsing command line options
         try {
@@ -226,14 +311,25 @@ public class Main {
             List<String> modelPaths = new ArrayList<>();
             ParametersBean pb = new ParametersBean();
             Solvers solver = Solvers.SOLVE_ALNS;
+            ALNSCheckpoint checkpoint = null;
 
             if (cmd.hasOption("h") || cmd.hasOption("help")) {
                 hf.printHelp(appName, appDescription, options, footer, true);
             } else {
+                if (cmd.hasOption("R") || cmd.hasOption("resume")) {
+                    checkpoint = ALNSCheckpoint.read(cmd.getOptionValue("R")); // Throws IOException
+                    pb.getOrienteeringProperties().cloneFrom(checkpoint.getParameters().getOrienteeringProperties());
+                    pb.getALNSproperties().cloneFrom(checkpoint.getParameters().getALNSproperties());
+                    solver = checkpoint.getSolver() == Solvers.SOLVE_HYBRID ? Solvers.SOLVE_HYBRID : Solvers.SOLVE_ALNS;
+                }
+                
                 if (cmd.hasOption("f") || cmd.hasOption("filenames")) {
                     String[] modelPathss = cmd.getOptionValues("f");
                     modelPaths = Arrays.asList(modelPathss);
                 }
+                else if (checkpoint != null) {
+                    modelPaths = Arrays.asList(checkpoint.getModelPath());
+                }
                 else {
                     throw new ParseException("Missing required option: f");
                 }
@@ -252,7 +348,7 @@ public class Main {
                 if (cmd.hasOption("o") || cmd.hasOption("output")){
                     pb.getOrienteeringProperties().setOutputFolderPath(cmd.getOptionValue("output"));
                 }
-                else{
+                else if (checkpoint == null){
                     pb.getOrienteeringProperties().setOutputFolderPath(System.getProperty("user.dir"));
                 }
                 
@@ -260,8 +356,33 @@ public class Main {
                     pb.getOrienteeringProperties().setNumThreads(Integer.parseInt(cmd.getOptionValue("c")));
                 }
 
+                if (cmd.hasOption("l") || cmd.hasOption("log-level")){
+                    pb.getALNSproperties().setLogLevel(SolverLog.Level.valueOf(cmd.getOptionValue("l").toUpperCase()).name()); // Throws IllegalArgumentException
+                }
+                
+                if (cmd.hasOption("L") || cmd.hasOption("log-target")){
+                    pb.getALNSproperties().setLogTarget(SolverLog.Target.valueOf(cmd.getOptionValue("L").toUpperCase()).name()); // Throws IllegalArgumentException
+                }
+
+                if (cmd.hasOption("m") || cmd.hasOption("metrics-port")){
+                    pb.getALNSproperties().setMetricsHttpPort(Integer.parseInt(cmd.getOptionValue("m")));
+                }
+
+                if (cmd.hasOption("S") || cmd.hasOption("seed")){
+                    pb.getALNSproperties().setRandomSeed(Long.parseLong(cmd.getOptionValue("S")));
+                }
+
+                if (cmd.hasOption("r") || cmd.hasOption("repetitions")){
+                    pb.getALNSproperties().setBenchmarkRepetitions(Integer.parseInt(cmd.getOptionValue("r")));
+                }
+
+                if (cmd.hasOption("b") || cmd.hasOption("benchmarks")){
+                    pb.getALNSproperties().setBenchmarkReferencesPath(cmd.getOptionValue("b"));
+                }
+
                 // Create the new Controller
                 ret = new Controller(modelPaths, pb, solver, null, null);
+                ret.setResumeCheckpoint(checkpoint);
                 
                 //DEBUG: PRINTING THE PARAMETERS BEAN
                 System.out.println("\nPARAMETERS USED FOR THIS RUN:\n"+pb.toJSON()+"\n");
@@ -18,17 +18,28 @@ import java.io.PrintStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import solverModel.Cluster;
+import solverModel.ClusterSolution;
 import solverModel.Node;
+import solverModel.SpatialIndex;
 import solverModel.Streak;
 import solverModel.Vehicle;
 
@@ -70,11 +81,40 @@ public class ALNS extends Orienteering {
      * destroy methods to increase ALNS solution size
      */
     private ClusterRoulette clusterRoulette;
+    
+    /**
+     * Live state of the run, for JMX and Prometheus consumers. Null when
+     * the ALNS isn't running.
+     */
+    private SolverTelemetry telemetry = null;
 
     /**
-     * The controller to notfy of eventual changes
+     * Set when the iteration trace can't be written: the search goes on
+     * without it
+     */
+    private boolean traceWriterFailed = false;
+    
+    /**
+     * Share of <tt>timeLimitALNS</tt> which the extraction of infeasible
+     * cores can take, when nogood learning is on
+     */
+    private static final double NOGOOD_EXTRACTION_TIME_SHARE = 0.05;
+
+    /**
+     * The controller which created this solver, if any (its output stream
+     * receives stdout and stderr)
      */
     private Controller controller;
+    
+    /**
+     * The solver to use (see <code>optimize</code>)
+     */
+    private final Controller.Solvers solver;
+    
+    /**
+     * The listener to notify of eventual changes (can be null)
+     */
+    private final SolverListener listener;
 
     /**
      * Starting time of the algorithm.
@@ -87,18 +127,140 @@ public class ALNS extends Orienteering {
      * Update it with method stopwatchUpdate()
      */
     private long elapsedTime = 0;
+    
+    /**
+     * IDs of the instance clusters sorted by decreasing profit.
+     * Computed once per instance, used by greedy destroy heuristics.
+     */
+    private int[] profitDescendingOrder;
+    
+    /**
+     * IDs of the instance clusters sorted by increasing cost.
+     * Computed once per instance, used by greedy destroy heuristics.
+     */
+    private int[] costAscendingOrder;
+    
+    /**
+     * IDs of the instance clusters sorted by decreasing profit/cost ratio.
+     * Computed once per instance, used by greedy destroy heuristics.
+     */
+    private int[] profitCostRatioDescendingOrder;
+    
+    /**
+     * For each cluster ID, the sum of the distances of the cluster from the
+     * start and the end deposit.
+     * Computed once per instance, used by <code>repairTravelTime</code> and
+     * by <code>applyExpression19</code>.
+     */
+    private double[] depositDistances;
+    
+    /**
+     * Random generator of the ALNS, seeded with the randomSeed parameter if
+     * it's not 0, so that runs can be repeated. Its state is saved in
+     * checkpoints, so that resumed runs can be repeated too.
+     */
+    private final CheckpointableRandom random;
+    
+    /**
+     * Anytime curve and iteration count of the last ALNS run
+     */
+    private AnytimeProfile anytimeProfile = null;
 
+    /**
+     * Constructor for class ALNS, for runs started by a Controller.
+     *
+     * @param o the Orienteering problem to solve
+     * @param ALNSParams the ALNS parameters
+     * @param c the controller, which picks the solver and receives progress
+     * @throws Exception if the solver can't be set up
+     */
     public ALNS(Orienteering o, ALNSPropertiesBean ALNSParams, Controller c) throws Exception {
+        this(o, ALNSParams, c != null ? c.getSolver() : null, c);
+        this.controller = c;
+        
+        // Redirect stdout and stderr to the controller
+        if (controller != null && controller.getStdoutStream() != null) {
+            System.setOut(new PrintStream(controller.getStdoutStream()));
+            System.setErr(new PrintStream(controller.getStdoutStream()));
+        }
+    }
+    
+    /**
+     * Constructor for class ALNS.
+     *
+     * @param o the Orienteering problem to solve
+     * @param ALNSParams the ALNS parameters
+     * @param solver the solver to use
+     * @param listener the listener to notify of the progress (can be null)
+     * @throws Exception if the solver can't be set up
+     */
+    public ALNS(Orienteering o, ALNSPropertiesBean ALNSParams, Controller.Solvers solver, SolverListener listener) throws Exception {
         // Setting up all parameters
         super(o);
         this.alnsProperties = ALNSParams;
-        this.controller = c;
+        this.solver = solver;
+        this.listener = listener;
+        this.solverLog = new SolverLog(env,
+                SolverLog.Target.parse(alnsProperties.getLogTarget()),
+                SolverLog.Level.parse(alnsProperties.getLogLevel()));
+
+        // Setting up the random generators
+        long seed = alnsProperties.getRandomSeed();
+        if (seed != 0) {
+            random = new CheckpointableRandom(seed);
+            model.set(GRB.IntParam.Seed, (int) (Math.abs(seed) % Integer.MAX_VALUE));
+        } else {
+            random = new CheckpointableRandom();
+        }
 
         // Setting up the Cluster Roulette
-        clusterRoulette = new ClusterRoulette(instance.cloneClusters());
+        clusterRoulette = new ClusterRoulette(instance.cloneClusters(), random);
+        
+        // Presorting clusters by the static keys used by greedy heuristics
+        profitDescendingOrder = staticOrderOfClusters(Cluster.PROFIT_COMPARATOR.reversed());
+        costAscendingOrder = staticOrderOfClusters(Cluster.COST_COMPARATOR);
+        profitCostRatioDescendingOrder = staticOrderOfClusters(Cluster.PROFIT_COST_RATIO_COMPARATOR.reversed());
+        
+        // Caching the distances of all clusters from the deposits
+        Node firstNode = instance.getNode(0);
+        Node lastNode = instance.getNode(instance.getNum_nodes() - 1);
+        depositDistances = new double[instance.getNum_clusters()];
+        for (int i = 0; i < depositDistances.length; i++) {
+            Cluster cluster = instance.getCluster(i);
+            depositDistances[cluster.getId()] = cluster.distance(firstNode) + cluster.distance(lastNode);
+        }
+        
+        // Setting up the store of infeasible cores
+        if (ALNSParams.isUseNogoodLearning()) {
+            nogoodStore = new NogoodStore(instance.getNum_clusters());
+            timeLimitNogoodExtraction = ALNSParams.getTimeLimitNogoodExtraction();
+            nogoodExtractionTimeBudget = NOGOOD_EXTRACTION_TIME_SHARE * ALNSParams.getTimeLimitALNS();
+        }
+        
+        // Setting up the pool of cuts excluding infeasible solutions
+        exclusionCutPool = new ExclusionCutPool(model, ALNSParams.getMaxExclusionCutsInModel(), ALNSParams.getExclusionCutsDecay());
+        
+        // Setting up the backend of the feasibility checks
+        if ("JAVA".equalsIgnoreCase(ALNSParams.getFeasibilityOracle())) {
+            feasibilityOracle = new JavaFeasibilityOracle(instance);
+        }
+        
+        // Setting up the exact checker of small solutions
+        if (ALNSParams.getMaxClustersForExactFeasibilityCheck() > 0) {
+            exactFeasibilityChecker = new LabelSettingFeasibilityChecker(instance);
+            maxClustersForExactFeasibilityCheck = ALNSParams.getMaxClustersForExactFeasibilityCheck();
+        }
+        
+        // Setting up the search of feasible heuristic constraints
+        heuristicConstraintsSearchThreads = ALNSParams.getHeuristicConstraintsSearchThreads();
+        
+        // Setting up the pool of routes to recombine
+        if (ALNSParams.getRoutePoolRecombinationSegments() > 0) {
+            routePool = new RoutePool(new RoutingConstraints(instance), ALNSParams.getMaxRoutePoolSize());
+        }
 
         // Keeping track of all implemented repair and destroy methods
-        destroyMethods = new ObjectDistribution<>();
+        destroyMethods = new ObjectDistribution<>(random);
 
         destroyMethods.add(this::destroyCloseToBarycenter, ALNSParams.isUseDestroyCloseToBarycenter(), "CloseToBarycenter");
         destroyMethods.add(this::destroyGreedyCostInsertion, ALNSParams.isUseDestroyGreedyCostInsertion(), "GreedyCostInsertion");
@@ -106,7 +268,7 @@ public class ALNS extends Orienteering {
         destroyMethods.add(this::destroyGreedyProfitInsertion, ALNSParams.isUseDestroyGreedyProfitInsertion(), "GreedyProfitInsertion");
         destroyMethods.add(this::destroyRandomInsertion, ALNSParams.isUseDestroyRandomInsertion(), "RandomInsertion");
 
-        repairMethods = new ObjectDistribution<>();
+        repairMethods = new ObjectDistribution<>(random);
 
         repairMethods.add(this::repairHighCostRemoval, ALNSParams.isUseRepairHighCostRemoval(), "HighCostRemoval");
         repairMethods.add(this::repairRandomRemoval, ALNSParams.isUseRepairRandomRemoval(), "RandomRemoval");
@@ -114,12 +276,6 @@ public class ALNS extends Orienteering {
         repairMethods.add(this::repairVehicleTime, ALNSParams.isUseRepairVehicleTime(), "VehicleTime");
         repairMethods.add(this::repairWorstRemoval, ALNSParams.isUseRepairWorstRemoval(), "WorstRemoval");
 
-        // Redirect stdout and stderr to the controller
-        if (controller != null && controller.getStdoutStream() != null) {
-            System.setOut(new PrintStream(controller.getStdoutStream()));
-            System.setErr(new PrintStream(controller.getStdoutStream()));
-        }
-        
         // Applying constraint 19 to remove infeasible clusters which are either
         // too expensive or too far from the deposits
         applyExpression19();
@@ -130,6 +286,10 @@ public class ALNS extends Orienteering {
      * procedure. Tentative solutions are built from combinations of promising
      * clusters until an infeasible solution is found. The last feasible
      * solution after an infeasible solution was found is the starting solution.
+     * <br>If <code>useGallopingConstructiveSolution</code> is set, clusters
+     * after the first feasible one are added in blocks of doubling size, and
+     * the first infeasible block is bisected: the longest feasible run of
+     * clusters is found with a logarithmic number of feasibility checks.
      *
      * @return the feasible solution found, represented as a list of selected
      * clusters.
@@ -139,7 +299,7 @@ public class ALNS extends Orienteering {
      * wrong.
      */
     public List<Cluster> ALNSConstructiveSolution() throws GRBException, Exception {
-        env.message("\nALNSConstructiveSolution log start, time " + LocalDateTime.now() + "\n");
+        solverLog.info("\nALNSConstructiveSolution log start, time {}\n", LocalDateTime.now());
 
         List<Cluster> clusters = clusterRoulette.query();
         // Update the vehicle list for each cluster, might take some time
@@ -158,15 +318,15 @@ public class ALNS extends Orienteering {
         clusters.sort(Cluster.MAX_VEHICLES_COMPARATOR);
 
         // Let's keep track of an old and a new solution as sets of clusters
-        List<Cluster> solution = new ArrayList<>();
-        List<Cluster> newSolution = new ArrayList<>();
+        List<Cluster> solution = new ClusterSolution(instance);
+        List<Cluster> newSolution = new ClusterSolution(instance);
         // isFeasible keeps track of the feasibility of the new solution found
         boolean isFeasible = false;
         
         // Make sure you pick at least the first cluster
-        env.message("\nALNSConstructiveSolution looking for the first cluster\n");
+        solverLog.info("\nALNSConstructiveSolution looking for the first cluster\n");
         int j = 0;
-        while(!isFeasible && !this.isCancelled() && j < clusters.size()){
+        while(!isFeasible && !this.isStopRequested() && j < clusters.size()){
             // Pick a cluster from the available ones
             Cluster c = clusters.get(j);
             // Add it to the solution
@@ -179,8 +339,8 @@ public class ALNS extends Orienteering {
                 j++;
             }
             else{
-                solution = new ArrayList<>(newSolution); // Save the single cluster solution
-                env.message("\nALNSConstructiveSolution first cluster found, looking for others...\n");
+                solution = solutionCopy(newSolution); // Save the single cluster solution
+                solverLog.info("\nALNSConstructiveSolution first cluster found, looking for others...\n");
             }
         }
         
@@ -188,49 +348,103 @@ public class ALNS extends Orienteering {
         j++;
         
         // Now get the other clusters
-        for (int i = j; i < clusters.size() && isFeasible && !this.isCancelled(); i++) {
-            Cluster c = clusters.get(i);
-            // Let's extract the first cluster from the ordered list of clusters
-            // and let's put it into the new solution
-            newSolution.add(c);
-
-            // Let's use gurobi to check the feasibility of the new solution
-            isFeasible = this.testSolutionForFeasibility(newSolution, true, alnsProperties.getMaxMIPSNodesForFeasibilityCheck());
-            // If the new solution is feasible, update the old solution
-            if (isFeasible) {
-                solution = new ArrayList<>(newSolution);
+        if (isFeasible && alnsProperties.isUseGallopingConstructiveSolution()) {
+            solution = gallopingConstructiveSolution(clusters, j - 1, solution);
+        } else {
+            for (int i = j; i < clusters.size() && isFeasible && !this.isStopRequested(); i++) {
+                Cluster c = clusters.get(i);
+                // Let's extract the first cluster from the ordered list of clusters
+                // and let's put it into the new solution
+                newSolution.add(c);
+
+                // Let's use gurobi to check the feasibility of the new solution
+                isFeasible = this.testSolutionForFeasibility(newSolution, true, alnsProperties.getMaxMIPSNodesForFeasibilityCheck());
+                // If the new solution is feasible, update the old solution
+                if (isFeasible) {
+                    solution = solutionCopy(newSolution);
+                }
             }
         }
         
         // Check if the job was cancelled while working
-        if (this.isCancelled()) {
-            env.message("\nALNSConstructiveSolution: interrupted by user abort.\n");
+        if (this.isStopRequested()) {
+            solverLog.info("\nALNSConstructiveSolution: interrupted by user abort.\n");
             throw new InterruptedException("optimizeALNS() interrupted in the constructive solution building phase.");
         }
         if(solution.isEmpty()){
-            env.message("\nALNSConstructiveSolution: the constructive algorithm has returned an empty solution. ABORT.\n");
+            solverLog.info("\nALNSConstructiveSolution: the constructive algorithm has returned an empty solution. ABORT.\n");
             throw new Exception("ALNSConstructiveSolution: the constructive algorithm has returned an empty solution. ABORT.");
         }
         
         // Now solution holds the list of clusters found by our constructive algorithm.
         // Let's update the model so that it cointains the current solution
         testSolution(this.model, solution, false, alnsProperties.getMaxMIPSNodesForFeasibilityCheck());
-        env.message("\nALNSConstructiveSolution log end, time " + LocalDateTime.now() + "\n");
+        solverLog.info("\nALNSConstructiveSolution log end, time {}\n", LocalDateTime.now());
         
         return solution;
     }
     
     /**
-     * Automatically picks a solver from the controller selection, and optimizes
-     * the current model using it.
+     * Finds the longest feasible run of sorted clusters which starts with the
+     * given feasible cluster: runs of doubling length are tested until one is
+     * infeasible, then the length is bisected between the longest feasible
+     * run and the shortest infeasible one.
+     *
+     * @param clusters the sorted clusters
+     * @param first index of the first cluster of the run, feasible alone
+     * @param firstSolution the solution made of the first cluster only
+     * @return the longest feasible run found
+     * @throws Exception if there are problems while checking feasibility
+     */
+    private List<Cluster> gallopingConstructiveSolution(List<Cluster> clusters, int first, List<Cluster> firstSolution) throws Exception {
+        List<Cluster> solution = firstSolution;
+        // The run [first, feasibleEnd) is feasible, [first, infeasibleEnd) isn't
+        int feasibleEnd = first + 1;
+        int infeasibleEnd = clusters.size() + 1;
+        int checks = 0;
+        
+        // Galloping: double the number of clusters added to the run
+        for (int step = 1; feasibleEnd < clusters.size() && !this.isStopRequested(); step *= 2) {
+            int end = Math.min(feasibleEnd + step, clusters.size());
+            List<Cluster> newSolution = new ClusterSolution(instance, clusters.subList(first, end));
+            checks++;
+            if (this.testSolutionForFeasibility(newSolution, true, alnsProperties.getMaxMIPSNodesForFeasibilityCheck())) {
+                solution = newSolution;
+                feasibleEnd = end;
+            } else {
+                infeasibleEnd = end;
+                break;
+            }
+        }
+        
+        // Bisection between the longest feasible run and the shortest infeasible one
+        while (infeasibleEnd - feasibleEnd > 1 && infeasibleEnd <= clusters.size() && !this.isStopRequested()) {
+            int end = (feasibleEnd + infeasibleEnd) >>> 1;
+            List<Cluster> newSolution = new ClusterSolution(instance, clusters.subList(first, end));
+            checks++;
+            if (this.testSolutionForFeasibility(newSolution, true, alnsProperties.getMaxMIPSNodesForFeasibilityCheck())) {
+                solution = newSolution;
+                feasibleEnd = end;
+            } else {
+                infeasibleEnd = end;
+            }
+        }
+        
+        solverLog.info("\nALNSConstructiveSolution: {} clusters found with {} feasibility checks\n", solution.size(), checks);
+        return solution;
+    }
+    
+    /**
+     * Optimizes the current model with the solver chosen at construction (the
+     * controller selection, for runs started by a Controller).
      *
      * @throws gurobi.GRBException if there are problems with Gurobi
      * @throws Exception if there are generic problems
      */
     public void optimize() throws GRBException, Exception {
         try {
-            if (controller.getSolver() != null) {
-                switch (controller.getSolver()) {
+            if (solver != null) {
+                switch (solver) {
                     case SOLVE_RELAXED:
                         optimizeRelaxed();
                         break;
@@ -240,10 +454,15 @@ public class ALNS extends Orienteering {
                         break;
 
                     case SOLVE_ALNS:
+                    case SOLVE_BENCHMARK:
                         optimizeALNS();
                         break;
+
+                    case SOLVE_HYBRID:
+                        optimizeHybrid();
+                        break;
                     default:
-                        env.message("ALNS optimize() error: null solver\n");
+                        solverLog.info("ALNS optimize() error: null solver\n");
                         break;
                 }
             }
@@ -252,6 +471,519 @@ public class ALNS extends Orienteering {
         }
     }
     
+    /**
+     * Run the ALNS and the MIP solver at the same time (SOLVE_HYBRID mode).
+     * <br>The MIP solves a copy of the model, in its own Gurobi environment,
+     * on its own thread, using
+     * <code>hybridMIPThreads</code> Gurobi threads, while the ALNS uses the
+     * others. Their best solutions are exchanged through a callback of the
+     * MIP (see <code>HybridMIPCallback</code>): new ALNS global bests are
+     * injected into the MIP as heuristic solutions, and MIP incumbents better
+     * than the ALNS global best are saved as new global bests and become the
+     * starting point of the next ALNS iteration. The ALNS stops as soon as its global best reaches the bound
+     * of the MIP, and the MIP stops when the ALNS is over.
+     * <br>At the end, the best solution of the two is saved and the gap
+     * proven by the MIP bound is logged.
+     *
+     * @throws gurobi.GRBException if there are problems with Gurobi
+     * @throws java.lang.InterruptedException if the thread was interrupted
+     * while solving
+     * @throws Exception if anything else goes wrong
+     */
+    public void optimizeHybrid() throws GRBException, InterruptedException, Exception {
+        int totalThreads = orienteeringProperties.getNumThreads() > 0
+                ? orienteeringProperties.getNumThreads()
+                : Runtime.getRuntime().availableProcessors();
+        int mipThreads = alnsProperties.getHybridMIPThreads() > 0
+                ? alnsProperties.getHybridMIPThreads()
+                : Math.max(1, totalThreads / 2);
+        int alnsThreads = Math.max(1, totalThreads - mipThreads);
+        
+        // The MIP works on its own copy of the model, in its own environment
+        model.reset();
+        ModelSnapshot snapshot = new ModelSnapshot(model);
+        ModelSnapshot.Copy mipCopy;
+        try {
+            mipCopy = snapshot.copy();
+        } finally {
+            snapshot.delete();
+        }
+        GRBModel mipModel = mipCopy.model;
+        mipModel.set(GRB.IntParam.Threads, mipThreads);
+        mipModel.set(GRB.DoubleParam.TimeLimit, (double) alnsProperties.getTimeLimitALNS());
+        model.set(GRB.IntParam.Threads, alnsThreads);
+        
+        GRBVar[] mipY = new GRBVar[instance.getNum_clusters()];
+        for (int c = 0; c < mipY.length; c++) {
+            mipY[c] = mipModel.getVarByName(y[c].get(GRB.StringAttr.VarName));
+        }
+        IncumbentExchange exchange = new IncumbentExchange();
+        mipModel.setCallback(new HybridMIPCallback(exchange, instance, mipModel.getVars(), mipY, cancellation));
+        
+        solverLog.info("\nHYBRIDLOG: MIP on {} threads, ALNS on {} threads\n", mipThreads, alnsThreads);
+        Thread mipThread = new Thread(() -> {
+            Exception failure = null;
+            try {
+                mipModel.optimize();
+            } catch (GRBException e) {
+                failure = e;
+            } finally {
+                exchange.finishMIP(failure);
+            }
+        }, "Hybrid MIP");
+        
+        hybridExchange = exchange;
+        mipThread.start();
+        try {
+            optimizeALNS();
+        } finally {
+            exchange.requestStop();
+            mipThread.join();
+            hybridExchange = null;
+            model.set(GRB.IntParam.Threads, orienteeringProperties.getNumThreads());
+        }
+        
+        try {
+            if (exchange.getMIPException() != null) {
+                solverLog.info("\nHYBRIDLOG: the MIP ended with an error: {}\n", exchange.getMIPException().getMessage());
+            }
+            
+            // Keep the MIP solution if it's better than the ALNS one
+            if (mipModel.get(GRB.IntAttr.SolCount) > 0
+                    && mipModel.get(GRB.DoubleAttr.ObjVal) > bestGlobalObjectiveValue) {
+                bestGlobalObjectiveValue = mipModel.get(GRB.DoubleAttr.ObjVal);
+                solverLog.info("\nHYBRIDLOG: saving the MIP solution, which is better than the ALNS one.\n");
+                saveAndLogSolution(mipModel);
+            }
+            
+            double bound = exchange.getBound();
+            solverLog.info("\nHYBRIDLOG: best objective {}, MIP bound {}, gap {}%. {}\n",
+                    bestGlobalObjectiveValue, bound,
+                    bound > 0 && !Double.isInfinite(bound) ? 100.0 * (bound - bestGlobalObjectiveValue) / bound : Double.NaN,
+                    exchange);
+        } finally {
+            mipCopy.dispose();
+        }
+    }
+    
+    /**
+     * Tells whether the ALNS global best has reached the bound of the MIP in
+     * SOLVE_HYBRID mode, i.e. it's proven optimal.
+     *
+     * @return true if the global best can't be improved
+     */
+    private boolean isHybridBoundReached() {
+        return hybridExchange != null
+                && bestGlobalObjectiveValue >= hybridExchange.getBound() - 1e-6;
+    }
+    
+    /**
+     * Makes a solution the new global best, once a model confirms it: the
+     * solution is saved, with its vehicle paths, and offered to the MIP in
+     * SOLVE_HYBRID mode. The best objective value changes only then, so that
+     * it always matches the saved solution.
+     * <br>Oracles which don't solve the model ignore its heuristic constraints
+     * and exclusion cuts, and a check of the model can run out of MIP nodes:
+     * if the model rejects the solution, it's checked again, without node
+     * limit, on a copy of the model without heuristic constraints and
+     * exclusion cuts.
+     *
+     * @param solution the candidate global best
+     * @param objective its objective value
+     * @param modelHoldsSolution true if the last feasibility check left the
+     * solution in the model
+     * @return true if the solution is the new global best
+     * @throws Exception if there are problems with Gurobi
+     */
+    private boolean promoteGlobalBest(List<Cluster> solution, double objective, boolean modelHoldsSolution) throws Exception {
+        GRBModel holder = null;
+        if (modelHoldsSolution
+                || testSolution(this.model, solution, false, alnsProperties.getMaxMIPSNodesForFeasibilityCheck())) {
+            holder = model;
+        } else {
+            long recheckStart = profiler.start();
+            Set<String> heuristicConstraintNames = new HashSet<>();
+            for (GRBConstr c : heuristicConstraints) {
+                heuristicConstraintNames.add(c.get(GRB.StringAttr.ConstrName));
+            }
+            GRBModel relaxed = new GRBModel(model);
+            for (GRBConstr c : relaxed.getConstrs()) {
+                String name = c.get(GRB.StringAttr.ConstrName);
+                if (heuristicConstraintNames.contains(name)
+                        || name.startsWith("Excluded_Solution")
+                        || name.startsWith("Supposedly_Infeasible")) {
+                    relaxed.remove(c);
+                }
+            }
+            relaxed.update();
+            if (testSolution(relaxed, solution, false, GRB.INFINITY)) {
+                holder = relaxed;
+            } else {
+                relaxed.dispose();
+            }
+            profiler.stop("global best re-check", recheckStart);
+        }
+        
+        if (holder == null) {
+            solverLog.info("\nALNSLOG: the Gurobi model found no paths for the new global best {} (obj {}), not promoted.\n",
+                    solution, objective);
+            return false;
+        }
+        try {
+            solverLog.info("\nALNSLOG: saving the new global best solution.\n");
+            bestGlobalObjectiveValue = objective;
+            anytimeProfile.improve(bestGlobalObjectiveValue);
+            saveAndLogSolution(holder);
+            offerToHybridMIP(holder, bestGlobalObjectiveValue);
+        } finally {
+            if (holder != model) {
+                holder.dispose();
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Offers the solution held by a model to the MIP in SOLVE_HYBRID mode
+     * (does nothing in other modes).
+     *
+     * @param solvedModel the model holding the solution, a copy of the model
+     * @param objective the objective value of the solution
+     * @throws GRBException if the solution can't be read from the model
+     */
+    private void offerToHybridMIP(GRBModel solvedModel, double objective) throws GRBException {
+        if (hybridExchange != null) {
+            hybridExchange.offerStart(solvedModel.get(GRB.DoubleAttr.X, solvedModel.getVars()), objective);
+        }
+    }
+    
+    /**
+     * Starts recombining the routes in the route pool on the recombination
+     * thread, unless a recombination is still running.
+     */
+    private void startRecombination() {
+        if (pendingRecombination != null && !pendingRecombination.isDone()) {
+            return;
+        }
+        List<RoutePool.Route> routes = routePool.snapshot();
+        solverLog.info("\nALNSLOG, {}: recombining {}\n", elapsedTime, routePool);
+        pendingRecombination = recombinationExecutor.submit(() -> recombinator.recombine(routes));
+    }
+    
+    /**
+     * Takes the result of the last recombination of the route pool, if it's
+     * over, and checks it against the model.
+     *
+     * @return the recombined solution if it's a new global best, null
+     * otherwise
+     * @throws Exception if there are problems while checking the solution
+     */
+    private List<Cluster> takeRecombination() throws Exception {
+        if (pendingRecombination == null || !pendingRecombination.isDone()) {
+            return null;
+        }
+        SetPartitioningRecombinator.Result result;
+        try {
+            result = pendingRecombination.get();
+        } catch (ExecutionException e) {
+            solverLog.info("\nALNSLOG: the recombination of the route pool failed: {}\n", e.getCause().getMessage());
+            return null;
+        } finally {
+            pendingRecombination = null;
+        }
+        if (result == null || result.objective <= bestGlobalObjectiveValue) {
+            profiler.count("route pool/recombinations without improvement");
+            return null;
+        }
+        
+        // The routes were feasible, but the model may have been tightened since
+        List<Cluster> xRecombined = new ClusterSolution(instance, result.clusters);
+        if (!testSolutionForFeasibility(xRecombined, false, alnsProperties.getMaxMIPSNodesForFeasibilityCheck())) {
+            solverLog.info("\nALNSLOG: the recombined solution {} (obj {}) was rejected by the model\n", xRecombined, result.objective);
+            return null;
+        }
+        if (!promoteGlobalBest(xRecombined, objectiveValueFromLastFeasibilityCheck, lastFeasibilityCheckUpdatedModel)) {
+            return null;
+        }
+        profiler.count("route pool/improving recombinations");
+        solverLog.info("\nALNSLOG: recombining {} routes improved the global best to {}\n", result.poolSize, bestGlobalObjectiveValue);
+        return xRecombined;
+    }
+    
+    /**
+     * Stops the recombination thread, waiting for the running recombination
+     * to hit its time limit, and frees its resources.
+     *
+     * @throws Exception if the recombination thread can't be stopped
+     */
+    private void stopRecombinations() throws Exception {
+        if (recombinationExecutor != null) {
+            recombinationExecutor.shutdown();
+            recombinationExecutor.awaitTermination((long) alnsProperties.getTimeLimitRoutePoolRecombination() + 60, TimeUnit.SECONDS);
+            recombinationExecutor = null;
+            pendingRecombination = null;
+        }
+        if (recombinator != null) {
+            recombinator.dispose();
+            recombinator = null;
+            solverLog.info("\nALNSLOG: {}\n", routePool);
+        }
+    }
+    
+    /**
+     * Starts relinking two elite solutions on the relinking thread, unless a
+     * relinking is still running. The relinking works on its own copy of the
+     * model, built here from a <code>ModelSnapshot</code> and solved in its
+     * own Gurobi environment.
+     *
+     * @throws GRBException if the model can't be copied
+     * @throws IOException if the snapshot of the model can't be written
+     */
+    private void startRelinking() throws GRBException, IOException {
+        if (pendingRelinking != null && !pendingRelinking.isDone()) {
+            return;
+        }
+        List<ElitePool.Elite> pair = elitePool.pickPair(random);
+        if (pair == null) {
+            return;
+        }
+        long copyStart = profiler.start();
+        ModelSnapshot snapshot = new ModelSnapshot(model);
+        ModelSnapshot.Copy copy;
+        try {
+            copy = snapshot.copy();
+        } finally {
+            snapshot.delete();
+            profiler.stop("relinking copy", copyStart);
+        }
+        copy.model.set(GRB.IntParam.Threads, 1);
+        double maxMIPSNodes = alnsProperties.getMaxMIPSNodesForFeasibilityCheck();
+        solverLog.trace("\nALNSLOG, {}: relinking {} (obj {}) and {} (obj {})\n", elapsedTime,
+                pair.get(0).solution, pair.get(0).objective, pair.get(1).solution, pair.get(1).objective);
+        pendingRelinking = relinkingExecutor.submit(() -> {
+            try {
+                return pathRelinking(pair.get(0), pair.get(1), copy.model, maxMIPSNodes);
+            } finally {
+                copy.dispose();
+            }
+        });
+    }
+    
+    /**
+     * Walks from an elite solution to a guiding one, cluster by cluster, and
+     * returns the best intermediate solution.
+     * <br>At every step the most profitable cluster of the guiding solution
+     * which keeps the current solution feasible is added to it; if no such
+     * cluster exists, the least profitable cluster which isn't in the guiding
+     * solution is removed. Every intermediate solution is checked on the given
+     * copy of the model.
+     *
+     * @param from the starting elite
+     * @param to the guiding elite
+     * @param copy the copy of the model to run the checks on
+     * @param maxMIPSNodes maximum number of MIPS nodes to solve in a
+     * feasibility check
+     * @return the best intermediate solution, if it's better than both
+     * elites, null otherwise
+     * @throws GRBException if there are problems while checking solutions
+     */
+    private ElitePool.Elite pathRelinking(ElitePool.Elite from, ElitePool.Elite to, GRBModel copy, double maxMIPSNodes)
+            throws GRBException {
+        List<Cluster> current = new ArrayList<>(from.solution);
+        List<Cluster> toAdd = new ArrayList<>(to.solution);
+        toAdd.removeAll(current);
+        toAdd.sort(Comparator.comparingDouble(Cluster::getProfit).reversed());
+        List<Cluster> toRemove = new ArrayList<>(current);
+        toRemove.removeAll(to.solution);
+        toRemove.sort(Comparator.comparingDouble(Cluster::getProfit));
+        
+        ElitePool.Elite best = null;
+        double bestObjective = Math.max(from.objective, to.objective);
+        while (!toAdd.isEmpty() && !stopRelinking) {
+            Cluster added = null;
+            for (Cluster c : toAdd) {
+                List<Cluster> candidate = new ArrayList<>(current);
+                candidate.add(c);
+                profiler.count("path relinking/checks");
+                if (profitOf(candidate) <= minimumObjOfRelaxedModel
+                        && testSolutionOnCopy(copy, candidate, maxMIPSNodes)) {
+                    added = c;
+                    break;
+                }
+            }
+            if (added != null) {
+                current.add(added);
+                toAdd.remove(added);
+            } else if (!toRemove.isEmpty()) {
+                // Removing a cluster keeps the solution feasible
+                current.remove(toRemove.remove(0));
+                continue;
+            } else {
+                break;
+            }
+            
+            double objective = profitOf(current);
+            if (objective > bestObjective) {
+                best = new ElitePool.Elite(new ClusterSolution(instance, current), clusterSet(current), objective);
+                bestObjective = objective;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Takes the result of the last path relinking, if it's over. A result
+     * better than the global best is checked against the model; any result
+     * is offered to the elite pool.
+     *
+     * @return the relinked solution if it's a new global best, null otherwise
+     * @throws Exception if there are problems while checking the solution
+     */
+    private List<Cluster> takeRelinking() throws Exception {
+        if (pendingRelinking == null || !pendingRelinking.isDone()) {
+            return null;
+        }
+        ElitePool.Elite result;
+        try {
+            result = pendingRelinking.get();
+        } catch (ExecutionException e) {
+            solverLog.info("\nALNSLOG: path relinking failed: {}\n", e.getCause().getMessage());
+            return null;
+        } finally {
+            pendingRelinking = null;
+        }
+        if (result == null) {
+            return null;
+        }
+        elitePool.offer(result.solution, result.objective);
+        if (result.objective <= bestGlobalObjectiveValue
+                || !testSolutionForFeasibility(result.solution, false, alnsProperties.getMaxMIPSNodesForFeasibilityCheck())) {
+            return null;
+        }
+        if (!promoteGlobalBest(result.solution, objectiveValueFromLastFeasibilityCheck, lastFeasibilityCheckUpdatedModel)) {
+            return null;
+        }
+        profiler.count("path relinking/improvements");
+        solverLog.info("\nALNSLOG: path relinking improved the global best to {}\n", bestGlobalObjectiveValue);
+        return result.solution;
+    }
+    
+    /**
+     * Stops the relinking thread, waiting for the running relinking to reach
+     * its next step.
+     *
+     * @throws Exception if the relinking thread can't be stopped
+     */
+    private void stopRelinking() throws Exception {
+        if (relinkingExecutor != null) {
+            stopRelinking = true;
+            relinkingExecutor.shutdown();
+            relinkingExecutor.awaitTermination(1, TimeUnit.HOURS);
+            relinkingExecutor = null;
+            pendingRelinking = null;
+            solverLog.info("\nALNSLOG: {}\n", elitePool);
+        }
+    }
+    
+    /**
+     * Looks for the best-known solutions of the instance in the solution
+     * store. The best one which Gurobi still finds feasible (with the stored
+     * vehicle paths as a MIP start) is returned, and left in the model; the
+     * following ones seed the elite pool, if there's one.
+     *
+     * @return the best-known feasible solution, or null if there's none
+     * @throws Exception if there are problems with Gurobi
+     */
+    private List<Cluster> warmStartSolution() throws Exception {
+        if (solutionStore == null) {
+            return null;
+        }
+        List<SolutionStore.Entry> entries;
+        try {
+            entries = solutionStore.read(getInstanceHash());
+        } catch (IOException e) {
+            solverLog.info("\nALNSLOG: PROBLEM - can't read the solution store: {}\n", e.getMessage());
+            return null;
+        }
+        
+        List<Cluster> ret = null;
+        for (SolutionStore.Entry entry : entries) {
+            List<Cluster> stored = ALNSCheckpoint.toSolution(instance, entry.clusters);
+            if (ret == null) {
+                setVehiclePathsStart(entry.routes);
+                boolean isFeasible = testSolution(model, stored, false, alnsProperties.getMaxMIPSNodesForFeasibilityCheck());
+                setVehiclePathsStart(null);
+                if (isFeasible) {
+                    ret = stored;
+                    solverLog.info("\nALNSLOG: warm start from the stored solution {} (obj {}, found {}).\n", stored, entry.objective, entry.found);
+                } else {
+                    solverLog.info("\nALNSLOG: the stored solution {} is no longer feasible, skipped.\n", stored);
+                }
+            } else if (elitePool != null) {
+                elitePool.offer(stored, entry.objective);
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Sets the MIP start of the arc variables to the given vehicle paths.
+     *
+     * @param paths the path of every vehicle, from the first deposit to the
+     * last one, or null to clear the MIP start
+     * @throws GRBException if the start values can't be set
+     */
+    private void setVehiclePathsStart(int[][] paths) throws GRBException {
+        double[] undefined = new double[instance.getNum_nodes()];
+        Arrays.fill(undefined, GRB.UNDEFINED);
+        for (int v = 0; v < x.length; v++) {
+            for (int i = 0; i < x[v].length; i++) {
+                model.set(GRB.DoubleAttr.Start, x[v][i], undefined);
+            }
+        }
+        if (paths == null) {
+            return;
+        }
+        for (int v = 0; v < paths.length && v < x.length; v++) {
+            for (int k = 0; k + 1 < paths[v].length; k++) {
+                x[v][paths[v][k]][paths[v][k + 1]].set(GRB.DoubleAttr.Start, 1.0);
+            }
+        }
+    }
+    
+    /**
+     * Offers the best solution of the run to the solution store, with the
+     * paths of its vehicles. Problems with the store are only logged.
+     */
+    private void storeBestSolution() {
+        if (solutionStore == null || bestSolution.getVehiclePaths().isEmpty()) {
+            return;
+        }
+        try {
+            RoutingConstraints rc = new RoutingConstraints(instance);
+            List<List<Integer>> paths = bestSolution.getVehiclePaths();
+            int[][] routes = new int[paths.size()][];
+            LinkedHashSet<Integer> clusters = new LinkedHashSet<>();
+            for (int v = 0; v < routes.length; v++) {
+                routes[v] = paths.get(v).stream().mapToInt(Integer::intValue).toArray();
+                for (int node : routes[v]) {
+                    if (rc.clusterOf[node] >= 0) {
+                        clusters.add(rc.clusterOf[node]);
+                    }
+                }
+            }
+            SolutionStore.Entry entry = new SolutionStore.Entry(
+                    instance.getName(),
+                    bestSolution.getObjectiveValue(),
+                    clusters.stream().mapToInt(Integer::intValue).toArray(),
+                    routes);
+            boolean kept = solutionStore.offer(getInstanceHash(), entry);
+            solverLog.info("\nALNSLOG: best solution (obj {}) {} by the solution store.\n", entry.objective, kept ? "kept" : "not kept");
+        } catch (Exception e) {
+            solverLog.info("\nALNSLOG: PROBLEM - can't update the solution store: {}\n", e.getMessage());
+        }
+    }
+    
     /**
      * Tests all clusters from the instance for feasibility; if infeasible
      * they will be removed.
@@ -261,8 +993,7 @@ public class ALNS extends Orienteering {
     private void removeAllInfeasibleClustersFromModel() throws Exception{
         int countRemoved = 0;
         List<Cluster> availableClusters = clusterRoulette.getAvailableClusters();
-        env.message("\nALNSLOG: trying to remove all infeasible clusters from model.\n"
-                + "Original clusters: \n" + availableClusters.toString()+"\n");
+        solverLog.trace("\nALNSLOG: trying to remove all infeasible clusters from model.\nOriginal clusters: \n{}\n", availableClusters);
         for(int i = 0; i < availableClusters.size(); i++){
             Cluster c = availableClusters.get(i);
             List<Cluster> toTest = new ArrayList<>();
@@ -277,15 +1008,10 @@ public class ALNS extends Orienteering {
             }
         }
         availableClusters = clusterRoulette.getAvailableClusters();
-        env.message("\nALNSLOG: Removed "+countRemoved+"clusters from model.\n"
-                + "New status: \n" + availableClusters.toString()+"\n");
+        solverLog.trace("\nALNSLOG: Removed {}clusters from model.\nNew status: \n{}\n", countRemoved, availableClusters);
         
         stopwatchUpdate();
-        env.message("\nALNSLOG, "
-                +elapsedTime
-                +": removed "
-                +countRemoved
-                +" infeasible clusters using removeAllInfeasibleClustersFromModel\n");
+        solverLog.info("\nALNSLOG, {}: removed {} infeasible clusters using removeAllInfeasibleClustersFromModel\n", elapsedTime, countRemoved);
     }
     
 //    /**
@@ -297,6 +1023,51 @@ public class ALNS extends Orienteering {
      * Stores a list of feasible heuristics for the current problem 
      */
     private List<Integer> feasibleHeuristicIDs;
+    
+    /**
+     * Incumbents and bounds exchanged with the MIP solver in SOLVE_HYBRID
+     * mode (null in other modes)
+     */
+    private IncumbentExchange hybridExchange = null;
+    
+    /**
+     * Recombines the routes of the route pool, on a thread of its own (null
+     * if the route pool is disabled)
+     */
+    private SetPartitioningRecombinator recombinator = null;
+    private ExecutorService recombinationExecutor = null;
+    private Future<SetPartitioningRecombinator.Result> pendingRecombination = null;
+    
+    /**
+     * Good and diverse solutions, relinked on a thread of their own (null if
+     * path relinking is disabled)
+     */
+    private ElitePool elitePool = null;
+    private ExecutorService relinkingExecutor = null;
+    private Future<ElitePool.Elite> pendingRelinking = null;
+    private volatile boolean stopRelinking = false;
+    
+    /**
+     * Best solutions of past runs on the same instance (null if the store is
+     * disabled)
+     */
+    private SolutionStore solutionStore = null;
+    
+    /**
+     * Checkpoint the next ALNS run resumes from (null to start from scratch)
+     */
+    private ALNSCheckpoint resumeCheckpoint = null;
+    
+    /**
+     * Makes the next ALNS run resume from a checkpoint instead of building a
+     * constructive solution. The checkpoint must have been taken on the same
+     * instance.
+     *
+     * @param checkpoint the checkpoint to resume from
+     */
+    public void resumeFrom(ALNSCheckpoint checkpoint) {
+        this.resumeCheckpoint = checkpoint;
+    }
 
     /**
      * Run the ALNS optimization on the current Orienteering problem.
@@ -325,18 +1096,54 @@ public class ALNS extends Orienteering {
      * @throws Exception if anything else goes wrong
      */
     public void optimizeALNS() throws IOException, GRBException, InterruptedException, Exception {
-        // Setup the Excel logger
-        ALNSExcelLogger xlsxLogger = new ALNSExcelLogger(
-                orienteeringProperties.getOutputFolderPath() + File.separator + instance.getName() + "_ALNS.xlsx",
-                instance.getName());
+        // Setup the asynchronous logger
+        ALNSAsyncLogger alnsLogger = ALNSAsyncLogger.create(
+                alnsProperties.getIterationLogFormat(),
+                orienteeringProperties.getOutputFolderPath() + File.separator + instance.getName() + "_ALNS",
+                instance.getName(),
+                alnsProperties.getIterationLogQueueSize());
+        // Setup the binary iteration trace
+        ALNSTraceWriter traceWriter = null;
+        traceWriterFailed = false;
+        if (alnsProperties.isWriteIterationTrace()) {
+            traceWriter = new ALNSTraceWriter(
+                    orienteeringProperties.getOutputFolderPath() + File.separator + instance.getName() + "_ALNS" + ALNSTraceWriter.EXTENSION,
+                    instance.getName(),
+                    destroyMethods,
+                    repairMethods,
+                    instance.getNum_clusters());
+        }
+        
+        // Expose the live state of the run
+        telemetry = new SolverTelemetry(instance.getName(), profiler, destroyMethods, repairMethods);
+        telemetry.start(alnsProperties.isExposeJmxTelemetry(), alnsProperties.getMetricsHttpPort());
         
         try {
             // Setup of stopping criterions and time management
             stopwatchStart();
+            anytimeProfile = new AnytimeProfile();
+            
+            // Setup the recombination of the route pool
+            if (routePool != null) {
+                recombinator = new SetPartitioningRecombinator(instance, new RoutingConstraints(instance), alnsProperties.getTimeLimitRoutePoolRecombination());
+                recombinationExecutor = Executors.newSingleThreadExecutor();
+            }
+            
+            // Setup path relinking
+            if (alnsProperties.getElitePoolSize() > 1) {
+                elitePool = new ElitePool(alnsProperties.getElitePoolSize(), alnsProperties.getEliteMinJaccardDistance());
+                relinkingExecutor = Executors.newSingleThreadExecutor();
+                stopRelinking = false;
+            }
+            
+            // Setup the best-solution store
+            if (alnsProperties.getSolutionStoreSize() > 0 && getInstanceHash() != null) {
+                solutionStore = new SolutionStore(alnsProperties.getSolutionStorePath(), alnsProperties.getSolutionStoreSize());
+            }
             
             // Send the controller a message saying we're starting
             notifyController(elapsedTime, OptimizationStatusMessage.Status.STARTING, bestGlobalObjectiveValue);
-            env.message("\nALNSLOG, " + elapsedTime + ": optimizeALNS starting.\n");
+            solverLog.info("\nALNSLOG, {}: optimizeALNS starting.\n", elapsedTime);
             
             // Removing all infeasible clusters from model
             //removeAllInfeasibleClustersFromModel();
@@ -361,33 +1168,62 @@ public class ALNS extends Orienteering {
 
             // STEP 1: generate a CONSTRUCTIVE SOLUTION
             // xOld stores the previous solution, the starting point of any iteration
-            List<Cluster> xOld = this.ALNSConstructiveSolution();
-            // old value of the objective function, generated through the old (constructive) solution
-            double oldObjectiveValue = model.get(GRB.DoubleAttr.ObjVal);
+            List<Cluster> xOld;
+            double oldObjectiveValue;
+            if (resumeCheckpoint == null) {
+                // Start from the best-known solution of the instance, if there's one
+                xOld = warmStartSolution();
+                if (xOld == null) {
+                    xOld = this.ALNSConstructiveSolution();
+                }
+                // old value of the objective function, generated through the old (constructive) solution
+                oldObjectiveValue = model.get(GRB.DoubleAttr.ObjVal);
             
-            // Update the stopwatch        
-            stopwatchUpdate();
+                // Update the stopwatch        
+                stopwatchUpdate();
             
-            // At first the best value is the one found by the constructive algorithm
-            this.bestGlobalObjectiveValue = oldObjectiveValue;
-            notifyController(elapsedTime, OptimizationStatusMessage.Status.STARTING, bestGlobalObjectiveValue);
+                // At first the best value is the one found by the constructive algorithm (or the warm start)
+                this.bestGlobalObjectiveValue = oldObjectiveValue;
+                anytimeProfile.improve(bestGlobalObjectiveValue);
+                notifyController(elapsedTime, OptimizationStatusMessage.Status.STARTING, bestGlobalObjectiveValue);
             
-            // Setup the local search
-            // Save and log the constructive solution
-            env.message("\nALNSLOG: saving the initial solution (generated by the constructive algorithm).\n");
-            saveAndLogSolution(model);
+                // Setup the local search
+                // Save and log the constructive solution
+                solverLog.info("\nALNSLOG: saving the initial solution (generated by the constructive algorithm).\n");
+                saveAndLogSolution(model);
             
-            env.message("\nALNSLOG, "+elapsedTime+": trying to get a feasible set of h. constraints for the local search...\n");
-            // Setup feasible heuristics
-            feasibleHeuristicIDs =
-                    super.getLargestFeasibleCombinationOfHeuristicConstraints(
-                    allHeuristicConstraints,
-                    xOld,
-                    alnsProperties.getMaxMIPSNodesForFeasibilityCheck()
-            );
-            stopwatchUpdate();
-            // Logging constraints used
-            env.message("\nALNSLOG, "+elapsedTime+": LS constr="+String.valueOf(feasibleHeuristicIDs)+"\n");
+                solverLog.trace("\nALNSLOG, {}: trying to get a feasible set of h. constraints for the local search...\n", elapsedTime);
+                // Setup feasible heuristics
+                feasibleHeuristicIDs =
+                        super.getLargestFeasibleCombinationOfHeuristicConstraints(
+                        allHeuristicConstraints,
+                        xOld,
+                        alnsProperties.getMaxMIPSNodesForFeasibilityCheck()
+                );
+            
+                // Prefer the fastest feasible heuristic constraints
+                if (alnsProperties.getHeuristicConstraintsCalibrationSamples() > 0 && !feasibleHeuristicIDs.isEmpty()) {
+                    feasibleHeuristicIDs = super.getFastestFeasibleCombinationOfHeuristicConstraints(
+                            feasibleHeuristicIDs,
+                            calibrationSamples(xOld, alnsProperties.getHeuristicConstraintsCalibrationSamples()),
+                            alnsProperties.getMaxMIPSNodesForFeasibilityCheck(),
+                            alnsProperties.getTimeLimitHeuristicConstraintsCalibration()
+                    );
+                }
+            
+                // Feasibility checks use the chosen heuristic constraints too
+                setSpecificHeuristicConstraints(feasibleHeuristicIDs, model);
+                stopwatchUpdate();
+                // Logging constraints used
+                solverLog.trace("\nALNSLOG, {}: LS constr={}\n", elapsedTime, feasibleHeuristicIDs);
+            } else {
+                // Start from the current solution of the checkpoint, with its heuristic constraints
+                solverLog.info("\nALNSLOG: resuming from a checkpoint taken after {} segments (best obj {}).\n", resumeCheckpoint.segments, resumeCheckpoint.bestObjective);
+                xOld = ALNSCheckpoint.toSolution(instance, resumeCheckpoint.currentSolution);
+                oldObjectiveValue = resumeCheckpoint.currentObjective;
+                feasibleHeuristicIDs = new ArrayList<>(resumeCheckpoint.heuristicConstraints);
+                setSpecificHeuristicConstraints(feasibleHeuristicIDs, model);
+            }
             
             // stores the new solution, produced by the destroy and repair heuristics
             List<Cluster> xNew = xOld;
@@ -433,12 +1269,36 @@ public class ALNS extends Orienteering {
             // Keeping track of how many segments without improvement have been seen
             long segmentsWithoutImprovement = 0;
             //long maxSegmentsWithoutImprovement = 20; // to parametrize / REMOVE
+            
+            // Pick up the main loop where the checkpoint left it
+            if (resumeCheckpoint != null) {
+                xGlobalBest = ALNSCheckpoint.toSolution(instance, resumeCheckpoint.bestSolution);
+                xBest = xGlobalBest;
+                xNew = xGlobalBest;
+                bestGlobalObjectiveValue = resumeCheckpoint.bestObjective;
+                bestObjectiveValueInSegment = bestGlobalObjectiveValue;
+                newObjectiveValue = bestGlobalObjectiveValue;
+                q = resumeCheckpoint.q;
+                segments = resumeCheckpoint.segments;
+                segmentsWithoutImprovement = resumeCheckpoint.segmentsWithoutImprovement;
+                restoreCheckpoint(resumeCheckpoint);
+                anytimeProfile.improve(bestGlobalObjectiveValue);
+                
+                // The model must hold the best solution to save its paths
+                if (testSolution(this.model, xGlobalBest, false, alnsProperties.getMaxMIPSNodesForFeasibilityCheck())) {
+                    saveAndLogSolution(model);
+                }
+                resumeCheckpoint = null;
+            }
 
             // A string to log why the segment ended.
             StringBuffer segmentEndCause = new StringBuffer();
             
             // Updating the elapsed time
             stopwatchUpdate();
+            
+            // Gurobi callbacks abort as soon as the time limit is over
+            setDeadline();
 
             // ALNS START: Cycles every segment
             do {
@@ -446,7 +1306,7 @@ public class ALNS extends Orienteering {
                 
                 // Send the controller a message saying we're running
                 notifyController(elapsedTime, OptimizationStatusMessage.Status.RUNNING, bestGlobalObjectiveValue);
-                env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + " started. q = " + q + "\n");
+                solverLog.info("\nALNSLOG, {}: segment {} started. q = {}\n", elapsedTime, segments, q);
                 
                 // Initialize/reset temperature
                 temperature = initialTemperature;
@@ -480,12 +1340,14 @@ public class ALNS extends Orienteering {
                         && xOld.size() >= 1
                         && elapsedTime <= alnsProperties.getTimeLimitALNS()
                         && iterationsWithoutImprovement < alnsProperties.getMaxIterationsWithoutImprovement()
-                        && !this.isCancelled(); // thread check
+                        && !isHybridBoundReached()
+                        && !this.isStopRequested(); // thread check
                         iterations++) {
                     
                     /* -------------------------------------- ITERATION START */
                     
-                    env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + ", iteration " + iterations + ", without improvement " + iterationsWithoutImprovement + "\n");
+                    anytimeProfile.countIteration();
+                    solverLog.trace("\nALNSLOG, {}: segment {}, iteration {}, without improvement {}\n", elapsedTime, segments, iterations, iterationsWithoutImprovement);
                     
                     // Setup of boolean values to evaluate solution quality
                     solutionIsAccepted = false;
@@ -495,15 +1357,30 @@ public class ALNS extends Orienteering {
                     solutionIsWorseAndRejected = false;
                     repairMethodWasUsed = false;
 
+                    // Restart from the MIP incumbent, if it's better than anything we found
+                    if (hybridExchange != null) {
+                        List<Cluster> incumbent = hybridExchange.takeIncumbentBetterThan(bestGlobalObjectiveValue);
+                        if (incumbent != null && promoteGlobalBest(incumbent, profitOf(incumbent), false)) {
+                            solverLog.info("\nALNSLOG, {}: restarting from the MIP incumbent {} (obj {})\n", elapsedTime, incumbent, profitOf(incumbent));
+                            xOld = new ClusterSolution(instance, incumbent);
+                            oldObjectiveValue = profitOf(xOld);
+                            xGlobalBest = xOld;
+                            notifyController(elapsedTime, OptimizationStatusMessage.Status.RUNNING, bestGlobalObjectiveValue);
+                        }
+                    }
+
                     // Picking a destroy and a repair method
                     destroyMethod = pickDestroyMethod();
                     repairMethod = pickRepairMethod();
 
                     // Apply the destruction method on the solution
-                    env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + ", iteration " + iterations + ", destroy: " + destroyMethods.getLabel(destroyMethod) + "\n");
-                    env.message("\nALNSLOG, "+"xOld ="+String.valueOf(xOld)+", q="+q+"\n");
+                    solverLog.trace("\nALNSLOG, {}: segment {}, iteration {}, destroy: {}\n", elapsedTime, segments, iterations, destroyMethods.getLabel(destroyMethod));
+                    solverLog.trace("\nALNSLOG, xOld ={}, q={}\n", xOld, q);
+                    long phaseStart = profiler.start();
                     xNew = destroyMethod.apply(xOld, q);
-                    env.message("\nALNSLOG, "+"xNewD="+String.valueOf(xNew)+", q="+q+"\n");
+                    profiler.stop("destroy/" + destroyMethods.getLabel(destroyMethod), phaseStart);
+                    xNew = dropInsertionsCompletingCores(xOld, xNew);
+                    solverLog.trace("\nALNSLOG, xNewD={}, q={}\n", xNew, q);
 
                     // CLUSTER COOLDOWN: Get the newly inserted clusters (hot clusters)
                     List<Cluster> xHotClusters = new ArrayList<>(xNew);
@@ -517,17 +1394,19 @@ public class ALNS extends Orienteering {
                     
                     //If the new solution is infeasible, apply the repair method
                     if (!testSolutionForFeasibility(xNew, false, alnsProperties.getMaxMIPSNodesForFeasibilityCheck())) {
-                        env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + ", iteration " + iterations + ", repair: " + repairMethods.getLabel(repairMethod) + "\n");
+                        solverLog.trace("\nALNSLOG, {}: segment {}, iteration {}, repair: {}\n", elapsedTime, segments, iterations, repairMethods.getLabel(repairMethod));
                         List<Cluster> removedClusters = new ArrayList<>(xNew);
+                        phaseStart = profiler.start();
                         xNew = repairBackToFeasibility4(xNew, repairMethod, false);
+                        profiler.stop("repair/" + repairMethods.getLabel(repairMethod), phaseStart);
                         removedClusters.removeAll(xNew);
-                        env.message("\nALNSLOG, "+"xNewR="+String.valueOf(xNew)+", q="+q+"\n");
+                        solverLog.trace("\nALNSLOG, xNewR={}, q={}\n", xNew, q);
                         repairMethodWasUsed = true;
                         // TODO: If a repair method was used, we could punish clusters which brought the solution into infeasibility
                         // CLUSTER COOLDOWN: Cool down freshly removed clusters since they brought the solution into infeasibility
                         clusterRoulette.cooldown(alnsProperties.getCooldownGamma(), removedClusters);
                     } else {
-                        env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + ", iteration " + iterations + ", no repair method needed.\n");
+                        solverLog.trace("\nALNSLOG, {}: segment {}, iteration {}, no repair method needed.\n", elapsedTime, segments, iterations);
                     }
                     
                     // Check if we entered feasibility. If we did,
@@ -535,10 +1414,10 @@ public class ALNS extends Orienteering {
                     // obtained through the chosen methods
                     if (testSolutionForFeasibility(xNew, false, alnsProperties.getMaxMIPSNodesForFeasibilityCheck())) {
                         newObjectiveValue = objectiveValueFromLastFeasibilityCheck;
-                        env.message("\nALNSLOG, "+"xNew was feasible. Objective value = "+newObjectiveValue);
+                        solverLog.trace("\nALNSLOG, xNew was feasible. Objective value = {}", newObjectiveValue);
                     } else {
                         /* --------------------- INFEASIBLE SOLUTION HANDLING */
-                        env.message("\nALNSLOG, "+"xNew was infeasible (despite repairing).");
+                        solverLog.trace("\nALNSLOG, xNew was infeasible (despite repairing).");
                         // If we're here, it means that the repaired solution was still infeasible,
                         // which is pretty bad and shouldn't happen (too often)
 
@@ -549,7 +1428,7 @@ public class ALNS extends Orienteering {
                         // 4 - discard the solution (set xNew = xOld), penalize the two heuristics
                         
                         // 1 - CLUSTER COOLDOWN PUNISHMENT: heavily penalize the infeasible cluster, update nerf list
-                        env.message("\nALNSLOG, punishing clusters " + String.valueOf(xNew)+"\n");
+                        solverLog.trace("\nALNSLOG, punishing clusters {}\n", xNew);
                         //DEBUG: downscaling the infeas. cluster is useless since we will kill it
                         //clusterRoulette.downscale(alnsProperties.getPunishmentGamma(), xNew);
                         //clusterRoulette.updateNerfOccurrences();
@@ -565,45 +1444,45 @@ public class ALNS extends Orienteering {
 
                         // 3 - Log the results to XLSX
                         if(elapsedTime < alnsProperties.getTimeLimitALNS()){
-                            String[] logLine = {
-                                segments + "", iterations + "", elapsedTime + "",
-                                destroyMethods.getLabel(destroyMethod), destroyMethods.toString() + "",
-                                repairMethods.getLabel(repairMethod), repairMethods.toString() + "",
-                                repairMethodWasUsed ? "1" : "0",
-                                temperature + "",
-                                simulatedAnnealingBarrier + "",
-                                q + "",
-                                csvFormatSolution(xOld), oldObjectiveValue + "",
-                                csvFormatSolution(xNew), "infeasible", solutionIsAccepted ? "1" : "0", solutionIsWorseButAccepted ? "1" : "0", "1",
-                                csvFormatSolution(xBest), bestObjectiveValueInSegment + "",
-                                csvFormatSolution(xGlobalBest), bestGlobalObjectiveValue + "",
-                                clusterRoulette.toString(),String.valueOf(clusterRoulette.getAverageProbability()),clusterRoulette.nerfOccurrencesString(),
+                            logRecord(alnsLogger, traceWriter, new ALNSIterationRecord(
+                                segments, elapsedTime,
+                                temperature, simulatedAnnealingBarrier, q,
+                                xBest, bestObjectiveValueInSegment,
+                                xGlobalBest, bestGlobalObjectiveValue,
+                                clusterRoulette,
                                 "Infeasible and discarded."
-                            };
-                            xlsxLogger.writeRow(logLine);
+                            ).setIteration(
+                                iterations,
+                                destroyMethods.getLabel(destroyMethod), destroyMethods,
+                                repairMethods.getLabel(repairMethod), repairMethods,
+                                repairMethodWasUsed,
+                                xOld, oldObjectiveValue,
+                                xNew, -1.0,
+                                solutionIsAccepted, solutionIsWorseButAccepted, true
+                            ));
                         }
                         else{
-                            String[] logLine = {
-                                segments + "", iterations + "", elapsedTime + "",
-                                destroyMethods.getLabel(destroyMethod), destroyMethods.toString() + "",
-                                repairMethods.getLabel(repairMethod), repairMethods.toString() + "",
-                                repairMethodWasUsed ? "1" : "0",
-                                temperature + "",
-                                simulatedAnnealingBarrier + "",
-                                q + "",
-                                csvFormatSolution(xOld), oldObjectiveValue + "",
-                                csvFormatSolution(xNew), "infeasible", solutionIsAccepted ? "1" : "0", solutionIsWorseButAccepted ? "1" : "0", "1",
-                                csvFormatSolution(xBest), bestObjectiveValueInSegment + "",
-                                csvFormatSolution(xGlobalBest), bestGlobalObjectiveValue + "",
-                                clusterRoulette.toString(),String.valueOf(clusterRoulette.getAverageProbability()),clusterRoulette.nerfOccurrencesString(),
+                            logRecord(alnsLogger, traceWriter, new ALNSIterationRecord(
+                                segments, elapsedTime,
+                                temperature, simulatedAnnealingBarrier, q,
+                                xBest, bestObjectiveValueInSegment,
+                                xGlobalBest, bestGlobalObjectiveValue,
+                                clusterRoulette,
                                 "No time left to check for feasibility."
-                            };
-                            xlsxLogger.writeRow(logLine);
+                            ).setIteration(
+                                iterations,
+                                destroyMethods.getLabel(destroyMethod), destroyMethods,
+                                repairMethods.getLabel(repairMethod), repairMethods,
+                                repairMethodWasUsed,
+                                xOld, oldObjectiveValue,
+                                xNew, -1.0,
+                                solutionIsAccepted, solutionIsWorseButAccepted, true
+                            ));
                         }
                         
                         // Send the controller a message saying we're still running
                         notifyController(elapsedTime, OptimizationStatusMessage.Status.RUNNING, bestGlobalObjectiveValue);
-                        env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + ", iteration " + iterations + ", repaired solution infeasible and discarded.\n");
+                        solverLog.trace("\nALNSLOG, {}: segment {}, iteration {}, repaired solution infeasible and discarded.\n", elapsedTime, segments, iterations);
 
                         // 4 - discard the solution (set xNew = xOld), penalize the two heuristics
                         // Update heuristic weights with the worst possible score
@@ -648,13 +1527,10 @@ public class ALNS extends Orienteering {
                     }
 
                     // Check if the solution is a new global optimum
-                    solutionIsNewGlobalOptimum = newObjectiveValue > bestGlobalObjectiveValue;
+                    // Save and log the new global best, once the model confirms it
+                    solutionIsNewGlobalOptimum = newObjectiveValue > bestGlobalObjectiveValue
+                            && promoteGlobalBest(xNew, newObjectiveValue, lastFeasibilityCheckUpdatedModel);
                     if(solutionIsNewGlobalOptimum){
-                        // Save and log the new global best
-                        env.message("\nALNSLOG: saving the new global best solution.\n");
-                        bestGlobalObjectiveValue = newObjectiveValue;
-                        saveAndLogSolution(model);
-                        
                         xGlobalBest = xNew;
                         
                         // Send updates to the controller
@@ -690,25 +1566,25 @@ public class ALNS extends Orienteering {
                     // Update the elapsed time
                     stopwatchUpdate();
                     // Log at the end of the iteration
-                    String[] logLine = {
-                        segments + "", iterations + "", elapsedTime + "",
-                        destroyMethods.getLabel(destroyMethod), destroyMethods.toString() + "",
-                        repairMethods.getLabel(repairMethod), repairMethods.toString() + "",
-                        repairMethodWasUsed ? "1" : "0",
-                        temperature + "",
-                        simulatedAnnealingBarrier + "",
-                        q + "",
-                        csvFormatSolution(xOld), oldObjectiveValue + "",
-                        csvFormatSolution(xNew), newObjectiveValue + "", solutionIsAccepted ? "1" : "0", solutionIsWorseButAccepted ? "1" : "0", "0",
-                        csvFormatSolution(xBest), bestObjectiveValueInSegment + "",
-                        csvFormatSolution(xGlobalBest), bestGlobalObjectiveValue + "",
-                        clusterRoulette.toString(),String.valueOf(clusterRoulette.getAverageProbability()),clusterRoulette.nerfOccurrencesString(),
+                    logRecord(alnsLogger, traceWriter, new ALNSIterationRecord(
+                        segments, elapsedTime,
+                        temperature, simulatedAnnealingBarrier, q,
+                        xBest, bestObjectiveValueInSegment,
+                        xGlobalBest, bestGlobalObjectiveValue,
+                        clusterRoulette,
                         ""
-                    };
-                    xlsxLogger.writeRow(logLine);
+                    ).setIteration(
+                        iterations,
+                        destroyMethods.getLabel(destroyMethod), destroyMethods,
+                        repairMethods.getLabel(repairMethod), repairMethods,
+                        repairMethodWasUsed,
+                        xOld, oldObjectiveValue,
+                        xNew, newObjectiveValue,
+                        solutionIsAccepted, solutionIsWorseButAccepted, false
+                    ));
                     // Send the controller a message to notify we're still running
                     notifyController(elapsedTime, OptimizationStatusMessage.Status.RUNNING, bestGlobalObjectiveValue);
-                    env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + ", iteration " + iterations + " end.\n");
+                    solverLog.trace("\nALNSLOG, {}: segment {}, iteration {} end.\n", elapsedTime, segments, iterations);
 
                     // Update the heuristic weights
                     updateHeuristicMethodsWeight(
@@ -726,7 +1602,7 @@ public class ALNS extends Orienteering {
                     if (solutionIsAccepted) {
                         xOld = xNew;
                         oldObjectiveValue = newObjectiveValue;
-                        env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + ", iteration " + iterations + " solution accepted.\n");
+                        solverLog.trace("\nALNSLOG, {}: segment {}, iteration {} solution accepted.\n", elapsedTime, segments, iterations);
                     }
 
                     // Update the elapsed time
@@ -751,10 +1627,12 @@ public class ALNS extends Orienteering {
                 //            }
                 //            
                 // We check whether there was an improvement from last segment to this one
-                if (bestObjectiveValueInSegment > bestGlobalObjectiveValue) {
-                    env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + " ended with an improvement!\n");
-                    // There was an improvement! Save the best solution found in the iterations
-                    bestGlobalObjectiveValue = bestObjectiveValueInSegment;
+                // (new global bests were promoted as soon as they were found,
+                // so this only happens if the model didn't confirm one then)
+                if (bestObjectiveValueInSegment > bestGlobalObjectiveValue
+                        && promoteGlobalBest(xBest, bestObjectiveValueInSegment, false)) {
+                    solverLog.info("\nALNSLOG, {}: segment {} ended with an improvement!\n", elapsedTime, segments);
+                    // There was an improvement! Keep the best solution found in the iterations
                     xGlobalBest = xBest;
                     
                     // Send updates to the controller
@@ -766,7 +1644,7 @@ public class ALNS extends Orienteering {
                 } else {
                     // There was no improvement: update the no-improvement counter
                     segmentsWithoutImprovement++;
-                    env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + " ended without an improvement.\n");
+                    solverLog.info("\nALNSLOG, {}: segment {} ended without an improvement.\n", elapsedTime, segments);
                 }
 
                 // Check and log why the segment has ended
@@ -787,23 +1665,22 @@ public class ALNS extends Orienteering {
                 stopwatchUpdate();
 
                 // Log at the end of the segment
-                String[] logLineSegmentEnd = {
-                    segments + "", "*" + "", elapsedTime + "",
-                    "*", "*", "*", "*", "*",
-                    temperature + "",
-                    simulatedAnnealingBarrier + "",
-                    q + "",
-                    "*", "*",
-                    "*", "*", "*", "*", "*",
-                    csvFormatSolution(xBest), bestObjectiveValueInSegment + "",
-                    csvFormatSolution(xGlobalBest), bestGlobalObjectiveValue + "",
-                    clusterRoulette.toString(),String.valueOf(clusterRoulette.getAverageProbability()),clusterRoulette.nerfOccurrencesString(),
+                logRecord(alnsLogger, traceWriter, new ALNSIterationRecord(
+                    segments, elapsedTime,
+                    temperature, simulatedAnnealingBarrier, q,
+                    xBest, bestObjectiveValueInSegment,
+                    xGlobalBest, bestGlobalObjectiveValue,
+                    clusterRoulette,
                     "End of the segment. Reason: " + segmentEndCause.toString()
-                };
-                xlsxLogger.writeRow(logLineSegmentEnd);
+                ));
                 // Send the controller a message to notify we're still running
                 notifyController(elapsedTime, OptimizationStatusMessage.Status.RUNNING, bestGlobalObjectiveValue);
-                env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + " end cause: " + segmentEndCause + "\n");
+                solverLog.info("\nALNSLOG, {}: segment {} end cause: {}\n", elapsedTime, segments, segmentEndCause);
+                if (nogoodStore != null) {
+                    solverLog.info("\nALNSLOG, {}: segment {}, known infeasible cores: {}\n", elapsedTime, segments, nogoodStore.size());
+                }
+                solverLog.info("\nALNSLOG, {}: segment {}, {}\n", elapsedTime, segments, exclusionCutPool);
+                exclusionCutPool.age();
 
                 // Reset the StringBuffer that logs the reason why a segment has ended
                 segmentEndCause = new StringBuffer();
@@ -812,10 +1689,13 @@ public class ALNS extends Orienteering {
                 /* --------------------------------------------- LOCAL SEARCH */
                 
                 // Let's try a local search run, if we have time for it
-                env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + " local search...\n");
+                solverLog.info("\nALNSLOG, {}: segment {} local search...\n", elapsedTime, segments);
                 // Run the local search on the best value in the segment
+                long phaseStart = profiler.start();
                 GRBModel lsModel = new GRBModel(this.model);
+                profiler.stop("model clone", phaseStart);
                 
+                phaseStart = profiler.start();
                 List<Cluster> xLocalSearch = this.localSearch(
                         xBest,
                         lsModel,
@@ -823,6 +1703,7 @@ public class ALNS extends Orienteering {
                         alnsProperties.getTimeLimitLocalSearch(),
                         segmentsWithoutImprovement
                 );
+                profiler.stop("local search", phaseStart);
                 double localSearchObjectiveValue;
                 try{
                     // Retrieve the objective value from the local search
@@ -832,11 +1713,12 @@ public class ALNS extends Orienteering {
                     // some improvement or change over the previous best solution
                     if(localSearchObjectiveValue >= bestGlobalObjectiveValue){
                         saveAndLogSolution(lsModel);
-                        env.message("\nALNSLOG: saving local search solution, which is better or equivalent to the current global best.\n");
+                        offerToHybridMIP(lsModel, localSearchObjectiveValue);
+                        solverLog.info("\nALNSLOG: saving local search solution, which is better or equivalent to the current global best.\n");
                     }
                 }
                 catch(Exception e){
-                    env.message("\nALNSLOG: PROBLEM - since the local search produced an infeasible solution, fallback to previous best solution. Reason: "+e.getMessage()+"\n");
+                    solverLog.info("\nALNSLOG: PROBLEM - since the local search produced an infeasible solution, fallback to previous best solution. Reason: {}\n", e.getMessage());
                     xLocalSearch = xGlobalBest;
                     localSearchObjectiveValue = bestGlobalObjectiveValue;
                 }
@@ -844,7 +1726,7 @@ public class ALNS extends Orienteering {
                 // If the solution was a real improvement over the best old
                 // one, warm it up by the cooldown factor
                 if(localSearchObjectiveValue > bestGlobalObjectiveValue){
-                    env.message("\nALNSLOG: local search solution has really improved the current best solution!\n");
+                    solverLog.info("\nALNSLOG: local search solution has really improved the current best solution!\n");
                     clusterRoulette.upscale((1.0-alnsProperties.getCooldownGamma()), xLocalSearch);
                     
                     // If the local search gave us a positive or zero improvement,
@@ -853,6 +1735,7 @@ public class ALNS extends Orienteering {
                     if (localSearchObjectiveValue >= bestGlobalObjectiveValue) {
                         xGlobalBest = xLocalSearch;
                         bestGlobalObjectiveValue = localSearchObjectiveValue;
+                        anytimeProfile.improve(bestGlobalObjectiveValue);
                         xOld = xGlobalBest;
                     }
                     
@@ -869,11 +1752,11 @@ public class ALNS extends Orienteering {
                 */
                 else {
                     if(xLocalSearch.isEmpty()){
-                        env.message("\nALNSLOG: local search solution is empty. Setting xOld to xGlobalBest\n");
+                        solverLog.info("\nALNSLOG: local search solution is empty. Setting xOld to xGlobalBest\n");
                         xOld = xGlobalBest;
                     }
                     else{
-                        env.message("\nALNSLOG: local search solution returned a pejorative solution. Setting xOld to xLocalSearch.\n");
+                        solverLog.info("\nALNSLOG: local search solution returned a pejorative solution. Setting xOld to xLocalSearch.\n");
                         xOld = xLocalSearch;
                     }
                 }
@@ -888,7 +1771,7 @@ public class ALNS extends Orienteering {
                         (
                             alnsProperties.getTimeLimitLocalSearch() > 0
                             && alnsProperties.getTimeLimitLocalSearch() + elapsedTime <= alnsProperties.getTimeLimitALNS()
-                            && !this.isCancelled()
+                            && !this.isStopRequested()
                         
                         ))
                 {
@@ -899,11 +1782,11 @@ public class ALNS extends Orienteering {
                     if (alnsProperties.getTimeLimitLocalSearch() + elapsedTime > alnsProperties.getTimeLimitALNS()) {
                         localSearchComment.append(" No time left for the local search to run!");
                     }
-                    if (this.isCancelled()){
+                    if (this.isStopRequested()){
                         localSearchComment.append(" Process cancelled by user request!");
                     }
                     
-                    env.message("ALNSLOG: Local search aborted. Reson:"+localSearchComment.toString()+"\n Keeping the previous best solution...");
+                    solverLog.info("ALNSLOG: Local search aborted. Reson:{}\n Keeping the previous best solution...", localSearchComment);
                     
                     /* THIS TEST MUST BE MOVED AS SOON AS A GLOBAL BEST IS FOUND AND DONE ONLY ONCE
                     // Test to set variables in the model and log vehicle paths
@@ -927,23 +1810,45 @@ public class ALNS extends Orienteering {
                 stopwatchUpdate();
 
                 // Log outputs
-                String[] logLine = {
-                    segments + "", "*" + "", elapsedTime + "",
-                    "*", "*", "*", "*", "*",
-                    temperature + "",
-                    simulatedAnnealingBarrier + "",
-                    q + "",
-                    "*", "*",
-                    "*", "*", "*", "*", "*",
-                    csvFormatSolution(xBest), bestObjectiveValueInSegment + "",
-                    csvFormatSolution(xGlobalBest), bestGlobalObjectiveValue + "",
-                    clusterRoulette.toString(),String.valueOf(clusterRoulette.getAverageProbability()),clusterRoulette.nerfOccurrencesString(),
+                logRecord(alnsLogger, traceWriter, new ALNSIterationRecord(
+                    segments, elapsedTime,
+                    temperature, simulatedAnnealingBarrier, q,
+                    xBest, bestObjectiveValueInSegment,
+                    xGlobalBest, bestGlobalObjectiveValue,
+                    clusterRoulette,
                     "Local search results. " + localSearchComment.toString()
-                };
-                xlsxLogger.writeRow(logLine);
+                ));
                 // Send the controller a message to notify we're still running
                 notifyController(elapsedTime, OptimizationStatusMessage.Status.RUNNING, bestGlobalObjectiveValue);
-                env.message("\nALNSLOG, " + elapsedTime + ": segment " + segments + " local search result: " + localSearchComment + "\n");
+                solverLog.info("\nALNSLOG, {}: segment {} local search result: {}\n", elapsedTime, segments, localSearchComment);
+
+                // Recombine the route pool from time to time
+                if (recombinator != null) {
+                    List<Cluster> xRecombined = takeRecombination();
+                    if (xRecombined != null) {
+                        xGlobalBest = xRecombined;
+                        xOld = xRecombined;
+                        stopwatchUpdate();
+                        notifyController(elapsedTime, OptimizationStatusMessage.Status.RUNNING, bestGlobalObjectiveValue);
+                    }
+                    if ((segments + 1) % alnsProperties.getRoutePoolRecombinationSegments() == 0) {
+                        startRecombination();
+                    }
+                }
+
+                // Relink elite solutions in the background
+                if (elitePool != null) {
+                    List<Cluster> xRelinked = takeRelinking();
+                    if (xRelinked != null) {
+                        xGlobalBest = xRelinked;
+                        xOld = xRelinked;
+                        stopwatchUpdate();
+                        notifyController(elapsedTime, OptimizationStatusMessage.Status.RUNNING, bestGlobalObjectiveValue);
+                    }
+                    elitePool.offer(xGlobalBest, bestGlobalObjectiveValue);
+                    elitePool.offer(xBest, bestObjectiveValueInSegment);
+                    startRelinking();
+                }
 
                 // Prepare solutions for the next segment
                 xNew = xGlobalBest;
@@ -969,38 +1874,130 @@ public class ALNS extends Orienteering {
 
                 // Segments will increase
                 segments++;
+                
+                // Save the state of the run from time to time
+                if (alnsProperties.getCheckpointSegments() > 0
+                        && segments % alnsProperties.getCheckpointSegments() == 0) {
+                    writeCheckpoint(xOld, oldObjectiveValue, xGlobalBest, q, segments, segmentsWithoutImprovement);
+                }
             } // do: Stopping criteria. If not verified, go on with the next segment
             while (elapsedTime <= alnsProperties.getTimeLimitALNS()
                     && q >= qMin
                     && q <= qMax // We should never exit because of this unless qStart was wrong
                     && segments < alnsProperties.getMaxSegments()
                     && segmentsWithoutImprovement < alnsProperties.getMaxSegmentsWithoutImprovement()
-                    && !this.isCancelled());
+                    && !isHybridBoundReached()
+                    && !this.isStopRequested());
             
             /* ---------------------------------------- ALL SEGMENTS FINISHED */
             
-            // Close the excel logger gracefully
-            xlsxLogger.close();
+            // Models solved from now on must not be aborted by the time limit
+            cancellation.clearDeadline();
+            
             // Send the controller a message to notify we're stopping
             notifyController(elapsedTime, OptimizationStatusMessage.Status.STOPPING, bestGlobalObjectiveValue);
-            env.message("\nALNSLOG, " + elapsedTime + ": ALNS run completed.\n");
+            solverLog.info("\nALNSLOG, {}: ALNS run completed.\n", elapsedTime);
 
             // If we were interrupted by the user, throw an exception
-            if (this.isCancelled()) {
+            if (this.isStopRequested()) {
                 throw new InterruptedException("optimizeALNS() interrupted in the solver phase.");
             }
         } catch (InterruptedException e) {
-            // Close the excel logger gracefully
-            xlsxLogger.close();
-            
             // Send the controller a message to notify we're stopped
             notifyController(elapsedTime, OptimizationStatusMessage.Status.STOPPED, bestGlobalObjectiveValue);
             super.cancel(true);
             throw new InterruptedException(e.getMessage());
         }
         finally{
-            env.message("\nThis is the best solution found:\n"+bestSolution.toString());
+            // Close the logs gracefully, whatever ended the run
+            closeLogs(alnsLogger, traceWriter);
+            stopRecombinations();
+            stopRelinking();
+            storeBestSolution();
+            solverLog.info("\nThis is the best solution found:\n{}", bestSolution);
+            if (anytimeProfile != null) {
+                anytimeProfile.stop();
+            }
+            reportProfile();
+            telemetry.stop();
+            telemetry = null;
+        }
+    }
+    
+    /**
+     * Writes a checkpoint of the run to the output folder, replacing the
+     * previous one. A checkpoint which can't be written is only logged.
+     *
+     * @param xOld the current solution
+     * @param oldObjectiveValue the objective value of the current solution
+     * @param xGlobalBest the best solution found so far
+     * @param q the number of clusters to destroy and repair
+     * @param segments the number of segments completed
+     * @param segmentsWithoutImprovement the number of segments completed
+     * since the last improvement
+     */
+    private void writeCheckpoint(
+            List<Cluster> xOld, double oldObjectiveValue,
+            List<Cluster> xGlobalBest,
+            int q, long segments, long segmentsWithoutImprovement
+    ) {
+        long phaseStart = profiler.start();
+        ALNSCheckpoint checkpoint = new ALNSCheckpoint(getModelPath(),
+                solver != null ? solver : Controller.Solvers.SOLVE_ALNS,
+                new ParametersBean(orienteeringProperties, alnsProperties));
+        checkpoint.currentSolution = ALNSCheckpoint.toIDs(xOld);
+        checkpoint.currentObjective = oldObjectiveValue;
+        checkpoint.bestSolution = ALNSCheckpoint.toIDs(xGlobalBest);
+        checkpoint.bestObjective = bestGlobalObjectiveValue;
+        checkpoint.q = q;
+        checkpoint.segments = segments;
+        checkpoint.segmentsWithoutImprovement = segmentsWithoutImprovement;
+        checkpoint.elapsedTime = elapsedTime;
+        checkpoint.heuristicConstraints = new ArrayList<>(feasibleHeuristicIDs);
+        checkpoint.destroyWeights = destroyMethods.getWeights();
+        checkpoint.repairWeights = repairMethods.getWeights();
+        checkpoint.clusterProbabilities = clusterRoulette.getProbabilities();
+        checkpoint.randomState = random.getState();
+        
+        String path = ALNSCheckpoint.defaultPath(orienteeringProperties.getOutputFolderPath(), instance.getName());
+        try {
+            checkpoint.write(path);
+            solverLog.info("\nALNSLOG, {}: checkpoint written to {}\n", elapsedTime, path);
+        } catch (IOException e) {
+            solverLog.info("\nALNSLOG, {}: PROBLEM - can't write the checkpoint to {}: {}\n", elapsedTime, path, e.getMessage());
+        }
+        profiler.stop("checkpoint", phaseStart);
+    }
+    
+    /**
+     * Restores the adaptive state of the run from a checkpoint: the weights
+     * of the heuristics, the cluster roulette (clusters ignored before the
+     * checkpoint are unwired from the model again), the random generator and
+     * the elapsed time.
+     *
+     * @param checkpoint the checkpoint to restore
+     * @throws GRBException if clusters can't be unwired from the model
+     */
+    private void restoreCheckpoint(ALNSCheckpoint checkpoint) throws GRBException {
+        destroyMethods.setWeights(checkpoint.destroyWeights);
+        repairMethods.setWeights(checkpoint.repairWeights);
+        
+        clusterRoulette.getAvailableClusters().forEach(c -> c.setInstanceVehicles(instance.getVehicles()));
+        clusterRoulette.setProbabilities(checkpoint.clusterProbabilities);
+        int countRemoved = 0;
+        for (int i = 0; i < checkpoint.clusterProbabilities.length; i++) {
+            if (checkpoint.clusterProbabilities[i] == -1.0) {
+                unwireClusterFromModel(instance.getCluster(i));
+                countRemoved++;
+            }
         }
+        solverLog.info("\nALNSLOG: {} clusters ignored before the checkpoint removed from the model\n", countRemoved);
+        
+        random.setState(checkpoint.randomState);
+        
+        // The stopwatch goes on from the elapsed time of the checkpoint
+        startTimeInNanos -= (long) (checkpoint.elapsedTime * 1e9);
+        stopwatchUpdate();
     }
     
     /**
@@ -1016,6 +2013,93 @@ public class ALNS extends Orienteering {
     private void stopwatchUpdate(){
         elapsedTime = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTimeInNanos);
     }
+    
+    /**
+     * Sets the deadline of the Gurobi callbacks to the moment the main loop
+     * stops because of <tt>timeLimitALNS</tt>: the elapsed time is counted in
+     * whole seconds and the loop goes on as long as it doesn't exceed the
+     * limit.
+     */
+    private void setDeadline(){
+        cancellation.setDeadline(startTimeInNanos
+                + TimeUnit.SECONDS.toNanos(alnsProperties.getTimeLimitALNS() + 1));
+    }
+    
+    /**
+     * Prints the timings and counters of the run as a summary table and
+     * writes them to <tt>instance_PROFILE.txt</tt>, next to the solution file.
+     */
+    private void reportProfile() {
+        String header = "Phase timings for instance " + instance.getName()
+                + " (ALNS run of " + elapsedTime + "s, ended " + LocalDateTime.now() + ")";
+        if (nogoodStore != null) {
+            long hits = profiler.getCounter("feasibility check/rejected by known core");
+            header += String.format("%nNogood learning: %d checks rejected by %d known cores, "
+                    + "%.1fs of IIS out of a budget of %.1fs (%.1f rejections per IIS second)",
+                    hits, nogoodStore.size(), nogoodExtractionTimeSpent, nogoodExtractionTimeBudget,
+                    nogoodExtractionTimeSpent > 0 ? hits / nogoodExtractionTimeSpent : 0.0);
+        }
+        solverLog.info("\n{}\n{}\n", header, profiler.summary());
+        try {
+            profiler.writeSummary(
+                    orienteeringProperties.getOutputFolderPath() + File.separator + instance.getName() + "_PROFILE.txt",
+                    header);
+        } catch (IOException ex) {
+            Logger.getLogger(ALNS.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    /**
+     * Sends a record to the ALNS log and, if there is one, to the binary
+     * iteration trace.
+     *
+     * @param logger the ALNS log
+     * @param traceWriter the iteration trace, null if it's disabled
+     * @param record the record to write
+     */
+    private void logRecord(ALNSAsyncLogger logger, ALNSTraceWriter traceWriter, ALNSIterationRecord record) {
+        long logStart = profiler.start();
+        logger.log(record);
+        if (telemetry != null) {
+            telemetry.update(record, destroyMethods, repairMethods);
+        }
+        // Like the log, a broken trace must not stop the search
+        if (traceWriter != null && !traceWriterFailed) {
+            try {
+                traceWriter.write(record, destroyMethods, repairMethods, clusterRoulette,
+                        feasibilityCheckNanos, feasibilityCheckNodes);
+            } catch (IOException e) {
+                solverLog.info("\nALNSLOG: PROBLEM - can't write the iteration trace, no more records will be written: {}\n", e.getMessage());
+                traceWriterFailed = true;
+            }
+        }
+        profiler.stop("logging", logStart);
+    }
+    
+    /**
+     * Closes the ALNS log and the iteration trace. Problems while closing
+     * them are only reported, so that they don't hide the outcome of the run.
+     *
+     * @param logger the ALNS log
+     * @param traceWriter the iteration trace, null if it's disabled
+     */
+    private void closeLogs(ALNSAsyncLogger logger, ALNSTraceWriter traceWriter) {
+        try {
+            logger.close();
+        } catch (IOException e) {
+            solverLog.info("\nALNSLOG: PROBLEM - can't close the ALNS log: {}\n", e.getMessage());
+        } catch (InterruptedException e) {
+            solverLog.info("\nALNSLOG: PROBLEM - interrupted while closing the ALNS log\n");
+            Thread.currentThread().interrupt();
+        }
+        if (traceWriter != null) {
+            try {
+                traceWriter.close();
+            } catch (IOException e) {
+                solverLog.info("\nALNSLOG: PROBLEM - can't close the iteration trace: {}\n", e.getMessage());
+            }
+        }
+    }
 
     /**
      * Calculate an integer estimate of the progress of the solver run
@@ -1097,8 +2181,6 @@ public class ALNS extends Orienteering {
          * requirements are met.
          */
 
-        Random r = new Random();
-
         /**
          * This is a problem of maximization, so the value of the objective
          * function must always increase when possible and could decrease with a
@@ -1110,11 +2192,11 @@ public class ALNS extends Orienteering {
          * DIFF<0 and 0 < P=exp(DIFF/T) < 1 => the solution is accepted with
          * probability P
          */
-        if (r.nextDouble() < simulatedAnnealingBarrier) {
-            env.message("\nSolution accepted!\n");
+        if (random.nextDouble() < simulatedAnnealingBarrier) {
+            solverLog.trace("\nSolution accepted!\n");
             return true;
         } else {
-            env.message("\nSolution rejected!\n");
+            solverLog.trace("\nSolution rejected!\n");
             return false;
         }
     }
@@ -1140,6 +2222,33 @@ public class ALNS extends Orienteering {
         return Math.exp((newObjectiveValue - oldObjectiveValue) / temperature);
     }
 
+    /**
+     * Get the destroy heuristics in use, with their labels and weights
+     *
+     * @return the distribution of destroy heuristics
+     */
+    ObjectDistribution<BiFunction<List<Cluster>, Integer, List<Cluster>>> getDestroyMethods() {
+        return destroyMethods;
+    }
+
+    /**
+     * Get the repair heuristics in use, with their labels and weights
+     *
+     * @return the distribution of repair heuristics
+     */
+    ObjectDistribution<BiFunction<List<Cluster>, Integer, List<Cluster>>> getRepairMethods() {
+        return repairMethods;
+    }
+
+    /**
+     * Get the anytime curve and the iteration count of the last ALNS run
+     *
+     * @return the profile of the last ALNS run, null if no run was started
+     */
+    public AnytimeProfile getAnytimeProfile() {
+        return anytimeProfile;
+    }
+
     // DESTROY HEURISTICS
     /**
      * This is a template for a destroy (insertion) heuristic. It represents a
@@ -1151,20 +2260,116 @@ public class ALNS extends Orienteering {
      * @return the destroyed solution
      */
     private List<Cluster> destroyHeuristicTemplate(List<Cluster> inputSolution, int q) {
-        // Initialize available clusters
-        List<Cluster> availableClusters = this.getClustersNotInSolution(inputSolution);
-
+        // Add the first q available clusters, following the presorted order
+        return insertFollowingStaticOrder(inputSolution, q, profitDescendingOrder);
+    }
+    
+    /**
+     * Sorts the IDs of all the clusters in the instance with the given
+     * comparator. The sort is stable, so ties keep the order of the instance.
+     * <br>Only keys which never change during a run (profit, cost...) should
+     * be used here, since the order is computed once per instance.
+     *
+     * @param comparator the static criterion to sort clusters by
+     * @return the array of cluster IDs, sorted by the given criterion
+     */
+    private int[] staticOrderOfClusters(Comparator<Cluster> comparator) {
+        List<Cluster> sorted = instance.cloneClusters();
+        sorted.sort(comparator);
+        
+        int[] order = new int[sorted.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = sorted.get(i).getId();
+        }
+        return order;
+    }
+    
+    /**
+     * Builds a boolean mask over cluster IDs which flags all the clusters
+     * in the given solution.
+     *
+     * @param solution the solution to flag
+     * @return a mask where <code>mask[id]</code> is true if cluster
+     * <code>id</code> is in solution
+     */
+    private boolean[] solutionMask(List<Cluster> solution) {
+        boolean[] mask = new boolean[instance.getNum_clusters()];
+        for (Cluster c : solution) {
+            mask[c.getId()] = true;
+        }
+        return mask;
+    }
+    
+    /**
+     * Undoes the insertions of a destroy heuristic which would make the
+     * solution surely infeasible, because they complete an infeasible core
+     * known to the nogood store. Insertions are examined in the order they
+     * were made, so the first ones are preferred.
+     *
+     * @param oldSolution the solution before the destroy heuristic
+     * @param destroyedSolution the solution returned by the destroy heuristic
+     * @return the destroyed solution, without the insertions which complete a
+     * known core
+     */
+    private List<Cluster> dropInsertionsCompletingCores(List<Cluster> oldSolution, List<Cluster> destroyedSolution) {
+        if (nogoodStore == null || nogoodStore.size() == 0) {
+            return destroyedSolution;
+        }
+        
+        boolean[] inSolution = solutionMask(oldSolution);
+        List<Cluster> output = solutionCopy(oldSolution);
+        int dropped = 0;
+        for (Cluster c : destroyedSolution) {
+            if (!inSolution[c.getId()]) {
+                if (nogoodStore.completesCore(inSolution, c.getId())) {
+                    dropped++;
+                } else {
+                    inSolution[c.getId()] = true;
+                    output.add(c);
+                }
+            }
+        }
+        
+        // Nothing was dropped: keep the heuristic's output as it is
+        return (dropped == 0) ? destroyedSolution : output;
+    }
+    
+    /**
+     * Generic greedy insertion: walks the given presorted order of clusters
+     * and inserts the first q of them which are not in the input solution,
+     * not ignored and which pass their roulette test.
+     * <br>This costs O(q + skipped clusters) instead of sorting every
+     * available cluster at each call.
+     * <br>If the roulette doesn't extract anything, the same fallbacks as
+     * <code>getClustersNotInSolution</code> are applied, still following the
+     * given order.
+     *
+     * @param inputSolution the solution to destroy
+     * @param q the number of clusters to insert
+     * @param order the presorted array of cluster IDs to follow
+     * @return the destroyed solution
+     */
+    private List<Cluster> insertFollowingStaticOrder(List<Cluster> inputSolution, int q, int[] order) {
         // Initialize the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
-
-        // Sort the available clusters
-        availableClusters.sort(Cluster.PROFIT_COMPARATOR.reversed());
-
-        // Add q available clusters (or as many clusters as possible) to the solution
-        for (int i = 0; i < q && i < availableClusters.size(); i++) {
-            output.add(availableClusters.get(i));
+        List<Cluster> output = solutionCopy(inputSolution);
+        
+        if (q > 0) {
+            boolean[] inSolution = solutionMask(inputSolution);
+            List<Cluster> toInsert = clusterRoulette.queryInOrder(order, inSolution, q);
+            
+            // Fallback: nothing passed the roulette test
+            if (toInsert.isEmpty()) {
+                boolean[] available = solutionMask(getClustersNotInSolution(inputSolution));
+                for (int i = 0; i < order.length && toInsert.size() < q; i++) {
+                    if (available[order[i]]) {
+                        toInsert.add(instance.getCluster(order[i]));
+                    }
+                }
+            }
+            
+            output.addAll(toInsert);
         }
-
+        
         // return the destroyed input
         return output;
     }
@@ -1176,6 +2381,9 @@ public class ALNS extends Orienteering {
      * center instead.
      * If the inputSolution is null or empty, default the barycenter to the
      * start deposit.
+     * <br>The coordinates are read from the aggregates kept by
+     * <code>ClusterSolution</code>, so no pass over the solution is needed
+     * when the input already is one.
      * 
      * @param inputSolution the solution to get the center of
      * @return the virtual node with the coordinates of the barycenter
@@ -1184,93 +2392,89 @@ public class ALNS extends Orienteering {
         Node firstNode = instance.getNode(0);
         // Default the barycenter to the start deposit
         Node out = new Node(-1, firstNode.getX(), firstNode.getY());
-        double totalMass = 0.0;
         
         // Check that the solution isn't null or empty
         if(inputSolution != null && inputSolution.size() > 0){
-            
-            double outX = 0.0;
-            double outY = 0.0;
-            boolean useMassCenter = true;
-            
-            // Try computing the centre of mass
-            for(Cluster c : inputSolution){
-                double x = c.getX();
-                double y = c.getY();
-                double mass = c.getTotalCost();
-
-                if(mass > 0.0){
-                    outX = (outX*totalMass+x*mass)/(totalMass+mass);
-                    outY = (outY*totalMass+y*mass)/(totalMass+mass);
-                    totalMass += mass;
-                }
-                else{
-                    useMassCenter = false;
-                    totalMass = 0.0;
-                    break;
-                }
-            }
-
-            // If some cluster has zero mass, let's switch to a normal average
-            // instead
-            if(!useMassCenter){
-                // Setup the barycenter to the coordinates of the first node
-                // in solution
-                outX = inputSolution.get(0).getX();
-                outY = inputSolution.get(0).getY();
-                
-                // Update the barycenter for each other node in the solution
-                for(int i = 1; i < inputSolution.size(); i++){
-                    double x = inputSolution.get(i).getX();
-                    double y = inputSolution.get(i).getY();
-                    outX = (outX + x)/2.0;
-                    outY = (outY + y)/2.0;
-                }
-            }
-            
-            // Prepare the node to return
-            out = new Node(-1, outX, outY);
+            ClusterSolution solution = asClusterSolution(inputSolution);
+            out = new Node(-1, solution.getBarycenterX(), solution.getBarycenterY());
         }
         
         return out;
     }
     
+    /**
+     * Returns a new <code>ClusterSolution</code> holding the same clusters as
+     * the input solution. If the input is a <code>ClusterSolution</code> its
+     * aggregates are copied, otherwise they're computed.
+     *
+     * @param inputSolution the solution to copy
+     * @return a copy of the input solution which keeps track of its aggregates
+     */
+    private ClusterSolution solutionCopy(List<Cluster> inputSolution) {
+        if (inputSolution instanceof ClusterSolution) {
+            return new ClusterSolution((ClusterSolution) inputSolution);
+        }
+        return new ClusterSolution(instance, inputSolution);
+    }
+    
+    /**
+     * Returns the input solution as a <code>ClusterSolution</code>, without
+     * copying it if it already is one.
+     *
+     * @param inputSolution the solution to read the aggregates of
+     * @return the input solution, or a <code>ClusterSolution</code> copy of it
+     */
+    private ClusterSolution asClusterSolution(List<Cluster> inputSolution) {
+        if (inputSolution instanceof ClusterSolution) {
+            return (ClusterSolution) inputSolution;
+        }
+        return new ClusterSolution(instance, inputSolution);
+    }
+    
     /**
      * This is a destroy (insertion) heuristic.
      * It inserts the q available clusters which are closest to the barycenter
      * of the input solution, as computed by the
      * <code>barycenterOfSolution</code> method.
+     * <br>Candidates are visited nearest first through the spatial index of
+     * the instance, and the roulette test is performed on each one of them
+     * as it's visited, so only the neighbourhood of the barycenter is
+     * explored.
      *
      * @param inputSolution the solution to destroy
      * @param q the number of clusters to insert
      * @return the destroyed solution
      */
     private List<Cluster> destroyCloseToBarycenter(List<Cluster> inputSolution, int q) {
-        // Initialize available clusters
-        List<Cluster> availableClusters = this.getClustersNotInSolution(inputSolution);
-
         // Initialize the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
         
-        // Get the barycenter of the input solution
-        Node barycenter = barycenterOfSolution(inputSolution);
-        
-        // Prepare the map of available clusters to add to the input solution
-        LinkedHashMap<Cluster, Double> clustersMap = new LinkedHashMap<>();
-        for(Cluster c : availableClusters){
-            clustersMap.put(c, c.distance(barycenter));
-        }
-        
-        // Sort the available clusters so that the closest clusters come first
-        List<Cluster> insertOrder = new ArrayList<>();
-        clustersMap.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue())
-                .forEachOrdered(entry -> insertOrder.add(entry.getKey()));
-
-        // Add q available clusters (or as many clusters as possible) to the solution
-        for (int i = 0; i < q && i < insertOrder.size(); i++) {
-            output.add(insertOrder.get(i));
+        if (q > 0) {
+            SpatialIndex index = instance.getClusterSpatialIndex();
+            
+            // Get the barycenter of the input solution
+            Node barycenter = barycenterOfSolution(inputSolution);
+            
+            // Find the q closest clusters not in solution which pass the roulette test
+            boolean[] inSolution = solutionMask(inputSolution);
+            List<Integer> toInsert = index.nearest(
+                    barycenter.getX(), barycenter.getY(), q,
+                    id -> !inSolution[id] && clusterRoulette.test(id, random)
+            );
+            
+            // Fallback: nothing passed the roulette test
+            if (toInsert.isEmpty()) {
+                boolean[] available = solutionMask(getClustersNotInSolution(inputSolution));
+                toInsert = index.nearest(
+                        barycenter.getX(), barycenter.getY(), q,
+                        id -> available[id]
+                );
+            }
+            
+            // Add the clusters to the solution, closest first
+            for (int id : toInsert) {
+                output.add(instance.getCluster(id));
+            }
         }
 
         // return the destroyed input
@@ -1286,22 +2490,8 @@ public class ALNS extends Orienteering {
      * @return the destroyed solution
      */
     private List<Cluster> destroyGreedyProfitInsertion(List<Cluster> inputSolution, int q) {
-        // Initialize available clusters
-        List<Cluster> availableClusters = this.getClustersNotInSolution(inputSolution);
-
-        // Initialize the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
-
-        // Sort the available clusters
-        availableClusters.sort(Cluster.PROFIT_COMPARATOR.reversed());
-
-        // Add q available clusters (or as many clusters as possible) to the solution
-        for (int i = 0; i < q && i < availableClusters.size(); i++) {
-            output.add(availableClusters.get(i));
-        }
-
-        // return the destroyed input
-        return output;
+        // Add the first q available clusters, following the presorted order
+        return insertFollowingStaticOrder(inputSolution, q, profitDescendingOrder);
     }
 
     /**
@@ -1313,22 +2503,8 @@ public class ALNS extends Orienteering {
      * @return the destroyed solution
      */
     private List<Cluster> destroyGreedyCostInsertion(List<Cluster> inputSolution, int q) {
-        // Initialize available clusters
-        List<Cluster> availableClusters = this.getClustersNotInSolution(inputSolution);
-
-        // Initialize the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
-
-        // Sort the available clusters
-        availableClusters.sort(Cluster.COST_COMPARATOR);
-
-        // Add q available clusters (or as many clusters as possible) to the solution
-        for (int i = 0; i < q && i < availableClusters.size(); i++) {
-            output.add(availableClusters.get(i));
-        }
-
-        // return the destroyed input
-        return output;
+        // Add the first q available clusters, following the presorted order
+        return insertFollowingStaticOrder(inputSolution, q, costAscendingOrder);
     }
 
     /**
@@ -1340,22 +2516,8 @@ public class ALNS extends Orienteering {
      * @return the destroyed solution
      */
     private List<Cluster> destroyGreedyBestInsertion(List<Cluster> inputSolution, int q) {
-        // Initialize available clusters
-        List<Cluster> availableClusters = this.getClustersNotInSolution(inputSolution);
-
-        // Initialize the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
-
-        // Sort the available clusters
-        availableClusters.sort(Cluster.PROFIT_COST_RATIO_COMPARATOR.reversed());
-
-        // Add q available clusters (or as many clusters as possible) to the solution
-        for (int i = 0; i < q && i < availableClusters.size(); i++) {
-            output.add(availableClusters.get(i));
-        }
-
-        // return the destroyed input
-        return output;
+        // Add the first q available clusters, following the presorted order
+        return insertFollowingStaticOrder(inputSolution, q, profitCostRatioDescendingOrder);
     }
 
     /**
@@ -1368,10 +2530,10 @@ public class ALNS extends Orienteering {
      */
     private List<Cluster> destroyRandomInsertion(List<Cluster> inputSolution, int q) {
         // Initialize the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
 
         // Create an uniform random distribution of clusters and populate it
-        ObjectDistribution<Cluster> clustersToInsert = new ObjectDistribution<>();
+        ObjectDistribution<Cluster> clustersToInsert = new ObjectDistribution<>(random);
         clustersToInsert.addAll(getClustersNotInSolution(output));
 
         // Insert q clusters not in the solution, picking them randomly
@@ -1399,7 +2561,7 @@ public class ALNS extends Orienteering {
         inputSolution.sort(Cluster.COST_COMPARATOR.reversed());
 
         // Initialize the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
 
         // Remove q clusters from the solution, following the imposed ordering
         int i = 0;
@@ -1426,7 +2588,7 @@ public class ALNS extends Orienteering {
      */
     private List<Cluster> repairHighCostRemoval(List<Cluster> inputSolution, int q) {
         // Initialize the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
 
         // Sort the clusters from the input solution
         output.sort(Cluster.COST_COMPARATOR.reversed());
@@ -1456,7 +2618,7 @@ public class ALNS extends Orienteering {
      */
     private List<Cluster> repairWorstRemoval(List<Cluster> inputSolution, int q) {
         // Initialize the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
 
         // Sort the clusters from the input solution
         output.sort(Cluster.PROFIT_COST_RATIO_COMPARATOR);
@@ -1498,7 +2660,7 @@ public class ALNS extends Orienteering {
      */
     private List<Cluster> repairVehicleTime(List<Cluster> inputSolution, int q) {
         // Initialize the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
 
         // Sort the clusters in the input solution
         output.sort(Cluster.PROFIT_COST_RATIO_COMPARATOR);
@@ -1508,8 +2670,12 @@ public class ALNS extends Orienteering {
             Cluster firstClusterRemoved = output.remove(0);
 
             if (q > 1) {
+                // Service costs cached by the instance, by cluster (and vehicle)
+                double[] serviceCosts = instance.getClusterServiceCosts();
+                double[][] serviceCostsPerVehicle = instance.getClusterServiceCostsPerVehicle();
+                
                 Vehicle firstVehicle = null;
-                double firstClusterCost = firstClusterRemoved.getTotalCost();
+                double firstClusterCost = serviceCosts[firstClusterRemoved.getId()];
 //                int biggestStreakSize = 0;
 
                 // Stores clusters and their ratios
@@ -1520,7 +2686,7 @@ public class ALNS extends Orienteering {
                 double maxCost = 0;
                 for (Vehicle v : instance.getVehicles()) {
                     if (v.canServe(firstClusterRemoved)){
-                        double newCost = firstClusterRemoved.getTotalCostForVehicle(v);
+                        double newCost = serviceCostsPerVehicle[firstClusterRemoved.getId()][v.getId()];
                         if(newCost >= maxCost){
                             maxCost = newCost;
                             firstVehicle = v;
@@ -1558,7 +2724,7 @@ public class ALNS extends Orienteering {
                         Cluster c = output.get(i);
                         clustersRatios.put(
                                 c,
-                                Math.abs(firstClusterRatio - c.getTotalCostForVehicle(firstVehicle) / (1 + c.getTotalCost()))
+                                Math.abs(firstClusterRatio - serviceCostsPerVehicle[c.getId()][firstVehicle.getId()] / (1 + serviceCosts[c.getId()]))
                         );
                     }
 
@@ -1584,12 +2750,7 @@ public class ALNS extends Orienteering {
 
                 } // debug
                 else {
-                    try {
-                        env.message("Error in repairVehicleTime heuristic!\n"
-                                + "No serving vehicle found for first cluster " + firstClusterRemoved.getId() + "\n");
-                    } catch (GRBException ex) {
-                        Logger.getLogger(ALNS.class.getName()).log(Level.SEVERE, null, ex);
-                    }
+                    solverLog.info("Error in repairVehicleTime heuristic!\nNo serving vehicle found for first cluster {}\n", firstClusterRemoved.getId());
                 }
             }
         }
@@ -1615,7 +2776,7 @@ public class ALNS extends Orienteering {
      */
     private List<Cluster> repairTravelTime(List<Cluster> inputSolution, int q) {
         // Initialize the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
 
         // Constant at the denominator
         double D = 3.0;
@@ -1628,11 +2789,7 @@ public class ALNS extends Orienteering {
             Cluster firstClusterRemoved = output.remove(0);
 
             if (q > 1) {
-                // Initialize the firstNode and lastNode of the instance we're working on
-                Node firstNode = instance.getNode(0);
-                Node lastNode = instance.getNode(instance.getNum_nodes() - 1);
-
-                double firstRatio = (firstClusterRemoved.distance(firstNode) + firstClusterRemoved.distance(lastNode)) / D;
+                double firstRatio = depositDistances[firstClusterRemoved.getId()] / D;
 
                 // Stores clusters and their ratios
                 LinkedHashMap<Cluster, Double> clustersRatios = new LinkedHashMap<>();
@@ -1642,7 +2799,7 @@ public class ALNS extends Orienteering {
                     Cluster candidateCluster = output.get(i);
                     clustersRatios.put(
                             candidateCluster,
-                            Math.abs(firstRatio - (firstClusterRemoved.distance(candidateCluster) + candidateCluster.distance(firstNode) + candidateCluster.distance(lastNode)) / D)
+                            Math.abs(firstRatio - (firstClusterRemoved.distance(candidateCluster) + depositDistances[candidateCluster.getId()]) / D)
                     );
                 }
 
@@ -1681,10 +2838,10 @@ public class ALNS extends Orienteering {
      */
     private List<Cluster> repairRandomRemoval(List<Cluster> inputSolution, int q) {
         // Initialize the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
 
         // Create an uniform random distribution of clusters and populate it
-        ObjectDistribution<Cluster> clustersToRemove = new ObjectDistribution<>();
+        ObjectDistribution<Cluster> clustersToRemove = new ObjectDistribution<>(random);
         clustersToRemove.addAll(output);
 
         // Remove q clusters from the solution, picking them randomly
@@ -1734,13 +2891,15 @@ public class ALNS extends Orienteering {
         }
 
         // Setup the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
 
         // 0. Check feasibility and start cycling until we have a feasible solution
         boolean isFeasible = testSolutionForFeasibility(output, true, alnsProperties.getMaxMIPSNodesForFeasibilityCheck());
         while (!isFeasible && output.size() > 1) {
             // 1. Compute the feasibilityRelaxation so that we can retrieve some information on z and Tmax
+            long cloneStart = profiler.start();
             GRBModel clone = new GRBModel(model);
+            profiler.stop("model clone", cloneStart);
 
             // Setup the new value of Tmax as the maximum value for a double
             double safeTMax = instance.getTmax() * instance.getNum_vehicles() * instance.getNum_nodes();
@@ -1861,7 +3020,7 @@ public class ALNS extends Orienteering {
      */
     private List<Cluster> repairBackToFeasibility2(List<Cluster> inputSolution) throws Exception {
         // Setup the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
 
         while (!testSolutionForFeasibility(output, false, alnsProperties.getMaxMIPSNodesForFeasibilityCheck())) {
             output = this.repairWorstRemoval(output, 1);
@@ -1888,7 +3047,7 @@ public class ALNS extends Orienteering {
             BiFunction<List<Cluster>, Integer, List<Cluster>> repairMethod
     ) throws Exception {
         // Setup the output
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
 
         while (output.size() > 1 && !testSolutionForFeasibility(output, false, alnsProperties.getMaxMIPSNodesForFeasibilityCheck())) {
             output = repairMethod.apply(output, 1);
@@ -1904,6 +3063,11 @@ public class ALNS extends Orienteering {
      * implementation is different than the previous ones because it will test
      * different "degrees of destruction" q until it finds the smallest one that
      * works.
+     * <br>If <code>useBisectionRepair</code> is set, q is doubled until the
+     * repaired solution is feasible, then bisected between the largest
+     * infeasible q and the smallest feasible one, so that at most O(log n)
+     * degrees are tested. Repaired solutions which were already tested are
+     * not tested again.
      * <br>If the solution is irreparable, the smallest infeasible solution will
      * be returned.
      * <br>Feasibility is tested again at the end of the method, so you can
@@ -1922,10 +3086,14 @@ public class ALNS extends Orienteering {
             boolean isFeasible
     ) throws Exception {
         // Clone the input
-        List<Cluster> inputClone = new ArrayList<>(inputSolution);
+        List<Cluster> inputClone = solutionCopy(inputSolution);
+        
+        if (alnsProperties.isUseBisectionRepair()) {
+            return bisectionRepair(inputClone, repairMethod, isFeasible);
+        }
 
         // Setup the starting output solution as a clone of the input solution
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
 
         // Check the initial input size
         int inputSize = inputSolution.size();
@@ -1938,9 +3106,8 @@ public class ALNS extends Orienteering {
         // the solution is infeasible (we want to exit the cycle when the solution
         // is either too small or feasible)
         while (!isFeasible && q < inputSize && elapsedTime < alnsProperties.getTimeLimitALNS()) {
-            env.message("\nALNSLOG: trying to repair solution with "
-                    + repairMethods.getLabel(repairMethod)
-                    + " and q="+q+"...\n");
+            long loopStart = profiler.start();
+            solverLog.trace("\nALNSLOG: trying to repair solution with {} and q={}...\n", repairMethods.getLabel(repairMethod), q);
             // Try repairing the input solution with the given heuristic and the given q
             output = repairMethod.apply(inputClone, q);
             isFeasible = testSolutionForFeasibility(output, false, alnsProperties.getMaxMIPSNodesForFeasibilityCheck());
@@ -1953,11 +3120,117 @@ public class ALNS extends Orienteering {
             // Update the elapsed time to make sure we don't miss the ALNS deadline
             stopwatchUpdate();
             notifyController(elapsedTime, OptimizationStatusMessage.Status.RUNNING, bestGlobalObjectiveValue);
+            profiler.stop("repair loop/" + repairMethods.getLabel(repairMethod), loopStart);
         }
 
         return output;
     }
 
+    /**
+     * Repairs a solution with the smallest degree of reparation q found by
+     * doubling q until the repaired solution is feasible, then bisecting it
+     * between the largest infeasible q and the smallest feasible one.
+     *
+     * @param inputSolution an infeasible solution
+     * @param repairMethod the repair heuristic to use
+     * @param isFeasible the result of the last feasibility check
+     * @return the repaired solution, which can be feasible or infeasible.
+     * @throws Exception if testing the solution breaks somewhere
+     */
+    private List<Cluster> bisectionRepair(
+            List<Cluster> inputSolution,
+            BiFunction<List<Cluster>, Integer, List<Cluster>> repairMethod,
+            boolean isFeasible
+    ) throws Exception {
+        List<Cluster> output = inputSolution;
+        int inputSize = inputSolution.size();
+        Map<BitSet, Boolean> tested = new HashMap<>();
+        String label = repairMethods.getLabel(repairMethod);
+        
+        // Exponential search: the repair with q = infeasibleQ was infeasible,
+        // the one with q = feasibleQ was feasible
+        int infeasibleQ = 0;
+        int feasibleQ = -1;
+        List<Cluster> feasibleOutput = null;
+        for (int q = 1; !isFeasible && q < inputSize && elapsedTime < alnsProperties.getTimeLimitALNS(); q = Math.min(2 * q, inputSize - 1)) {
+            output = repairWithDegree(inputSolution, repairMethod, q, tested);
+            isFeasible = tested.get(clusterSet(output));
+            if (isFeasible) {
+                feasibleQ = q;
+                feasibleOutput = output;
+            } else if (q == inputSize - 1) {
+                break;
+            } else {
+                infeasibleQ = q;
+            }
+        }
+        
+        // Binary search for the smallest feasible q
+        while (feasibleOutput != null && feasibleQ - infeasibleQ > 1 && elapsedTime < alnsProperties.getTimeLimitALNS()) {
+            int q = (infeasibleQ + feasibleQ) >>> 1;
+            List<Cluster> repaired = repairWithDegree(inputSolution, repairMethod, q, tested);
+            if (tested.get(clusterSet(repaired))) {
+                feasibleQ = q;
+                feasibleOutput = repaired;
+            } else {
+                infeasibleQ = q;
+            }
+        }
+        
+        profiler.count("repair loop/" + label + "/checks", tested.size());
+        return feasibleOutput != null ? feasibleOutput : output;
+    }
+    
+    /**
+     * Repairs a solution with the given degree of reparation and tests it
+     * for feasibility, unless it was already tested.
+     *
+     * @param inputSolution the solution to repair
+     * @param repairMethod the repair heuristic to use
+     * @param q the degree of reparation
+     * @param tested the results of the feasibility checks done so far, by
+     * set of cluster IDs; the new result is added
+     * @return the repaired solution
+     * @throws Exception if testing the solution breaks somewhere
+     */
+    private List<Cluster> repairWithDegree(
+            List<Cluster> inputSolution,
+            BiFunction<List<Cluster>, Integer, List<Cluster>> repairMethod,
+            int q,
+            Map<BitSet, Boolean> tested
+    ) throws Exception {
+        long loopStart = profiler.start();
+        String label = repairMethods.getLabel(repairMethod);
+        solverLog.trace("\nALNSLOG: trying to repair solution with {} and q={}...\n", label, q);
+        List<Cluster> output = repairMethod.apply(inputSolution, q);
+        BitSet key = clusterSet(output);
+        if (!tested.containsKey(key)) {
+            tested.put(key, testSolutionForFeasibility(output, false, alnsProperties.getMaxMIPSNodesForFeasibilityCheck()));
+        } else {
+            profiler.count("repair loop/" + label + "/already tested");
+        }
+        
+        // Update the elapsed time to make sure we don't miss the ALNS deadline
+        stopwatchUpdate();
+        notifyController(elapsedTime, OptimizationStatusMessage.Status.RUNNING, bestGlobalObjectiveValue);
+        profiler.stop("repair loop/" + label, loopStart);
+        return output;
+    }
+    
+    /**
+     * Get the set of IDs of the clusters in a solution
+     *
+     * @param solution the solution
+     * @return the IDs of its clusters
+     */
+    private static BitSet clusterSet(List<Cluster> solution) {
+        BitSet ret = new BitSet();
+        for (Cluster c : solution) {
+            ret.set(c.getId());
+        }
+        return ret;
+    }
+    
     /**
      * Given some solution quality flags, update the weights of the selected
      * destroy and repair methods
@@ -2043,45 +3316,21 @@ public class ALNS extends Orienteering {
         availableClusters.removeAll(solution);
         
         if(availableClusters.isEmpty()){
-            try {
-                env.message(
-                        "\nALNSLOG: no clusters have been extracted! "
-                                + "\nQuerying for clusters which have been above "
-                                + "average more than the "
-                                + alnsProperties.getNerfBarrier()*100
-                                + "%% of the time...\n"
-                );
-            } catch (GRBException ex) {
-                Logger.getLogger(ALNS.class.getName()).log(Level.SEVERE, null, ex);
-            }
+            solverLog.trace("\nALNSLOG: no clusters have been extracted! \nQuerying for clusters which have been above average more than the {}% of the time...\n", alnsProperties.getNerfBarrier()*100);
             availableClusters = clusterRoulette.queryNotNerfCandidates(alnsProperties.getNerfBarrier());
             availableClusters.removeAll(solution);
 
             if(availableClusters.isEmpty()){
-                try {
-                    env.message("\nALNSLOG: no clusters have been extracted (again)!"
-                            + "\nQuerying for clusters above average in the current iteration...\n");
-                } catch (GRBException ex) {
-                    Logger.getLogger(ALNS.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                solverLog.trace("\nALNSLOG: no clusters have been extracted (again)!\nQuerying for clusters above average in the current iteration...\n");
                 availableClusters = clusterRoulette.queryHighPass(clusterRoulette.getAverageProbability());
                 availableClusters.removeAll(solution);
 
                 if(availableClusters.isEmpty()){
-                    try {
-                        env.message("\nALNSLOG: no clusters have been extracted (again)!"
-                                + "\nUsing all available clusters as a last resort...");
-                    } catch (GRBException ex) {
-                        Logger.getLogger(ALNS.class.getName()).log(Level.SEVERE, null, ex);
-                    }
+                    solverLog.trace("\nALNSLOG: no clusters have been extracted (again)!\nUsing all available clusters as a last resort...");
                     availableClusters = instance.cloneClusters();
                     availableClusters.removeAll(solution);
                     if(availableClusters.isEmpty()){
-                        try {
-                            env.message("\nALNSLOG: no clusters available for insertion! ALNS is giving up!\n");
-                        } catch (GRBException ex) {
-                            Logger.getLogger(ALNS.class.getName()).log(Level.SEVERE, null, ex);
-                        }
+                        solverLog.info("\nALNSLOG: no clusters available for insertion! ALNS is giving up!\n");
                     }
                 }
             }
@@ -2090,23 +3339,23 @@ public class ALNS extends Orienteering {
     }
 
     /**
-     * Converts a proposed solution (a list of clusters) to a string of comma
-     * separated values.
+     * Builds the sample solutions of the heuristic constraints calibration:
+     * the given feasible solution, followed by neighbours of it obtained by
+     * applying a random repair and a random destroy heuristic, as it happens
+     * in an ALNS iteration (so some of them are infeasible).
      *
-     * @param solution the list of Clusters to convert to CSV
-     * @return the CSV converted solution
+     * @param feasibleSolution a feasible solution
+     * @param samples how many samples to build
+     * @return the sample solutions, starting with the feasible one
      */
-    private String csvFormatSolution(List<Cluster> solution) {
-        String SEPARATOR = ", ";
-        StringBuffer sb = new StringBuffer();
-
-        for (Cluster c : solution) {
-            sb.append(c.toString());
-            if (solution.indexOf(c) != solution.size() - 1) {
-                sb.append(SEPARATOR);
-            }
+    private List<List<Cluster>> calibrationSamples(List<Cluster> feasibleSolution, int samples) {
+        List<List<Cluster>> ret = new ArrayList<>();
+        ret.add(feasibleSolution);
+        while (ret.size() < samples) {
+            List<Cluster> sample = repairMethods.getRandom().apply(feasibleSolution, 1);
+            ret.add(destroyMethods.getRandom().apply(sample, 1 + random.nextInt(2)));
         }
-        return sb.toString();
+        return ret;
     }
 
     /**
@@ -2137,16 +3386,16 @@ public class ALNS extends Orienteering {
             long segmentsWithoutImprovement
     ) throws GRBException, Exception {
         // Setup the output solution
-        List<Cluster> output = new ArrayList<>(inputSolution);
+        List<Cluster> output = solutionCopy(inputSolution);
         
         // Setup a partial clone of the inputSolution to use, we will use this
         // as the starting point for the local search
-        List<Cluster> partialInputSolution = new ArrayList<>(inputSolution);
+        List<Cluster> partialInputSolution = solutionCopy(inputSolution);
         
         // Setup the local search: find compatible heuristic constraints
         // and a promising input solution.
         long localSearchSetupStartTime = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
-        env.message("\nALNSLOG, "+elapsedTime+": trying to get a feasible set of h. constraints for the local search...\n");
+        solverLog.trace("\nALNSLOG, {}: trying to get a feasible set of h. constraints for the local search...\n", elapsedTime);
         
         // Setup feasible heuristics
 //        List<Integer> heuristicIDs =
@@ -2158,7 +3407,7 @@ public class ALNS extends Orienteering {
         List<Integer> heuristicIDs = this.feasibleHeuristicIDs;
         
         // Logging constraints used
-        env.message("\nALNSLOG, "+elapsedTime+": LS constr="+String.valueOf(heuristicIDs)+"\n");
+        solverLog.trace("\nALNSLOG, {}: LS constr={}\n", elapsedTime, heuristicIDs);
         
         GRBConstr avoidInputSolution = null;
         
@@ -2178,7 +3427,7 @@ public class ALNS extends Orienteering {
             // use the new partial input solution as a starting point
             // for the local search
             
-            env.message("\nALNSLOG: input solution cleaned because segmentsWithoutImprovement = "+segmentsWithoutImprovement+" > 0\n");
+            solverLog.trace("\nALNSLOG: input solution cleaned because segmentsWithoutImprovement = {} > 0\n", segmentsWithoutImprovement);
             
             // If q!=0, make sure to avoid the original input solution by adding a constraint
             if(q != 0)
@@ -2187,25 +3436,16 @@ public class ALNS extends Orienteering {
         
         // Logging the elapsed time for the local search setup
         long localSearchSetupDuration = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime()) - localSearchSetupStartTime;
-        env.message("\nALNSLOG, "
-                + (elapsedTime+localSearchSetupDuration)
-                + ": h. constraints setup ended ("
-                + localSearchSetupDuration
-                + "s elapsed). Starting the local search.\n"
-                + "Heuristics used: " + String.valueOf(heuristicIDs)
-                + "\nInput solution used: " + String.valueOf(inputSolution) 
-                + "\nCleaned input solution used: " + String.valueOf(partialInputSolution)
-                + "\n"
-        );
+        solverLog.trace("\nALNSLOG, {}: h. constraints setup ended ({}s elapsed). Starting the local search.\nHeuristics used: {}\nInput solution used: {}\nCleaned input solution used: {}\n", (elapsedTime+localSearchSetupDuration), localSearchSetupDuration, heuristicIDs, inputSolution, partialInputSolution);
 
         // Perform a local search on the input solution, but only if there is time for it.
         if (timeLimitForLocalSearch > 0
                 && elapsedTime + timeLimitForLocalSearch <= alnsProperties.getTimeLimitALNS()
-                && !this.isCancelled() // thread cancellation check
+                && !this.isStopRequested() // thread cancellation check
                 )
         {
             // Log the beginning of the search
-            env.message("\nALNSLOG: Local search started at " + (elapsedTime+localSearchSetupDuration) + "s - " + LocalDateTime.now().toString() + "\n");
+            solverLog.info("\nALNSLOG: Local search started at {}s - {}\n", (elapsedTime+localSearchSetupDuration), LocalDateTime.now());
             
             // Make sure all clusters can be selected by the solver
             resetSolution(lsModel);
@@ -2222,24 +3462,22 @@ public class ALNS extends Orienteering {
             removeFromSolution(nerfedClusters, lsModel);
             
             nerfSize -= nerfedClusters.size();
-            env.message("\nALNSLOG: there were "+nerfSize+" nerfed clusters (out of "+nerfedClusters.size()+" nerfed) in inputSolution for local search."
-                    + "\nIdeally we want zero nerfed clusters in our input solution for the local search."
-                    + "\nLocal search starting.\n");
+            solverLog.trace("\nALNSLOG: there were {} nerfed clusters (out of {} nerfed) in inputSolution for local search.\nIdeally we want zero nerfed clusters in our input solution for the local search.\nLocal search starting.\n", nerfSize, nerfedClusters.size());
             
             // Apply heuristic constraints
             setSpecificHeuristicConstraints(heuristicIDs, lsModel);
             
             // Clone the original model with the heuristic constraints
+            long cloneStart = profiler.start();
             GRBModel clone = new GRBModel(lsModel);
+            profiler.stop("model clone", cloneStart);
             // GRBModel toSolve = new GRBModel(this.model);
             
-            env.message("\nALNSLOG: local search, testing the input solution on the cloned model...\n");
+            solverLog.trace("\nALNSLOG: local search, testing the input solution on the cloned model...\n");
             
             // Test the solution on the clone model so that we can gather informations on the warm solution
             if (this.testSolution(clone, partialInputSolution, true, alnsProperties.getMaxMIPSNodesForFeasibilityCheck())) { // DEBUG: LOCAL SEARCH CRASHES BECAUSE IT DOESN'T ENTER HERE?
-                env.message("\nALNSLOG: local search, the input solution "
-                        +String.valueOf(partialInputSolution)
-                        +" appeared to be feasible\n");
+                solverLog.trace("\nALNSLOG: local search, the input solution {} appeared to be feasible\n", partialInputSolution);
                 // Gather informations on the solution
                 GRBVar[] cloneVars = clone.getVars();
 
@@ -2257,26 +3495,29 @@ public class ALNS extends Orienteering {
                 
                 // Update and optimizeALNS
                 lsModel.update();
+                lsModel.setCallback(new localSearchCallback(cancellation));
                 lsModel.optimize();
+                lsModel.setCallback(null);
                 
                 if(lsModel.get(GRB.IntAttr.Status) != GRB.INFEASIBLE){
                     if(lsModel.get(GRB.IntAttr.SolCount) > 0){
-                        env.message("\nALNSLOG: Local search found "+lsModel.get(GRB.IntAttr.SolCount)+" solution(s).");
+                        solverLog.trace("\nALNSLOG: Local search found {} solution(s).", lsModel.get(GRB.IntAttr.SolCount));
                         // Now the model should be optimized. If we've found a solution,
                         // let's save it to the output variable
                         output = getClustersInCurrentModelSolution(lsModel);
+                        exclusionCutPool.recordFeasibleSolution(output);
 
                         // Let's save the objective value too
                         this.objectiveValueFromLastFeasibilityCheck = lsModel.get(GRB.DoubleAttr.ObjVal);
 
-                        env.message("\nALNSLOG: local search returned this solution: \n"+String.valueOf(output));
+                        solverLog.trace("\nALNSLOG: local search returned this solution: \n{}", output);
                     }
                     else{
-                        env.message("\nALNSLOG: Local search returned 0 solutions!\n");
+                        solverLog.trace("\nALNSLOG: Local search returned 0 solutions!\n");
                     }
                 }
                 else{
-                    env.message("\nALNSLOG: Local search was infeasible!\n");
+                    solverLog.trace("\nALNSLOG: Local search was infeasible!\n");
                 }
             }
 
@@ -2287,30 +3528,29 @@ public class ALNS extends Orienteering {
             clone.dispose();
 
             // Log the end of the search
-            env.message("ALNSLOG: Local search started at " + elapsedTime + "s ended at " + LocalDateTime.now().toString() + "\n");
+            solverLog.info("ALNSLOG: Local search started at {}s ended at {}\n", elapsedTime, LocalDateTime.now());
         } else {
-            env.message("ALNSLOG: Local search aborted at " + elapsedTime + "s - " + LocalDateTime.now().toString() + "\n");
+            solverLog.info("ALNSLOG: Local search aborted at {}s - {}\n", elapsedTime, LocalDateTime.now());
         }
         
         /*
-        env.message("\nALNSLOG: Testing the solution produced by local search.\n");
+        solverLog.trace("\nALNSLOG: Testing the solution produced by local search.\n");
         // To finish, we shall test the solution found, so that the model shall
         // come loaded with the new solution
         boolean solutionFeasible = this.testSolution(this.model, output, true, alnsProperties.getMaxMIPSNodesForFeasibilityCheck());
         
         if(!solutionFeasible){
-            env.message("\nALNSLOG: PROBLEM - local search solution infeasible!!\n");
+            solverLog.info("\nALNSLOG: PROBLEM - local search solution infeasible!!\n");
             while(!solutionFeasible && model.get(GRB.IntAttr.Status) == GRB.INTERRUPTED){
-                env.message("\nALNSLOG: Max MIPS Nodes for feas. check weren't enough to test this solution. I'm doubling it:"
-                        +2*alnsProperties.getMaxMIPSNodesForFeasibilityCheck()+"\n");
+                solverLog.trace("\nALNSLOG: Max MIPS Nodes for feas. check weren't enough to test this solution. I'm doubling it:{}\n", 2*alnsProperties.getMaxMIPSNodesForFeasibilityCheck());
                 alnsProperties.setMaxMIPSNodesForFeasibilityCheck(2*alnsProperties.getMaxMIPSNodesForFeasibilityCheck());
                 solutionFeasible = this.testSolution(this.model, output, true, alnsProperties.getMaxMIPSNodesForFeasibilityCheck());
             }
             if(model.get(GRB.IntAttr.Status) == GRB.INFEASIBLE){
-                env.message("\nALNSLOG: PROBLEM - local search solution REALLY infeasible!!\n");
+                solverLog.info("\nALNSLOG: PROBLEM - local search solution REALLY infeasible!!\n");
             }
             
-        }else env.message("\nALNSLOG: the local search solution was feasible, as expected.\n");
+        }else solverLog.trace("\nALNSLOG: the local search solution was feasible, as expected.\n");
         */
         return output;
     }
@@ -2320,25 +3560,26 @@ public class ALNS extends Orienteering {
         try {
             this.optimize();
         } catch (InterruptedException e) {
-            env.message("ALNSLOG: Optimization interrupted by user.\n");
-            env.message(e.getMessage());
+            solverLog.info("ALNSLOG: Optimization interrupted by user.\n");
+            solverLog.info("{}", e.getMessage());
             this.cleanup();
             //DEBUG: uncomment later
-            logRedirector.cancel(true);
+            if (logRedirector != null) {
+                logRedirector.cancel(true);
+            }
             return false;
         } finally {
             this.cleanup();
-            if (logRedirector == null) {
-                System.out.println("Logredirector is null!");
+            if (logRedirector != null) {
+                logRedirector.cancel(true);
             }
-            logRedirector.cancel(true);
         }
         // We're done!
         return true;
     }
 
     /**
-     * Notify the controller of current solver progress.
+     * Notify the listener (usually the controller) of current solver progress.
      *
      * @param elapsedTime time elapsed since the start of the current solver
      * process
@@ -2353,7 +3594,7 @@ public class ALNS extends Orienteering {
         OptimizationStatusMessage.Status realState = OptimizationStatusMessage.Status.RUNNING;
         switch (alnsStatus) {
             case STARTING:
-                if (isCancelled()) {
+                if (isStopRequested()) {
                     realState = OptimizationStatusMessage.Status.STOPPING;
                 } else {
                     realState = OptimizationStatusMessage.Status.STARTING;
@@ -2361,7 +3602,7 @@ public class ALNS extends Orienteering {
                 break;
 
             case RUNNING:
-                if (isCancelled()) {
+                if (isStopRequested()) {
                     realState = OptimizationStatusMessage.Status.STOPPING;
                 } else {
                     realState = OptimizationStatusMessage.Status.RUNNING;
@@ -2388,7 +3629,9 @@ public class ALNS extends Orienteering {
                 bestObj
         );
 
-        controller.setMessageFromALNS(osm);
+        if (listener != null) {
+            listener.statusChanged(osm);
+        }
     }
 
     @Override
@@ -2398,26 +3641,17 @@ public class ALNS extends Orienteering {
         }
     }
 
-    @Override
-    public void done() {
-        if (this.getState() == StateValue.DONE) {
-            if (!isCancelled()) {
-                notifyController(elapsedTime, OptimizationStatusMessage.Status.DONE, bestGlobalObjectiveValue);
-            } else {
-                notifyController(elapsedTime, OptimizationStatusMessage.Status.STOPPED, bestGlobalObjectiveValue);
-            }
-        }
-        /*
-        try {
-            boolean cancelLogRedir = this.logRedirector.cancel(true);
-            env.message("Did you close the logger door? "+cancelLogRedir+"\n");
-        } catch (GRBException ex) {
-            Logger.getLogger(ALNS.class.getName()).log(Level.SEVERE, null, ex);
-        }
-        catch(Exception e){
-            System.out.println("Strange error happened: "+e.getMessage());
-        }
-         */
+    /**
+     * Notify the listener that the run is over: DONE if it ended normally,
+     * STOPPED if it was cancelled or failed. Called by the
+     * <code>AlnsEngine</code> once the run is over.
+     *
+     * @param completedNormally true if the run ended normally
+     */
+    void notifyRunOver(boolean completedNormally) {
+        notifyController(elapsedTime,
+                completedNormally ? OptimizationStatusMessage.Status.DONE : OptimizationStatusMessage.Status.STOPPED,
+                bestGlobalObjectiveValue);
     }
     
     /**
@@ -2432,27 +3666,20 @@ public class ALNS extends Orienteering {
      * @throws GRBException if there are problems while adding constraints.
      */
     private void applyExpression19() throws GRBException{
-        Node firstNode = instance.getNode(0);
-        Node lastNode = instance.getNode(instance.getNum_nodes()-1);
         int countRemoved = 0;
         for(int i = 0; i < instance.getNum_clusters(); i++){
             Cluster c = instance.getCluster(i);
             double serviceCost = c.getTotalCost(); // DEBUG: making it tighter
-            double distanceFromFirst = c.distance(firstNode);
-            double distanceFromLast = c.distance(lastNode);
             
             if(serviceCost
-                    + distanceFromFirst
-                    + distanceFromLast > instance.getTmax()){
+                    + depositDistances[c.getId()] > instance.getTmax()){
                 clusterRoulette.ignoreCluster(c);
                 unwireClusterFromModel(c);
                 countRemoved++;
             }
         }
         
-        env.message("\nALNSLOG: removed "
-                +countRemoved
-                +" infeasible clusters using constraint in Expression19\n");
+        solverLog.info("\nALNSLOG: removed {} infeasible clusters using constraint in Expression19\n", countRemoved);
         
     }
 } // end of class ALNS
@@ -2470,6 +3697,16 @@ class localSearchCallback extends GRBCallback {
      */
     private long timeLimit;
 
+    /**
+     * Whether the run stops at the first solution found
+     */
+    private final boolean stopAtFirstSolution;
+
+    /**
+     * Token polled to abort the run when the solver must stop (can be null)
+     */
+    private final CancellationToken cancellation;
+
     /**
      * Constructor for class localSearchCallback
      *
@@ -2477,16 +3714,33 @@ class localSearchCallback extends GRBCallback {
      */
     public localSearchCallback(long timeLimit) {
         this.timeLimit = timeLimit;
+        this.stopAtFirstSolution = true;
+        this.cancellation = null;
+    }
+
+    /**
+     * Constructor for class localSearchCallback. The run goes on until the
+     * time limit of the model, unless the token tells it to abort: solutions
+     * found so far are kept.
+     *
+     * @param cancellation token polled to abort the run
+     */
+    public localSearchCallback(CancellationToken cancellation) {
+        this.timeLimit = Long.MAX_VALUE;
+        this.stopAtFirstSolution = false;
+        this.cancellation = cancellation;
     }
 
     @Override
     protected void callback() {
         try {
-            if (where == GRB.CB_MIP) {
+            if (cancellation != null && cancellation.shouldAbort()) {
+                abort();
+            } else if (where == GRB.CB_MIP) {
                 if (getDoubleInfo(GRB.CB_RUNTIME) > timeLimit) {
                     abort();
                 }
-            } else if (where == GRB.CB_MIPSOL) {
+            } else if (where == GRB.CB_MIPSOL && stopAtFirstSolution) {
                 abort();
             }
         } catch (GRBException ex) {
@@ -0,0 +1,229 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous logger for ALNS records.
+ * <br>Records are put in a bounded queue by the search thread and turned into
+ * rows by a background thread, which writes them to an <code>ALNSLogSink</code>.
+ * <br>The search is never slowed down by the log: when the queue is full,
+ * iteration records are dropped (and the number of dropped records is written
+ * to the log as soon as the writer catches up). Segment-level records wait a
+ * little for a free slot before being dropped.
+ *
+ * @author Frash
+ */
+public class ALNSAsyncLogger {
+
+    /**
+     * Supported formats for the ALNS log
+     */
+    public static final String FORMAT_XLSX = "xlsx";
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NONE = "none";
+
+    /**
+     * Milliseconds a segment-level record waits for a free slot in the queue
+     */
+    private static final long SEGMENT_EVENT_TIMEOUT = 100;
+
+    /**
+     * Record which tells the writer thread to stop
+     */
+    private static final Object END_OF_LOG = new Object();
+
+    /**
+     * Queue of records waiting to be written
+     */
+    private final BlockingQueue<Object> queue;
+
+    /**
+     * Where rows are written
+     */
+    private final ALNSLogSink sink;
+
+    /**
+     * The background thread which writes rows
+     */
+    private final Thread writer;
+
+    /**
+     * Number of records dropped since the last report in the log
+     */
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    /**
+     * Total number of records dropped
+     */
+    private final AtomicLong totalDropped = new AtomicLong(0);
+
+    /**
+     * Constructor for an ALNS asynchronous logger. The writer thread is
+     * started immediately.
+     *
+     * @param sink where rows are written
+     * @param queueCapacity maximum number of records waiting to be written
+     */
+    public ALNSAsyncLogger(ALNSLogSink sink, int queueCapacity) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(Math.max(queueCapacity, 1));
+        this.writer = new Thread(this::writeLoop, "ALNS log writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Builds an asynchronous logger which writes to a file in the given
+     * format.
+     *
+     * @param format one of <code>FORMAT_XLSX</code>, <code>FORMAT_CSV</code>
+     * or <code>FORMAT_NONE</code>
+     * @param basePath path of the output file, without extension
+     * @param instanceName name of the current instance
+     * @param queueCapacity maximum number of records waiting to be written
+     * @return the asynchronous logger
+     * @throws IOException if the output file can't be opened
+     */
+    public static ALNSAsyncLogger create(String format, String basePath, String instanceName, int queueCapacity) throws IOException {
+        return new ALNSAsyncLogger(createSink(format, basePath, instanceName), queueCapacity);
+    }
+
+    /**
+     * Builds a sink which writes rows to a file in the given format.
+     *
+     * @param format one of <code>FORMAT_XLSX</code>, <code>FORMAT_CSV</code>
+     * or <code>FORMAT_NONE</code>
+     * @param basePath path of the output file, without extension
+     * @param instanceName name of the current instance
+     * @return the sink
+     * @throws IOException if the output file can't be opened
+     */
+    static ALNSLogSink createSink(String format, String basePath, String instanceName) throws IOException {
+        ALNSLogSink sink;
+        switch (format == null ? FORMAT_XLSX : format.toLowerCase()) {
+            case FORMAT_CSV:
+                sink = new ALNSCsvLogger(basePath + ".csv");
+                break;
+            case FORMAT_NONE:
+                sink = new ALNSLogSink() {
+                    @Override
+                    public void writeRow(String[] logLine) {
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+                break;
+            default:
+                sink = new ALNSExcelLogger(basePath + ".xlsx", instanceName);
+        }
+        return sink;
+    }
+
+    /**
+     * Queues a record to be written. Never blocks for iteration records.
+     *
+     * @param record the record to write
+     */
+    public void log(ALNSIterationRecord record) {
+        boolean queued;
+        if (record.isSegmentEvent()) {
+            try {
+                queued = queue.offer(record, SEGMENT_EVENT_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+        } else {
+            queued = queue.offer(record);
+        }
+
+        if (!queued) {
+            dropped.incrementAndGet();
+            totalDropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Body of the writer thread: takes records from the queue and writes
+     * them until the end of the log.
+     */
+    private void writeLoop() {
+        boolean sinkWorks = true;
+        while (true) {
+            Object next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException ex) {
+                break;
+            }
+            if (next == END_OF_LOG) {
+                break;
+            }
+
+            // After an error, keep emptying the queue so the search can go on
+            if (sinkWorks) {
+                try {
+                    long droppedRecords = dropped.getAndSet(0);
+                    if (droppedRecords > 0) {
+                        sink.writeRow(ALNSIterationRecord.commentRow(
+                                droppedRecords + " records were dropped because the log couldn't keep up."));
+                    }
+                    sink.writeRow(((ALNSIterationRecord) next).toRow());
+                } catch (IOException ex) {
+                    Logger.getLogger(ALNSAsyncLogger.class.getName()).log(Level.SEVERE, "Problem while writing the ALNS log, no more rows will be written", ex);
+                    sinkWorks = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the total number of records dropped because the queue was full
+     *
+     * @return the number of dropped records
+     */
+    public long getDroppedRecords() {
+        return totalDropped.get();
+    }
+
+    /**
+     * Writes every queued record, then closes the output gracefully.
+     * <br>If the calling thread was already interrupted (e.g. the search was
+     * cancelled), the log is still flushed and the interrupt flag is restored
+     * afterwards.
+     *
+     * @throws IOException if something goes wrong while closing the output
+     * @throws InterruptedException if interrupted while waiting for the
+     * writer to finish
+     */
+    public void close() throws IOException, InterruptedException {
+        boolean wasInterrupted = Thread.interrupted();
+        try {
+            queue.put(END_OF_LOG);
+            writer.join();
+        } finally {
+            if (wasInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        long droppedRecords = dropped.getAndSet(0);
+        if (droppedRecords > 0) {
+            sink.writeRow(ALNSIterationRecord.commentRow(
+                    droppedRecords + " records were dropped because the log couldn't keep up."));
+        }
+        sink.close();
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import solverModel.Cluster;
+import solverModel.ClusterSolution;
+import solverModel.InstanceCTOPWSS;
+
+/**
+ * State of an ALNS run at the end of a segment, enough to resume the run
+ * after a crash or a stop: the instance and the parameters, the current and
+ * the best solution, the counters of the main loop, the heuristic constraints
+ * in use, the weights of the heuristics, the probabilities of the cluster
+ * roulette (ignored clusters included) and the state of the random generator.
+ * <br>The Gurobi model is not saved: a resumed run rebuilds it from the
+ * instance, so the solver can be restarted on another machine or with
+ * another Gurobi version. Exclusion cuts, infeasible cores, the route pool
+ * and the elite pool are not saved either, and are rebuilt by the resumed
+ * run.
+ * <br>Checkpoints are written as JSON, to a temporary file which replaces the
+ * previous checkpoint in a single move, so a crash while writing never
+ * leaves a broken checkpoint behind.
+ *
+ * @author Frash
+ */
+public class ALNSCheckpoint {
+
+    /**
+     * Suffix of the name of checkpoint files, after the instance name
+     */
+    public static final String FILE_SUFFIX = "_CHECKPOINT.json";
+
+    // Run
+    private String modelPath;
+    private String solver;
+    private ParametersBean parameters;
+
+    // Solutions, as cluster IDs
+    int[] currentSolution;
+    double currentObjective;
+    int[] bestSolution;
+    double bestObjective;
+
+    // Counters of the main loop
+    int q;
+    long segments;
+    long segmentsWithoutImprovement;
+    double elapsedTime;
+
+    // Adaptive state
+    List<Integer> heuristicConstraints;
+    double[] destroyWeights;
+    double[] repairWeights;
+    double[] clusterProbabilities;
+    long randomState;
+
+    /**
+     * Constructor for class ALNSCheckpoint.
+     *
+     * @param modelPath path to the instance file of the run
+     * @param solver the solver of the run
+     * @param parameters the parameters of the run
+     */
+    ALNSCheckpoint(String modelPath, Controller.Solvers solver, ParametersBean parameters) {
+        this.modelPath = modelPath;
+        this.solver = solver.name();
+        this.parameters = parameters;
+    }
+
+    /**
+     * Get the path to the instance file of the run
+     *
+     * @return the path to the instance file
+     */
+    public String getModelPath() {
+        return modelPath;
+    }
+
+    /**
+     * Get the solver of the run
+     *
+     * @return the solver
+     */
+    public Controller.Solvers getSolver() {
+        return Controller.Solvers.valueOf(solver);
+    }
+
+    /**
+     * Get the parameters of the run
+     *
+     * @return the parameters
+     */
+    public ParametersBean getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Get the best objective value found before the checkpoint
+     *
+     * @return the best objective value
+     */
+    public double getBestObjective() {
+        return bestObjective;
+    }
+
+    /**
+     * Get the number of segments completed before the checkpoint
+     *
+     * @return the number of segments
+     */
+    public long getSegments() {
+        return segments;
+    }
+
+    /**
+     * Turns a solution into the IDs of its clusters
+     *
+     * @param solution the solution
+     * @return the cluster IDs
+     */
+    static int[] toIDs(List<Cluster> solution) {
+        int[] ret = new int[solution.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = solution.get(i).getId();
+        }
+        return ret;
+    }
+
+    /**
+     * Turns cluster IDs back into a solution
+     *
+     * @param instance the instance the clusters belong to
+     * @param ids the cluster IDs
+     * @return the solution
+     */
+    static List<Cluster> toSolution(InstanceCTOPWSS instance, int[] ids) {
+        List<Cluster> clusters = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            clusters.add(instance.getCluster(id));
+        }
+        return new ClusterSolution(instance, clusters);
+    }
+
+    /**
+     * Get the default path of the checkpoint of an instance
+     *
+     * @param outputFolderPath the output folder of the run
+     * @param instanceName the name of the instance
+     * @return the path to the checkpoint file
+     */
+    public static String defaultPath(String outputFolderPath, String instanceName) {
+        return outputFolderPath + File.separator + instanceName + FILE_SUFFIX;
+    }
+
+    /**
+     * Writes this checkpoint to a file, atomically replacing the previous one.
+     *
+     * @param outputPath path to the checkpoint file
+     * @throws IOException if the file can't be written
+     */
+    public void write(String outputPath) throws IOException {
+        writeJSONAtomically(this, outputPath);
+    }
+
+    /**
+     * Writes an object as JSON to a temporary file, then moves it over the
+     * target file in a single step, so that readers never see a partial file.
+     *
+     * @param o the object to write
+     * @param outputPath path to the target file
+     * @throws IOException if the file can't be written
+     */
+    static void writeJSONAtomically(Object o, String outputPath) throws IOException {
+        Path target = Paths.get(outputPath);
+        Path temporary = Paths.get(outputPath + ".tmp");
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        try (Writer w = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            gson.toJson(o, w);
+        }
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a checkpoint from a file.
+     *
+     * @param inputPath path to the checkpoint file
+     * @return the checkpoint
+     * @throws IOException if the file can't be read or isn't a checkpoint
+     */
+    public static ALNSCheckpoint read(String inputPath) throws IOException {
+        String content = new String(Files.readAllBytes(Paths.get(inputPath)), StandardCharsets.UTF_8);
+        ALNSCheckpoint ret;
+        try {
+            ret = new Gson().fromJson(content, ALNSCheckpoint.class);
+        } catch (JsonSyntaxException e) {
+            throw new IOException("Not an ALNS checkpoint: " + inputPath, e);
+        }
+        if (ret == null || ret.modelPath == null || ret.parameters == null
+                || ret.currentSolution == null || ret.bestSolution == null) {
+            throw new IOException("Not an ALNS checkpoint: " + inputPath);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import com.opencsv.CSVWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * This class allows to log the output of the ALNS algorithm to a CSV file,
+ * with the same columns as the Excel log. Rows are streamed to disk, so the
+ * memory used doesn't grow with the length of the run.
+ *
+ * @author Frash
+ */
+public class ALNSCsvLogger implements ALNSLogSink {
+
+    /**
+     * The writer linked to the output file
+     */
+    private final CSVWriter writer;
+
+    /**
+     * Constructor for an ALNS CSV Logger object.
+     *
+     * @param filePath path to the output file
+     * @throws IOException if the output file can't be opened
+     */
+    public ALNSCsvLogger(String filePath) throws IOException {
+        writer = new CSVWriter(new FileWriter(filePath));
+        writer.writeNext(ALNSExcelLogger.HEADERS);
+    }
+
+    @Override
+    public void writeRow(String[] logLine) throws IOException {
+        writer.writeNext(logLine);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+        writer.close();
+    }
+}
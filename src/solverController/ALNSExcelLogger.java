@@ -17,19 +17,26 @@ import org.apache.poi.ss.usermodel.FillPatternType;
 import org.apache.poi.ss.usermodel.HorizontalAlignment;
 import org.apache.poi.ss.usermodel.IndexedColors;
 import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellUtil;
 import org.apache.poi.ss.util.WorkbookUtil;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 /**
  * This class allows to log the output of the ALNS algorithm to an Excel (XLSX)
  * file.
+ * <br>The workbook is streamed: only the last <code>ROW_ACCESS_WINDOW</code>
+ * rows are kept in memory, older rows are flushed to a temporary file. The
+ * XLSX file is written when the logger is closed.
  *
  * @author Frash
  */
-public class ALNSExcelLogger {
+public class ALNSExcelLogger implements ALNSLogSink {
+
+    /**
+     * Number of rows kept in memory by the streaming workbook
+     */
+    private final static int ROW_ACCESS_WINDOW = 100;
 
     /**
      * Path to the xlsx file which will store the results of our ALNS run
@@ -54,12 +61,12 @@ public class ALNSExcelLogger {
     /**
      * Object that stores the current Excel workbook
      */
-    private Workbook wb;
+    private SXSSFWorkbook wb;
 
     /**
      * Object that stores the current Excel sheet
      */
-    private Sheet sheet;
+    private SXSSFSheet sheet;
 
     /**
      * Style for header cells.
@@ -74,7 +81,7 @@ public class ALNSExcelLogger {
     /**
      * Constant which holds the values of headers for the ALNS log file
      */
-    private final static String[] HEADERS = {
+    final static String[] HEADERS = {
         "Segment", "Iteration", "Time",
         "Destroy Heuristic", "DWeight", "Repair Heuristic", "RWeight", "Repaired?",
         "Temperature",
@@ -100,8 +107,9 @@ public class ALNSExcelLogger {
         this.filePath = filePath;
         this.instanceName = instanceName;
         fos = new FileOutputStream(filePath);
-        wb = new XSSFWorkbook();
+        wb = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
         sheet = wb.createSheet(WorkbookUtil.createSafeSheetName(instanceName));
+        sheet.trackAllColumnsForAutoSizing();
 
         // Setup the current row number to the first row
         currentRowNumber = 0;
@@ -159,10 +167,6 @@ public class ALNSExcelLogger {
         // Freeze the first row for better readability
         sheet.createFreezePane(0, 1);
 
-        try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
-            wb.write(fileOut);
-        }
-
         // Increase the row number
         currentRowNumber++;
     }
@@ -174,6 +178,7 @@ public class ALNSExcelLogger {
      * @throws FileNotFoundException if the file is not found (duh)
      * @throws IOException if there are problems with the file
      */
+    @Override
     public void writeRow(String[] logLine) throws FileNotFoundException, IOException {
         Row r = sheet.createRow(currentRowNumber);
 
@@ -186,10 +191,6 @@ public class ALNSExcelLogger {
             i++;
         }
 
-        try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
-            wb.write(fileOut);
-        }
-
         // Increase the row number
         currentRowNumber++;
     }
@@ -209,10 +210,14 @@ public class ALNSExcelLogger {
      *
      * @throws IOException if something goes wrong
      */
+    @Override
     public void close() throws IOException {
         autoSizeColumns();
+        wb.write(fos);
         fos.flush();
         fos.close();
+        // Delete the temporary files backing the streamed rows
+        wb.dispose();
     }
 
     /**
@@ -0,0 +1,309 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.util.List;
+import java.util.function.Supplier;
+import solverModel.Cluster;
+
+/**
+ * A structured record of one line of the ALNS log: either an ALNS iteration
+ * or a segment-level event (end of a segment, local search results).
+ * <br>Records hold copies of the state of the search (cluster IDs of the
+ * solutions, snapshots of the heuristic weights and of the cluster roulette),
+ * so they can be turned into a spreadsheet row later, on the logger thread,
+ * without slowing down the search.
+ *
+ * @author Frash
+ */
+public class ALNSIterationRecord {
+
+    /**
+     * Value of <code>iteration</code> for segment-level records.
+     */
+    public static final long SEGMENT_EVENT = -1;
+
+    /**
+     * Placeholder for columns which don't apply to segment-level records.
+     */
+    private static final String NOT_APPLICABLE = "*";
+
+    // Values common to every record (package-private, read by ALNSTraceWriter)
+    final long segment;
+    final long elapsedTime;
+    final double temperature;
+    final double simulatedAnnealingBarrier;
+    final int q;
+    final int[] xBest;
+    final double xBestObj;
+    final int[] xGlobalBest;
+    final double xGlobalBestObj;
+    final Supplier<String> roulette;
+    final double rouletteAverageProbability;
+    final Supplier<String> nerfOccurrences;
+    final String comment;
+
+    // Values specific to ALNS iterations
+    long iteration = SEGMENT_EVENT;
+    String destroyLabel;
+    Supplier<String> destroyWeights;
+    String repairLabel;
+    Supplier<String> repairWeights;
+    boolean repaired;
+    int[] xOld;
+    double xOldObj;
+    int[] xNew;
+    double xNewObj;
+    boolean accepted;
+    boolean worseButAccepted;
+    boolean infeasible;
+
+    /**
+     * Constructor for a segment-level record. Use
+     * <code>setIteration</code> to turn it into an iteration record.
+     *
+     * @param segment the current segment
+     * @param elapsedTime seconds elapsed since the beginning of the search
+     * @param temperature the current temperature
+     * @param simulatedAnnealingBarrier the last simulated annealing barrier
+     * @param q the current q
+     * @param xBest the best solution (in the segment)
+     * @param xBestObj the objective value of xBest
+     * @param xGlobalBest the best solution found so far
+     * @param xGlobalBestObj the objective value of xGlobalBest
+     * @param clusterRoulette the cluster roulette (a snapshot is taken)
+     * @param comment a free comment
+     */
+    public ALNSIterationRecord(
+            long segment, long elapsedTime,
+            double temperature, double simulatedAnnealingBarrier, int q,
+            List<Cluster> xBest, double xBestObj,
+            List<Cluster> xGlobalBest, double xGlobalBestObj,
+            ClusterRoulette clusterRoulette,
+            String comment
+    ) {
+        this(segment, elapsedTime,
+                temperature, simulatedAnnealingBarrier, q,
+                idsOf(xBest), xBestObj,
+                idsOf(xGlobalBest), xGlobalBestObj,
+                clusterRoulette.probabilitiesSnapshot(),
+                clusterRoulette.getAverageProbability(),
+                clusterRoulette.nerfOccurrencesSnapshot(),
+                comment);
+    }
+
+    /**
+     * Constructor for a segment-level record from values which were already
+     * copied (e.g. read back from an iteration trace).
+     *
+     * @param segment the current segment
+     * @param elapsedTime seconds elapsed since the beginning of the search
+     * @param temperature the current temperature
+     * @param simulatedAnnealingBarrier the last simulated annealing barrier
+     * @param q the current q
+     * @param xBest cluster IDs of the best solution (in the segment)
+     * @param xBestObj the objective value of xBest
+     * @param xGlobalBest cluster IDs of the best solution found so far
+     * @param xGlobalBestObj the objective value of xGlobalBest
+     * @param roulette supplier of the cluster roulette column
+     * @param rouletteAverageProbability the average probability in the
+     * cluster roulette
+     * @param nerfOccurrences supplier of the nerf occurrences column
+     * @param comment a free comment
+     */
+    ALNSIterationRecord(
+            long segment, long elapsedTime,
+            double temperature, double simulatedAnnealingBarrier, int q,
+            int[] xBest, double xBestObj,
+            int[] xGlobalBest, double xGlobalBestObj,
+            Supplier<String> roulette, double rouletteAverageProbability,
+            Supplier<String> nerfOccurrences,
+            String comment
+    ) {
+        this.segment = segment;
+        this.elapsedTime = elapsedTime;
+        this.temperature = temperature;
+        this.simulatedAnnealingBarrier = simulatedAnnealingBarrier;
+        this.q = q;
+        this.xBest = xBest;
+        this.xBestObj = xBestObj;
+        this.xGlobalBest = xGlobalBest;
+        this.xGlobalBestObj = xGlobalBestObj;
+        this.roulette = roulette;
+        this.rouletteAverageProbability = rouletteAverageProbability;
+        this.nerfOccurrences = nerfOccurrences;
+        this.comment = comment;
+    }
+
+    /**
+     * Fills in the values specific to an ALNS iteration.
+     *
+     * @param iteration the current iteration
+     * @param destroyLabel label of the destroy heuristic used
+     * @param destroyMethods the destroy heuristics (a snapshot is taken)
+     * @param repairLabel label of the repair heuristic picked
+     * @param repairMethods the repair heuristics (a snapshot is taken)
+     * @param repaired true if the repair heuristic was used
+     * @param xOld the starting solution
+     * @param xOldObj objective value of xOld
+     * @param xNew the new solution
+     * @param xNewObj objective value of xNew (ignored if infeasible)
+     * @param accepted true if xNew was accepted
+     * @param worseButAccepted true if xNew was worse but accepted anyway
+     * @param infeasible true if xNew was infeasible and discarded
+     * @return this record
+     */
+    public ALNSIterationRecord setIteration(
+            long iteration,
+            String destroyLabel, ObjectDistribution<?> destroyMethods,
+            String repairLabel, ObjectDistribution<?> repairMethods,
+            boolean repaired,
+            List<Cluster> xOld, double xOldObj,
+            List<Cluster> xNew, double xNewObj,
+            boolean accepted, boolean worseButAccepted, boolean infeasible
+    ) {
+        return setIteration(iteration,
+                destroyLabel, destroyMethods.snapshot(),
+                repairLabel, repairMethods.snapshot(),
+                repaired,
+                idsOf(xOld), xOldObj,
+                idsOf(xNew), xNewObj,
+                accepted, worseButAccepted, infeasible);
+    }
+
+    /**
+     * Fills in the values specific to an ALNS iteration, from values which
+     * were already copied (e.g. read back from an iteration trace).
+     *
+     * @param iteration the current iteration
+     * @param destroyLabel label of the destroy heuristic used
+     * @param destroyWeights supplier of the destroy weights column
+     * @param repairLabel label of the repair heuristic picked
+     * @param repairWeights supplier of the repair weights column
+     * @param repaired true if the repair heuristic was used
+     * @param xOld cluster IDs of the starting solution
+     * @param xOldObj objective value of xOld
+     * @param xNew cluster IDs of the new solution
+     * @param xNewObj objective value of xNew (ignored if infeasible)
+     * @param accepted true if xNew was accepted
+     * @param worseButAccepted true if xNew was worse but accepted anyway
+     * @param infeasible true if xNew was infeasible and discarded
+     * @return this record
+     */
+    ALNSIterationRecord setIteration(
+            long iteration,
+            String destroyLabel, Supplier<String> destroyWeights,
+            String repairLabel, Supplier<String> repairWeights,
+            boolean repaired,
+            int[] xOld, double xOldObj,
+            int[] xNew, double xNewObj,
+            boolean accepted, boolean worseButAccepted, boolean infeasible
+    ) {
+        this.iteration = iteration;
+        this.destroyLabel = destroyLabel;
+        this.destroyWeights = destroyWeights;
+        this.repairLabel = repairLabel;
+        this.repairWeights = repairWeights;
+        this.repaired = repaired;
+        this.xOld = xOld;
+        this.xOldObj = xOldObj;
+        this.xNew = xNew;
+        this.xNewObj = xNewObj;
+        this.accepted = accepted;
+        this.worseButAccepted = worseButAccepted;
+        this.infeasible = infeasible;
+        return this;
+    }
+
+    /**
+     * Tells whether this record is a segment-level event.
+     *
+     * @return true if this record doesn't describe a single iteration
+     */
+    public boolean isSegmentEvent() {
+        return iteration == SEGMENT_EVENT;
+    }
+
+    /**
+     * Copies the IDs of the clusters in a solution.
+     */
+    private static int[] idsOf(List<Cluster> solution) {
+        int[] ret = new int[solution.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = solution.get(i).getId();
+        }
+        return ret;
+    }
+
+    /**
+     * Formats a solution as a comma separated list of cluster IDs.
+     */
+    private static String format(int[] solution) {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < solution.length; i++) {
+            sb.append(solution[i]);
+            if (i != solution.length - 1) {
+                sb.append(", ");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Turns this record into a row of the ALNS log, following
+     * <code>ALNSExcelLogger.HEADERS</code>.
+     *
+     * @return the row of the ALNS log for this record
+     */
+    public String[] toRow() {
+        if (isSegmentEvent()) {
+            return new String[]{
+                segment + "", NOT_APPLICABLE, elapsedTime + "",
+                NOT_APPLICABLE, NOT_APPLICABLE, NOT_APPLICABLE, NOT_APPLICABLE, NOT_APPLICABLE,
+                temperature + "",
+                simulatedAnnealingBarrier + "",
+                q + "",
+                NOT_APPLICABLE, NOT_APPLICABLE,
+                NOT_APPLICABLE, NOT_APPLICABLE, NOT_APPLICABLE, NOT_APPLICABLE, NOT_APPLICABLE,
+                format(xBest), xBestObj + "",
+                format(xGlobalBest), xGlobalBestObj + "",
+                roulette.get(), String.valueOf(rouletteAverageProbability), nerfOccurrences.get(),
+                comment
+            };
+        }
+        return new String[]{
+            segment + "", iteration + "", elapsedTime + "",
+            destroyLabel, destroyWeights.get(),
+            repairLabel, repairWeights.get(),
+            repaired ? "1" : "0",
+            temperature + "",
+            simulatedAnnealingBarrier + "",
+            q + "",
+            format(xOld), xOldObj + "",
+            format(xNew), infeasible ? "infeasible" : xNewObj + "",
+            accepted ? "1" : "0", worseButAccepted ? "1" : "0", infeasible ? "1" : "0",
+            format(xBest), xBestObj + "",
+            format(xGlobalBest), xGlobalBestObj + "",
+            roulette.get(), String.valueOf(rouletteAverageProbability), nerfOccurrences.get(),
+            comment
+        };
+    }
+
+    /**
+     * Builds a row of the ALNS log which only holds a comment.
+     *
+     * @param comment the comment to write
+     * @return a row with empty cells and the given comment
+     */
+    public static String[] commentRow(String comment) {
+        String[] row = new String[ALNSExcelLogger.HEADERS.length];
+        for (int i = 0; i < row.length - 1; i++) {
+            row[i] = "";
+        }
+        row[row.length - 1] = comment;
+        return row;
+    }
+}
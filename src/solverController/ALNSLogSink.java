@@ -0,0 +1,32 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.io.IOException;
+
+/**
+ * A destination for the rows of the ALNS log (see
+ * <code>ALNSExcelLogger.HEADERS</code> for the layout of a row).
+ *
+ * @author Frash
+ */
+public interface ALNSLogSink {
+
+    /**
+     * Write a row.
+     *
+     * @param logLine an array of strings to put in a row
+     * @throws IOException if there are problems with the output
+     */
+    public void writeRow(String[] logLine) throws IOException;
+
+    /**
+     * Makes sure every row is physically written and releases the output.
+     *
+     * @throws IOException if something goes wrong
+     */
+    public void close() throws IOException;
+}
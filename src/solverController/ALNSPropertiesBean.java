@@ -6,6 +6,7 @@
 package solverController;
 
 import java.beans.PropertyChangeSupport;
+import java.io.File;
 
 /**
  * Java Bean to hold all the properties and parameters for the ALNS optimizer.
@@ -57,6 +58,37 @@ public class ALNSPropertiesBean {
         this.punishmentForWorstSegmentHeuristics = apb.getPunishmentForWorstSegmentHeuristics();
         this.maxMIPSNodesForFeasibilityCheck = apb.getMaxMIPSNodesForFeasibilityCheck();
         this.maxIterationsWithoutImprovement = apb.getMaxIterationsWithoutImprovement();
+        this.useNogoodLearning = apb.isUseNogoodLearning();
+        this.timeLimitNogoodExtraction = apb.getTimeLimitNogoodExtraction();
+        this.maxExclusionCutsInModel = apb.getMaxExclusionCutsInModel();
+        this.exclusionCutsDecay = apb.getExclusionCutsDecay();
+        this.iterationLogFormat = apb.getIterationLogFormat();
+        this.iterationLogQueueSize = apb.getIterationLogQueueSize();
+        this.writeIterationTrace = apb.isWriteIterationTrace();
+        this.logLevel = apb.getLogLevel();
+        this.logTarget = apb.getLogTarget();
+        this.exposeJmxTelemetry = apb.isExposeJmxTelemetry();
+        this.metricsHttpPort = apb.getMetricsHttpPort();
+        this.randomSeed = apb.getRandomSeed();
+        this.benchmarkReferencesPath = apb.getBenchmarkReferencesPath();
+        this.benchmarkRepetitions = apb.getBenchmarkRepetitions();
+        this.benchmarkTargetGap = apb.getBenchmarkTargetGap();
+        this.feasibilityOracle = apb.getFeasibilityOracle();
+        this.maxClustersForExactFeasibilityCheck = apb.getMaxClustersForExactFeasibilityCheck();
+        this.useGallopingConstructiveSolution = apb.isUseGallopingConstructiveSolution();
+        this.useBisectionRepair = apb.isUseBisectionRepair();
+        this.heuristicConstraintsSearchThreads = apb.getHeuristicConstraintsSearchThreads();
+        this.heuristicConstraintsCalibrationSamples = apb.getHeuristicConstraintsCalibrationSamples();
+        this.timeLimitHeuristicConstraintsCalibration = apb.getTimeLimitHeuristicConstraintsCalibration();
+        this.hybridMIPThreads = apb.getHybridMIPThreads();
+        this.routePoolRecombinationSegments = apb.getRoutePoolRecombinationSegments();
+        this.maxRoutePoolSize = apb.getMaxRoutePoolSize();
+        this.timeLimitRoutePoolRecombination = apb.getTimeLimitRoutePoolRecombination();
+        this.elitePoolSize = apb.getElitePoolSize();
+        this.eliteMinJaccardDistance = apb.getEliteMinJaccardDistance();
+        this.checkpointSegments = apb.getCheckpointSegments();
+        this.solutionStorePath = apb.getSolutionStorePath();
+        this.solutionStoreSize = apb.getSolutionStoreSize();
     }
 
     /**
@@ -257,6 +289,206 @@ public class ALNSPropertiesBean {
      */
     private int maxIterationsWithoutImprovement = 16;
 
+    /**
+     * Determines whether infeasible cluster sets found by feasibility checks
+     * should be shrunk to a small infeasible core and remembered, so that
+     * solutions containing a known core are rejected without calling Gurobi.
+     * <br>Off by default: every check proven infeasible then costs a Gurobi
+     * IIS on the model, of up to <tt>timeLimitNogoodExtraction</tt> seconds,
+     * and the IIS time of a run is capped at 5% of <tt>timeLimitALNS</tt>.
+     */
+    private boolean useNogoodLearning = false;
+
+    /**
+     * Time limit (in seconds) for the extraction of an infeasible core
+     * (Gurobi IIS) from an infeasible feasibility check.
+     */
+    private double timeLimitNogoodExtraction = 1.0;
+
+    /**
+     * Maximum number of cuts excluding single infeasible solutions to keep in
+     * the model. Solutions whose cut is removed are still rejected through
+     * the Java-side cache.
+     */
+    private int maxExclusionCutsInModel = 200;
+
+    /**
+     * Factor in [0,1] applied to the usage of every exclusion cut at the end
+     * of each segment, so that recently binding cuts are kept over old ones.
+     */
+    private double exclusionCutsDecay = 0.5;
+
+    /**
+     * Format of the ALNS iteration log: "xlsx", "csv" or "none".
+     */
+    private String iterationLogFormat = "xlsx";
+
+    /**
+     * Maximum number of ALNS log records waiting to be written. When the
+     * queue is full, iteration records are dropped instead of slowing down
+     * the search.
+     */
+    private int iterationLogQueueSize = 1024;
+
+    /**
+     * True if every ALNS iteration has to be recorded in a compact binary trace
+     * (<tt>instance_ALNS.trace</tt>), which can be converted to a spreadsheet
+     * later with <tt>ALNSTraceConverter</tt>
+     */
+    private boolean writeIterationTrace = true;
+
+    /**
+     * Verbosity of the solver log: OFF, INFO (run and segment level messages)
+     * or TRACE (also iteration level messages, heuristics and feasibility
+     * checks)
+     */
+    private String logLevel = "INFO";
+
+    /**
+     * Where the solver log is written: GUROBI (the Gurobi log file, also
+     * shown by the GUI), JUL (java.util.logging, under logger
+     * <tt>solverController</tt>) or NONE
+     */
+    private String logTarget = "GUROBI";
+
+    /**
+     * True if the live state of the ALNS run has to be exposed as a JMX MBean
+     * (<tt>solverController:type=ALNS</tt>)
+     */
+    private boolean exposeJmxTelemetry = true;
+
+    /**
+     * Port of the localhost-only HTTP endpoint which exposes the live state of
+     * the ALNS run in Prometheus text format (<tt>/metrics</tt>). 0 disables it.
+     */
+    private int metricsHttpPort = 0;
+
+    /**
+     * Seed of the random number generators of the ALNS and of Gurobi.
+     * 0 picks a different seed at every run.
+     */
+    private long randomSeed = 0;
+
+    /**
+     * Path to the file with the reference objective values for SOLVE_BENCHMARK,
+     * one instance name and value per line
+     */
+    private String benchmarkReferencesPath = "Istanze di prova" + File.separator + "benchmarks.txt";
+
+    /**
+     * Number of runs of every instance in SOLVE_BENCHMARK, each with a fixed
+     * seed: randomSeed, randomSeed+1, ... (1, 2, ... if randomSeed is 0)
+     */
+    private int benchmarkRepetitions = 3;
+
+    /**
+     * Gap from the reference value (in percent) which counts as reaching the
+     * target in SOLVE_BENCHMARK, for time-to-target measurements
+     */
+    private double benchmarkTargetGap = 5.0;
+
+    /**
+     * Backend of the ALNS feasibility checks: GUROBI (the model, solved up to
+     * the first integer solution) or JAVA (pure-Java search of the routes,
+     * exact on small solutions and heuristic otherwise, see
+     * <code>JavaFeasibilityOracle</code>)
+     */
+    private String feasibilityOracle = "GUROBI";
+
+    /**
+     * Solutions with at most this many clusters are checked for feasibility
+     * by the pure-Java label-setting checker, without solving a MIP (0
+     * disables it, the default). The checker ignores the heuristic constraints
+     * and exclusion cuts of the model: new global bests it accepts are
+     * confirmed on the model before being saved
+     */
+    private int maxClustersForExactFeasibilityCheck = 0;
+
+    /**
+     * Whether the constructive solution adds clusters in blocks of growing
+     * size, bisecting the first infeasible block, instead of one at a time
+     */
+    private boolean useGallopingConstructiveSolution = true;
+
+    /**
+     * Whether repairBackToFeasibility4 doubles the degree of reparation q
+     * until the repair is feasible and then bisects it, instead of
+     * increasing it by one
+     */
+    private boolean useBisectionRepair = true;
+
+    /**
+     * Number of sets of heuristic constraints tested concurrently, each on
+     * its own copy of the model, while looking for the largest feasible
+     * combination of them (0 means as many as the available processors)
+     */
+    private int heuristicConstraintsSearchThreads = 0;
+
+    /**
+     * Number of sample solutions used to measure the speed of the feasible
+     * combinations of heuristic constraints before choosing the fastest one
+     * (0 chooses the largest feasible combination without measuring)
+     */
+    private int heuristicConstraintsCalibrationSamples = 4;
+
+    /**
+     * Time limit (in seconds) of the local search run on every combination
+     * of heuristic constraints measured by the calibration
+     */
+    private double timeLimitHeuristicConstraintsCalibration = 2.0;
+
+    /**
+     * Number of Gurobi threads used by the MIP solver in SOLVE_HYBRID mode,
+     * the others being left to the ALNS (0 means half of them)
+     */
+    private int hybridMIPThreads = 0;
+
+    /**
+     * Number of segments between two recombinations of the route pool by
+     * the set-partitioning MIP (0 disables the route pool)
+     */
+    private int routePoolRecombinationSegments = 5;
+
+    /**
+     * Maximum number of routes kept in the route pool
+     */
+    private int maxRoutePoolSize = 2000;
+
+    /**
+     * Time limit (in seconds) of a recombination of the route pool
+     */
+    private double timeLimitRoutePoolRecombination = 10.0;
+
+    /**
+     * Maximum number of solutions in the elite pool used by path relinking
+     * (0 disables path relinking)
+     */
+    private int elitePoolSize = 8;
+
+    /**
+     * Minimum Jaccard distance between the cluster sets of two solutions
+     * in the elite pool
+     */
+    private double eliteMinJaccardDistance = 0.2;
+
+    /**
+     * Number of ALNS segments between two checkpoints of the run, written to
+     * the output folder so that it can be resumed (0 disables checkpoints)
+     */
+    private int checkpointSegments = 10;
+
+    /**
+     * Path to the folder of the best-solution store, where the best solutions
+     * of every instance are kept across runs to warm start new ones
+     */
+    private String solutionStorePath = "solutionStore";
+
+    /**
+     * Number of best solutions kept in the store for every instance
+     * (0 disables the store: runs start from the constructive solution)
+     */
+    private int solutionStoreSize = 5;
+
     /**
      * Maximum size of the past history
      *
@@ -966,6 +1198,716 @@ public class ALNSPropertiesBean {
         propertyChangeSupport.firePropertyChange(PROP_MAXITERATIONSWITHOUTIMPROVEMENT, oldMaxIterationsWithoutImprovement, maxIterationsWithoutImprovement);
     }
 
+    /**
+     * Determines whether infeasible cluster sets found by feasibility checks
+     * should be shrunk to a small infeasible core and remembered, so that
+     * solutions containing a known core are rejected without calling Gurobi.
+     * <br>Off by default: every check proven infeasible then costs a Gurobi
+     * IIS on the model, of up to <tt>timeLimitNogoodExtraction</tt> seconds,
+     * and the IIS time of a run is capped at 5% of <tt>timeLimitALNS</tt>.
+     *
+     * @return the useNogoodLearning
+     */
+    public boolean isUseNogoodLearning() {
+        return useNogoodLearning;
+    }
+
+    /**
+     * Determines whether infeasible cluster sets found by feasibility checks
+     * should be shrunk to a small infeasible core and remembered, so that
+     * solutions containing a known core are rejected without calling Gurobi.
+     * <br>Off by default: every check proven infeasible then costs a Gurobi
+     * IIS on the model, of up to <tt>timeLimitNogoodExtraction</tt> seconds,
+     * and the IIS time of a run is capped at 5% of <tt>timeLimitALNS</tt>.
+     *
+     * @param useNogoodLearning the useNogoodLearning to set
+     */
+    public void setUseNogoodLearning(boolean useNogoodLearning) {
+        boolean oldUseNogoodLearning = this.useNogoodLearning;
+        this.useNogoodLearning = useNogoodLearning;
+        propertyChangeSupport.firePropertyChange(PROP_USENOGOODLEARNING, oldUseNogoodLearning, useNogoodLearning);
+    }
+
+    /**
+     * Time limit (in seconds) for the extraction of an infeasible core
+     * (Gurobi IIS) from an infeasible feasibility check.
+     *
+     * @return the timeLimitNogoodExtraction
+     */
+    public double getTimeLimitNogoodExtraction() {
+        return timeLimitNogoodExtraction;
+    }
+
+    /**
+     * Time limit (in seconds) for the extraction of an infeasible core
+     * (Gurobi IIS) from an infeasible feasibility check.
+     *
+     * @param timeLimitNogoodExtraction the timeLimitNogoodExtraction to set
+     */
+    public void setTimeLimitNogoodExtraction(double timeLimitNogoodExtraction) {
+        double oldTimeLimitNogoodExtraction = this.timeLimitNogoodExtraction;
+        this.timeLimitNogoodExtraction = timeLimitNogoodExtraction;
+        propertyChangeSupport.firePropertyChange(PROP_TIMELIMITNOGOODEXTRACTION, oldTimeLimitNogoodExtraction, timeLimitNogoodExtraction);
+    }
+
+    /**
+     * Maximum number of cuts excluding single infeasible solutions to keep in
+     * the model. Solutions whose cut is removed are still rejected through
+     * the Java-side cache.
+     *
+     * @return the maxExclusionCutsInModel
+     */
+    public int getMaxExclusionCutsInModel() {
+        return maxExclusionCutsInModel;
+    }
+
+    /**
+     * Maximum number of cuts excluding single infeasible solutions to keep in
+     * the model. Solutions whose cut is removed are still rejected through
+     * the Java-side cache.
+     *
+     * @param maxExclusionCutsInModel the maxExclusionCutsInModel to set
+     */
+    public void setMaxExclusionCutsInModel(int maxExclusionCutsInModel) {
+        int oldMaxExclusionCutsInModel = this.maxExclusionCutsInModel;
+        this.maxExclusionCutsInModel = maxExclusionCutsInModel;
+        propertyChangeSupport.firePropertyChange(PROP_MAXEXCLUSIONCUTSINMODEL, oldMaxExclusionCutsInModel, maxExclusionCutsInModel);
+    }
+
+    /**
+     * Factor in [0,1] applied to the usage of every exclusion cut at the end
+     * of each segment, so that recently binding cuts are kept over old ones.
+     *
+     * @return the exclusionCutsDecay
+     */
+    public double getExclusionCutsDecay() {
+        return exclusionCutsDecay;
+    }
+
+    /**
+     * Factor in [0,1] applied to the usage of every exclusion cut at the end
+     * of each segment, so that recently binding cuts are kept over old ones.
+     *
+     * @param exclusionCutsDecay the exclusionCutsDecay to set
+     */
+    public void setExclusionCutsDecay(double exclusionCutsDecay) {
+        double oldExclusionCutsDecay = this.exclusionCutsDecay;
+        this.exclusionCutsDecay = exclusionCutsDecay;
+        propertyChangeSupport.firePropertyChange(PROP_EXCLUSIONCUTSDECAY, oldExclusionCutsDecay, exclusionCutsDecay);
+    }
+
+    /**
+     * Format of the ALNS iteration log: "xlsx", "csv" or "none".
+     *
+     * @return the iterationLogFormat
+     */
+    public String getIterationLogFormat() {
+        return iterationLogFormat;
+    }
+
+    /**
+     * Format of the ALNS iteration log: "xlsx", "csv" or "none".
+     *
+     * @param iterationLogFormat the iterationLogFormat to set
+     */
+    public void setIterationLogFormat(String iterationLogFormat) {
+        String oldIterationLogFormat = this.iterationLogFormat;
+        this.iterationLogFormat = iterationLogFormat;
+        propertyChangeSupport.firePropertyChange(PROP_ITERATIONLOGFORMAT, oldIterationLogFormat, iterationLogFormat);
+    }
+
+    /**
+     * Maximum number of ALNS log records waiting to be written. When the
+     * queue is full, iteration records are dropped instead of slowing down
+     * the search.
+     *
+     * @return the iterationLogQueueSize
+     */
+    public int getIterationLogQueueSize() {
+        return iterationLogQueueSize;
+    }
+
+    /**
+     * Maximum number of ALNS log records waiting to be written. When the
+     * queue is full, iteration records are dropped instead of slowing down
+     * the search.
+     *
+     * @param iterationLogQueueSize the iterationLogQueueSize to set
+     */
+    public void setIterationLogQueueSize(int iterationLogQueueSize) {
+        int oldIterationLogQueueSize = this.iterationLogQueueSize;
+        this.iterationLogQueueSize = iterationLogQueueSize;
+        propertyChangeSupport.firePropertyChange(PROP_ITERATIONLOGQUEUESIZE, oldIterationLogQueueSize, iterationLogQueueSize);
+    }
+
+    /**
+     * True if every ALNS iteration has to be recorded in a compact binary trace
+     * (<tt>instance_ALNS.trace</tt>), which can be converted to a spreadsheet
+     * later with <tt>ALNSTraceConverter</tt>
+     *
+     * @return the writeIterationTrace
+     */
+    public boolean isWriteIterationTrace() {
+        return writeIterationTrace;
+    }
+
+    /**
+     * True if every ALNS iteration has to be recorded in a compact binary trace
+     * (<tt>instance_ALNS.trace</tt>), which can be converted to a spreadsheet
+     * later with <tt>ALNSTraceConverter</tt>
+     *
+     * @param writeIterationTrace the writeIterationTrace to set
+     */
+    public void setWriteIterationTrace(boolean writeIterationTrace) {
+        boolean oldWriteIterationTrace = this.writeIterationTrace;
+        this.writeIterationTrace = writeIterationTrace;
+        propertyChangeSupport.firePropertyChange(PROP_WRITEITERATIONTRACE, oldWriteIterationTrace, writeIterationTrace);
+    }
+
+    /**
+     * Verbosity of the solver log: OFF, INFO (run and segment level messages)
+     * or TRACE (also iteration level messages, heuristics and feasibility
+     * checks)
+     *
+     * @return the logLevel
+     */
+    public String getLogLevel() {
+        return logLevel;
+    }
+
+    /**
+     * Verbosity of the solver log: OFF, INFO (run and segment level messages)
+     * or TRACE (also iteration level messages, heuristics and feasibility
+     * checks)
+     *
+     * @param logLevel the logLevel to set
+     */
+    public void setLogLevel(String logLevel) {
+        String oldLogLevel = this.logLevel;
+        this.logLevel = logLevel;
+        propertyChangeSupport.firePropertyChange(PROP_LOGLEVEL, oldLogLevel, logLevel);
+    }
+
+    /**
+     * Where the solver log is written: GUROBI (the Gurobi log file, also
+     * shown by the GUI), JUL (java.util.logging, under logger
+     * <tt>solverController</tt>) or NONE
+     *
+     * @return the logTarget
+     */
+    public String getLogTarget() {
+        return logTarget;
+    }
+
+    /**
+     * Where the solver log is written: GUROBI (the Gurobi log file, also
+     * shown by the GUI), JUL (java.util.logging, under logger
+     * <tt>solverController</tt>) or NONE
+     *
+     * @param logTarget the logTarget to set
+     */
+    public void setLogTarget(String logTarget) {
+        String oldLogTarget = this.logTarget;
+        this.logTarget = logTarget;
+        propertyChangeSupport.firePropertyChange(PROP_LOGTARGET, oldLogTarget, logTarget);
+    }
+
+    /**
+     * True if the live state of the ALNS run has to be exposed as a JMX MBean
+     * (<tt>solverController:type=ALNS</tt>)
+     *
+     * @return the exposeJmxTelemetry
+     */
+    public boolean isExposeJmxTelemetry() {
+        return exposeJmxTelemetry;
+    }
+
+    /**
+     * True if the live state of the ALNS run has to be exposed as a JMX MBean
+     * (<tt>solverController:type=ALNS</tt>)
+     *
+     * @param exposeJmxTelemetry the exposeJmxTelemetry to set
+     */
+    public void setExposeJmxTelemetry(boolean exposeJmxTelemetry) {
+        boolean oldExposeJmxTelemetry = this.exposeJmxTelemetry;
+        this.exposeJmxTelemetry = exposeJmxTelemetry;
+        propertyChangeSupport.firePropertyChange(PROP_EXPOSEJMXTELEMETRY, oldExposeJmxTelemetry, exposeJmxTelemetry);
+    }
+
+    /**
+     * Port of the localhost-only HTTP endpoint which exposes the live state of
+     * the ALNS run in Prometheus text format (<tt>/metrics</tt>). 0 disables it.
+     *
+     * @return the metricsHttpPort
+     */
+    public int getMetricsHttpPort() {
+        return metricsHttpPort;
+    }
+
+    /**
+     * Port of the localhost-only HTTP endpoint which exposes the live state of
+     * the ALNS run in Prometheus text format (<tt>/metrics</tt>). 0 disables it.
+     *
+     * @param metricsHttpPort the metricsHttpPort to set
+     */
+    public void setMetricsHttpPort(int metricsHttpPort) {
+        int oldMetricsHttpPort = this.metricsHttpPort;
+        this.metricsHttpPort = metricsHttpPort;
+        propertyChangeSupport.firePropertyChange(PROP_METRICSHTTPPORT, oldMetricsHttpPort, metricsHttpPort);
+    }
+
+    /**
+     * Seed of the random number generators of the ALNS and of Gurobi.
+     * 0 picks a different seed at every run.
+     *
+     * @return the randomSeed
+     */
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    /**
+     * Seed of the random number generators of the ALNS and of Gurobi.
+     * 0 picks a different seed at every run.
+     *
+     * @param randomSeed the randomSeed to set
+     */
+    public void setRandomSeed(long randomSeed) {
+        long oldRandomSeed = this.randomSeed;
+        this.randomSeed = randomSeed;
+        propertyChangeSupport.firePropertyChange(PROP_RANDOMSEED, oldRandomSeed, randomSeed);
+    }
+
+    /**
+     * Path to the file with the reference objective values for SOLVE_BENCHMARK,
+     * one instance name and value per line
+     *
+     * @return the benchmarkReferencesPath
+     */
+    public String getBenchmarkReferencesPath() {
+        return benchmarkReferencesPath;
+    }
+
+    /**
+     * Path to the file with the reference objective values for SOLVE_BENCHMARK,
+     * one instance name and value per line
+     *
+     * @param benchmarkReferencesPath the benchmarkReferencesPath to set
+     */
+    public void setBenchmarkReferencesPath(String benchmarkReferencesPath) {
+        String oldBenchmarkReferencesPath = this.benchmarkReferencesPath;
+        this.benchmarkReferencesPath = benchmarkReferencesPath;
+        propertyChangeSupport.firePropertyChange(PROP_BENCHMARKREFERENCESPATH, oldBenchmarkReferencesPath, benchmarkReferencesPath);
+    }
+
+    /**
+     * Number of runs of every instance in SOLVE_BENCHMARK, each with a fixed
+     * seed: randomSeed, randomSeed+1, ... (1, 2, ... if randomSeed is 0)
+     *
+     * @return the benchmarkRepetitions
+     */
+    public int getBenchmarkRepetitions() {
+        return benchmarkRepetitions;
+    }
+
+    /**
+     * Number of runs of every instance in SOLVE_BENCHMARK, each with a fixed
+     * seed: randomSeed, randomSeed+1, ... (1, 2, ... if randomSeed is 0)
+     *
+     * @param benchmarkRepetitions the benchmarkRepetitions to set
+     */
+    public void setBenchmarkRepetitions(int benchmarkRepetitions) {
+        int oldBenchmarkRepetitions = this.benchmarkRepetitions;
+        this.benchmarkRepetitions = benchmarkRepetitions;
+        propertyChangeSupport.firePropertyChange(PROP_BENCHMARKREPETITIONS, oldBenchmarkRepetitions, benchmarkRepetitions);
+    }
+
+    /**
+     * Gap from the reference value (in percent) which counts as reaching the
+     * target in SOLVE_BENCHMARK, for time-to-target measurements
+     *
+     * @return the benchmarkTargetGap
+     */
+    public double getBenchmarkTargetGap() {
+        return benchmarkTargetGap;
+    }
+
+    /**
+     * Gap from the reference value (in percent) which counts as reaching the
+     * target in SOLVE_BENCHMARK, for time-to-target measurements
+     *
+     * @param benchmarkTargetGap the benchmarkTargetGap to set
+     */
+    public void setBenchmarkTargetGap(double benchmarkTargetGap) {
+        double oldBenchmarkTargetGap = this.benchmarkTargetGap;
+        this.benchmarkTargetGap = benchmarkTargetGap;
+        propertyChangeSupport.firePropertyChange(PROP_BENCHMARKTARGETGAP, oldBenchmarkTargetGap, benchmarkTargetGap);
+    }
+
+    /**
+     * Backend of the ALNS feasibility checks: GUROBI (the model, solved up to
+     * the first integer solution) or JAVA (pure-Java search of the routes,
+     * exact on small solutions and heuristic otherwise, see
+     * <code>JavaFeasibilityOracle</code>)
+     *
+     * @return the feasibilityOracle
+     */
+    public String getFeasibilityOracle() {
+        return feasibilityOracle;
+    }
+
+    /**
+     * Backend of the ALNS feasibility checks: GUROBI (the model, solved up to
+     * the first integer solution) or JAVA (pure-Java search of the routes,
+     * exact on small solutions and heuristic otherwise, see
+     * <code>JavaFeasibilityOracle</code>)
+     *
+     * @param feasibilityOracle the feasibilityOracle to set
+     */
+    public void setFeasibilityOracle(String feasibilityOracle) {
+        String oldFeasibilityOracle = this.feasibilityOracle;
+        this.feasibilityOracle = feasibilityOracle;
+        propertyChangeSupport.firePropertyChange(PROP_FEASIBILITYORACLE, oldFeasibilityOracle, feasibilityOracle);
+    }
+
+    /**
+     * Solutions with at most this many clusters are checked for feasibility
+     * by the pure-Java label-setting checker, without solving a MIP (0
+     * disables it, the default). The checker ignores the heuristic constraints
+     * and exclusion cuts of the model: new global bests it accepts are
+     * confirmed on the model before being saved
+     *
+     * @return the maxClustersForExactFeasibilityCheck
+     */
+    public int getMaxClustersForExactFeasibilityCheck() {
+        return maxClustersForExactFeasibilityCheck;
+    }
+
+    /**
+     * Solutions with at most this many clusters are checked for feasibility
+     * by the pure-Java label-setting checker, without solving a MIP (0
+     * disables it, the default). The checker ignores the heuristic constraints
+     * and exclusion cuts of the model: new global bests it accepts are
+     * confirmed on the model before being saved
+     *
+     * @param maxClustersForExactFeasibilityCheck the maxClustersForExactFeasibilityCheck to set
+     */
+    public void setMaxClustersForExactFeasibilityCheck(int maxClustersForExactFeasibilityCheck) {
+        int oldMaxClustersForExactFeasibilityCheck = this.maxClustersForExactFeasibilityCheck;
+        this.maxClustersForExactFeasibilityCheck = maxClustersForExactFeasibilityCheck;
+        propertyChangeSupport.firePropertyChange(PROP_MAXCLUSTERSFOREXACTFEASIBILITYCHECK, oldMaxClustersForExactFeasibilityCheck, maxClustersForExactFeasibilityCheck);
+    }
+
+    /**
+     * Whether the constructive solution adds clusters in blocks of growing
+     * size, bisecting the first infeasible block, instead of one at a time
+     *
+     * @return the useGallopingConstructiveSolution
+     */
+    public boolean isUseGallopingConstructiveSolution() {
+        return useGallopingConstructiveSolution;
+    }
+
+    /**
+     * Whether the constructive solution adds clusters in blocks of growing
+     * size, bisecting the first infeasible block, instead of one at a time
+     *
+     * @param useGallopingConstructiveSolution the useGallopingConstructiveSolution to set
+     */
+    public void setUseGallopingConstructiveSolution(boolean useGallopingConstructiveSolution) {
+        boolean oldUseGallopingConstructiveSolution = this.useGallopingConstructiveSolution;
+        this.useGallopingConstructiveSolution = useGallopingConstructiveSolution;
+        propertyChangeSupport.firePropertyChange(PROP_USEGALLOPINGCONSTRUCTIVESOLUTION, oldUseGallopingConstructiveSolution, useGallopingConstructiveSolution);
+    }
+
+    /**
+     * Whether repairBackToFeasibility4 doubles the degree of reparation q
+     * until the repair is feasible and then bisects it, instead of
+     * increasing it by one
+     *
+     * @return the useBisectionRepair
+     */
+    public boolean isUseBisectionRepair() {
+        return useBisectionRepair;
+    }
+
+    /**
+     * Whether repairBackToFeasibility4 doubles the degree of reparation q
+     * until the repair is feasible and then bisects it, instead of
+     * increasing it by one
+     *
+     * @param useBisectionRepair the useBisectionRepair to set
+     */
+    public void setUseBisectionRepair(boolean useBisectionRepair) {
+        boolean oldUseBisectionRepair = this.useBisectionRepair;
+        this.useBisectionRepair = useBisectionRepair;
+        propertyChangeSupport.firePropertyChange(PROP_USEBISECTIONREPAIR, oldUseBisectionRepair, useBisectionRepair);
+    }
+
+    /**
+     * Number of sets of heuristic constraints tested concurrently, each on
+     * its own copy of the model, while looking for the largest feasible
+     * combination of them (0 means as many as the available processors)
+     *
+     * @return the heuristicConstraintsSearchThreads
+     */
+    public int getHeuristicConstraintsSearchThreads() {
+        return heuristicConstraintsSearchThreads;
+    }
+
+    /**
+     * Number of sets of heuristic constraints tested concurrently, each on
+     * its own copy of the model, while looking for the largest feasible
+     * combination of them (0 means as many as the available processors)
+     *
+     * @param heuristicConstraintsSearchThreads the heuristicConstraintsSearchThreads to set
+     */
+    public void setHeuristicConstraintsSearchThreads(int heuristicConstraintsSearchThreads) {
+        int oldHeuristicConstraintsSearchThreads = this.heuristicConstraintsSearchThreads;
+        this.heuristicConstraintsSearchThreads = heuristicConstraintsSearchThreads;
+        propertyChangeSupport.firePropertyChange(PROP_HEURISTICCONSTRAINTSSEARCHTHREADS, oldHeuristicConstraintsSearchThreads, heuristicConstraintsSearchThreads);
+    }
+
+    /**
+     * Number of sample solutions used to measure the speed of the feasible
+     * combinations of heuristic constraints before choosing the fastest one
+     * (0 chooses the largest feasible combination without measuring)
+     *
+     * @return the heuristicConstraintsCalibrationSamples
+     */
+    public int getHeuristicConstraintsCalibrationSamples() {
+        return heuristicConstraintsCalibrationSamples;
+    }
+
+    /**
+     * Number of sample solutions used to measure the speed of the feasible
+     * combinations of heuristic constraints before choosing the fastest one
+     * (0 chooses the largest feasible combination without measuring)
+     *
+     * @param heuristicConstraintsCalibrationSamples the heuristicConstraintsCalibrationSamples to set
+     */
+    public void setHeuristicConstraintsCalibrationSamples(int heuristicConstraintsCalibrationSamples) {
+        int oldHeuristicConstraintsCalibrationSamples = this.heuristicConstraintsCalibrationSamples;
+        this.heuristicConstraintsCalibrationSamples = heuristicConstraintsCalibrationSamples;
+        propertyChangeSupport.firePropertyChange(PROP_HEURISTICCONSTRAINTSCALIBRATIONSAMPLES, oldHeuristicConstraintsCalibrationSamples, heuristicConstraintsCalibrationSamples);
+    }
+
+    /**
+     * Time limit (in seconds) of the local search run on every combination
+     * of heuristic constraints measured by the calibration
+     *
+     * @return the timeLimitHeuristicConstraintsCalibration
+     */
+    public double getTimeLimitHeuristicConstraintsCalibration() {
+        return timeLimitHeuristicConstraintsCalibration;
+    }
+
+    /**
+     * Time limit (in seconds) of the local search run on every combination
+     * of heuristic constraints measured by the calibration
+     *
+     * @param timeLimitHeuristicConstraintsCalibration the timeLimitHeuristicConstraintsCalibration to set
+     */
+    public void setTimeLimitHeuristicConstraintsCalibration(double timeLimitHeuristicConstraintsCalibration) {
+        double oldTimeLimitHeuristicConstraintsCalibration = this.timeLimitHeuristicConstraintsCalibration;
+        this.timeLimitHeuristicConstraintsCalibration = timeLimitHeuristicConstraintsCalibration;
+        propertyChangeSupport.firePropertyChange(PROP_TIMELIMITHEURISTICCONSTRAINTSCALIBRATION, oldTimeLimitHeuristicConstraintsCalibration, timeLimitHeuristicConstraintsCalibration);
+    }
+
+    /**
+     * Number of Gurobi threads used by the MIP solver in SOLVE_HYBRID mode,
+     * the others being left to the ALNS (0 means half of them)
+     *
+     * @return the hybridMIPThreads
+     */
+    public int getHybridMIPThreads() {
+        return hybridMIPThreads;
+    }
+
+    /**
+     * Number of Gurobi threads used by the MIP solver in SOLVE_HYBRID mode,
+     * the others being left to the ALNS (0 means half of them)
+     *
+     * @param hybridMIPThreads the hybridMIPThreads to set
+     */
+    public void setHybridMIPThreads(int hybridMIPThreads) {
+        int oldHybridMIPThreads = this.hybridMIPThreads;
+        this.hybridMIPThreads = hybridMIPThreads;
+        propertyChangeSupport.firePropertyChange(PROP_HYBRIDMIPTHREADS, oldHybridMIPThreads, hybridMIPThreads);
+    }
+
+    /**
+     * Number of segments between two recombinations of the route pool by
+     * the set-partitioning MIP (0 disables the route pool)
+     *
+     * @return the routePoolRecombinationSegments
+     */
+    public int getRoutePoolRecombinationSegments() {
+        return routePoolRecombinationSegments;
+    }
+
+    /**
+     * Number of segments between two recombinations of the route pool by
+     * the set-partitioning MIP (0 disables the route pool)
+     *
+     * @param routePoolRecombinationSegments the routePoolRecombinationSegments to set
+     */
+    public void setRoutePoolRecombinationSegments(int routePoolRecombinationSegments) {
+        int oldRoutePoolRecombinationSegments = this.routePoolRecombinationSegments;
+        this.routePoolRecombinationSegments = routePoolRecombinationSegments;
+        propertyChangeSupport.firePropertyChange(PROP_ROUTEPOOLRECOMBINATIONSEGMENTS, oldRoutePoolRecombinationSegments, routePoolRecombinationSegments);
+    }
+
+    /**
+     * Maximum number of routes kept in the route pool
+     *
+     * @return the maxRoutePoolSize
+     */
+    public int getMaxRoutePoolSize() {
+        return maxRoutePoolSize;
+    }
+
+    /**
+     * Maximum number of routes kept in the route pool
+     *
+     * @param maxRoutePoolSize the maxRoutePoolSize to set
+     */
+    public void setMaxRoutePoolSize(int maxRoutePoolSize) {
+        int oldMaxRoutePoolSize = this.maxRoutePoolSize;
+        this.maxRoutePoolSize = maxRoutePoolSize;
+        propertyChangeSupport.firePropertyChange(PROP_MAXROUTEPOOLSIZE, oldMaxRoutePoolSize, maxRoutePoolSize);
+    }
+
+    /**
+     * Time limit (in seconds) of a recombination of the route pool
+     *
+     * @return the timeLimitRoutePoolRecombination
+     */
+    public double getTimeLimitRoutePoolRecombination() {
+        return timeLimitRoutePoolRecombination;
+    }
+
+    /**
+     * Time limit (in seconds) of a recombination of the route pool
+     *
+     * @param timeLimitRoutePoolRecombination the timeLimitRoutePoolRecombination to set
+     */
+    public void setTimeLimitRoutePoolRecombination(double timeLimitRoutePoolRecombination) {
+        double oldTimeLimitRoutePoolRecombination = this.timeLimitRoutePoolRecombination;
+        this.timeLimitRoutePoolRecombination = timeLimitRoutePoolRecombination;
+        propertyChangeSupport.firePropertyChange(PROP_TIMELIMITROUTEPOOLRECOMBINATION, oldTimeLimitRoutePoolRecombination, timeLimitRoutePoolRecombination);
+    }
+
+    /**
+     * Maximum number of solutions in the elite pool used by path relinking
+     * (0 disables path relinking)
+     *
+     * @return the elitePoolSize
+     */
+    public int getElitePoolSize() {
+        return elitePoolSize;
+    }
+
+    /**
+     * Maximum number of solutions in the elite pool used by path relinking
+     * (0 disables path relinking)
+     *
+     * @param elitePoolSize the elitePoolSize to set
+     */
+    public void setElitePoolSize(int elitePoolSize) {
+        int oldElitePoolSize = this.elitePoolSize;
+        this.elitePoolSize = elitePoolSize;
+        propertyChangeSupport.firePropertyChange(PROP_ELITEPOOLSIZE, oldElitePoolSize, elitePoolSize);
+    }
+
+    /**
+     * Minimum Jaccard distance between the cluster sets of two solutions
+     * in the elite pool
+     *
+     * @return the eliteMinJaccardDistance
+     */
+    public double getEliteMinJaccardDistance() {
+        return eliteMinJaccardDistance;
+    }
+
+    /**
+     * Minimum Jaccard distance between the cluster sets of two solutions
+     * in the elite pool
+     *
+     * @param eliteMinJaccardDistance the eliteMinJaccardDistance to set
+     */
+    public void setEliteMinJaccardDistance(double eliteMinJaccardDistance) {
+        double oldEliteMinJaccardDistance = this.eliteMinJaccardDistance;
+        this.eliteMinJaccardDistance = eliteMinJaccardDistance;
+        propertyChangeSupport.firePropertyChange(PROP_ELITEMINJACCARDDISTANCE, oldEliteMinJaccardDistance, eliteMinJaccardDistance);
+    }
+
+    /**
+     * Number of ALNS segments between two checkpoints of the run, written to
+     * the output folder so that it can be resumed (0 disables checkpoints)
+     *
+     * @return the checkpointSegments
+     */
+    public int getCheckpointSegments() {
+        return checkpointSegments;
+    }
+
+    /**
+     * Number of ALNS segments between two checkpoints of the run, written to
+     * the output folder so that it can be resumed (0 disables checkpoints)
+     *
+     * @param checkpointSegments the checkpointSegments to set
+     */
+    public void setCheckpointSegments(int checkpointSegments) {
+        int oldCheckpointSegments = this.checkpointSegments;
+        this.checkpointSegments = checkpointSegments;
+        propertyChangeSupport.firePropertyChange(PROP_CHECKPOINTSEGMENTS, oldCheckpointSegments, checkpointSegments);
+    }
+
+    /**
+     * Path to the folder of the best-solution store, where the best solutions
+     * of every instance are kept across runs to warm start new ones
+     *
+     * @return the solutionStorePath
+     */
+    public String getSolutionStorePath() {
+        return solutionStorePath;
+    }
+
+    /**
+     * Path to the folder of the best-solution store, where the best solutions
+     * of every instance are kept across runs to warm start new ones
+     *
+     * @param solutionStorePath the solutionStorePath to set
+     */
+    public void setSolutionStorePath(String solutionStorePath) {
+        String oldSolutionStorePath = this.solutionStorePath;
+        this.solutionStorePath = solutionStorePath;
+        propertyChangeSupport.firePropertyChange(PROP_SOLUTIONSTOREPATH, oldSolutionStorePath, solutionStorePath);
+    }
+
+    /**
+     * Number of best solutions kept in the store for every instance
+     * (0 disables the store: runs start from the constructive solution)
+     *
+     * @return the solutionStoreSize
+     */
+    public int getSolutionStoreSize() {
+        return solutionStoreSize;
+    }
+
+    /**
+     * Number of best solutions kept in the store for every instance
+     * (0 disables the store: runs start from the constructive solution)
+     *
+     * @param solutionStoreSize the solutionStoreSize to set
+     */
+    public void setSolutionStoreSize(int solutionStoreSize) {
+        int oldSolutionStoreSize = this.solutionStoreSize;
+        this.solutionStoreSize = solutionStoreSize;
+        propertyChangeSupport.firePropertyChange(PROP_SOLUTIONSTORESIZE, oldSolutionStoreSize, solutionStoreSize);
+    }
+
     private final transient PropertyChangeSupport propertyChangeSupport = new java.beans.PropertyChangeSupport(this);
     public static final String PROP_MAXHISTORYSIZE = "maxHistorySize";
     public static final String PROP_QSTART = "qStart";
@@ -996,6 +1938,37 @@ public class ALNSPropertiesBean {
     public static final String PROP_HEURISTICSCORES = "heuristicScores";
     public static final String PROP_MAXMIPSNODESFORFEASIBILITYCHECK = "maxMIPSNodesForFeasibilityCheck";
     public static final String PROP_MAXITERATIONSWITHOUTIMPROVEMENT = "maxIterationsWithoutImprovement";
+    public static final String PROP_USENOGOODLEARNING = "useNogoodLearning";
+    public static final String PROP_TIMELIMITNOGOODEXTRACTION = "timeLimitNogoodExtraction";
+    public static final String PROP_MAXEXCLUSIONCUTSINMODEL = "maxExclusionCutsInModel";
+    public static final String PROP_EXCLUSIONCUTSDECAY = "exclusionCutsDecay";
+    public static final String PROP_ITERATIONLOGFORMAT = "iterationLogFormat";
+    public static final String PROP_ITERATIONLOGQUEUESIZE = "iterationLogQueueSize";
+    public static final String PROP_WRITEITERATIONTRACE = "writeIterationTrace";
+    public static final String PROP_LOGLEVEL = "logLevel";
+    public static final String PROP_LOGTARGET = "logTarget";
+    public static final String PROP_EXPOSEJMXTELEMETRY = "exposeJmxTelemetry";
+    public static final String PROP_METRICSHTTPPORT = "metricsHttpPort";
+    public static final String PROP_RANDOMSEED = "randomSeed";
+    public static final String PROP_BENCHMARKREFERENCESPATH = "benchmarkReferencesPath";
+    public static final String PROP_BENCHMARKREPETITIONS = "benchmarkRepetitions";
+    public static final String PROP_BENCHMARKTARGETGAP = "benchmarkTargetGap";
+    public static final String PROP_FEASIBILITYORACLE = "feasibilityOracle";
+    public static final String PROP_MAXCLUSTERSFOREXACTFEASIBILITYCHECK = "maxClustersForExactFeasibilityCheck";
+    public static final String PROP_USEGALLOPINGCONSTRUCTIVESOLUTION = "useGallopingConstructiveSolution";
+    public static final String PROP_USEBISECTIONREPAIR = "useBisectionRepair";
+    public static final String PROP_HEURISTICCONSTRAINTSSEARCHTHREADS = "heuristicConstraintsSearchThreads";
+    public static final String PROP_HEURISTICCONSTRAINTSCALIBRATIONSAMPLES = "heuristicConstraintsCalibrationSamples";
+    public static final String PROP_TIMELIMITHEURISTICCONSTRAINTSCALIBRATION = "timeLimitHeuristicConstraintsCalibration";
+    public static final String PROP_HYBRIDMIPTHREADS = "hybridMIPThreads";
+    public static final String PROP_ROUTEPOOLRECOMBINATIONSEGMENTS = "routePoolRecombinationSegments";
+    public static final String PROP_MAXROUTEPOOLSIZE = "maxRoutePoolSize";
+    public static final String PROP_TIMELIMITROUTEPOOLRECOMBINATION = "timeLimitRoutePoolRecombination";
+    public static final String PROP_ELITEPOOLSIZE = "elitePoolSize";
+    public static final String PROP_ELITEMINJACCARDDISTANCE = "eliteMinJaccardDistance";
+    public static final String PROP_CHECKPOINTSEGMENTS = "checkpointSegments";
+    public static final String PROP_SOLUTIONSTOREPATH = "solutionStorePath";
+    public static final String PROP_SOLUTIONSTORESIZE = "solutionStoreSize";
 
     /**
      * Determines whether to use this heuristic.
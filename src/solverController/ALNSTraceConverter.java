@@ -0,0 +1,269 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.BitSet;
+
+/**
+ * Offline converter from binary ALNS traces (written by
+ * <code>ALNSTraceWriter</code>) to the XLSX or CSV layout of the ALNS log.
+ * <br>Iteration rows have no cluster roulette and nerf occurrences (they're
+ * only traced at the end of segments), and the time and Gurobi nodes spent in
+ * feasibility checks are appended to the comment of each row.
+ * <br>Usage:
+ * <pre>
+ * java -cp CTOWSS_alns.jar solverController.ALNSTraceConverter file.trace [xlsx|csv]
+ * </pre>
+ *
+ * @author Frash
+ */
+public class ALNSTraceConverter {
+
+    /**
+     * Placeholder for columns which are not in the trace.
+     */
+    private static final String NOT_TRACED = "*";
+
+    /**
+     * Converts a trace file to a spreadsheet, in the same folder, with the
+     * same name and the extension of the chosen format.
+     *
+     * @param tracePath path of the trace file
+     * @param format one of <code>ALNSAsyncLogger.FORMAT_XLSX</code> or
+     * <code>ALNSAsyncLogger.FORMAT_CSV</code>
+     * @return the number of records converted
+     * @throws IOException if the trace can't be read or the output can't be
+     * written
+     */
+    public static long convert(String tracePath, String format) throws IOException {
+        String basePath = tracePath.endsWith(ALNSTraceWriter.EXTENSION)
+                ? tracePath.substring(0, tracePath.length() - ALNSTraceWriter.EXTENSION.length())
+                : tracePath;
+        long records = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(tracePath)))) {
+            // Header
+            if (in.readInt() != ALNSTraceWriter.MAGIC) {
+                throw new IOException(tracePath + " is not an ALNS trace.");
+            }
+            byte version = in.readByte();
+            if (version != ALNSTraceWriter.VERSION) {
+                throw new IOException("Unsupported ALNS trace version " + version + ".");
+            }
+            String instanceName = in.readUTF();
+            String[] destroyLabels = readLabels(in);
+            String[] repairLabels = readLabels(in);
+            int numClusters = (int) readVarLong(in);
+
+            // State rebuilt from deltas
+            BitSet xOld = new BitSet(numClusters);
+            BitSet xNew = new BitSet(numClusters);
+            BitSet xBest = new BitSet(numClusters);
+            BitSet xGlobalBest = new BitSet(numClusters);
+            double[] destroyWeights = new double[destroyLabels.length];
+            double[] repairWeights = new double[repairLabels.length];
+
+            ALNSLogSink sink = ALNSAsyncLogger.createSink(format, basePath, instanceName);
+            try {
+                byte type;
+                while ((type = in.readByte()) != ALNSTraceWriter.END_OF_TRACE) {
+                    long segment = readVarLong(in);
+                    long elapsedTime = readVarLong(in);
+                    double temperature = in.readDouble();
+                    double barrier = in.readDouble();
+                    int q = (int) readVarLong(in);
+                    readDiff(in, xBest);
+                    double xBestObj = in.readDouble();
+                    readDiff(in, xGlobalBest);
+                    double xGlobalBestObj = in.readDouble();
+                    double averageProbability = in.readDouble();
+                    String comment = in.readUTF();
+                    long checkNanos = readVarLong(in);
+                    long checkNodes = readVarLong(in);
+                    readWeights(in, destroyWeights);
+                    readWeights(in, repairWeights);
+
+                    String checks = "feasibility checks: "
+                            + String.format("%.3f", checkNanos / 1e6) + " ms, "
+                            + checkNodes + " nodes";
+                    comment = comment.isEmpty() ? checks : comment + " (" + checks + ")";
+
+                    ALNSIterationRecord record;
+                    if (type == ALNSTraceWriter.SEGMENT_RECORD) {
+                        double[] probabilities = readDoubles(in, numClusters);
+                        double[] nerfOccurrences = readDoubles(in, numClusters);
+                        record = new ALNSIterationRecord(
+                                segment, elapsedTime, temperature, barrier, q,
+                                toIds(xBest), xBestObj,
+                                toIds(xGlobalBest), xGlobalBestObj,
+                                () -> ClusterRoulette.formatProbabilities(probabilities, averageProbability),
+                                averageProbability,
+                                () -> ClusterRoulette.formatNerfOccurrences(nerfOccurrences),
+                                comment);
+                    } else if (type == ALNSTraceWriter.ITERATION_RECORD) {
+                        long iteration = readVarLong(in);
+                        int destroy = (int) readVarLong(in);
+                        int repair = (int) readVarLong(in);
+                        int flags = in.readByte();
+                        readDiff(in, xOld);
+                        double xOldObj = in.readDouble();
+                        readDiff(in, xNew);
+                        double xNewObj = in.readDouble();
+
+                        String destroyColumn = ObjectDistribution.format(destroyLabels, destroyWeights);
+                        String repairColumn = ObjectDistribution.format(repairLabels, repairWeights);
+                        record = new ALNSIterationRecord(
+                                segment, elapsedTime, temperature, barrier, q,
+                                toIds(xBest), xBestObj,
+                                toIds(xGlobalBest), xGlobalBestObj,
+                                () -> NOT_TRACED,
+                                averageProbability,
+                                () -> NOT_TRACED,
+                                comment
+                        ).setIteration(
+                                iteration,
+                                labelOf(destroyLabels, destroy), () -> destroyColumn,
+                                labelOf(repairLabels, repair), () -> repairColumn,
+                                (flags & ALNSTraceWriter.FLAG_REPAIRED) != 0,
+                                toIds(xOld), xOldObj,
+                                toIds(xNew), xNewObj,
+                                (flags & ALNSTraceWriter.FLAG_ACCEPTED) != 0,
+                                (flags & ALNSTraceWriter.FLAG_WORSE_BUT_ACCEPTED) != 0,
+                                (flags & ALNSTraceWriter.FLAG_INFEASIBLE) != 0);
+                    } else {
+                        throw new IOException("Unknown record type " + type + " in ALNS trace.");
+                    }
+
+                    sink.writeRow(record.toRow());
+                    records++;
+                }
+            } catch (EOFException ex) {
+                // The solver was stopped before closing the trace
+                sink.writeRow(ALNSIterationRecord.commentRow("The trace ends abruptly: records after this one are missing."));
+            } finally {
+                sink.close();
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * Reads a list of heuristic labels.
+     */
+    private static String[] readLabels(DataInputStream in) throws IOException {
+        String[] labels = new String[(int) readVarLong(in)];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = in.readUTF();
+        }
+        return labels;
+    }
+
+    /**
+     * Reads the weights which changed since the previous record.
+     */
+    private static void readWeights(DataInputStream in, double[] weights) throws IOException {
+        long changed = readVarLong(in);
+        for (long i = 0; i < changed; i++) {
+            int index = (int) readVarLong(in);
+            weights[index] = in.readDouble();
+        }
+    }
+
+    /**
+     * Applies the clusters removed from and added to a solution.
+     */
+    private static void readDiff(DataInputStream in, BitSet solution) throws IOException {
+        long removed = readVarLong(in);
+        for (long i = 0; i < removed; i++) {
+            solution.clear((int) readVarLong(in));
+        }
+        long added = readVarLong(in);
+        for (long i = 0; i < added; i++) {
+            solution.set((int) readVarLong(in));
+        }
+    }
+
+    /**
+     * Reads a fixed number of doubles.
+     */
+    private static double[] readDoubles(DataInputStream in, int howMany) throws IOException {
+        double[] ret = new double[howMany];
+        for (int i = 0; i < howMany; i++) {
+            ret[i] = in.readDouble();
+        }
+        return ret;
+    }
+
+    /**
+     * Converts a solution to its sorted cluster IDs.
+     */
+    private static int[] toIds(BitSet solution) {
+        return solution.stream().toArray();
+    }
+
+    /**
+     * Gets a heuristic label from its index, if it's known.
+     */
+    private static String labelOf(String[] labels, int index) {
+        return index >= 0 && index < labels.length ? labels[index] : String.valueOf(index);
+    }
+
+    /**
+     * Reads a zig-zag encoded variable length integer, as written by
+     * <code>ALNSTraceWriter.writeVarLong()</code>.
+     *
+     * @param in the input stream
+     * @return the value read
+     * @throws IOException if the value can't be read
+     */
+    static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Converts the ALNS traces given as arguments.
+     *
+     * @param args paths of the trace files, optionally followed by the output
+     * format (xlsx, the default, or csv)
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java -cp CTOWSS_alns.jar solverController.ALNSTraceConverter file.trace... [xlsx|csv]");
+            return;
+        }
+
+        String format = ALNSAsyncLogger.FORMAT_XLSX;
+        int numFiles = args.length;
+        String last = args[args.length - 1].toLowerCase();
+        if (last.equals(ALNSAsyncLogger.FORMAT_XLSX) || last.equals(ALNSAsyncLogger.FORMAT_CSV)) {
+            format = last;
+            numFiles--;
+        }
+
+        for (int i = 0; i < numFiles; i++) {
+            try {
+                long records = convert(args[i], format);
+                System.out.println(args[i] + ": " + records + " records converted to " + format + ".");
+            } catch (IOException ex) {
+                System.err.println(args[i] + ": conversion failed - " + ex.getMessage());
+            }
+        }
+    }
+}
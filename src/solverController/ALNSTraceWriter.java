@@ -0,0 +1,318 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+
+/**
+ * Writes a compact binary trace of every ALNS iteration, meant to be recorded
+ * on every run and converted to a spreadsheet later, offline, with
+ * <code>ALNSTraceConverter</code>.
+ * <br>The trace is written synchronously through a buffer, and everything is
+ * delta encoded to keep it small and cheap to produce:
+ * <ul>
+ * <li>integers are written as zig-zag variable length integers</li>
+ * <li>solutions (xOld, xNew, xBest, xGlobalBest) are written as the cluster
+ * IDs removed from and added to the same solution in the previous
+ * record</li>
+ * <li>heuristic weights are written only when they change</li>
+ * <li>the cluster roulette and the nerf occurrences are written in full, but
+ * only at segment-level records</li>
+ * </ul>
+ * Each record also holds the wall time and the number of Gurobi nodes spent
+ * in feasibility checks since the previous record.
+ * <br>Since solutions are stored as sets, cluster IDs read back from a trace
+ * are sorted.
+ *
+ * <p>
+ * Layout of the file:
+ * <pre>
+ * header:  int MAGIC, byte VERSION, UTF instance name,
+ *          varint #destroy heuristics, UTF labels,
+ *          varint #repair heuristics, UTF labels, varint #clusters
+ * record:  byte ITERATION_RECORD or SEGMENT_RECORD,
+ *          varint segment, varint elapsed time, double temperature,
+ *          double barrier, varint q,
+ *          diff xBest, double xBestObj, diff xGlobalBest, double xGlobalBestObj,
+ *          double roulette average probability, UTF comment,
+ *          varint feasibility check nanoseconds, varint feasibility check nodes,
+ *          weights destroy heuristics, weights repair heuristics,
+ *          then, for iteration records:
+ *          varint iteration, varint destroy index, varint repair index,
+ *          byte flags, diff xOld, double xOldObj, diff xNew, double xNewObj
+ *          or, for segment records:
+ *          #clusters doubles (roulette), #clusters doubles (nerf occurrences)
+ * footer:  byte END_OF_TRACE
+ * diff:    varint #removed, varint IDs, varint #added, varint IDs
+ * weights: varint #changed, (varint index, double weight) for each change
+ * </pre>
+ *
+ * @author Frash
+ */
+public class ALNSTraceWriter {
+
+    /**
+     * Magic number at the beginning of every trace file ("ALNT")
+     */
+    static final int MAGIC = 0x414C4E54;
+
+    /**
+     * Version of the trace format
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * Record types
+     */
+    static final byte END_OF_TRACE = 0;
+    static final byte ITERATION_RECORD = 1;
+    static final byte SEGMENT_RECORD = 2;
+
+    /**
+     * Flags of iteration records
+     */
+    static final int FLAG_REPAIRED = 1;
+    static final int FLAG_ACCEPTED = 2;
+    static final int FLAG_WORSE_BUT_ACCEPTED = 4;
+    static final int FLAG_INFEASIBLE = 8;
+
+    /**
+     * Extension of trace files
+     */
+    public static final String EXTENSION = ".trace";
+
+    /**
+     * Size of the output buffer, in bytes
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The output stream
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Labels of the heuristics, used to turn labels into indexes
+     */
+    private final String[] destroyLabels, repairLabels;
+
+    /**
+     * Solutions and weights written in the previous record
+     */
+    private final BitSet lastXOld, lastXNew, lastXBest, lastXGlobalBest;
+    private final double[] lastDestroyWeights, lastRepairWeights;
+
+    /**
+     * Feasibility check totals at the previous record
+     */
+    private long lastFeasibilityCheckNanos = 0;
+    private long lastFeasibilityCheckNodes = 0;
+
+    /**
+     * Constructor for class ALNSTraceWriter. The header of the trace is
+     * written immediately.
+     *
+     * @param filePath path of the trace file
+     * @param instanceName name of the current instance
+     * @param destroyMethods the destroy heuristics
+     * @param repairMethods the repair heuristics
+     * @param numClusters number of clusters in the instance
+     * @throws IOException if the trace file can't be written
+     */
+    public ALNSTraceWriter(
+            String filePath,
+            String instanceName,
+            ObjectDistribution<?> destroyMethods,
+            ObjectDistribution<?> repairMethods,
+            int numClusters
+    ) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE));
+        this.destroyLabels = destroyMethods.getLabels();
+        this.repairLabels = repairMethods.getLabels();
+        this.lastXOld = new BitSet(numClusters);
+        this.lastXNew = new BitSet(numClusters);
+        this.lastXBest = new BitSet(numClusters);
+        this.lastXGlobalBest = new BitSet(numClusters);
+        this.lastDestroyWeights = new double[destroyLabels.length];
+        this.lastRepairWeights = new double[repairLabels.length];
+
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(instanceName);
+        writeLabels(destroyLabels);
+        writeLabels(repairLabels);
+        writeVarLong(out, numClusters);
+    }
+
+    /**
+     * Writes a record to the trace.
+     *
+     * @param record the record to write
+     * @param destroyMethods the destroy heuristics, with their current weights
+     * @param repairMethods the repair heuristics, with their current weights
+     * @param clusterRoulette the cluster roulette (only written for
+     * segment-level records)
+     * @param feasibilityCheckNanos total nanoseconds spent in feasibility
+     * checks since the beginning of the search
+     * @param feasibilityCheckNodes total Gurobi nodes explored in feasibility
+     * checks since the beginning of the search
+     * @throws IOException if the record can't be written
+     */
+    public void write(
+            ALNSIterationRecord record,
+            ObjectDistribution<?> destroyMethods,
+            ObjectDistribution<?> repairMethods,
+            ClusterRoulette clusterRoulette,
+            long feasibilityCheckNanos,
+            long feasibilityCheckNodes
+    ) throws IOException {
+        out.writeByte(record.isSegmentEvent() ? SEGMENT_RECORD : ITERATION_RECORD);
+
+        writeVarLong(out, record.segment);
+        writeVarLong(out, record.elapsedTime);
+        out.writeDouble(record.temperature);
+        out.writeDouble(record.simulatedAnnealingBarrier);
+        writeVarLong(out, record.q);
+        writeDiff(record.xBest, lastXBest);
+        out.writeDouble(record.xBestObj);
+        writeDiff(record.xGlobalBest, lastXGlobalBest);
+        out.writeDouble(record.xGlobalBestObj);
+        out.writeDouble(record.rouletteAverageProbability);
+        out.writeUTF(record.comment);
+
+        writeVarLong(out, feasibilityCheckNanos - lastFeasibilityCheckNanos);
+        writeVarLong(out, feasibilityCheckNodes - lastFeasibilityCheckNodes);
+        lastFeasibilityCheckNanos = feasibilityCheckNanos;
+        lastFeasibilityCheckNodes = feasibilityCheckNodes;
+
+        writeWeights(destroyMethods.getWeights(), lastDestroyWeights);
+        writeWeights(repairMethods.getWeights(), lastRepairWeights);
+
+        if (record.isSegmentEvent()) {
+            for (double p : clusterRoulette.getProbabilities()) {
+                out.writeDouble(p);
+            }
+            for (double n : clusterRoulette.getNerfOccurrences()) {
+                out.writeDouble(n);
+            }
+        } else {
+            writeVarLong(out, record.iteration);
+            writeVarLong(out, indexOf(destroyLabels, record.destroyLabel));
+            writeVarLong(out, indexOf(repairLabels, record.repairLabel));
+            int flags = (record.repaired ? FLAG_REPAIRED : 0)
+                    | (record.accepted ? FLAG_ACCEPTED : 0)
+                    | (record.worseButAccepted ? FLAG_WORSE_BUT_ACCEPTED : 0)
+                    | (record.infeasible ? FLAG_INFEASIBLE : 0);
+            out.writeByte(flags);
+            writeDiff(record.xOld, lastXOld);
+            out.writeDouble(record.xOldObj);
+            writeDiff(record.xNew, lastXNew);
+            out.writeDouble(record.xNewObj);
+        }
+    }
+
+    /**
+     * Writes the end of the trace and closes the file.
+     *
+     * @throws IOException if the trace can't be closed
+     */
+    public void close() throws IOException {
+        out.writeByte(END_OF_TRACE);
+        out.close();
+    }
+
+    /**
+     * Writes a list of heuristic labels.
+     */
+    private void writeLabels(String[] labels) throws IOException {
+        writeVarLong(out, labels.length);
+        for (String label : labels) {
+            out.writeUTF(label);
+        }
+    }
+
+    /**
+     * Writes the weights which changed since the previous record, and
+     * remembers them.
+     */
+    private void writeWeights(double[] weights, double[] last) throws IOException {
+        int changed = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (Double.doubleToLongBits(weights[i]) != Double.doubleToLongBits(last[i])) {
+                changed++;
+            }
+        }
+        writeVarLong(out, changed);
+        for (int i = 0; i < weights.length; i++) {
+            if (Double.doubleToLongBits(weights[i]) != Double.doubleToLongBits(last[i])) {
+                writeVarLong(out, i);
+                out.writeDouble(weights[i]);
+                last[i] = weights[i];
+            }
+        }
+    }
+
+    /**
+     * Writes the clusters removed from and added to a solution since the
+     * previous record, and remembers the new solution.
+     */
+    private void writeDiff(int[] solution, BitSet last) throws IOException {
+        BitSet current = new BitSet(last.size());
+        for (int id : solution) {
+            current.set(id);
+        }
+
+        BitSet removed = (BitSet) last.clone();
+        removed.andNot(current);
+        BitSet added = (BitSet) current.clone();
+        added.andNot(last);
+
+        writeVarLong(out, removed.cardinality());
+        for (int id = removed.nextSetBit(0); id >= 0; id = removed.nextSetBit(id + 1)) {
+            writeVarLong(out, id);
+        }
+        writeVarLong(out, added.cardinality());
+        for (int id = added.nextSetBit(0); id >= 0; id = added.nextSetBit(id + 1)) {
+            writeVarLong(out, id);
+        }
+
+        last.clear();
+        last.or(current);
+    }
+
+    /**
+     * Finds the index of a label, -1 if it's not there.
+     */
+    private static int indexOf(String[] labels, String label) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equals(label)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes a zig-zag encoded variable length integer: small values, either
+     * positive or negative, take a single byte.
+     *
+     * @param out the output stream
+     * @param value the value to write
+     * @throws IOException if the value can't be written
+     */
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+}
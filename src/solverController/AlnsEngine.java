@@ -0,0 +1,219 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Headless runner of solver runs, which needs neither Swing nor AWT.
+ * <br>Every run reads an instance, builds its model and solves it with the
+ * chosen solver on a thread of the engine's <code>ExecutorService</code>, so
+ * that many runs can go on at the same time in the same JVM. A run is
+ * returned as a <code>CompletableFuture</code>, completed with the solver
+ * once it's done: its Gurobi model is released by then, but its best
+ * solution, anytime profile and statistics can still be read. Progress goes
+ * to a <code>SolverListener</code>, and cancelling the future asks the
+ * solver to stop at its next step.
+ * <br>Runs get their own copy of the parameters, so the caller can change
+ * them while runs are going on. The <code>Controller</code> runs its batches
+ * through an engine, and adapts its progress to the Swing GUI.
+ *
+ * @author Frash
+ */
+public class AlnsEngine implements AutoCloseable {
+
+    /**
+     * The threads of the runs
+     */
+    private final ExecutorService executor;
+
+    /**
+     * True if the executor was created by this engine, and must be shut down
+     * with it
+     */
+    private final boolean ownsExecutor;
+
+    /**
+     * True to echo the Gurobi log of the runs to stdout. The log redirector
+     * publishes through the Swing event dispatch thread, so it's off by
+     * default.
+     */
+    private volatile boolean echoGurobiLog = false;
+
+    /**
+     * Constructor for class AlnsEngine, with a pool of its own.
+     *
+     * @param parallelRuns maximum number of runs going on at the same time
+     */
+    public AlnsEngine(int parallelRuns) {
+        this(Executors.newFixedThreadPool(Math.max(1, parallelRuns), new RunThreadFactory()), true);
+    }
+
+    /**
+     * Constructor for class AlnsEngine, running on the given executor, which
+     * isn't shut down when the engine is closed.
+     *
+     * @param executor the executor of the runs
+     */
+    public AlnsEngine(ExecutorService executor) {
+        this(executor, false);
+    }
+
+    private AlnsEngine(ExecutorService executor, boolean ownsExecutor) {
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Choose whether the Gurobi log of the next runs is echoed to stdout
+     *
+     * @param echoGurobiLog true to echo the Gurobi log
+     */
+    public void setEchoGurobiLog(boolean echoGurobiLog) {
+        this.echoGurobiLog = echoGurobiLog;
+    }
+
+    /**
+     * Starts a run.
+     *
+     * @param modelPath path to the instance file
+     * @param pb the parameters of the run (copied)
+     * @param solver the solver to use
+     * @param listener the listener to notify of the progress (can be null)
+     * @return the run, completed with the solver when it's over
+     */
+    public CompletableFuture<ALNS> submit(String modelPath, ParametersBean pb, Controller.Solvers solver, SolverListener listener) {
+        return submit(modelPath, pb, solver, listener, null);
+    }
+
+    /**
+     * Starts a run, resuming an ALNS run from a checkpoint.
+     *
+     * @param modelPath path to the instance file
+     * @param pb the parameters of the run (copied)
+     * @param solver the solver to use
+     * @param listener the listener to notify of the progress (can be null)
+     * @param checkpoint the checkpoint to resume from (null to start from
+     * scratch)
+     * @return the run, completed with the solver when it's over
+     */
+    public CompletableFuture<ALNS> submit(
+            String modelPath, ParametersBean pb, Controller.Solvers solver,
+            SolverListener listener, ALNSCheckpoint checkpoint) {
+        OrienteeringPropertiesBean opb = new OrienteeringPropertiesBean();
+        opb.cloneFrom(pb.getOrienteeringProperties());
+        ALNSPropertiesBean apb = new ALNSPropertiesBean();
+        apb.cloneFrom(pb.getALNSproperties());
+        boolean redirectLog = echoGurobiLog;
+
+        CompletableFuture<ALNS> run = new CompletableFuture<>();
+        AtomicReference<ALNS> running = new AtomicReference<>();
+
+        // Cancelling the run stops the solver
+        run.whenComplete((a, e) -> {
+            if (run.isCancelled() && running.get() != null) {
+                running.get().requestStop();
+            }
+        });
+
+        executor.execute(() -> {
+            if (run.isDone()) {
+                return;
+            }
+            ALNS a = null;
+            Throwable failure = null;
+            try {
+                Orienteering o = new Orienteering(modelPath, opb, redirectLog);
+                a = new ALNS(o, apb, solver, listener);
+                running.set(a);
+                if (run.isCancelled()) {
+                    a.requestStop();
+                }
+                if (checkpoint != null) {
+                    a.resumeFrom(checkpoint);
+                }
+                a.optimize();
+            } catch (Throwable t) {
+                failure = t;
+            }
+
+            // Release the model before handing the solver over
+            if (a != null) {
+                try {
+                    a.cleanup();
+                } catch (Exception e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+                if (a.logRedirector != null) {
+                    a.logRedirector.cancel(true);
+                }
+                a.notifyRunOver(failure == null && !run.isCancelled());
+            }
+            if (failure != null) {
+                run.completeExceptionally(failure);
+            } else {
+                run.complete(a);
+            }
+        });
+        return run;
+    }
+
+    /**
+     * Stops accepting runs, without waiting for the runs going on. The
+     * executor is shut down only if it belongs to the engine.
+     */
+    public void shutdown() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Stops accepting runs and, if the executor belongs to the engine, waits
+     * for the runs going on to finish.
+     * <br>If interrupted while waiting, the interrupt flag of the thread is
+     * restored and an <code>IllegalStateException</code> is thrown: the runs
+     * can still be going on.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the runs of the engine to finish", e);
+            }
+        }
+    }
+
+    /**
+     * Names the threads of the runs, and makes them daemons so that they never
+     * keep the JVM alive
+     */
+    private static final class RunThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger ENGINES = new AtomicInteger();
+        private final int engine = ENGINES.incrementAndGet();
+        private final AtomicInteger threads = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "ALNS engine " + engine + " run " + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.util.Arrays;
+
+/**
+ * Anytime curve of a solver run: the best objective value found so far
+ * against the wall time since the beginning of the run, with one point for
+ * every improvement.
+ * <br>It also counts iterations, so the speed of the solver can be compared
+ * between runs and builds.
+ *
+ * @author Frash
+ */
+public class AnytimeProfile {
+
+    private final long startNanos;
+    private long stopNanos = -1;
+    private long iterations = 0;
+
+    /**
+     * Points of the curve: time of the improvement (ms) and new best value
+     */
+    private long[] millis = new long[16];
+    private double[] objectives = new double[16];
+    private int size = 0;
+
+    /**
+     * Constructor for class AnytimeProfile. The clock starts immediately.
+     */
+    public AnytimeProfile() {
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Records the current best objective value. A point is added to the curve
+     * only if it improves the previous one.
+     *
+     * @param bestObjective the best objective value found so far
+     */
+    public void improve(double bestObjective) {
+        if (size > 0 && bestObjective <= objectives[size - 1]) {
+            return;
+        }
+        if (size == millis.length) {
+            millis = Arrays.copyOf(millis, size * 2);
+            objectives = Arrays.copyOf(objectives, size * 2);
+        }
+        millis[size] = (System.nanoTime() - startNanos) / 1_000_000L;
+        objectives[size] = bestObjective;
+        size++;
+    }
+
+    /**
+     * Counts an iteration of the solver.
+     */
+    public void countIteration() {
+        iterations++;
+    }
+
+    /**
+     * Stops the clock at the end of the run.
+     */
+    public void stop() {
+        if (stopNanos < 0) {
+            stopNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Get the milliseconds elapsed from the beginning to the end of the run
+     * (or to now, if it's still running)
+     *
+     * @return the elapsed milliseconds
+     */
+    public long getElapsedMillis() {
+        long end = stopNanos < 0 ? System.nanoTime() : stopNanos;
+        return (end - startNanos) / 1_000_000L;
+    }
+
+    /**
+     * Get the number of iterations
+     *
+     * @return the number of iterations counted so far
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Get the average number of iterations per second
+     *
+     * @return the iterations per second over the whole run
+     */
+    public double getIterationsPerSecond() {
+        long ms = getElapsedMillis();
+        return ms > 0 ? iterations * 1000.0 / ms : 0.0;
+    }
+
+    /**
+     * Get the best objective value found
+     *
+     * @return the best objective value, NaN if none was recorded
+     */
+    public double getBestObjective() {
+        return size == 0 ? Double.NaN : objectives[size - 1];
+    }
+
+    /**
+     * Computes the time needed to reach a target objective value.
+     *
+     * @param target the target objective value
+     * @return the milliseconds to the first value greater than or equal to
+     * the target, -1 if it was never reached
+     */
+    public long timeToTarget(double target) {
+        for (int i = 0; i < size; i++) {
+            if (objectives[i] >= target) {
+                return millis[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the points of the curve
+     *
+     * @return an array of (milliseconds, best objective value) pairs, in
+     * chronological order
+     */
+    public double[][] getCurve() {
+        double[][] ret = new double[size][];
+        for (int i = 0; i < size; i++) {
+            ret[i] = new double[]{millis[i], objectives[i]};
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of a SOLVE_BENCHMARK batch: ALNS runs on a set of instances, with
+ * fixed seeds and repetitions, compared with the reference objective values
+ * of <tt>benchmarks.txt</tt>.
+ * <br>For every run it keeps the anytime curve (best objective value against
+ * milliseconds), the time to reach the target (the reference minus the
+ * allowed gap) and the reference itself, the final gap and the solver speed
+ * (iterations and feasibility checks). Runs are summarized per instance.
+ * <br>The report is written as JSON, so that results of different builds can
+ * be compared by scripts to catch regressions in solver speed or quality.
+ *
+ * @author Frash
+ */
+public class BenchmarkReport {
+
+    /**
+     * The results of a single run
+     */
+    public static class Run {
+
+        String instance;
+        String modelPath;
+        int repetition;
+        long seed;
+        Double reference;
+        double bestObjective;
+        Double gapPercent;
+        Double target;
+        long timeToTargetMillis;
+        long timeToReferenceMillis;
+        long elapsedMillis;
+        long iterations;
+        double iterationsPerSecond;
+        long feasibilityChecks;
+        double[][] anytimeCurve;
+    }
+
+    /**
+     * The summary of all the runs on an instance
+     */
+    public static class InstanceSummary {
+
+        String instance;
+        int runs;
+        Double reference;
+        double meanBestObjective;
+        double maxBestObjective;
+        Double meanGapPercent;
+        int targetsReached;
+        long medianTimeToTargetMillis;
+        double meanIterationsPerSecond;
+    }
+
+    // Context of the benchmark
+    private final String timestamp;
+    private final String javaVersion;
+    private final int availableProcessors;
+    private final String referencesPath;
+    private final double targetGapPercent;
+    private final ParametersBean parameters;
+
+    // Results
+    private final List<Run> runs = new ArrayList<>();
+    private final List<InstanceSummary> summary = new ArrayList<>();
+    private Double meanGapPercent = null;
+
+    /**
+     * Reference objective values, by instance name
+     */
+    private final transient Map<String, Double> references;
+
+    /**
+     * Constructor for class BenchmarkReport.
+     *
+     * @param referencesPath path to the file with the reference values
+     * @param references the reference values, by instance name
+     * @param targetGapPercent gap from the reference (in percent) which counts
+     * as reaching the target
+     * @param parameters the parameters of the runs
+     */
+    public BenchmarkReport(String referencesPath, Map<String, Double> references, double targetGapPercent, ParametersBean parameters) {
+        this.timestamp = LocalDateTime.now().toString();
+        this.javaVersion = System.getProperty("java.version");
+        this.availableProcessors = Runtime.getRuntime().availableProcessors();
+        this.referencesPath = referencesPath;
+        this.references = references;
+        this.targetGapPercent = targetGapPercent;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Reads a file of reference objective values: every line holds an
+     * instance name and its value, separated by blanks. Malformed lines are
+     * skipped.
+     *
+     * @param path path to the file
+     * @return the reference values, by instance name
+     * @throws IOException if the file can't be read
+     */
+    public static Map<String, Double> readReferences(String path) throws IOException {
+        Map<String, Double> ret = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(Paths.get(path))) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens.length >= 2) {
+                try {
+                    ret.put(tokens[0], Double.parseDouble(tokens[1]));
+                } catch (NumberFormatException ex) {
+                    // Not a reference line
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Adds the results of a run.
+     *
+     * @param modelPath path to the instance file
+     * @param instance name of the instance
+     * @param repetition index of the run on this instance
+     * @param seed the random seed of the run
+     * @param profile the anytime profile of the run
+     * @param feasibilityChecks number of feasibility checks done in the run
+     * @return the results of the run
+     */
+    public synchronized Run add(String modelPath, String instance, int repetition, long seed, AnytimeProfile profile, long feasibilityChecks) {
+        Run r = new Run();
+        r.instance = instance;
+        r.modelPath = modelPath;
+        r.repetition = repetition;
+        r.seed = seed;
+        r.reference = references.get(instance);
+        r.bestObjective = profile.getBestObjective();
+        r.timeToTargetMillis = -1;
+        r.timeToReferenceMillis = -1;
+        if (r.reference != null) {
+            r.gapPercent = gap(r.reference, r.bestObjective);
+            r.target = r.reference * (1.0 - targetGapPercent / 100.0);
+            r.timeToTargetMillis = profile.timeToTarget(r.target);
+            r.timeToReferenceMillis = profile.timeToTarget(r.reference);
+        }
+        r.elapsedMillis = profile.getElapsedMillis();
+        r.iterations = profile.getIterations();
+        r.iterationsPerSecond = profile.getIterationsPerSecond();
+        r.feasibilityChecks = feasibilityChecks;
+        r.anytimeCurve = profile.getCurve();
+        runs.add(r);
+        return r;
+    }
+
+    /**
+     * Computes the gap from a reference value, in percent.
+     */
+    private static double gap(double reference, double value) {
+        return reference == 0.0 ? 0.0 : (reference - value) / Math.abs(reference) * 100.0;
+    }
+
+    /**
+     * Computes the per-instance summaries of the runs added so far.
+     */
+    private synchronized void summarize() {
+        Map<String, List<Run>> byInstance = new LinkedHashMap<>();
+        for (Run r : runs) {
+            byInstance.computeIfAbsent(r.instance, k -> new ArrayList<>()).add(r);
+        }
+
+        summary.clear();
+        double totalGap = 0.0;
+        int gaps = 0;
+        for (Map.Entry<String, List<Run>> e : byInstance.entrySet()) {
+            List<Run> instanceRuns = e.getValue();
+            InstanceSummary s = new InstanceSummary();
+            s.instance = e.getKey();
+            s.runs = instanceRuns.size();
+            s.reference = instanceRuns.get(0).reference;
+            s.maxBestObjective = Double.NEGATIVE_INFINITY;
+            double iterationsPerSecond = 0.0;
+            List<Long> timesToTarget = new ArrayList<>();
+            for (Run r : instanceRuns) {
+                s.meanBestObjective += r.bestObjective / s.runs;
+                s.maxBestObjective = Math.max(s.maxBestObjective, r.bestObjective);
+                iterationsPerSecond += r.iterationsPerSecond;
+                if (r.timeToTargetMillis >= 0) {
+                    timesToTarget.add(r.timeToTargetMillis);
+                }
+            }
+            s.meanIterationsPerSecond = iterationsPerSecond / s.runs;
+            s.targetsReached = timesToTarget.size();
+            s.medianTimeToTargetMillis = -1;
+            if (!timesToTarget.isEmpty()) {
+                Collections.sort(timesToTarget);
+                s.medianTimeToTargetMillis = timesToTarget.get(timesToTarget.size() / 2);
+            }
+            if (s.reference != null) {
+                s.meanGapPercent = gap(s.reference, s.meanBestObjective);
+                totalGap += s.meanGapPercent;
+                gaps++;
+            }
+            summary.add(s);
+        }
+        meanGapPercent = gaps > 0 ? totalGap / gaps : null;
+    }
+
+    /**
+     * Builds a table with the summary of every instance.
+     *
+     * @return the summary table
+     */
+    public synchronized String summaryTable() {
+        summarize();
+        StringBuilder sb = new StringBuilder();
+        String row = "%-20s %5s %10s %10s %10s %8s %8s %12s %10s%n";
+        sb.append(String.format(row, "Instance", "Runs", "Reference", "Mean best", "Max best", "Gap %", "Hits", "Median TTT", "It/s"));
+        for (InstanceSummary s : summary) {
+            sb.append(String.format(row,
+                    s.instance,
+                    s.runs,
+                    s.reference == null ? "-" : String.format("%.1f", s.reference),
+                    String.format("%.1f", s.meanBestObjective),
+                    String.format("%.1f", s.maxBestObjective),
+                    s.meanGapPercent == null ? "-" : String.format("%.2f", s.meanGapPercent),
+                    s.targetsReached + "/" + s.runs,
+                    s.medianTimeToTargetMillis < 0 ? "-" : s.medianTimeToTargetMillis + " ms",
+                    String.format("%.1f", s.meanIterationsPerSecond)));
+        }
+        if (meanGapPercent != null) {
+            sb.append(String.format("Mean gap over all instances: %.2f%%%n", meanGapPercent));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Serializes this report to a JSON string.
+     *
+     * @return the report as JSON
+     */
+    public synchronized String toJSON() {
+        summarize();
+        Gson gson = new GsonBuilder()
+                .setPrettyPrinting()
+                .serializeSpecialFloatingPointValues()
+                .create();
+        return gson.toJson(this);
+    }
+
+    /**
+     * Writes this report to a JSON file.
+     *
+     * @param outputPath path to the output file
+     * @throws IOException if the file can't be written
+     */
+    public void writeJSON(String outputPath) throws IOException {
+        String json = toJSON();
+        try (FileWriter fw = new FileWriter(outputPath)) {
+            fw.write(json);
+        }
+    }
+}
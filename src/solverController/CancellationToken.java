@@ -0,0 +1,87 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+/**
+ * Tells the Gurobi callbacks of a solver when to abort the model being
+ * optimized: either a stop of the solver was requested, or the deadline of
+ * the run has passed.
+ * <br>Callbacks are invoked very often while Gurobi is running, so a stop
+ * or a deadline is honored within milliseconds, even in the middle of a long
+ * local search or feasibility check. This class is thread safe.
+ *
+ * @author Frash
+ */
+final class CancellationToken {
+
+    /**
+     * Set when a stop of the solver is requested
+     */
+    private volatile boolean stopRequested = false;
+
+    /**
+     * Deadline of the run, as a value of <code>System.nanoTime()</code>
+     */
+    private volatile long deadlineNanos = 0;
+
+    /**
+     * Whether the deadline must be checked
+     */
+    private volatile boolean hasDeadline = false;
+
+    /**
+     * Asks every callback polling this token to abort.
+     */
+    void requestStop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Tells whether a stop was requested.
+     *
+     * @return true if a stop was requested
+     */
+    boolean isStopRequested() {
+        return stopRequested;
+    }
+
+    /**
+     * Sets the time after which every callback polling this token aborts.
+     *
+     * @param deadlineNanos the deadline, as a value of
+     * <code>System.nanoTime()</code>
+     */
+    void setDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+        this.hasDeadline = true;
+    }
+
+    /**
+     * Removes the deadline, so that only a stop request makes callbacks
+     * abort.
+     */
+    void clearDeadline() {
+        this.hasDeadline = false;
+    }
+
+    /**
+     * Tells whether the deadline has passed.
+     *
+     * @return true if there's a deadline and it has passed
+     */
+    boolean isExpired() {
+        return hasDeadline && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * Tells whether a callback should abort the model being optimized.
+     *
+     * @return true if a stop was requested or the deadline has passed
+     */
+    boolean shouldAbort() {
+        return stopRequested || isExpired();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.util.Random;
+
+/**
+ * A random generator whose internal state can be read and restored, so that
+ * an ALNS run resumed from a checkpoint draws the same numbers it would have
+ * drawn without stopping.
+ * <br>It uses the same linear congruential generator as
+ * <code>java.util.Random</code>, so a seeded instance produces the same
+ * sequence as <code>new Random(seed)</code>. The cached value of
+ * <code>nextGaussian()</code> is not part of the state.
+ *
+ * @author Frash
+ */
+class CheckpointableRandom extends Random {
+
+    static final long serialVersionUID = 0;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    /**
+     * Current state of the generator. It's set by <code>setSeed</code>, which
+     * the superclass constructor calls: it must have no initializer.
+     */
+    private long state;
+
+    /**
+     * Constructor for class CheckpointableRandom, with a seed which is
+     * different at every call.
+     */
+    CheckpointableRandom() {
+        super();
+    }
+
+    /**
+     * Constructor for class CheckpointableRandom.
+     *
+     * @param seed the initial seed
+     */
+    CheckpointableRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected synchronized int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Get the current state of the generator
+     *
+     * @return the state, to be restored with <code>setState</code>
+     */
+    synchronized long getState() {
+        return state;
+    }
+
+    /**
+     * Restores a state of the generator taken with <code>getState</code>
+     *
+     * @param state the state to restore
+     */
+    synchronized void setState(long state) {
+        this.state = state & MASK;
+    }
+}
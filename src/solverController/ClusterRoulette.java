@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.OptionalDouble;
 import java.util.Random;
+import java.util.function.Supplier;
 import solverModel.Cluster;
 
 /**
@@ -58,6 +59,11 @@ public class ClusterRoulette {
      */
     private double nerfNumberOfUpdates;
 
+    /**
+     * Random generator used in queries
+     */
+    private final Random random;
+
     /**
      * Constructor for class ClusterRoulette.
      * <br>Probabilities of extraction are initialized to 1.0.
@@ -65,6 +71,19 @@ public class ClusterRoulette {
      * @param clusters list of clusters to start from
      */
     public ClusterRoulette(List<Cluster> clusters) {
+        this(clusters, new Random());
+    }
+
+    /**
+     * Constructor for class ClusterRoulette, which draws from the given random
+     * generator (e.g. a seeded one, for repeatable runs).
+     * <br>Probabilities of extraction are initialized to 1.0.
+     *
+     * @param clusters list of clusters to start from
+     * @param random the random generator to use in queries
+     */
+    public ClusterRoulette(List<Cluster> clusters, Random random) {
+        this.random = random;
         if (clusters != null && !clusters.isEmpty()) {
             this.clusters = clusters;
         } else {
@@ -95,16 +114,57 @@ public class ClusterRoulette {
      */
     public List<Cluster> query() {
         List<Cluster> ret = new ArrayList<>();
-        Random r = new Random();
         for (int i = 0; i < clusters.size(); i++) {
             double probabilityOfI = probabilities.get(i);
-            if (probabilityOfI != -1.0 && r.nextDouble() <= probabilityOfI) {
+            if (probabilityOfI != -1.0 && random.nextDouble() <= probabilityOfI) {
                 ret.add(clusters.get(i));
             }
         }
         return ret;
     }
 
+    /**
+     * Walks the given order of cluster positions and returns the first
+     * <code>howMany</code> clusters which pass their probability test.
+     * <br>Ignored clusters and clusters flagged in <code>exclude</code> are
+     * skipped without being tested, so each cluster is extracted with the same
+     * chance it would have in a full <code>query()</code>, but the walk stops
+     * as soon as enough clusters have been picked.
+     *
+     * @param order positions of clusters in this roulette, in the order they
+     * should be tested
+     * @param exclude <code>exclude[i]</code> is true if the cluster in position
+     * i must be skipped. Can be null.
+     * @param howMany maximum number of clusters to return
+     * @return the list of extracted clusters, following the given order
+     */
+    public List<Cluster> queryInOrder(int[] order, boolean[] exclude, int howMany) {
+        List<Cluster> ret = new ArrayList<>();
+        for (int k = 0; k < order.length && ret.size() < howMany; k++) {
+            int i = order[k];
+            if (exclude != null && exclude[i]) {
+                continue;
+            }
+            if (test(i, random)) {
+                ret.add(clusters.get(i));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Performs the probability test of the single cluster in position i.
+     * <br>Ignored clusters never pass the test.
+     *
+     * @param i position of the cluster in this roulette
+     * @param r the random generator to extract with
+     * @return true if the cluster is extracted, false otherwise
+     */
+    public boolean test(int i, Random r) {
+        double probabilityOfI = probabilities.get(i);
+        return probabilityOfI != -1.0 && r.nextDouble() <= probabilityOfI;
+    }
+
     /**
      * Returns a list of those clusters whose chance of being selected is more
      * than or equal the barrier value (high pass filter).
@@ -265,35 +325,127 @@ public class ClusterRoulette {
      */
     @Override
     public String toString() {
-        StringBuffer ret = new StringBuffer();
+        return probabilitiesSnapshot().get();
+    }
+
+    /**
+     * Takes a copy of the current probabilities, which can be turned into a
+     * string later (even on another thread) with the same layout as
+     * <code>toString()</code>.
+     *
+     * @return a supplier of the string representation of this ClusterRoulette
+     * as it is now
+     */
+    public Supplier<String> probabilitiesSnapshot() {
+        double[] p = getProbabilities();
         double avgProbability = this.getAverageProbability();
 
-        for (int i = 0; i < clusters.size(); i++) {
-            ret.append(probabilities.get(i));
-            if (probabilities.get(i) >= avgProbability) {
+        return () -> formatProbabilities(p, avgProbability);
+    }
+
+    /**
+     * Formats cluster probabilities with the layout of <code>toString()</code>:
+     * probabilities which are not below the average are marked with a "!".
+     *
+     * @param p the probability of each cluster, indexed by cluster ID
+     * @param avgProbability the average probability of the clusters
+     * @return the string representation of the probabilities
+     */
+    static String formatProbabilities(double[] p, double avgProbability) {
+        StringBuffer ret = new StringBuffer();
+        for (int i = 0; i < p.length; i++) {
+            ret.append(p[i]);
+            if (p[i] >= avgProbability) {
                 ret.append("!");
             }
-            if(i != clusters.size()-1)ret.append(", ");
+            if(i != p.length-1)ret.append(", ");
         }
-
         return ret.toString();
     }
 
+    /**
+     * Get a copy of the probability of each cluster to be chosen
+     *
+     * @return the probabilities, indexed by cluster ID (-1.0 for ignored
+     * clusters)
+     */
+    public double[] getProbabilities() {
+        double[] p = new double[clusters.size()];
+        for (int i = 0; i < p.length; i++) {
+            p[i] = probabilities.get(i);
+        }
+        return p;
+    }
+
+    /**
+     * Restores the probability of each cluster to be chosen, e.g. from a
+     * checkpoint taken with <code>getProbabilities()</code>.
+     *
+     * @param p the probabilities, indexed by cluster ID (-1.0 for ignored
+     * clusters)
+     * @throws IllegalArgumentException if there isn't a probability for every
+     * cluster
+     */
+    public void setProbabilities(double[] p) {
+        if (p.length != clusters.size()) {
+            throw new IllegalArgumentException("Expected " + clusters.size() + " probabilities, got " + p.length);
+        }
+        for (int i = 0; i < p.length; i++) {
+            probabilities.set(i, p[i]);
+        }
+    }
+
     /**
      * Return a string representation of the nerf occurrences list
      *
      * @return a string representation of the nerf occurrences list
      */
     public String nerfOccurrencesString() {
-        StringBuffer ret = new StringBuffer();
+        return nerfOccurrencesSnapshot().get();
+    }
 
-        for (int i = 0; i < clusters.size(); i++) {
-            ret.append(nerfOccurrences.get(i) + " ");
-        }
+    /**
+     * Takes a copy of the current nerf occurrences, which can be turned into
+     * a string later (even on another thread) with the same layout as
+     * <code>nerfOccurrencesString()</code>.
+     *
+     * @return a supplier of the string representation of the nerf occurrences
+     * list as it is now
+     */
+    public Supplier<String> nerfOccurrencesSnapshot() {
+        double[] n = getNerfOccurrences();
 
+        return () -> formatNerfOccurrences(n);
+    }
+
+    /**
+     * Formats nerf occurrences with the layout of
+     * <code>nerfOccurrencesString()</code>.
+     *
+     * @param n the nerf occurrences of each cluster, indexed by cluster ID
+     * @return the string representation of the nerf occurrences
+     */
+    static String formatNerfOccurrences(double[] n) {
+        StringBuffer ret = new StringBuffer();
+        for (int i = 0; i < n.length; i++) {
+            ret.append(n[i] + " ");
+        }
         return ret.toString();
     }
 
+    /**
+     * Get a copy of the nerf occurrences of each cluster
+     *
+     * @return the nerf occurrences, indexed by cluster ID
+     */
+    public double[] getNerfOccurrences() {
+        double[] n = new double[clusters.size()];
+        for (int i = 0; i < n.length; i++) {
+            n[i] = nerfOccurrences.get(i);
+        }
+        return n;
+    }
+
     /**
      * Resets every nerf candidate occurrence counter to 0. Also resets to 0 the
      * counter for the number of updates.
@@ -8,11 +8,17 @@ package solverController;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import javax.swing.JLabel;
 import javax.swing.JProgressBar;
@@ -24,11 +30,14 @@ import solverView.MainWindow;
 /**
  * A Controller class to solve batches of orienteering problem instances using
  * specific parameters and solvers.
+ * <br>Instances are solved one at a time by an <code>AlnsEngine</code>: the
+ * controller is the adapter which brings their progress to the Swing GUI,
+ * when there's one.
  * @author Frash
  */
 public class Controller
         extends SwingWorker<Void, OptimizationStatusMessage>
-        implements PropertyChangeListener
+        implements PropertyChangeListener, SolverListener
 {
     // General Purpose Variables
     
@@ -43,9 +52,9 @@ public class Controller
     private List<String> modelPaths;
     
     /**
-     * Reference to the current ALNS task being solved
+     * The engine which solves the instances (created at the first run)
      */
-    private ALNS currentALNS;
+    private AlnsEngine engine = null;
     
     /**
      * The outputstream where we want to print all the result.
@@ -61,6 +70,9 @@ public class Controller
 
             // Initialize the last instance number
             this.lastInstanceNumber = 0;
+            
+            // Prepare the report of a benchmark batch
+            startBenchmarkReport();
 
             // Execute the batch of instances, one at a time
             for(String path : this.modelPaths){
@@ -93,13 +105,13 @@ public class Controller
             // Update the window
             messageReceived();
             
-            // Kill the ALNS thread
-            currentALNS.cancel(true);
-            currentALNS = null;
-            lastOrienteering = null;
-            
             return null;
         }
+        finally{
+            // Write the results collected so far, even if interrupted
+            writeBenchmarkReport();
+            shutdownEngine();
+        }
     }
     
     @Override
@@ -116,6 +128,18 @@ public class Controller
         }
     }
     
+    @Override
+    public void statusChanged(OptimizationStatusMessage message) {
+        if(mainWindow != null){
+            setMessageFromALNS(message);
+        }
+        else{
+            // No GUI to update: keep the message, without involving the
+            // Swing event dispatch thread
+            this.messageFromALNS = message;
+        }
+    }
+    
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
         if("messageFromALNS".equals(evt.getPropertyName())){
@@ -126,9 +150,10 @@ public class Controller
   
     /**
      * List of possible choices for solvers.
-     * Values are SOLVE_RELAXED, SOLVE_MIPS, SOLVE_ALNS
+     * Values are SOLVE_RELAXED, SOLVE_MIPS, SOLVE_ALNS, SOLVE_BENCHMARK, SOLVE_HYBRID
+     * (repeated ALNS runs with fixed seeds, compared with reference values).
      */
-    public enum Solvers {SOLVE_RELAXED, SOLVE_MIPS, SOLVE_ALNS};
+    public enum Solvers {SOLVE_RELAXED, SOLVE_MIPS, SOLVE_ALNS, SOLVE_BENCHMARK, SOLVE_HYBRID};
     
     /**
      * The solver chosen for the next batch of instances to solve.
@@ -146,15 +171,30 @@ public class Controller
     private int lastInstanceNumber = 0;
     
     /**
-     * Reference to the last orienteering object created. It must be cleaned when the ALNS
-     * solver has finished processing the last model path.
+     * The MainWindow which hosts the gui. This object must be used to update GUI features.
      */
-    private Orienteering lastOrienteering = null;
+    private MainWindow mainWindow;
     
     /**
-     * The MainWindow which hosts the gui. This object must be used to update GUI features.
+     * Results of the current SOLVE_BENCHMARK batch, null for other solvers.
      */
-    private MainWindow mainWindow;
+    private BenchmarkReport benchmarkReport = null;
+    
+    /**
+     * Checkpoint the first ALNS run of the batch resumes from (null to start
+     * from scratch).
+     */
+    private ALNSCheckpoint resumeCheckpoint = null;
+    
+    /**
+     * Makes the first ALNS run of the batch resume from a checkpoint instead
+     * of starting from scratch.
+     * @param checkpoint the checkpoint to resume from, taken on the first
+     * instance of the batch
+     */
+    public void setResumeCheckpoint(ALNSCheckpoint checkpoint) {
+        this.resumeCheckpoint = checkpoint;
+    }
     
     /**
      * A message from an ALNS thread
@@ -340,34 +380,26 @@ public class Controller
         pb.serializeToJSON();
         
         this.lastInstanceNumber = 0;
+        startBenchmarkReport();
         try{
             for(int i = 0; i < modelPaths.size() && !this.isCancelled(); i++){
                 String modelPath = modelPaths.get(i);
                 this.lastModelPath = modelPath;
-                // Initialize a new Orienteering object starting from the current modelPath
-                Orienteering o = new Orienteering(
-                        modelPath,
-                        pb.getOrienteeringProperties()
-                );
-
-                // Initialize a new ALNS object starting from the current modelPath
-                // and Orienteering object
-                ALNS a = new ALNS(
-                        o,
-                        pb.getALNSproperties(),
-                        this
-                );
-
-                // ALNS object will automatically pick a solver and apply it
-                a.optimize();
-
-                // Free memory occupied by Gurobi models
-                a.cleanup();
+                // Benchmarks run every instance more than once
+                for(int r = 0; r < runsPerInstance() && !this.isCancelled(); r++){
+                    ALNS a = runInstance(modelPath, r);
+                    recordBenchmarkRun(modelPath, r, a);
+                }
+                this.lastInstanceNumber++;
             }
         }
         catch(InterruptedException e){
             throw new InterruptedException(e.getMessage());
         }
+        finally{
+            writeBenchmarkReport();
+            shutdownEngine();
+        }
     }
     
     
@@ -382,33 +414,179 @@ public class Controller
         // Save the chosen parameters to the output folder
         pb.serializeToJSON();
         
-        // Initialize a new Orienteering object starting from the current modelPath
-        lastOrienteering = new Orienteering(
-                modelPath,
-                pb.getOrienteeringProperties()
-        );
+        // Benchmarks run every instance more than once
+        for(int r = 0; r < runsPerInstance() && !this.isCancelled(); r++){
+            ALNS a = runInstance(modelPath, r);
+            recordBenchmarkRun(modelPath, r, a);
+        }
+    }
+    
+    /**
+     * Solves an instance on the engine of this controller, and waits for the
+     * end of the run. If the waiting thread is interrupted (e.g. the
+     * controller was cancelled), the run is asked to stop.
+     * @param modelPath path to the model file to optimize
+     * @param repetition index of the run on the instance
+     * @return the solver, after the run
+     * @throws InterruptedException if the run was interrupted
+     * @throws Exception if anything else goes wrong in the run
+     */
+    private ALNS runInstance(String modelPath, int repetition) throws InterruptedException, Exception{
+        if(engine == null){
+            engine = new AlnsEngine(1);
+            engine.setEchoGurobiLog(true);
+        }
+        ALNSCheckpoint checkpoint = resumeCheckpoint;
+        resumeCheckpoint = null;
         
-        currentALNS = new ALNS(
-                    lastOrienteering,
-                    pb.getALNSproperties(),
-                    this
+        CompletableFuture<ALNS> run = engine.submit(
+                modelPath,
+                new ParametersBean(pb.getOrienteeringProperties(), runProperties(repetition)),
+                solver,
+                this,
+                checkpoint
         );
-        
-        currentALNS.execute();
-
-        //DEBUG1:
-        currentALNS.get();
-        /*
         try{
-            currentALNS.get();
+            return run.get();
+        }
+        catch(InterruptedException e){
+            run.cancel(true);
+            throw e;
         }
         catch(ExecutionException e){
-            System.out.println("Controller - ALNS has thrown ExecutionException: "+e.getMessage());
+            if(e.getCause() instanceof Exception){
+                throw (Exception) e.getCause();
+            }
+            throw e;
         }
-        */
-        //DEBUG1_end
-
-        // Now go back to "doInBackground()" and wait for the optimization to complete
+    }
+    
+    /**
+     * Lets the engine thread go, once the batch is over.
+     */
+    private void shutdownEngine(){
+        if(engine != null){
+            engine.shutdown();
+            engine = null;
+        }
+    }
+    
+    /**
+     * Number of ALNS runs for every instance in the batch: the number of
+     * repetitions for SOLVE_BENCHMARK, 1 for every other solver.
+     * @return the number of runs for every instance
+     */
+    private int runsPerInstance(){
+        if(solver == Solvers.SOLVE_BENCHMARK){
+            return Math.max(1, pb.getALNSproperties().getBenchmarkRepetitions());
+        }
+        return 1;
+    }
+    
+    /**
+     * Gets the seed of a benchmark run: runs are numbered from the randomSeed
+     * parameter, or from 1 if it's 0, so they can always be repeated.
+     * @param repetition index of the run on the current instance
+     * @return the seed of the run
+     */
+    private long benchmarkSeed(int repetition){
+        long baseSeed = pb.getALNSproperties().getRandomSeed();
+        return (baseSeed != 0 ? baseSeed : 1) + repetition;
+    }
+    
+    /**
+     * Gets the ALNS parameters for a run. Benchmark runs get a copy of the
+     * parameters with their own seed, and without the solution store.
+     * @param repetition index of the run on the current instance
+     * @return the ALNS parameters for the run
+     */
+    private ALNSPropertiesBean runProperties(int repetition){
+        if(solver != Solvers.SOLVE_BENCHMARK){
+            return pb.getALNSproperties();
+        }
+        ALNSPropertiesBean apb = new ALNSPropertiesBean();
+        apb.cloneFrom(pb.getALNSproperties());
+        apb.setRandomSeed(benchmarkSeed(repetition));
+        // Runs must not warm start from each other
+        apb.setSolutionStoreSize(0);
+        return apb;
+    }
+    
+    /**
+     * Prepares the report of a SOLVE_BENCHMARK batch, reading the reference
+     * values. Does nothing for other solvers.
+     */
+    private void startBenchmarkReport(){
+        benchmarkReport = null;
+        if(solver != Solvers.SOLVE_BENCHMARK){
+            return;
+        }
+        String referencesPath = pb.getALNSproperties().getBenchmarkReferencesPath();
+        Map<String, Double> references = new HashMap<>();
+        try{
+            references = BenchmarkReport.readReferences(referencesPath);
+        }
+        catch(IOException e){
+            System.out.println("Benchmark - can't read the reference values from "+referencesPath+": "+e.getMessage());
+        }
+        benchmarkReport = new BenchmarkReport(
+                referencesPath,
+                references,
+                pb.getALNSproperties().getBenchmarkTargetGap(),
+                pb
+        );
+    }
+    
+    /**
+     * Adds the results of an ALNS run to the benchmark report, if there's one.
+     * @param modelPath path to the instance file
+     * @param repetition index of the run on the instance
+     * @param a the ALNS which has done the run
+     */
+    private void recordBenchmarkRun(String modelPath, int repetition, ALNS a){
+        if(benchmarkReport == null || a.getAnytimeProfile() == null){
+            return;
+        }
+        long feasibilityChecks;
+        synchronized(a.profiler){
+            PhaseProfiler.Histogram h = a.profiler.getPhase("feasibility check");
+            feasibilityChecks = (h == null) ? 0 : h.getCount();
+        }
+        BenchmarkReport.Run run = benchmarkReport.add(
+                modelPath,
+                a.getInstance().getName(),
+                repetition,
+                benchmarkSeed(repetition),
+                a.getAnytimeProfile(),
+                feasibilityChecks
+        );
+        System.out.println("Benchmark - "+run.instance+", run "+repetition+" (seed "+run.seed+"): best "+run.bestObjective
+                +", gap "+(run.gapPercent == null ? "-" : String.format("%.2f%%", run.gapPercent))
+                +", time to target "+(run.timeToTargetMillis < 0 ? "-" : run.timeToTargetMillis+" ms")
+                +", "+String.format("%.1f", run.iterationsPerSecond)+" iterations/s");
+    }
+    
+    /**
+     * Writes the benchmark report, if there's one, to a JSON file in the
+     * output folder and prints its summary.
+     */
+    private void writeBenchmarkReport(){
+        if(benchmarkReport == null){
+            return;
+        }
+        String reportPath = pb.getOrienteeringProperties().getOutputFolderPath()
+                + File.separator + "BENCHMARK_"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"))
+                + ".json";
+        System.out.println("\nBENCHMARK SUMMARY\n"+benchmarkReport.summaryTable());
+        try{
+            benchmarkReport.writeJSON(reportPath);
+            System.out.println("Benchmark report written to "+reportPath);
+        }
+        catch(IOException e){
+            System.out.println("Benchmark - can't write the report to "+reportPath+": "+e.getMessage());
+        }
+        benchmarkReport = null;
     }
     
     /**
@@ -480,4 +658,4 @@ public class Controller
             );
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,191 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import solverModel.Cluster;
+
+/**
+ * A small pool of good and diverse feasible solutions, the elites, used as
+ * endpoints of path relinking.
+ * <br>Elites are identified by their set of clusters, so the same solution is
+ * never stored twice. A new solution whose Jaccard distance from an elite is
+ * below a threshold competes with that elite only, and replaces it if it's
+ * better: the pool can't fill up with near-copies of the best solution. Once
+ * the pool is full, a new solution far from every elite replaces the worst
+ * one, if it's better.
+ * <br>This class is not thread safe.
+ *
+ * @author Frash
+ */
+public class ElitePool {
+
+    /**
+     * An elite solution
+     */
+    static final class Elite {
+
+        final List<Cluster> solution;
+        final BitSet clusters;
+        final double objective;
+
+        Elite(List<Cluster> solution, BitSet clusters, double objective) {
+            this.solution = solution;
+            this.clusters = clusters;
+            this.objective = objective;
+        }
+    }
+
+    /**
+     * Maximum number of elites
+     */
+    private final int capacity;
+
+    /**
+     * Minimum Jaccard distance between two elites
+     */
+    private final double minDistance;
+
+    private final List<Elite> elites = new ArrayList<>();
+
+    /**
+     * Constructor for class ElitePool.
+     *
+     * @param capacity maximum number of elites
+     * @param minDistance minimum Jaccard distance between two elites, in
+     * [0, 1]
+     */
+    public ElitePool(int capacity, double minDistance) {
+        this.capacity = capacity;
+        this.minDistance = minDistance;
+    }
+
+    /**
+     * Offers a feasible solution to the pool.
+     *
+     * @param solution the solution
+     * @param objective its objective value
+     * @return true if the solution became an elite
+     */
+    public boolean offer(List<Cluster> solution, double objective) {
+        if (solution == null || solution.isEmpty()) {
+            return false;
+        }
+        BitSet clusters = new BitSet();
+        for (Cluster c : solution) {
+            clusters.set(c.getId());
+        }
+        Elite candidate = new Elite(solution, clusters, objective);
+
+        // Compete with the closest elite, if it's too close
+        Elite closest = null;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (Elite e : elites) {
+            double d = distance(e.clusters, clusters);
+            if (d < closestDistance) {
+                closest = e;
+                closestDistance = d;
+            }
+        }
+        if (closest != null && closestDistance < minDistance) {
+            if (closestDistance > 0 && objective > closest.objective) {
+                elites.set(elites.indexOf(closest), candidate);
+                return true;
+            }
+            return false;
+        }
+
+        if (elites.size() < capacity) {
+            elites.add(candidate);
+            return true;
+        }
+        Elite worst = getWorst();
+        if (objective > worst.objective) {
+            elites.set(elites.indexOf(worst), candidate);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Picks two distinct elites at random, the first one among the best half
+     * of the pool.
+     *
+     * @param random the random number generator
+     * @return the two elites, or null if there are less than two of them
+     */
+    public List<Elite> pickPair(Random random) {
+        if (elites.size() < 2) {
+            return null;
+        }
+        List<Elite> sorted = new ArrayList<>(elites);
+        sorted.sort((a, b) -> Double.compare(b.objective, a.objective));
+        int first = random.nextInt((sorted.size() + 1) / 2);
+        int second = random.nextInt(sorted.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        List<Elite> ret = new ArrayList<>();
+        ret.add(sorted.get(first));
+        ret.add(sorted.get(second));
+        return ret;
+    }
+
+    /**
+     * Get the elite with the lowest objective value
+     *
+     * @return the worst elite, or null if the pool is empty
+     */
+    public Elite getWorst() {
+        Elite worst = null;
+        for (Elite e : elites) {
+            if (worst == null || e.objective < worst.objective) {
+                worst = e;
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * Get the number of elites
+     *
+     * @return the number of elites
+     */
+    public int size() {
+        return elites.size();
+    }
+
+    /**
+     * Jaccard distance between two sets of clusters: 1 minus the size of their
+     * intersection over the size of their union.
+     *
+     * @param a a set of clusters
+     * @param b another set of clusters
+     * @return the distance, in [0, 1]
+     */
+    static double distance(BitSet a, BitSet b) {
+        BitSet union = (BitSet) a.clone();
+        union.or(b);
+        if (union.isEmpty()) {
+            return 0.0;
+        }
+        BitSet intersection = (BitSet) a.clone();
+        intersection.and(b);
+        return 1.0 - (double) intersection.cardinality() / union.cardinality();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Elite pool:");
+        for (Elite e : elites) {
+            sb.append(' ').append(e.objective);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import gurobi.GRB;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import solverModel.Cluster;
+import solverModel.InstanceCTOPWSS;
+import solverModel.InstanceCTOPWSSReader;
+
+/**
+ * Compares the answers of the exact label-setting feasibility checker with
+ * the ones of Gurobi, on small solutions of the instances in a folder.
+ * <br>For every instance, every single cluster and a sample of random
+ * solutions with up to <tt>-m</tt> clusters are checked by
+ * <code>LabelSettingFeasibilityChecker</code> and by
+ * <code>Orienteering.testSolution</code> on the model without heuristic
+ * constraints, with no limit on MIP nodes. Checks which the checker leaves
+ * undecided, or which hit the Gurobi time limit, are only counted.
+ * <br>The comparison needs a working Gurobi environment: if Gurobi isn't
+ * available it's skipped. Otherwise the exit status is 1 if any answer
+ * differs, so that it can gate a build.
+ * <br>Usage:
+ * <pre>
+ * java -cp CTOWSS_alns.jar solverController.ExactCheckerVerification
+ *      [-m max clusters] [-n random solutions] [-s seed] [instances folder]
+ * </pre>
+ * or <tt>ant verify-exact-checker -Dverify.args="..."</tt>.
+ *
+ * @author Frash
+ */
+public class ExactCheckerVerification {
+
+    /**
+     * Default maximum number of clusters of the solutions compared
+     */
+    public static final int DEFAULT_MAX_CLUSTERS = 3;
+
+    /**
+     * Default number of random solutions compared on every instance
+     */
+    public static final int DEFAULT_RANDOM_SOLUTIONS = 200;
+
+    private final int maxClusters;
+    private final int randomSolutions;
+    private final Random random;
+
+    // Totals over all the instances
+    private int compared = 0;
+    private int undecided = 0;
+    private int mismatches = 0;
+
+    /**
+     * Constructor for class ExactCheckerVerification.
+     *
+     * @param maxClusters maximum number of clusters of the solutions compared
+     * @param randomSolutions number of random solutions compared on every
+     * instance
+     * @param seed seed of the random solutions
+     */
+    public ExactCheckerVerification(int maxClusters, int randomSolutions, long seed) {
+        this.maxClusters = maxClusters;
+        this.randomSolutions = randomSolutions;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Compares the checker and Gurobi on an instance.
+     *
+     * @param path path of the instance file
+     * @param orienteering the model of the instance, cleaned up at the end
+     * @throws Exception if a check fails
+     */
+    public void verify(String path, Orienteering orienteering) throws Exception {
+        InstanceCTOPWSS instance = InstanceCTOPWSSReader.read(path);
+        try {
+            LabelSettingFeasibilityChecker checker = new LabelSettingFeasibilityChecker(instance);
+            int instanceMismatches = 0;
+            for (List<Cluster> solution : solutions(instance)) {
+                LabelSettingFeasibilityChecker.Result result = checker.check(solution);
+                if (result == LabelSettingFeasibilityChecker.Result.UNKNOWN) {
+                    undecided++;
+                    continue;
+                }
+                boolean gurobi = orienteering.testSolution(orienteering.getModel(), solution, false, GRB.INFINITY);
+                if (!gurobi && orienteering.getModel().get(GRB.IntAttr.Status) == GRB.TIME_LIMIT) {
+                    undecided++;
+                    continue;
+                }
+                compared++;
+                if (gurobi != (result == LabelSettingFeasibilityChecker.Result.FEASIBLE)) {
+                    instanceMismatches++;
+                    System.out.println("  MISMATCH on " + solution + ": checker " + result
+                            + ", Gurobi " + (gurobi ? "FEASIBLE" : "INFEASIBLE"));
+                }
+            }
+            mismatches += instanceMismatches;
+            System.out.println(instance.getName() + ": " + instanceMismatches + " mismatches");
+        } finally {
+            orienteering.cleanup();
+        }
+    }
+
+    /**
+     * Builds the solutions to compare: every single cluster, then random
+     * solutions of 2 to <code>maxClusters</code> clusters.
+     */
+    private List<List<Cluster>> solutions(InstanceCTOPWSS instance) {
+        List<List<Cluster>> ret = new ArrayList<>();
+        List<Cluster> clusters = instance.cloneClusters();
+        for (Cluster c : clusters) {
+            ret.add(Collections.singletonList(c));
+        }
+        for (int s = 0; s < randomSolutions && maxClusters > 1; s++) {
+            Collections.shuffle(clusters, random);
+            int size = 2 + random.nextInt(maxClusters - 1);
+            ret.add(new ArrayList<>(clusters.subList(0, Math.min(size, clusters.size()))));
+        }
+        return ret;
+    }
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args the command line arguments (see the class description)
+     */
+    public static void main(String[] args) {
+        int maxClusters = DEFAULT_MAX_CLUSTERS;
+        int randomSolutions = DEFAULT_RANDOM_SOLUTIONS;
+        long seed = 1;
+        String folder = HotPathBenchmark.DEFAULT_INSTANCES_FOLDER;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-m":
+                        maxClusters = Integer.parseInt(args[++i]);
+                        break;
+                    case "-n":
+                        randomSolutions = Integer.parseInt(args[++i]);
+                        break;
+                    case "-s":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    default:
+                        folder = args[i];
+                        break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+            System.out.println("Usage: java -cp CTOWSS_alns.jar solverController.ExactCheckerVerification "
+                    + "[-m max clusters] [-n random solutions] [-s seed] [instances folder]");
+            return;
+        }
+
+        List<String> paths = HotPathBenchmark.instanceFiles(folder);
+        if (paths.isEmpty()) {
+            System.err.println("No instances found in " + folder);
+            return;
+        }
+
+        ExactCheckerVerification verification = new ExactCheckerVerification(maxClusters, randomSolutions, seed);
+        for (String path : paths) {
+            Orienteering orienteering;
+            try {
+                OrienteeringPropertiesBean opb = new OrienteeringPropertiesBean();
+                opb.setOutputFolderPath(System.getProperty("java.io.tmpdir"));
+                orienteering = new Orienteering(path, opb, false);
+            } catch (Exception | LinkageError ex) {
+                System.out.println("Comparison skipped, Gurobi is not available: " + ex);
+                return;
+            }
+            try {
+                verification.verify(path, orienteering);
+            } catch (Exception ex) {
+                System.err.println("Comparison failed on " + path + ": " + ex);
+                System.exit(2);
+            }
+        }
+        System.out.println("Exact checker vs Gurobi: " + verification.compared + " solutions compared, "
+                + verification.undecided + " undecided, " + verification.mismatches + " mismatches");
+        if (verification.mismatches > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import gurobi.GRBConstr;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import solverModel.Cluster;
+
+/**
+ * A pool for the cuts which exclude single infeasible solutions from a model
+ * (the <tt>Excluded_Solution</tt> constraints).
+ * <br>Every excluded solution is remembered on the Java side, so an exact
+ * repetition of it can be rejected without calling Gurobi. Only a limited
+ * number of cuts is kept in the model: when the cap is exceeded, the cut with
+ * the lowest usage is removed from the model and its solution stays in the
+ * Java-side cache only.
+ * <br>A cut is used when its solution is proposed again (a hit) or when a
+ * feasible solution differs from it by a single cluster, i.e. when the cut is
+ * tight. Usage ages over time through <code>age()</code>, so cuts which were
+ * binding long ago are evicted before recently binding ones.
+ *
+ * @author Frash
+ */
+public class ExclusionCutPool {
+
+    /**
+     * An excluded solution, with its cut in the model (if still there) and
+     * its usage statistics.
+     */
+    private static class Entry {
+
+        final BitSet clusters;
+        final int size;
+        GRBConstr constraint;
+        double usage = 0.0;
+        long lastUsed;
+
+        Entry(BitSet clusters, GRBConstr constraint, long now) {
+            this.clusters = clusters;
+            this.size = clusters.cardinality();
+            this.constraint = constraint;
+            this.lastUsed = now;
+        }
+    }
+
+    /**
+     * The model the cuts belong to.
+     */
+    private final GRBModel model;
+
+    /**
+     * Maximum number of cuts to keep in the model.
+     */
+    private final int maxCutsInModel;
+
+    /**
+     * Factor applied to the usage of every cut by <code>age()</code>.
+     */
+    private final double decay;
+
+    /**
+     * All the excluded solutions, indexed by their set of cluster IDs.
+     */
+    private final Map<BitSet, Entry> entries = new HashMap<>();
+
+    /**
+     * Number of cuts currently in the model.
+     */
+    private int cutsInModel = 0;
+
+    /**
+     * Number of cuts removed from the model so far.
+     */
+    private long evictions = 0;
+
+    /**
+     * Number of proposed solutions rejected by the Java-side cache.
+     */
+    private long hits = 0;
+
+    /**
+     * Logical clock, increased at every event recorded by the pool.
+     */
+    private long clock = 0;
+
+    /**
+     * Constructor for class ExclusionCutPool.
+     *
+     * @param model the model the cuts are added to
+     * @param maxCutsInModel maximum number of cuts to keep in the model
+     * @param decay factor in [0,1] applied to cut usage at every aging step
+     */
+    public ExclusionCutPool(GRBModel model, int maxCutsInModel, double decay) {
+        this.model = model;
+        this.maxCutsInModel = maxCutsInModel;
+        this.decay = decay;
+    }
+
+    /**
+     * Converts a solution to the set of its cluster IDs.
+     */
+    private static BitSet toBitSet(List<Cluster> solution) {
+        BitSet ret = new BitSet();
+        for (Cluster c : solution) {
+            ret.set(c.getId());
+        }
+        return ret;
+    }
+
+    /**
+     * Checks whether the given solution has already been excluded. If it has,
+     * the usage of its cut is increased.
+     *
+     * @param solution the solution to check
+     * @return true if the solution is known to be infeasible
+     */
+    public boolean isExcluded(List<Cluster> solution) {
+        Entry e = entries.get(toBitSet(solution));
+        if (e != null) {
+            clock++;
+            hits++;
+            e.usage += 1.0;
+            e.lastUsed = clock;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the cut which excludes the given solution to the pool. If the cap
+     * is exceeded, the least used cuts are removed from the model.
+     *
+     * @param solution the excluded solution
+     * @param constraint the cut added to the model to exclude it
+     * @throws GRBException if there are problems while removing cuts from the
+     * model
+     */
+    public void add(List<Cluster> solution, GRBConstr constraint) throws GRBException {
+        clock++;
+        Entry old = entries.put(toBitSet(solution), new Entry(toBitSet(solution), constraint, clock));
+        boolean removed = false;
+        if (old != null && old.constraint != null) {
+            model.remove(old.constraint);
+            cutsInModel--;
+            removed = true;
+        }
+        if (constraint != null) {
+            cutsInModel++;
+        }
+
+        // Evict the least used cuts
+        while (cutsInModel > Math.max(maxCutsInModel, 0)) {
+            Entry worst = null;
+            for (Entry e : entries.values()) {
+                if (e.constraint != null && (worst == null
+                        || e.usage < worst.usage
+                        || (e.usage == worst.usage && e.lastUsed < worst.lastUsed))) {
+                    worst = e;
+                }
+            }
+            model.remove(worst.constraint);
+            worst.constraint = null;
+            cutsInModel--;
+            evictions++;
+            removed = true;
+        }
+        if (removed) {
+            model.update();
+        }
+    }
+
+    /**
+     * Records a feasible solution: every cut in the model which excludes a
+     * solution differing from it by a single cluster is tight, so its usage
+     * is increased.
+     *
+     * @param solution a feasible solution
+     */
+    public void recordFeasibleSolution(List<Cluster> solution) {
+        if (cutsInModel == 0) {
+            return;
+        }
+        clock++;
+        BitSet s = toBitSet(solution);
+        int size = s.cardinality();
+        for (Entry e : entries.values()) {
+            // A symmetric difference of one needs sizes which differ by one
+            if (e.constraint != null && Math.abs(e.size - size) == 1) {
+                BitSet diff = (BitSet) e.clusters.clone();
+                diff.xor(s);
+                if (diff.cardinality() == 1) {
+                    e.usage += 1.0;
+                    e.lastUsed = clock;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ages the usage of every cut, so that old usage counts less than recent
+     * usage.
+     */
+    public void age() {
+        for (Entry e : entries.values()) {
+            e.usage *= decay;
+        }
+    }
+
+    /**
+     * Get the number of cuts currently in the model
+     *
+     * @return the number of cuts in the model
+     */
+    public int getCutsInModel() {
+        return cutsInModel;
+    }
+
+    /**
+     * Get the number of excluded solutions kept in the Java-side cache only
+     *
+     * @return the number of excluded solutions whose cut was removed
+     */
+    public int getCachedOnly() {
+        return entries.size() - cutsInModel;
+    }
+
+    /**
+     * Get the number of cuts removed from the model so far
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the number of proposed solutions rejected by the Java-side cache
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    @Override
+    public String toString() {
+        return "exclusion cuts in model: " + cutsInModel + "/" + maxCutsInModel
+                + ", cached only: " + getCachedOnly()
+                + ", evicted: " + evictions
+                + ", cache hits: " + hits;
+    }
+}
@@ -30,6 +30,11 @@ class FeasibilityCallback extends GRBCallback {
      */
     private double maxMIPSNodesForFeasibilityCheck;
 
+    /**
+     * Token polled to abort the check when the solver must stop (can be null)
+     */
+    private final CancellationToken cancellation;
+
     /**
      * Constructor for class feasibilityCallback
      *
@@ -37,22 +42,38 @@ class FeasibilityCallback extends GRBCallback {
      * to check before giving up a feasibility check.
      */
     public FeasibilityCallback(double maximumMIPSNodesForFeasibilityCheck) {
+        this(maximumMIPSNodesForFeasibilityCheck, null);
+    }
+
+    /**
+     * Constructor for class feasibilityCallback
+     *
+     * @param maximumMIPSNodesForFeasibilityCheck maximum number of mips nodes
+     * to check before giving up a feasibility check.
+     * @param cancellation token polled to abort the check when the solver
+     * must stop (can be null)
+     */
+    public FeasibilityCallback(double maximumMIPSNodesForFeasibilityCheck, CancellationToken cancellation) {
         super();
         this.maxMIPSNodesForFeasibilityCheck = maximumMIPSNodesForFeasibilityCheck;
+        this.cancellation = cancellation;
     }
 
     /**
      * Constructor for class feasibilityCallback
      */
     public FeasibilityCallback() {
-        super();
-        this.maxMIPSNodesForFeasibilityCheck = FeasibilityCallback.NODES_BEFORE_ABORT;
+        this(FeasibilityCallback.NODES_BEFORE_ABORT, null);
     }
 
     @Override
     protected void callback() {
         try {
-            if (where == GRB.CB_MIP) {
+            // An aborted check ends with no solution and status INTERRUPTED,
+            // so the solution is neither accepted nor excluded
+            if (cancellation != null && cancellation.shouldAbort()) {
+                abort();
+            } else if (where == GRB.CB_MIP) {
                 if (getIntInfo(GRB.CB_MIP_SOLCNT) > 0 || getDoubleInfo(GRB.CB_MIP_NODCNT) > maxMIPSNodesForFeasibilityCheck) {
                     abort();
                 }
@@ -63,4 +84,4 @@ class FeasibilityCallback extends GRBCallback {
             Logger.getLogger(Orienteering.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.util.List;
+import solverModel.Cluster;
+
+/**
+ * Backend of the feasibility checks of a solver: given a set of clusters, it
+ * tells whether they can all be served together within the constraints of the
+ * instance (skills, intra-cluster precedence and maximum travel time).
+ * <br>An oracle may give up on hard checks: in that case the solution is
+ * reported as infeasible, just like a Gurobi check which runs out of MIP
+ * nodes.
+ *
+ * @author Frash
+ */
+public interface FeasibilityOracle {
+
+    /**
+     * Get the name of this oracle, used in logs and profiles
+     *
+     * @return the name of the oracle
+     */
+    public String getName();
+
+    /**
+     * Checks whether the proposed solution is feasible.
+     *
+     * @param proposedSolution the clusters to serve
+     * @param log true will produce a visible log
+     * @param maxMIPSNodes maximum number of MIPS nodes to solve in a
+     * feasibility check (ignored by oracles which don't solve a MIP)
+     * @return true if the solution is feasible, false if it's infeasible or
+     * the oracle gave up
+     * @throws Exception if there are problems while checking the solution
+     */
+    public boolean isFeasible(List<Cluster> proposedSolution, boolean log, double maxMIPSNodes) throws Exception;
+
+    /**
+     * Tells whether a positive answer leaves the solution in the Gurobi model
+     * of the solver, so that its objective value and vehicle paths can be
+     * read from the model.
+     *
+     * @return true if the model holds the last feasible solution
+     */
+    public boolean isModelUpdated();
+}
@@ -0,0 +1,48 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.util.List;
+import solverModel.Cluster;
+
+/**
+ * Feasibility oracle which solves the model of an Orienteering solver with
+ * Gurobi, stopping at the first integer solution found (see
+ * <code>FeasibilityCallback</code>).
+ *
+ * @author Frash
+ */
+public class GurobiFeasibilityOracle implements FeasibilityOracle {
+
+    /**
+     * The solver whose model is used for the checks
+     */
+    private final Orienteering orienteering;
+
+    /**
+     * Constructor for class GurobiFeasibilityOracle.
+     *
+     * @param orienteering the solver whose model is used for the checks
+     */
+    public GurobiFeasibilityOracle(Orienteering orienteering) {
+        this.orienteering = orienteering;
+    }
+
+    @Override
+    public String getName() {
+        return "gurobi";
+    }
+
+    @Override
+    public boolean isFeasible(List<Cluster> proposedSolution, boolean log, double maxMIPSNodes) throws Exception {
+        return orienteering.testSolution(orienteering.getModel(), proposedSolution, log, maxMIPSNodes);
+    }
+
+    @Override
+    public boolean isModelUpdated() {
+        return true;
+    }
+}
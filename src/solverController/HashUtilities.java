@@ -27,20 +27,20 @@ public class HashUtilities {
      */
     public static String fileHash(String path) throws FileNotFoundException, NoSuchAlgorithmException, IOException{
         MessageDigest md = MessageDigest.getInstance("SHA-256");
-        FileInputStream fis = new FileInputStream(path);
-        
-        byte[] dataBytes = new byte[1024];
-        
-        int nread = 0;
-        while ((nread = fis.read(dataBytes)) != -1) {
-          md.update(dataBytes, 0, nread);
-        };
+        try (FileInputStream fis = new FileInputStream(path)) {
+            byte[] dataBytes = new byte[1024];
+            
+            int nread = 0;
+            while ((nread = fis.read(dataBytes)) != -1) {
+              md.update(dataBytes, 0, nread);
+            }
+        }
         byte[] mdbytes = md.digest();
         
-        //convert the byte to hex format method 2
+        //convert the byte to hex format method 2, two digits per byte
         StringBuffer hexString = new StringBuffer();
     	for (int i=0;i<mdbytes.length;i++) {
-    	  hexString.append(Integer.toHexString(0xFF & mdbytes[i]));
+    	  hexString.append(String.format("%02x", 0xFF & mdbytes[i]));
     	}
         
     	//System.out.println("Hex format : " + hexString.toString());
@@ -0,0 +1,630 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+import solverModel.Cluster;
+import solverModel.ClusterSolution;
+import solverModel.InstanceCTOPWSS;
+import solverModel.InstanceCTOPWSSReader;
+import solverModel.Vehicle;
+
+/**
+ * Microbenchmarks for the pure-Java hot paths of the solvers: instance
+ * parsing, streaks and vehicle counts of clusters, heuristic and cluster
+ * roulettes, ALNS log formatting, barycenters, feasibility oracles and the
+ * destroy/repair heuristics.
+ * <br>The harness follows the approach of JMH, without its dependencies:
+ * every benchmark is warmed up for a while, so that the JIT compiler is done
+ * with it, then it's run in batches big enough to make timer overhead
+ * negligible, and the results of every call are consumed so that they can't
+ * be optimized away. The time per operation of every batch goes into a
+ * <code>PhaseProfiler.Histogram</code>, and the table reports its mean and
+ * percentiles, so regressions can be spotted by running it before and after
+ * a change.
+ * <br>Only the heuristics and the Gurobi feasibility oracle need a Gurobi
+ * environment, because they belong to an <code>ALNS</code> object, which is
+ * built on a Gurobi model: if Gurobi isn't available they are skipped, and
+ * feasibility checks are benchmarked on the pure-Java oracle only.
+ * <br>Usage:
+ * <pre>
+ * java -cp CTOWSS_alns.jar solverController.HotPathBenchmark
+ *      [-w warmup seconds] [-t measure seconds] [-f name filter]
+ *      [-i instance name] [-o output file] [instances folder]
+ * </pre>
+ * or <tt>ant benchmark -Dbenchmark.args="..."</tt>.
+ *
+ * @author Frash
+ */
+public class HotPathBenchmark {
+
+    /**
+     * An operation to benchmark. Whatever it returns is consumed by the
+     * harness.
+     */
+    public static interface Operation {
+
+        /**
+         * Runs the operation once.
+         *
+         * @return the result of the operation
+         * @throws Exception if anything goes wrong
+         */
+        public Object run() throws Exception;
+    }
+
+    /**
+     * Folder holding the instances read by default
+     */
+    public static final String DEFAULT_INSTANCES_FOLDER = "Istanze di prova";
+
+    /**
+     * Minimum duration of a batch, in nanoseconds
+     */
+    private static final long MIN_BATCH_NANOS = 1_000_000L;
+
+    /**
+     * Maximum number of operations in a batch
+     */
+    private static final int MAX_BATCH_SIZE = 1 << 24;
+
+    /**
+     * Number of realistic solutions the benchmarks cycle through
+     */
+    private static final int NUM_SOLUTIONS = 16;
+
+    /**
+     * Number of clusters of the small solutions given to feasibility oracles
+     */
+    private static final int SMALL_SOLUTION_SIZE = 3;
+
+    /**
+     * Number of random sets tried per small solution wanted
+     */
+    private static final int MAX_SAMPLE_ATTEMPTS = 100;
+
+    private final long warmupNanos;
+    private final long measureNanos;
+    private final String filter;
+    private final StringBuilder report = new StringBuilder();
+
+    /**
+     * Consumes the results of the operations, so that they're never dead code
+     */
+    private volatile int sink = 0;
+
+    /**
+     * Constructor for class HotPathBenchmark.
+     *
+     * @param warmupSeconds warmup time for every benchmark
+     * @param measureSeconds measurement time for every benchmark
+     * @param filter only benchmarks whose name contains this string are run
+     * (null to run them all)
+     */
+    public HotPathBenchmark(double warmupSeconds, double measureSeconds, String filter) {
+        this.warmupNanos = (long) (warmupSeconds * 1e9);
+        this.measureNanos = (long) (measureSeconds * 1e9);
+        this.filter = filter;
+        line(String.format("%-60s %12s %12s %12s %12s %12s",
+                "Benchmark", "Ops", "Mean ns/op", "p50 ns/op", "p99 ns/op", "Min ns/op"));
+    }
+
+    /**
+     * Runs a benchmark and adds its results to the report.
+     *
+     * @param name the name of the benchmark
+     * @param op the operation to benchmark
+     * @throws Exception if the operation fails
+     */
+    public void measure(String name, Operation op) throws Exception {
+        if (filter != null && !name.contains(filter)) {
+            return;
+        }
+
+        // Warmup, growing the batch until it's long enough to be timed
+        int batch = 1;
+        long warmupEnd = System.nanoTime() + warmupNanos;
+        while (true) {
+            long t = runBatch(op, batch);
+            if (t < MIN_BATCH_NANOS && batch < MAX_BATCH_SIZE) {
+                batch <<= 1;
+            } else if (System.nanoTime() >= warmupEnd) {
+                break;
+            }
+        }
+
+        // Measurement
+        PhaseProfiler.Histogram h = new PhaseProfiler.Histogram();
+        long ops = 0;
+        long total = 0;
+        long measureEnd = System.nanoTime() + measureNanos;
+        do {
+            long t = runBatch(op, batch);
+            h.record(t / batch);
+            ops += batch;
+            total += t;
+        } while (System.nanoTime() < measureEnd);
+
+        line(String.format("%-60s %12d %12.1f %12d %12d %12d",
+                name, ops, (double) total / ops, h.getPercentile(50), h.getPercentile(99), h.getMin()));
+    }
+
+    /**
+     * Writes a note in the report, e.g. about skipped benchmarks.
+     *
+     * @param note the note to write
+     */
+    public void note(String note) {
+        line("# " + note);
+    }
+
+    /**
+     * Get the report of the benchmarks run so far
+     *
+     * @return the table of results
+     */
+    public String getReport() {
+        return report.toString();
+    }
+
+    /**
+     * Runs a batch of operations.
+     *
+     * @return the duration of the batch, in nanoseconds
+     */
+    private long runBatch(Operation op, int batch) throws Exception {
+        int acc = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < batch; i++) {
+            Object result = op.run();
+            acc += (result == null) ? 0 : System.identityHashCode(result);
+        }
+        long duration = System.nanoTime() - start;
+        sink += acc;
+        return duration;
+    }
+
+    /**
+     * Adds a line to the report and prints it.
+     */
+    private void line(String s) {
+        report.append(s).append(System.lineSeparator());
+        System.out.println(s);
+    }
+
+    /**
+     * Lists the instance files in a folder.
+     *
+     * @param folder the folder to look into
+     * @return the paths of the instance files, sorted by name
+     */
+    static List<String> instanceFiles(String folder) {
+        List<String> ret = new ArrayList<>();
+        File[] files = new File(folder).listFiles(
+                (dir, name) -> name.endsWith(".txt")
+                && !name.equalsIgnoreCase("README.txt")
+                && !name.equalsIgnoreCase("benchmarks.txt"));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File f : files) {
+                ret.add(f.getPath());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Builds realistic solutions for an instance, feasible like the ones the
+     * ALNS works on: every solution is grown cluster by cluster, taking the
+     * clusters by decreasing profit/cost ratio from a different offset for
+     * every solution, and a cluster is kept only if the pure-Java oracle
+     * still accepts the solution (its positive answers are always right).
+     * Clusters whose service cost doesn't fit in the time budget of all the
+     * vehicles are skipped without checking.
+     *
+     * @param instance the instance
+     * @param howMany the number of solutions to build
+     * @return the solutions
+     * @throws Exception if the oracle can't be built
+     */
+    static List<ClusterSolution> realisticSolutions(InstanceCTOPWSS instance, int howMany) throws Exception {
+        List<Cluster> sorted = instance.cloneClusters();
+        sorted.sort(Cluster.PROFIT_COST_RATIO_COMPARATOR.reversed());
+        double budget = instance.getTmax() * instance.getNum_vehicles();
+        JavaFeasibilityOracle oracle = new JavaFeasibilityOracle(instance);
+
+        List<ClusterSolution> ret = new ArrayList<>();
+        for (int s = 0; s < howMany; s++) {
+            ClusterSolution solution = new ClusterSolution(instance);
+            for (int k = 0; k < sorted.size(); k++) {
+                Cluster c = sorted.get((s + k) % sorted.size());
+                if (solution.getTotalCost() + c.getTotalCost() > budget) {
+                    continue;
+                }
+                solution.add(c);
+                if (!oracle.isFeasible(solution, false, 0)) {
+                    solution.remove(solution.size() - 1);
+                }
+            }
+            ret.add(solution);
+        }
+        return ret;
+    }
+
+    /**
+     * Builds small solutions for an instance, half of them feasible and half
+     * infeasible as far as possible, so that the answers of the oracles on
+     * them can be compared: random sets of 1 to
+     * <code>SMALL_SOLUTION_SIZE</code> clusters are classified by the exact
+     * label-setting checker (undecided ones are dropped), feasible and
+     * infeasible ones alternating in the result.
+     *
+     * @param instance the instance
+     * @param howMany the number of solutions to build
+     * @return the solutions, fewer than <code>howMany</code> if not enough
+     * feasible or infeasible ones were found
+     * @throws Exception if the checker can't be built
+     */
+    static List<List<Cluster>> smallSolutions(InstanceCTOPWSS instance, int howMany) throws Exception {
+        LabelSettingFeasibilityChecker checker = new LabelSettingFeasibilityChecker(instance);
+        List<Cluster> clusters = instance.cloneClusters();
+        Random r = new Random(0);
+        List<List<Cluster>> feasible = new ArrayList<>();
+        List<List<Cluster>> infeasible = new ArrayList<>();
+        int half = howMany / 2;
+        for (int attempt = 0; attempt < MAX_SAMPLE_ATTEMPTS * howMany
+                && (feasible.size() < howMany - half || infeasible.size() < half); attempt++) {
+            Collections.shuffle(clusters, r);
+            int size = 1 + attempt % SMALL_SOLUTION_SIZE;
+            List<Cluster> solution = new ArrayList<>(clusters.subList(0, Math.min(size, clusters.size())));
+            LabelSettingFeasibilityChecker.Result result = checker.check(solution);
+            if (result == LabelSettingFeasibilityChecker.Result.FEASIBLE && feasible.size() < howMany - half) {
+                feasible.add(solution);
+            } else if (result == LabelSettingFeasibilityChecker.Result.INFEASIBLE && infeasible.size() < half) {
+                infeasible.add(solution);
+            }
+        }
+
+        List<List<Cluster>> ret = new ArrayList<>();
+        for (int k = 0; k < Math.max(feasible.size(), infeasible.size()); k++) {
+            if (k < feasible.size()) {
+                ret.add(feasible.get(k));
+            }
+            if (k < infeasible.size()) {
+                ret.add(infeasible.get(k));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Runs the benchmarks on instance parsing.
+     *
+     * @param paths the instance files to read
+     * @throws Exception if an instance can't be read
+     */
+    public void benchmarkReader(List<String> paths) throws Exception {
+        for (String path : paths) {
+            measure("InstanceCTOPWSSReader.read " + new File(path).getName(),
+                    () -> InstanceCTOPWSSReader.read(path));
+        }
+    }
+
+    /**
+     * Runs the benchmarks which don't need Gurobi on an instance.
+     *
+     * @param instance the instance
+     * @throws Exception if anything goes wrong
+     */
+    public void benchmarkModel(InstanceCTOPWSS instance) throws Exception {
+        List<Cluster> clusters = instance.cloneClusters();
+        List<Vehicle> vehicles = instance.getVehicles();
+        List<ClusterSolution> solutions = realisticSolutions(instance, NUM_SOLUTIONS);
+        int[] next = {0};
+
+        // Clusters
+        measure("Cluster.getStreaks (all clusters and vehicles)", () -> {
+            int streaks = 0;
+            for (Cluster c : clusters) {
+                for (Vehicle v : vehicles) {
+                    streaks += c.getStreaks(v).size();
+                }
+            }
+            return streaks;
+        });
+        measure("Cluster.setInstanceVehicles (all clusters)", () -> {
+            int total = 0;
+            for (Cluster c : clusters) {
+                c.setInstanceVehicles(vehicles);
+                total += c.getMinNumberOfVehiclesNeeded() + c.getMaxNumberOfVehiclesNeeded();
+            }
+            return total;
+        });
+
+        // Heuristic roulette, as big as the one of the ALNS
+        ObjectDistribution<String> heuristics = new ObjectDistribution<>();
+        Random r = new Random(0);
+        for (int i = 0; i < 5; i++) {
+            heuristics.add("h" + i, 1.0 + r.nextDouble(), "h" + i);
+        }
+        measure("ObjectDistribution.getRandom (5 heuristics)", heuristics::getRandom);
+        measure("ObjectDistribution.updateBins (5 heuristics)", () -> {
+            heuristics.updateBins();
+            return heuristics;
+        });
+
+        // Uniform distribution of all the clusters, as in destroyRandomInsertion
+        ObjectDistribution<Cluster> clusterDistribution = new ObjectDistribution<>();
+        clusterDistribution.addAll(clusters);
+        measure("ObjectDistribution.getRandom (" + clusters.size() + " clusters)", clusterDistribution::getRandom);
+        measure("ObjectDistribution.updateBins (" + clusters.size() + " clusters)", () -> {
+            clusterDistribution.updateBins();
+            return clusterDistribution;
+        });
+
+        // Cluster roulette, cooled down and warmed up by rotating hot sets as
+        // in the ALNS, so that probabilities stay in a steady state
+        ClusterRoulette roulette = new ClusterRoulette(instance.cloneClusters());
+        int[] order = new int[clusters.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        measure("ClusterRoulette.query", roulette::query);
+        measure("ClusterRoulette.queryInOrder (q = 5)", () -> roulette.queryInOrder(order, null, 5));
+        measure("ClusterRoulette.cooldown + warmup", () -> {
+            List<Cluster> hot = solutions.get(next[0]++ % NUM_SOLUTIONS);
+            roulette.cooldown(0.1, hot);
+            roulette.warmup(0.1, hot);
+            return roulette;
+        });
+        measure("ClusterRoulette.getAverageProbability", roulette::getAverageProbability);
+
+        // Solution aggregates
+        measure("ClusterSolution copy + barycenter", () -> {
+            ClusterSolution s = new ClusterSolution(solutions.get(next[0]++ % NUM_SOLUTIONS));
+            return s.getBarycenterX() + s.getBarycenterY();
+        });
+        measure("ClusterSolution from list + barycenter", () -> {
+            List<Cluster> list = new ArrayList<>(solutions.get(next[0]++ % NUM_SOLUTIONS));
+            ClusterSolution s = new ClusterSolution(instance, list);
+            return s.getBarycenterX() + s.getBarycenterY();
+        });
+
+        // ALNS log records (they replaced the formatting of solutions as CSV)
+        measure("ALNSIterationRecord create + toRow", () -> {
+            ClusterSolution xOld = solutions.get(next[0]++ % NUM_SOLUTIONS);
+            ClusterSolution xNew = solutions.get(next[0] % NUM_SOLUTIONS);
+            return new ALNSIterationRecord(1, 10, 100.0, 0.5, 3,
+                    xOld, xOld.getTotalProfit(), xOld, xOld.getTotalProfit(),
+                    roulette, "")
+                    .setIteration(5, "h0", heuristics, "h1", heuristics, true,
+                            xOld, xOld.getTotalProfit(), xNew, xNew.getTotalProfit(),
+                            true, false, false)
+                    .toRow();
+        });
+    }
+
+    /**
+     * Runs the benchmarks on feasibility oracles, with small solutions (see
+     * <code>smallSolutions</code>) and with the realistic ones.
+     * <br>The answers of every oracle on the small solutions are compared with
+     * the ones of the first oracle (Gurobi, if available), and disagreements
+     * are reported. The comparison is reported only if the first oracle found
+     * both feasible and infeasible small solutions, otherwise it would prove
+     * nothing.
+     *
+     * @param oracles the oracles to compare
+     * @param instance the instance
+     * @throws Exception if an oracle fails
+     */
+    public void benchmarkOracles(List<FeasibilityOracle> oracles, InstanceCTOPWSS instance) throws Exception {
+        List<ClusterSolution> solutions = realisticSolutions(instance, NUM_SOLUTIONS);
+        List<List<Cluster>> smallSolutions = smallSolutions(instance, NUM_SOLUTIONS);
+        int numSmall = smallSolutions.size();
+        if (numSmall == 0) {
+            note("No small solutions decided by the label-setting checker, small solution benchmarks skipped");
+        }
+        double maxMIPSNodes = new ALNSPropertiesBean().getMaxMIPSNodesForFeasibilityCheck();
+
+        boolean[] reference = null;
+        boolean mixed = false;
+        for (FeasibilityOracle oracle : oracles) {
+            int[] next = {0};
+            boolean[] answers = new boolean[numSmall];
+            int feasible = 0;
+            int disagreements = 0;
+            for (int s = 0; s < numSmall; s++) {
+                answers[s] = oracle.isFeasible(smallSolutions.get(s), false, maxMIPSNodes);
+                feasible += answers[s] ? 1 : 0;
+                disagreements += (reference != null && answers[s] != reference[s]) ? 1 : 0;
+            }
+            if (reference == null) {
+                reference = answers;
+                mixed = feasible > 0 && feasible < numSmall;
+                if (!mixed) {
+                    note(oracle.getName() + " oracle found the small solutions all feasible or all infeasible, "
+                            + "the agreement of the oracles isn't checked");
+                }
+            }
+            note(oracle.getName() + " oracle: " + feasible + "/" + numSmall + " small solutions feasible"
+                    + (mixed ? ", " + disagreements + " disagreements with " + oracles.get(0).getName() : ""));
+            if (numSmall > 0) {
+                measure("FeasibilityOracle " + oracle.getName() + " (1 to " + SMALL_SOLUTION_SIZE + " clusters)",
+                        () -> oracle.isFeasible(smallSolutions.get(next[0]++ % numSmall), false, maxMIPSNodes));
+            }
+            measure("FeasibilityOracle " + oracle.getName() + " (realistic solutions)",
+                    () -> oracle.isFeasible(solutions.get(next[0]++ % NUM_SOLUTIONS), false, maxMIPSNodes));
+        }
+    }
+
+    /**
+     * Runs the benchmarks on the destroy and repair heuristics of the ALNS.
+     *
+     * @param alns an ALNS built on the instance
+     * @param instance the instance
+     * @param q the number of clusters inserted or removed by every heuristic
+     * @throws Exception if anything goes wrong
+     */
+    public void benchmarkHeuristics(ALNS alns, InstanceCTOPWSS instance, int q) throws Exception {
+        List<ClusterSolution> solutions = realisticSolutions(instance, NUM_SOLUTIONS);
+        int[] next = {0};
+
+        measure("ALNS.barycenterOfSolution", () -> alns.barycenterOfSolution(solutions.get(next[0]++ % NUM_SOLUTIONS)));
+        heuristics("destroy ", alns.getDestroyMethods(), solutions, q);
+        heuristics("repair ", alns.getRepairMethods(), solutions, q);
+    }
+
+    /**
+     * Benchmarks every heuristic in a distribution.
+     */
+    private void heuristics(
+            String prefix,
+            ObjectDistribution<BiFunction<List<Cluster>, Integer, List<Cluster>>> methods,
+            List<ClusterSolution> solutions,
+            int q
+    ) throws Exception {
+        String[] labels = methods.getLabels();
+        int[] next = {0};
+        for (int i = 0; i < labels.length; i++) {
+            BiFunction<List<Cluster>, Integer, List<Cluster>> h = methods.getReferenceFromIndex(i);
+            measure(prefix + labels[i] + " (q = " + q + ")",
+                    () -> h.apply(solutions.get(next[0]++ % NUM_SOLUTIONS), q));
+        }
+    }
+
+    /**
+     * Builds an ALNS on an instance file, to get at its heuristics. It needs
+     * a working Gurobi environment.
+     *
+     * @param path path of the instance file
+     * @return the ALNS, whose <code>cleanup()</code> must be called when done
+     * @throws Exception if the ALNS can't be built
+     */
+    private static ALNS buildALNS(String path) throws Exception {
+        OrienteeringPropertiesBean opb = new OrienteeringPropertiesBean();
+        opb.setOutputFolderPath(System.getProperty("java.io.tmpdir"));
+        ALNSPropertiesBean apb = new ALNSPropertiesBean();
+        apb.setLogTarget(SolverLog.Target.NONE.name());
+        return new ALNS(new Orienteering(path, opb), apb, null);
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args the command line arguments (see the class description)
+     */
+    public static void main(String[] args) {
+        double warmup = 1.0;
+        double measure = 2.0;
+        String filter = null;
+        String instanceName = null;
+        String output = null;
+        String folder = DEFAULT_INSTANCES_FOLDER;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-w":
+                        warmup = Double.parseDouble(args[++i]);
+                        break;
+                    case "-t":
+                        measure = Double.parseDouble(args[++i]);
+                        break;
+                    case "-f":
+                        filter = args[++i];
+                        break;
+                    case "-i":
+                        instanceName = args[++i];
+                        break;
+                    case "-o":
+                        output = args[++i];
+                        break;
+                    default:
+                        folder = args[i];
+                        break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+            System.out.println("Usage: java -cp CTOWSS_alns.jar solverController.HotPathBenchmark "
+                    + "[-w warmup seconds] [-t measure seconds] [-f name filter] "
+                    + "[-i instance name] [-o output file] [instances folder]");
+            return;
+        }
+
+        List<String> paths = instanceFiles(folder);
+        if (paths.isEmpty()) {
+            System.err.println("No instances found in " + folder);
+            return;
+        }
+
+        HotPathBenchmark benchmark = new HotPathBenchmark(warmup, measure, filter);
+        try {
+            benchmark.benchmarkReader(paths);
+
+            // Every other benchmark runs on a single instance: the one given,
+            // or else the one with the most clusters
+            String path = null;
+            InstanceCTOPWSS instance = null;
+            for (String p : paths) {
+                InstanceCTOPWSS candidate = InstanceCTOPWSSReader.read(p);
+                if (instanceName != null
+                        ? candidate.getName().equals(instanceName) || new File(p).getName().startsWith(instanceName)
+                        : instance == null || candidate.getNum_clusters() > instance.getNum_clusters()) {
+                    path = p;
+                    instance = candidate;
+                }
+            }
+            if (instance == null) {
+                System.err.println("Instance " + instanceName + " not found in " + folder);
+                return;
+            }
+            benchmark.note("Instance " + instance.getName() + ": " + instance.getNum_clusters() + " clusters, "
+                    + instance.getNum_nodes() + " nodes, " + instance.getNum_vehicles() + " vehicles");
+            benchmark.benchmarkModel(instance);
+
+            List<FeasibilityOracle> oracles = new ArrayList<>();
+            ALNS alns = null;
+            try {
+                alns = buildALNS(path);
+                oracles.add(new GurobiFeasibilityOracle(alns));
+            } catch (Exception | LinkageError ex) {
+                benchmark.note("Heuristics and Gurobi oracle skipped, Gurobi is not available: " + ex);
+            }
+            oracles.add(new JavaFeasibilityOracle(instance));
+            oracles.add(new LabelSettingFeasibilityChecker(instance));
+            try {
+                benchmark.benchmarkOracles(oracles, instance);
+                if (alns != null) {
+                    benchmark.benchmarkHeuristics(alns, instance, new ALNSPropertiesBean().getqStart());
+                }
+            } finally {
+                if (alns != null) {
+                    alns.cleanup();
+                }
+            }
+        } catch (Exception ex) {
+            System.err.println("Benchmark failed: " + ex);
+            ex.printStackTrace();
+        }
+
+        if (output != null) {
+            try (PrintWriter pw = new PrintWriter(new FileWriter(output))) {
+                pw.print(benchmark.getReport());
+            } catch (IOException ex) {
+                System.err.println("Can't write " + output + ": " + ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import gurobi.GRB;
+import gurobi.GRBCallback;
+import gurobi.GRBException;
+import gurobi.GRBVar;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import solverModel.Cluster;
+import solverModel.InstanceCTOPWSS;
+
+/**
+ * Callback of the MIP solver in SOLVE_HYBRID mode: it publishes incumbents
+ * and bounds to the ALNS, injects the ALNS solutions as heuristic solutions
+ * and stops the MIP when the ALNS is over.
+ *
+ * @author Frash
+ */
+class HybridMIPCallback extends GRBCallback {
+
+    private final IncumbentExchange exchange;
+    private final InstanceCTOPWSS instance;
+
+    /**
+     * Token polled to abort the MIP when the solver must stop
+     */
+    private final CancellationToken cancellation;
+
+    /**
+     * All the variables of the MIP model, in order
+     */
+    private final GRBVar[] vars;
+
+    /**
+     * Cluster variables of the MIP model, by cluster ID
+     */
+    private final GRBVar[] y;
+
+    /**
+     * Constructor for class HybridMIPCallback
+     *
+     * @param exchange where incumbents and bounds are exchanged
+     * @param instance the instance being solved
+     * @param vars all the variables of the MIP model, in order
+     * @param y the cluster variables of the MIP model, by cluster ID
+     * @param cancellation token polled to abort the MIP when the solver must
+     * stop
+     */
+    public HybridMIPCallback(IncumbentExchange exchange, InstanceCTOPWSS instance, GRBVar[] vars, GRBVar[] y,
+            CancellationToken cancellation) {
+        super();
+        this.exchange = exchange;
+        this.instance = instance;
+        this.cancellation = cancellation;
+        this.vars = vars;
+        this.y = y;
+    }
+
+    @Override
+    protected void callback() {
+        try {
+            if ((exchange.isStopRequested() || cancellation.isStopRequested()) && where != GRB.CB_POLLING) {
+                abort();
+                return;
+            }
+            if (where == GRB.CB_MIP) {
+                exchange.updateBound(getDoubleInfo(GRB.CB_MIP_OBJBND));
+            } else if (where == GRB.CB_MIPSOL) {
+                double[] values = getSolution(y);
+                List<Cluster> clusters = new ArrayList<>();
+                for (int c = 0; c < values.length; c++) {
+                    if (values[c] > 0.5) {
+                        clusters.add(instance.getCluster(c));
+                    }
+                }
+                exchange.offerIncumbent(clusters, getDoubleInfo(GRB.CB_MIPSOL_OBJ));
+            } else if (where == GRB.CB_MIPNODE) {
+                double[] start = exchange.takeStart();
+                if (start != null) {
+                    setSolution(vars, start);
+                }
+            }
+        } catch (Exception ex) {
+            Logger.getLogger(Orienteering.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+}
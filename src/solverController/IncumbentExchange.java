@@ -0,0 +1,180 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.util.List;
+import solverModel.Cluster;
+
+/**
+ * Incumbents and bounds exchanged between the ALNS and the MIP solver running
+ * on a copy of the model in SOLVE_HYBRID mode.
+ * <br>The ALNS offers its global bests as values of all the variables of the
+ * model, to be injected into the MIP as heuristic solutions. The MIP offers
+ * its incumbents as the clusters they serve, to be used by the ALNS as
+ * starting points, and publishes its best bound.
+ * <br>Only the latest offer in each direction is kept. This class is thread
+ * safe.
+ *
+ * @author Frash
+ */
+class IncumbentExchange {
+
+    // Latest ALNS solution not yet injected into the MIP
+    private double[] startValues = null;
+    private double startObjective = Double.NEGATIVE_INFINITY;
+
+    // Latest MIP incumbent not yet taken by the ALNS
+    private List<Cluster> incumbent = null;
+    private double incumbentObjective = Double.NEGATIVE_INFINITY;
+
+    // Best bound of the MIP
+    private double bound = Double.POSITIVE_INFINITY;
+
+    // State of the MIP
+    private boolean stopRequested = false;
+    private boolean mipFinished = false;
+    private Exception mipException = null;
+
+    // Statistics
+    private long startsInjected = 0;
+    private long incumbentsTaken = 0;
+
+    /**
+     * Offers an ALNS solution to the MIP.
+     *
+     * @param values the values of all the variables of the model, in the
+     * order of <code>GRBModel.getVars()</code>
+     * @param objective the objective value of the solution
+     */
+    synchronized void offerStart(double[] values, double objective) {
+        if (objective > startObjective) {
+            startValues = values;
+            startObjective = objective;
+        }
+    }
+
+    /**
+     * Takes the ALNS solution to inject into the MIP, if there is a new one.
+     *
+     * @return the values of all the variables, or null
+     */
+    synchronized double[] takeStart() {
+        double[] ret = startValues;
+        if (ret != null) {
+            startValues = null;
+            startsInjected++;
+        }
+        return ret;
+    }
+
+    /**
+     * Offers a MIP incumbent to the ALNS.
+     *
+     * @param clusters the clusters served by the incumbent
+     * @param objective the objective value of the incumbent
+     */
+    synchronized void offerIncumbent(List<Cluster> clusters, double objective) {
+        if (objective > incumbentObjective) {
+            incumbent = clusters;
+            incumbentObjective = objective;
+        }
+    }
+
+    /**
+     * Takes the latest MIP incumbent, if it's better than the given objective
+     * value and it wasn't taken already.
+     *
+     * @param objective the objective value to beat
+     * @return the clusters served by the incumbent, or null
+     */
+    synchronized List<Cluster> takeIncumbentBetterThan(double objective) {
+        List<Cluster> ret = null;
+        if (incumbent != null && incumbentObjective > objective) {
+            ret = incumbent;
+            incumbentsTaken++;
+        }
+        incumbent = null;
+        return ret;
+    }
+
+    /**
+     * Get the objective value of the best MIP incumbent offered so far
+     *
+     * @return the objective value of the best incumbent
+     */
+    synchronized double getIncumbentObjective() {
+        return incumbentObjective;
+    }
+
+    /**
+     * Publishes the best bound of the MIP.
+     *
+     * @param bound the best bound
+     */
+    synchronized void updateBound(double bound) {
+        this.bound = Math.min(this.bound, bound);
+    }
+
+    /**
+     * Get the best bound of the MIP
+     *
+     * @return the best bound, infinite if unknown
+     */
+    synchronized double getBound() {
+        return bound;
+    }
+
+    /**
+     * Asks the MIP to stop at the next callback.
+     */
+    synchronized void requestStop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Tells whether the MIP should stop
+     *
+     * @return true if the MIP should stop
+     */
+    synchronized boolean isStopRequested() {
+        return stopRequested;
+    }
+
+    /**
+     * Records the end of the MIP.
+     *
+     * @param e the exception which ended the MIP, or null
+     */
+    synchronized void finishMIP(Exception e) {
+        mipFinished = true;
+        mipException = e;
+    }
+
+    /**
+     * Tells whether the MIP has ended
+     *
+     * @return true if the MIP has ended
+     */
+    synchronized boolean isMIPFinished() {
+        return mipFinished;
+    }
+
+    /**
+     * Get the exception which ended the MIP
+     *
+     * @return the exception, or null
+     */
+    synchronized Exception getMIPException() {
+        return mipException;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ALNS starts injected into the MIP: " + startsInjected
+                + ", MIP incumbents taken by the ALNS: " + incumbentsTaken
+                + ", MIP bound: " + bound;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.util.Arrays;
+import java.util.List;
+import solverModel.Cluster;
+import solverModel.InstanceCTOPWSS;
+
+/**
+ * Pure-Java feasibility oracle, which needs no Gurobi license.
+ * <br>It reproduces the constraints of the Orienteering model on the routes
+ * of the vehicles (see <code>RoutingConstraints</code>), every node of a
+ * selected cluster being served exactly once.
+ * <br>Solutions with few nodes are checked exactly, by enumerating the routes
+ * of the vehicles one after the other with a depth-first search. Larger
+ * solutions, or searches which exceed their budget of expansions, are checked
+ * heuristically by cheapest insertion of the nodes: a positive answer is
+ * always right, but a feasible solution can be reported as infeasible, as it
+ * happens with a Gurobi check which runs out of MIP nodes.
+ * <br>Heuristic constraints and exclusion cuts of the Gurobi model are not
+ * taken into account.
+ * <br>This class is not thread safe.
+ *
+ * @author Frash
+ */
+public class JavaFeasibilityOracle implements FeasibilityOracle {
+
+    /**
+     * Default maximum number of nodes for an exact check
+     */
+    public static final int DEFAULT_MAX_EXACT_NODES = 12;
+
+    /**
+     * Default maximum number of expansions of an exact check
+     */
+    public static final long DEFAULT_MAX_EXPANSIONS = 200000;
+
+    /**
+     * The constraints of the instance
+     */
+    private final RoutingConstraints rc;
+
+    // Limits of the exact check
+    private final int maxExactNodes;
+    private final long maxExpansions;
+
+    // Nodes of the solution being checked
+    private final int[] nodes;
+    private int nodeCount;
+    private final boolean[] served;
+
+    // Arrival time at every node (NaN if not visited)
+    private final double[] arrival;
+
+    // State of the exact search
+    private long expansions;
+    private boolean aborted;
+
+    // State of the insertion heuristic
+    private final int[][] routes;
+    private final int[] routeLengths;
+
+    // Statistics
+    private long exactChecks = 0;
+    private long heuristicChecks = 0;
+    private boolean lastAnswerExact = false;
+
+    /**
+     * Constructor for class JavaFeasibilityOracle, with the default limits
+     * for exact checks.
+     *
+     * @param instance the instance to check solutions of
+     * @throws Exception if the instance data is inconsistent
+     */
+    public JavaFeasibilityOracle(InstanceCTOPWSS instance) throws Exception {
+        this(instance, DEFAULT_MAX_EXACT_NODES, DEFAULT_MAX_EXPANSIONS);
+    }
+
+    /**
+     * Constructor for class JavaFeasibilityOracle.
+     *
+     * @param instance the instance to check solutions of
+     * @param maxExactNodes maximum number of nodes of a solution for an exact
+     * check
+     * @param maxExpansions maximum number of expansions of an exact check
+     * before falling back to the heuristic
+     * @throws Exception if the instance data is inconsistent
+     */
+    public JavaFeasibilityOracle(InstanceCTOPWSS instance, int maxExactNodes, long maxExpansions) throws Exception {
+        this.rc = new RoutingConstraints(instance);
+        this.maxExactNodes = maxExactNodes;
+        this.maxExpansions = maxExpansions;
+
+        this.nodes = new int[rc.numNodes];
+        this.served = new boolean[rc.numNodes];
+        this.arrival = new double[rc.numNodes];
+        Arrays.fill(arrival, Double.NaN);
+        this.routes = new int[rc.numVehicles][rc.numNodes];
+        this.routeLengths = new int[rc.numVehicles];
+    }
+
+    @Override
+    public String getName() {
+        return "java";
+    }
+
+    @Override
+    public boolean isModelUpdated() {
+        return false;
+    }
+
+    @Override
+    public boolean isFeasible(List<Cluster> proposedSolution, boolean log, double maxMIPSNodes) {
+        // Collect the nodes to serve
+        nodeCount = 0;
+        for (Cluster c : proposedSolution) {
+            for (int i : rc.clusterNodes[c.getId()]) {
+                if (!served[i]) {
+                    served[i] = true;
+                    nodes[nodeCount++] = i;
+                }
+            }
+        }
+
+        try {
+            // Every node must be reachable alone by some vehicle
+            for (int k = 0; k < nodeCount; k++) {
+                int i = nodes[k];
+                if (rc.lastCapableVehicle[i] < 0 || !rc.fitsInTime(i, rc.distance[0][i])) {
+                    lastAnswerExact = true;
+                    return false;
+                }
+            }
+
+            if (nodeCount <= maxExactNodes) {
+                expansions = 0;
+                aborted = false;
+                boolean isFeasible = search(0, 0, 0.0, nodeCount);
+                if (!aborted) {
+                    exactChecks++;
+                    lastAnswerExact = true;
+                    return isFeasible;
+                }
+            }
+
+            heuristicChecks++;
+            lastAnswerExact = false;
+            return insertNodes();
+        } finally {
+            for (int k = 0; k < nodeCount; k++) {
+                served[nodes[k]] = false;
+                arrival[nodes[k]] = Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * Depth-first search of the routes: vehicle <code>v</code>, which is in
+     * node <code>current</code> since time <code>time</code>, either moves to
+     * a node left to serve or ends its route, leaving the rest to the
+     * following vehicles.
+     *
+     * @return true if all the remaining nodes can be served
+     */
+    private boolean search(int v, int current, double time, int remaining) {
+        if (remaining == 0) {
+            return true;
+        }
+        if (++expansions > maxExpansions) {
+            aborted = true;
+            return false;
+        }
+
+        // Every node left must be served by this vehicle or a following one
+        for (int k = 0; k < nodeCount; k++) {
+            int j = nodes[k];
+            if (Double.isNaN(arrival[j]) && rc.lastCapableVehicle[j] < v) {
+                return false;
+            }
+        }
+
+        double departure = time + rc.duration[current];
+        for (int k = 0; k < nodeCount; k++) {
+            int j = nodes[k];
+            if (!Double.isNaN(arrival[j]) || !rc.canServe[v][j] || !rc.canMove(current, j)) {
+                continue;
+            }
+            double a = departure + rc.distance[current][j];
+            if (!rc.fitsInTime(j, a) || !rc.respectsPrecedence(j, a, arrival)) {
+                continue;
+            }
+            arrival[j] = a;
+            boolean isFeasible = search(v, j, a, remaining - 1);
+            arrival[j] = Double.NaN;
+            if (isFeasible || aborted) {
+                return isFeasible;
+            }
+        }
+
+        // End the route of this vehicle
+        return v + 1 < rc.numVehicles && search(v + 1, 0, 0.0, remaining);
+    }
+
+    /**
+     * Inserts the nodes in the routes one at a time, each where it makes the
+     * routes shortest.
+     *
+     * @return true if all nodes were inserted
+     */
+    private boolean insertNodes() {
+        Arrays.fill(routeLengths, 0);
+        for (int k = 0; k < nodeCount; k++) {
+            int j = nodes[k];
+            int bestVehicle = -1;
+            int bestPosition = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (int v = 0; v < rc.numVehicles; v++) {
+                if (!rc.canServe[v][j]) {
+                    continue;
+                }
+                for (int p = 0; p <= routeLengths[v]; p++) {
+                    insert(v, p, j);
+                    double cost = evaluate();
+                    remove(v, p);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestVehicle = v;
+                        bestPosition = p;
+                    }
+                }
+            }
+            if (bestVehicle < 0) {
+                return false;
+            }
+            insert(bestVehicle, bestPosition, j);
+        }
+        return true;
+    }
+
+    /**
+     * Computes the arrival times of the current routes and checks them.
+     *
+     * @return the total duration of the routes, or infinity if they are
+     * infeasible
+     */
+    private double evaluate() {
+        for (int k = 0; k < nodeCount; k++) {
+            arrival[nodes[k]] = Double.NaN;
+        }
+
+        double total = 0.0;
+        for (int v = 0; v < rc.numVehicles; v++) {
+            int current = 0;
+            double time = 0.0;
+            for (int p = 0; p < routeLengths[v]; p++) {
+                int j = routes[v][p];
+                if (!rc.canMove(current, j)) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                time += rc.duration[current] + rc.distance[current][j];
+                if (!rc.fitsInTime(j, time)) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                arrival[j] = time;
+                current = j;
+            }
+            total += time + rc.duration[current] + rc.distance[current][rc.lastNode];
+        }
+
+        for (int k = 0; k < nodeCount; k++) {
+            int j = nodes[k];
+            if (!Double.isNaN(arrival[j]) && !rc.respectsPrecedence(j, arrival[j], arrival)) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return total;
+    }
+
+    private void insert(int v, int position, int node) {
+        System.arraycopy(routes[v], position, routes[v], position + 1, routeLengths[v] - position);
+        routes[v][position] = node;
+        routeLengths[v]++;
+    }
+
+    private void remove(int v, int position) {
+        System.arraycopy(routes[v], position + 1, routes[v], position, routeLengths[v] - position - 1);
+        routeLengths[v]--;
+    }
+
+    /**
+     * Get the number of checks decided by the exact search
+     *
+     * @return the number of exact checks
+     */
+    public long getExactChecks() {
+        return exactChecks;
+    }
+
+    /**
+     * Get the number of checks decided by the insertion heuristic
+     *
+     * @return the number of heuristic checks
+     */
+    public long getHeuristicChecks() {
+        return heuristicChecks;
+    }
+
+    /**
+     * Tells whether the last answer was exact, i.e. a negative answer proves
+     * that the solution is infeasible
+     *
+     * @return true if the last answer was exact
+     */
+    public boolean isLastAnswerExact() {
+        return lastAnswerExact;
+    }
+}
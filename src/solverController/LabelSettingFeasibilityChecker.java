@@ -0,0 +1,413 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import solverModel.Cluster;
+import solverModel.InstanceCTOPWSS;
+
+/**
+ * Exact pure-Java feasibility checker for solutions with few clusters, based
+ * on a label-setting dynamic program over the partial routes of the vehicles.
+ * <br>Vehicles build their routes one after the other. A label is a partial
+ * solution: the vehicle which is moving, the node where it is, the set of
+ * nodes served so far and their arrival times. A label is extended by moving
+ * the vehicle to a node left to serve, or by ending its route and starting
+ * the one of the following vehicle, as long as skills, intra-cluster arcs,
+ * precedences and <tt>tmax</tt> are respected (see
+ * <code>RoutingConstraints</code>). The solution is feasible if a label
+ * serves all of its nodes.
+ * <br>Labels with the same vehicle, node, set of served nodes and time are
+ * compared on the arrival times which still matter, i.e. the ones of nodes
+ * with a precedence towards a node left to serve: a label dominates another
+ * if all of those nodes were reached earlier when they must precede, and
+ * later when they must follow. Every completion of the dominated label also
+ * completes the dominating one, so dominated labels are discarded.
+ * <br>Heuristic constraints and exclusion cuts of the Gurobi model are not
+ * taken into account. This class is not thread safe.
+ *
+ * @author Frash
+ */
+public class LabelSettingFeasibilityChecker implements FeasibilityOracle {
+
+    /**
+     * Answer of a check
+     */
+    public static enum Result {
+        FEASIBLE, INFEASIBLE, UNKNOWN
+    }
+
+    /**
+     * Default maximum number of labels of a check
+     */
+    public static final int DEFAULT_MAX_LABELS = 10000;
+
+    /**
+     * Maximum number of nodes of a solution, so that the set of served nodes
+     * fits in a <code>long</code>
+     */
+    private static final int MAX_NODES = 64;
+
+    /**
+     * A partial solution
+     */
+    private static final class Label {
+
+        final int vehicle;
+        final int node;
+        final long served;
+        final double time;
+        final double[] arrival;
+        boolean dominated = false;
+
+        Label(int vehicle, int node, long served, double time, double[] arrival) {
+            this.vehicle = vehicle;
+            this.node = node;
+            this.served = served;
+            this.time = time;
+            this.arrival = arrival;
+        }
+    }
+
+    /**
+     * Labels which can dominate each other share the same key: vehicle, node,
+     * served nodes and time
+     */
+    private static final class Key {
+
+        final int vehicle;
+        final int node;
+        final long served;
+        final long time;
+
+        Key(Label l) {
+            this.vehicle = l.vehicle;
+            this.node = l.node;
+            this.served = l.served;
+            this.time = Double.doubleToLongBits(l.time);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return vehicle == k.vehicle && node == k.node && served == k.served && time == k.time;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(served * 31 + time) * 31 + vehicle * 101 + node;
+        }
+    }
+
+    /**
+     * The constraints of the instance
+     */
+    private final RoutingConstraints rc;
+
+    /**
+     * Maximum number of labels of a check
+     */
+    private final int maxLabels;
+
+    // Nodes of the solution being checked, and their index in it
+    private final int[] nodes = new int[MAX_NODES];
+    private int nodeCount;
+    private final int[] localIndex;
+
+    // Precedences among the nodes of the solution, as sets of local indices
+    private final long[] predecessorSet = new long[MAX_NODES];
+    private final long[] successorSet = new long[MAX_NODES];
+
+
+    // Statistics
+    private long checks = 0;
+    private long undecided = 0;
+    private long labels = 0;
+
+    /**
+     * Constructor for class LabelSettingFeasibilityChecker, with the default
+     * maximum number of labels.
+     *
+     * @param instance the instance to check solutions of
+     * @throws Exception if the instance data is inconsistent
+     */
+    public LabelSettingFeasibilityChecker(InstanceCTOPWSS instance) throws Exception {
+        this(instance, DEFAULT_MAX_LABELS);
+    }
+
+    /**
+     * Constructor for class LabelSettingFeasibilityChecker.
+     *
+     * @param instance the instance to check solutions of
+     * @param maxLabels maximum number of labels of a check, after which the
+     * answer is unknown
+     * @throws Exception if the instance data is inconsistent
+     */
+    public LabelSettingFeasibilityChecker(InstanceCTOPWSS instance, int maxLabels) throws Exception {
+        this.rc = new RoutingConstraints(instance);
+        this.maxLabels = maxLabels;
+        this.localIndex = new int[rc.numNodes];
+        Arrays.fill(localIndex, -1);
+    }
+
+    @Override
+    public String getName() {
+        return "label-setting";
+    }
+
+    @Override
+    public boolean isModelUpdated() {
+        return false;
+    }
+
+    @Override
+    public boolean isFeasible(List<Cluster> proposedSolution, boolean log, double maxMIPSNodes) {
+        return check(proposedSolution) == Result.FEASIBLE;
+    }
+
+    /**
+     * Checks whether the proposed solution is feasible.
+     *
+     * @param proposedSolution the clusters to serve
+     * @return FEASIBLE or INFEASIBLE, or UNKNOWN if the solution has too many
+     * nodes or the check needed too many labels
+     */
+    public Result check(List<Cluster> proposedSolution) {
+        checks++;
+
+        // Collect the nodes to serve
+        nodeCount = 0;
+        try {
+            for (Cluster c : proposedSolution) {
+                for (int i : rc.clusterNodes[c.getId()]) {
+                    if (localIndex[i] < 0) {
+                        if (nodeCount == MAX_NODES) {
+                            undecided++;
+                            return Result.UNKNOWN;
+                        }
+                        localIndex[i] = nodeCount;
+                        nodes[nodeCount++] = i;
+                    }
+                }
+            }
+
+            // Every node must be reachable alone by some vehicle
+            for (int k = 0; k < nodeCount; k++) {
+                int i = nodes[k];
+                if (rc.lastCapableVehicle[i] < 0 || !rc.fitsInTime(i, rc.distance[0][i])) {
+                    return Result.INFEASIBLE;
+                }
+            }
+
+            for (int k = 0; k < nodeCount; k++) {
+                predecessorSet[k] = toSet(rc.predecessors[nodes[k]]);
+                successorSet[k] = toSet(rc.successors[nodes[k]]);
+            }
+
+            Result ret = search();
+            if (ret == Result.UNKNOWN) {
+                undecided++;
+            }
+            return ret;
+        } finally {
+            for (int k = 0; k < nodeCount; k++) {
+                localIndex[nodes[k]] = -1;
+            }
+        }
+    }
+
+    /**
+     * Turns a list of global nodes into the set of their local indices
+     */
+    private long toSet(int[] globalNodes) {
+        long ret = 0L;
+        for (int i : globalNodes) {
+            if (localIndex[i] >= 0) {
+                ret |= 1L << localIndex[i];
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Extends labels depth first, so that feasible solutions are found early,
+     * until a label serves all nodes or no label is left.
+     */
+    private Result search() {
+        long all = nodeCount == MAX_NODES ? -1L : (1L << nodeCount) - 1;
+        double[] noArrivals = new double[nodeCount];
+        Arrays.fill(noArrivals, Double.NaN);
+
+        // Nondominated labels, by key
+        Map<Key, List<Label>> buckets = new HashMap<>();
+
+        Deque<Label> open = new ArrayDeque<>();
+        open.push(new Label(0, -1, 0L, 0.0, noArrivals));
+        int created = 1;
+
+        while (!open.isEmpty()) {
+            Label l = open.pop();
+            if (l.dominated) {
+                continue;
+            }
+            if (l.served == all) {
+                labels += created;
+                return Result.FEASIBLE;
+            }
+            if (created > maxLabels) {
+                labels += created;
+                return Result.UNKNOWN;
+            }
+
+            // Every node left must be served by this vehicle or a following one
+            boolean servable = true;
+            for (int k = 0; k < nodeCount && servable; k++) {
+                servable = (l.served & (1L << k)) != 0 || rc.lastCapableVehicle[nodes[k]] >= l.vehicle;
+            }
+            if (!servable) {
+                continue;
+            }
+
+            // End the route of the vehicle
+            if (l.vehicle + 1 < rc.numVehicles) {
+                Label next = new Label(l.vehicle + 1, -1, l.served, 0.0, l.arrival);
+                if (insert(buckets, next)) {
+                    open.push(next);
+                    created++;
+                }
+            }
+
+            // Move the vehicle to a node left to serve
+            int current = l.node < 0 ? 0 : nodes[l.node];
+            double departure = l.time + rc.duration[current];
+            for (int k = nodeCount - 1; k >= 0; k--) {
+                int j = nodes[k];
+                if ((l.served & (1L << k)) != 0 || !rc.canServe[l.vehicle][j] || !rc.canMove(current, j)) {
+                    continue;
+                }
+                double a = departure + rc.distance[current][j];
+                if (!rc.fitsInTime(j, a) || !respectsPrecedence(k, a, l)) {
+                    continue;
+                }
+                double[] arrivals = Arrays.copyOf(l.arrival, nodeCount);
+                arrivals[k] = a;
+                Label next = new Label(l.vehicle, k, l.served | (1L << k), a, arrivals);
+                if (insert(buckets, next)) {
+                    open.push(next);
+                    created++;
+                }
+            }
+        }
+        labels += created;
+        return Result.INFEASIBLE;
+    }
+
+    /**
+     * Checks the precedences between the node of local index <code>k</code>,
+     * reached at a time, and the nodes served by a label.
+     */
+    private boolean respectsPrecedence(int k, double time, Label l) {
+        long served = predecessorSet[k] & l.served;
+        while (served != 0) {
+            int p = Long.numberOfTrailingZeros(served);
+            served &= served - 1;
+            if (l.arrival[p] + rc.duration[nodes[p]] > time + RoutingConstraints.EPSILON) {
+                return false;
+            }
+        }
+        served = successorSet[k] & l.served;
+        while (served != 0) {
+            int q = Long.numberOfTrailingZeros(served);
+            served &= served - 1;
+            if (time + rc.duration[nodes[k]] > l.arrival[q] + RoutingConstraints.EPSILON) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a label to its bucket, unless it's dominated by a label already
+     * there. Labels it dominates are discarded.
+     *
+     * @return true if the label was added
+     */
+    private boolean insert(Map<Key, List<Label>> buckets, Label label) {
+        List<Label> bucket = buckets.computeIfAbsent(new Key(label), k -> new ArrayList<>(2));
+        for (Label other : bucket) {
+            if (dominates(other, label)) {
+                return false;
+            }
+        }
+        for (int i = bucket.size() - 1; i >= 0; i--) {
+            Label other = bucket.get(i);
+            if (dominates(label, other)) {
+                other.dominated = true;
+                bucket.remove(i);
+            }
+        }
+        bucket.add(label);
+        return true;
+    }
+
+    /**
+     * Tells whether label <code>a</code> dominates label <code>b</code>,
+     * which has the same key.
+     */
+    private boolean dominates(Label a, Label b) {
+        long left = ~a.served;
+        for (int k = 0; k < nodeCount; k++) {
+            if ((a.served & (1L << k)) == 0) {
+                continue;
+            }
+            boolean mustPrecede = (successorSet[k] & left) != 0;
+            boolean mustFollow = (predecessorSet[k] & left) != 0;
+            if (mustPrecede && a.arrival[k] > b.arrival[k] + RoutingConstraints.EPSILON) {
+                return false;
+            }
+            if (mustFollow && a.arrival[k] < b.arrival[k] - RoutingConstraints.EPSILON) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of checks done
+     *
+     * @return the number of checks
+     */
+    public long getChecks() {
+        return checks;
+    }
+
+    /**
+     * Get the number of checks which ended with an unknown answer
+     *
+     * @return the number of undecided checks
+     */
+    public long getUndecided() {
+        return undecided;
+    }
+
+    /**
+     * Get the number of labels created by all checks
+     *
+     * @return the number of labels
+     */
+    public long getLabels() {
+        return labels;
+    }
+}
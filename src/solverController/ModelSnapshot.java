@@ -0,0 +1,107 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A snapshot of a Gurobi model, written to temporary files, from which copies
+ * of the model can be built in Gurobi environments of their own.
+ * <br>Gurobi doesn't allow concurrent copies or solves of the models of an
+ * environment, and this version of Gurobi can't copy a model into another
+ * environment. So the snapshot is taken on the thread which owns the model,
+ * and every copy is read into a new environment, with the parameters of the
+ * model: copies can then be built and solved on any thread.
+ * <br>Variables and constraints of a copy keep the names and the order they
+ * have in the model.
+ *
+ * @author Frash
+ */
+final class ModelSnapshot {
+
+    /**
+     * A copy of the model, with its own environment
+     */
+    static final class Copy {
+
+        final GRBEnv env;
+        final GRBModel model;
+
+        private Copy(GRBEnv env, GRBModel model) {
+            this.env = env;
+            this.model = model;
+        }
+
+        /**
+         * Frees the model and its environment.
+         *
+         * @throws GRBException if the model or the environment can't be
+         * disposed
+         */
+        void dispose() throws GRBException {
+            model.dispose();
+            env.dispose();
+        }
+    }
+
+    private final File modelFile;
+    private final File paramFile;
+
+    /**
+     * Constructor for class ModelSnapshot. Must be called on the thread which
+     * owns the model.
+     *
+     * @param model the model to take a snapshot of
+     * @throws GRBException if the model can't be written
+     * @throws IOException if the temporary files can't be created
+     */
+    ModelSnapshot(GRBModel model) throws GRBException, IOException {
+        modelFile = File.createTempFile("model", ".mps");
+        paramFile = File.createTempFile("model", ".prm");
+        try {
+            model.update();
+            model.write(modelFile.getPath());
+            model.write(paramFile.getPath());
+        } catch (GRBException ex) {
+            delete();
+            throw ex;
+        }
+    }
+
+    /**
+     * Builds a copy of the model in a new environment, which logs nothing.
+     * Can be called on any thread.
+     *
+     * @return the copy, to be disposed by the caller
+     * @throws GRBException if the environment or the model can't be built
+     */
+    Copy copy() throws GRBException {
+        GRBEnv env = new GRBEnv();
+        try {
+            env.readParams(paramFile.getPath());
+            env.set(GRB.StringParam.LogFile, "");
+            env.set(GRB.IntParam.OutputFlag, 0);
+            return new Copy(env, new GRBModel(env, modelFile.getPath()));
+        } catch (GRBException ex) {
+            env.dispose();
+            throw ex;
+        }
+    }
+
+    /**
+     * Deletes the temporary files of the snapshot. Copies already built are
+     * not affected.
+     */
+    void delete() {
+        modelFile.delete();
+        paramFile.delete();
+    }
+}
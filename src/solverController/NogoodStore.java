@@ -0,0 +1,209 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import solverModel.Cluster;
+
+/**
+ * A store of nogoods: small sets of clusters (infeasible cores) which can't be
+ * served together. Any solution which contains all the clusters of a known
+ * core is infeasible, so it can be rejected without calling Gurobi.
+ * <br>Cores are kept as sorted arrays of cluster IDs and indexed by each of
+ * their clusters, so that checking a solution only looks at the cores which
+ * share at least one cluster with it.
+ * <br>The store is kept minimal: a core is not added if a known core is
+ * contained in it, and known cores which contain a new core are dropped.
+ *
+ * @author Frash
+ */
+public class NogoodStore {
+
+    /**
+     * For each cluster ID, the list of known cores which contain that cluster.
+     */
+    private final List<List<int[]>> coresByCluster;
+
+    /**
+     * Number of known cores.
+     */
+    private int size;
+
+    /**
+     * Constructor for class NogoodStore.
+     *
+     * @param numClusters number of clusters in the instance
+     */
+    public NogoodStore(int numClusters) {
+        coresByCluster = new ArrayList<>(numClusters);
+        for (int i = 0; i < numClusters; i++) {
+            coresByCluster.add(new ArrayList<>());
+        }
+        size = 0;
+    }
+
+    /**
+     * Adds an infeasible core to the store, unless a known core is already
+     * contained in it. Known cores which contain the new one are removed.
+     *
+     * @param core the clusters that can't be served together
+     * @return true if the core was added, false if it was already implied by
+     * the store (or empty)
+     */
+    public boolean add(Collection<Cluster> core) {
+        if (core == null || core.isEmpty()) {
+            return false;
+        }
+
+        int[] ids = core.stream().mapToInt(Cluster::getId).sorted().distinct().toArray();
+        boolean[] mask = new boolean[coresByCluster.size()];
+        for (int id : ids) {
+            mask[id] = true;
+        }
+
+        // Is the new core implied by a known one?
+        if (containsCore(ids, mask)) {
+            return false;
+        }
+
+        // Drop known cores which contain the new one: they all contain its first cluster
+        for (int[] known : new ArrayList<>(coresByCluster.get(ids[0]))) {
+            if (isSubset(ids, known)) {
+                for (int id : known) {
+                    coresByCluster.get(id).remove(known);
+                }
+                size--;
+            }
+        }
+
+        for (int id : ids) {
+            coresByCluster.get(id).add(ids);
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Checks whether the given solution contains a known infeasible core.
+     *
+     * @param solution the solution to check
+     * @return true if the solution is surely infeasible
+     */
+    public boolean containsCore(List<Cluster> solution) {
+        if (size == 0 || solution == null || solution.isEmpty()) {
+            return false;
+        }
+
+        int[] ids = solution.stream().mapToInt(Cluster::getId).toArray();
+        boolean[] mask = new boolean[coresByCluster.size()];
+        for (int id : ids) {
+            mask[id] = true;
+        }
+        return containsCore(ids, mask);
+    }
+
+    /**
+     * Checks whether the clusters flagged in the mask contain a known core.
+     * Each core is examined only once, from its smallest cluster ID.
+     *
+     * @param ids the IDs of the flagged clusters
+     * @param mask <code>mask[id]</code> is true if cluster id is flagged
+     * @return true if a known core is contained in the flagged clusters
+     */
+    private boolean containsCore(int[] ids, boolean[] mask) {
+        for (int id : ids) {
+            for (int[] core : coresByCluster.get(id)) {
+                if (core[0] == id && allFlagged(core, mask, -1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether adding the given cluster to the flagged ones would
+     * complete a known infeasible core.
+     *
+     * @param mask <code>mask[id]</code> is true if cluster id is already in
+     * solution
+     * @param clusterId the ID of the cluster to add
+     * @return true if adding the cluster makes the solution surely infeasible
+     */
+    public boolean completesCore(boolean[] mask, int clusterId) {
+        for (int[] core : coresByCluster.get(clusterId)) {
+            if (allFlagged(core, mask, clusterId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether every cluster in the core, except the one to skip, is
+     * flagged in the mask.
+     */
+    private static boolean allFlagged(int[] core, boolean[] mask, int skip) {
+        for (int id : core) {
+            if (id != skip && !mask[id]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the sorted array a is a subset of the sorted array b.
+     */
+    private static boolean isSubset(int[] a, int[] b) {
+        int j = 0;
+        for (int id : a) {
+            while (j < b.length && b[j] < id) {
+                j++;
+            }
+            if (j == b.length || b[j] != id) {
+                return false;
+            }
+            j++;
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of known cores
+     *
+     * @return the number of known cores
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Forgets every known core. To be used when the model is relaxed (e.g.
+     * heuristic constraints are removed), since cores found on a tighter model
+     * might not hold anymore.
+     */
+    public void clear() {
+        coresByCluster.forEach(List::clear);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < coresByCluster.size(); i++) {
+            for (int[] core : coresByCluster.get(i)) {
+                if (core[0] == i) {
+                    sb.append(Arrays.toString(core)).append("\n");
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Random;
+import java.util.function.Supplier;
 
 /**
  * This class stores objects of type <tt>T</tt> and their weights that determine
@@ -51,8 +52,8 @@ public class ObjectDistribution<T> {
     private List<String> labels;
     
     /**
-     * A random generator to be used in extraction procedures. The random seed
-     * is chosen when the constructor for this class is called.
+     * A random generator to be used in extraction procedures. Unless one is
+     * given, the random seed is chosen when the constructor is called.
      */
     private Random randomGenerator;
     
@@ -60,11 +61,21 @@ public class ObjectDistribution<T> {
      * Constructor for an ObjectDistribution object.
      */
     public ObjectDistribution() {
+        this(new Random());
+    }
+    
+    /**
+     * Constructor for an ObjectDistribution object which draws from the given
+     * random generator (e.g. a seeded one, for repeatable runs).
+     * 
+     * @param randomGenerator the random generator to use in extractions
+     */
+    public ObjectDistribution(Random randomGenerator) {
         objects = new ArrayList<>();
         weights = new ArrayList<>();
         bins = new ArrayList<>();
         labels = new ArrayList<>();
-        randomGenerator = new Random();
+        this.randomGenerator = randomGenerator;
     }
     
     /**
@@ -437,16 +448,108 @@ public class ObjectDistribution<T> {
     
     @Override
     public String toString(){
+        return snapshot().get();
+    }
+    
+    /**
+     * Takes a copy of the current bins, labels and weights of this
+     * distribution, which can be turned into a string later (even on another
+     * thread) with the same layout as <code>toString()</code>.
+     * @return a supplier of the string representation of this distribution as
+     * it is now
+     */
+    public Supplier<String> snapshot(){
+        int size = this.objects.size();
+        String[] labelsCopy = new String[size];
+        double[] infs = new double[size];
+        double[] sups = new double[size];
+        double[] weightsCopy = new double[size];
+        for(int i = 0; i<size; i++){
+            labelsCopy[i] = labels.get(i);
+            infs[i] = bins.get(i).getInf();
+            sups[i] = bins.get(i).getSup();
+            weightsCopy[i] = weights.get(i);
+        }
+        
+        return () -> {
+            StringBuffer sb = new StringBuffer("{");
+            for(int i = 0; i<size; i++){
+                sb.append("\n\t"+"["+infs[i]+", "+sups[i]+"]"+" -> "+labelsCopy[i]+
+                        " (weight: "+weightsCopy[i]+")");
+            }
+            sb.append("\n}");
+            
+            return sb.toString();
+        };
+    }
+    
+    /**
+     * Formats a distribution with the layout of <code>toString()</code>,
+     * given only its labels and weights. Bins are computed just like
+     * <code>updateBins()</code> does.
+     * @param labels the labels of the objects in the distribution
+     * @param weights the weights of the objects in the distribution
+     * @return the string representation of the distribution
+     */
+    static String format(String[] labels, double[] weights){
+        double totalWeight = Arrays.stream(weights).sum();
+        double inf;
+        double sup = 0.0;
+        
         StringBuffer sb = new StringBuffer("{");
-        for(int i = 0; i<this.objects.size(); i++){
-            sb.append("\n\t"+bins.get(i).toString()+" -> "+labels.get(i)+
-                    " (weight: "+weights.get(i)+")");
+        for(int i = 0; i<labels.length; i++){
+            inf = sup;
+            sup = inf + weights[i]/totalWeight;
+            sb.append("\n\t"+"["+inf+", "+sup+"]"+" -> "+labels[i]+
+                    " (weight: "+weights[i]+")");
         }
         sb.append("\n}");
         
         return sb.toString();
     }
     
+    /**
+     * Returns the index of the specified object in the underlying data structure.
+     * @param o the object to look for
+     * @return the index of the object, -1 if it's not in the distribution
+     */
+    public int indexOf(T o){
+        return objects.indexOf(o);
+    }
+    
+    /**
+     * Returns a copy of the labels of the objects in this distribution.
+     * @return the labels, in the order of the underlying data structure
+     */
+    public String[] getLabels(){
+        return labels.toArray(new String[labels.size()]);
+    }
+    
+    /**
+     * Returns a copy of the weights of the objects in this distribution.
+     * @return the weights, in the order of the underlying data structure
+     */
+    public double[] getWeights(){
+        return weights.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+    
+    /**
+     * Sets the weights of all the objects in this distribution and updates the
+     * bins, e.g. to restore weights taken with <tt>getWeights</tt>.
+     * @param newWeights the weights, in the order of the underlying data structure
+     * (if one is negative, the absolute value will be taken)
+     * @throws IllegalArgumentException if there isn't a weight for every object
+     */
+    public void setWeights(double[] newWeights){
+        if(newWeights.length != weights.size()){
+            throw new IllegalArgumentException("Expected "+weights.size()+" weights, got "+newWeights.length);
+        }
+        for(int i = 0; i<newWeights.length; i++){
+            weights.set(i, Math.abs(newWeights[i]));
+        }
+        this.updateBins();
+    }
+    
     /**
      * Returns the first object with the highest probability of being randomly chosen.
      * @return the first object with the highest probability of being randomly chosen, null if it can't be found
@@ -739,4 +842,4 @@ class Bin{
     public String toString(){
         return "["+inf+", "+sup+"]";
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
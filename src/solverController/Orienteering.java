@@ -13,10 +13,15 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.SwingWorker;
 import solverModel.Cluster;
+import solverModel.ClusterSolution;
 import solverModel.InstanceCTOPWSS;
 import solverModel.InstanceCTOPWSSReader;
 import solverModel.Node;
@@ -61,6 +66,11 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
      * Gurobi environment
      */
     protected GRBEnv env;
+    
+    /**
+     * Log of the solver, which writes to the Gurobi log by default
+     */
+    protected SolverLog solverLog;
     /**
      * Gurobi model for the problem
      */
@@ -104,9 +114,37 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
     protected double bestGlobalObjectiveValue = 0.0;
 
     /**
-     * Redirects the output of the log file to console
+     * Redirects the output of the log file to console (null if the log isn't
+     * redirected)
      */
     protected LogRedirector logRedirector;
+    
+    /**
+     * Set when a stop of the solver is requested without going through
+     * <code>SwingWorker.cancel</code>, e.g. by <code>AlnsEngine</code>.
+     * The Gurobi callbacks of the solver poll it, together with the deadline
+     * of the run.
+     */
+    protected final CancellationToken cancellation = new CancellationToken();
+    
+    /**
+     * Asks the solver to stop as soon as possible. The solver checks the
+     * request between its steps, just like a cancellation of the SwingWorker,
+     * and the model being optimized is aborted by its callback.
+     */
+    public void requestStop() {
+        cancellation.requestStop();
+    }
+    
+    /**
+     * Tells whether the solver should stop, because a stop was requested or
+     * the SwingWorker was cancelled.
+     *
+     * @return true if the solver should stop
+     */
+    public boolean isStopRequested() {
+        return cancellation.isStopRequested() || isCancelled();
+    }
 
     public GRBVar[][][] getX() {
         return x;
@@ -181,6 +219,33 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
         return instanceHash;
     }
 
+    /**
+     * Retrieve the path to the instance file for this problem model.
+     *
+     * @return the path to the instance file
+     */
+    public String getModelPath() {
+        return modelPath;
+    }
+
+    /**
+     * Retrieve the best solution saved so far.
+     *
+     * @return the best solution
+     */
+    public Solution getBestSolution() {
+        return bestSolution;
+    }
+
+    /**
+     * Retrieve the best value of the objective function found so far.
+     *
+     * @return the best objective value
+     */
+    public double getBestGlobalObjectiveValue() {
+        return bestGlobalObjectiveValue;
+    }
+
     /**
      * Constructor. Setups the Orienteering problem environment, model and
      * instance.
@@ -237,11 +302,28 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
      * @throws Exception if anything goes wrong
      */
     public Orienteering(String modelPath, OrienteeringPropertiesBean opb) throws Exception {
+        this(modelPath, opb, true);
+    }
+    
+    /**
+     * Constructor. Setups the Orienteering problem environment, model and
+     * instance variables starting from a modelPath and an
+     * OrienteeringPropertiesBean containing all the solver parameters.
+     *
+     * @param modelPath path to the file containing the instance description
+     * @param opb an OrienteeringPropertiesBean containing all the solver
+     * parameters
+     * @param redirectLog true to echo the Gurobi log file to stdout (through
+     * the Swing event dispatch thread)
+     * @throws Exception if anything goes wrong
+     */
+    public Orienteering(String modelPath, OrienteeringPropertiesBean opb, boolean redirectLog) throws Exception {
         // Setup solver run specific parameters
         this.orienteeringProperties = opb;
 
         // Setup instance specific parameters
         this.modelPath = modelPath;
+        this.instanceHash = HashUtilities.fileHash(modelPath);
         this.logFilePath = opb.getOutputFolderPath() + File.separator + instanceNameFromPath(modelPath) + LOG_FILE_EXTESION;
         this.heuristicConstraints = new ArrayList<>();
         this.constraint8 = new ArrayList<>();
@@ -251,7 +333,7 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
         this.bestSolution = new Solution();
 
         // Go for preprocessing
-        instancePreprocessing();
+        instancePreprocessing(redirectLog);
     }
 
     /**
@@ -284,6 +366,7 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
         this.constraint8 = o.constraint8;
         this.constraint8Variables = o.constraint8Variables;
         this.env = o.getEnv();
+        this.solverLog = o.solverLog;
         this.heuristicConstraints = o.heuristicConstraints;
         this.instance = o.getInstance();
         this.instanceHash = o.getInstanceHash();
@@ -325,9 +408,10 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
      * @param logname name of the gurobi logfile to keep track of the solution
      * process
      * @param modelPath path to the file containing the instance description
+     * @param redirectLog true to echo the Gurobi log file to stdout
      * @throws Exception
      */
-    private void instancePreprocessing()
+    private void instancePreprocessing(boolean redirectLog)
             throws Exception {
         // Read the instance file from text
         this.instance = InstanceCTOPWSSReader.read(modelPath);
@@ -335,11 +419,13 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
         // Setup the model's variables, constraints and objective function
         this.setupEnvironment(logFilePath);
 
-        // Setup the log redirector to redirect the log to stdout
-        this.logRedirector = new LogRedirector(logFilePath);
+        if (redirectLog) {
+            // Setup the log redirector to redirect the log to stdout
+            this.logRedirector = new LogRedirector(logFilePath);
 
-        // Start redirecting the log to the output
-        logRedirector.execute();
+            // Start redirecting the log to the output
+            logRedirector.execute();
+        }
         //SwingUtilities.invokeLater(logRedirector);
 
         //Try to serialize the produced constraints
@@ -370,6 +456,7 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
             throws Exception {
         try {
             this.env = new GRBEnv(logname);
+            this.solverLog = new SolverLog(this.env);
 
             this.env.set(GRB.DoubleParam.TimeLimit, orienteeringProperties.getTimeLimit());
             this.env.set(GRB.IntParam.Threads, orienteeringProperties.getNumThreads());
@@ -953,9 +1040,9 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
         }
 
         // Log results
-        env.message("\nVehicle paths in solution: ");
+        solverLog.info("\nVehicle paths in solution: ");
         for (int v = 0; v < paths.size(); v++) {
-            env.message("\nv" + v + ": " + paths.get(v).toString() + "\n");
+            solverLog.info("\nv{}: {}\n", v, paths.get(v));
         }
 
         return paths;
@@ -975,7 +1062,7 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
         List<String> ret = new ArrayList<>();
         int countVisited = 0;
 
-        env.message("\nList of visited clusters (a * indicates that the node has been visited):");
+        solverLog.info("\nList of visited clusters (a * indicates that the node has been visited):");
         for (int c = 0; c < instance.getNum_clusters(); c++) {
             StringBuffer line = new StringBuffer("Cluster " + c + ": [");
             
@@ -996,10 +1083,10 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
                 }
                 line.append("]");
                 ret.add(line.toString());
-                env.message("\n" + line);
+                solverLog.info("\n{}", line);
             }
         }
-        env.message("\nEnd of the list. Visited clusters: " + countVisited + "\n");
+        solverLog.info("\nEnd of the list. Visited clusters: {}\n", countVisited);
 
         return ret;
     }
@@ -1196,6 +1283,10 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
      * @throws GRBException if anything goes wrong
      */
     protected void toggleHeuristicConstraintsOff() throws GRBException {
+        // Cores found on the tighter model might not hold anymore
+        if (nogoodStore != null && !heuristicConstraints.isEmpty()) {
+            nogoodStore.clear();
+        }
         for (GRBConstr c : heuristicConstraints) {
             model.remove(c);
         }
@@ -1233,16 +1324,103 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
      * feasibility check. Value is -1 if the last check was infeasible.
      */
     protected double objectiveValueFromLastFeasibilityCheck = -1.0;
+    
+    /**
+     * Store of infeasible cores learnt from failed feasibility checks.
+     * If it's null, no learning takes place.
+     */
+    protected NogoodStore nogoodStore = null;
+    
+    /**
+     * Time limit (in seconds) for the extraction of an infeasible core.
+     */
+    protected double timeLimitNogoodExtraction = 1.0;
+    
+    /**
+     * Total time (in seconds) the extraction of infeasible cores can take in
+     * a run. Once it's spent, no more cores are learnt.
+     */
+    protected double nogoodExtractionTimeBudget = GRB.INFINITY;
+    
+    /**
+     * Time (in seconds) spent so far extracting infeasible cores.
+     */
+    protected double nogoodExtractionTimeSpent = 0.0;
+    
+    /**
+     * Pool of the cuts which exclude single infeasible solutions from the
+     * model. If it's null, cuts are added to the model and never removed.
+     */
+    protected ExclusionCutPool exclusionCutPool = null;
+    
+    /**
+     * Total wall time (in nanoseconds) spent by Gurobi in feasibility checks.
+     */
+    protected long feasibilityCheckNanos = 0;
+    
+    /**
+     * Total number of branch and bound nodes explored by Gurobi in
+     * feasibility checks.
+     */
+    protected long feasibilityCheckNodes = 0;
+    
+    /**
+     * Timings and counters for the phases of the solver run.
+     */
+    protected PhaseProfiler profiler = new PhaseProfiler();
+
+    /**
+     * Backend of the feasibility checks, Gurobi by default
+     */
+    protected FeasibilityOracle feasibilityOracle = new GurobiFeasibilityOracle(this);
+
+    /**
+     * Exact checker which decides small solutions without calling the oracle
+     * (null if disabled)
+     */
+    protected LabelSettingFeasibilityChecker exactFeasibilityChecker = null;
+
+    /**
+     * Maximum number of clusters of a solution decided by the exact checker
+     */
+    protected int maxClustersForExactFeasibilityCheck = 0;
+
+    /**
+     * Number of copies of the model tested concurrently while searching for
+     * the largest feasible combination of heuristic constraints (0 means as
+     * many as the available processors)
+     */
+    protected int heuristicConstraintsSearchThreads = 1;
+
+    /**
+     * Pool collecting the vehicle routes of the feasible solutions found by
+     * the feasibility checks (null if disabled)
+     */
+    protected RoutePool routePool = null;
+
+    /**
+     * True if the last feasibility check found a feasible solution and left
+     * it in the model
+     */
+    protected boolean lastFeasibilityCheckUpdatedModel = false;
 
     /**
      *
-     * Use Gurobi to check whether the proposed solution is feasible or not for
-     * this model. If the solution is infeasible, a constraint will be added to
-     * remove this solution from the pool, but solution information data might
-     * (such as variable state) not be available for future calls to the model.
+     * Use the feasibility oracle (Gurobi by default) to check whether the
+     * proposed solution is feasible or not for this model. If Gurobi finds the
+     * solution infeasible, a constraint will be added to remove this solution
+     * from the pool, but solution information data might (such as variable
+     * state) not be available for future calls to the model.
      *
      * <br>The last objective value is however available in the variable
      * <code>objectiveValueFromLastFeasibilityCheck</code>.
+     * 
+     * <br>If a nogood store is available, solutions which contain a known
+     * infeasible core are rejected without calling the oracle, and the core of
+     * every new solution which Gurobi finds infeasible is added to the store.
+     * 
+     * <br>If an exact checker is available, solutions with few clusters are
+     * decided by it, without solving a MIP: the model is left untouched.
      *
      * @param proposedSolution the solution we want to test
      * @param log true will produce a visible log
@@ -1258,22 +1436,113 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
             boolean log,
             double maxMIPSNodes
     ) throws GRBException, Exception {
-        boolean isFeasible = testSolution(this.model, proposedSolution, log, maxMIPSNodes);
+        long checkStart = profiler.start();
+        lastFeasibilityCheckUpdatedModel = false;
+        
+        // Reject solutions which contain a known infeasible core
+        if (nogoodStore != null && nogoodStore.containsCore(proposedSolution)) {
+            if (log) {
+                solverLog.trace("TESTSOLUTION LOG: solution {} contains a known infeasible core\n", proposedSolution);
+            }
+            objectiveValueFromLastFeasibilityCheck = -1.0;
+            profiler.count("feasibility check/rejected by known core");
+            profiler.stop("feasibility check", checkStart);
+            return false;
+        }
+        
+        // Reject solutions which have already been excluded
+        if (exclusionCutPool != null && exclusionCutPool.isExcluded(proposedSolution)) {
+            if (log) {
+                solverLog.trace("TESTSOLUTION LOG: solution {} was already excluded\n", proposedSolution);
+            }
+            objectiveValueFromLastFeasibilityCheck = -1.0;
+            profiler.count("feasibility check/rejected by exclusion cache");
+            profiler.stop("feasibility check", checkStart);
+            return false;
+        }
+        
+        // Decide small solutions with the exact checker (which ignores the
+        // heuristic constraints and exclusion cuts of the model, see
+        // ExactCheckerVerification for its comparison with Gurobi)
+        if (exactFeasibilityChecker != null && proposedSolution.size() <= maxClustersForExactFeasibilityCheck) {
+            long exactStart = profiler.start();
+            LabelSettingFeasibilityChecker.Result result = exactFeasibilityChecker.check(proposedSolution);
+            profiler.stop(exactFeasibilityChecker.getName() + " feasibility check", exactStart);
+            if (result != LabelSettingFeasibilityChecker.Result.UNKNOWN) {
+                boolean isFeasible = result == LabelSettingFeasibilityChecker.Result.FEASIBLE;
+                if (log) {
+                    solverLog.trace("\nTesting solution with clusters: {}: {} (exact check)", proposedSolution, result);
+                }
+                objectiveValueFromLastFeasibilityCheck = isFeasible ? profitOf(proposedSolution) : -1.0;
+                profiler.count("feasibility check/decided by exact check");
+                profiler.count(isFeasible ? "feasibility check/feasible" : "feasibility check/infeasible");
+                profiler.stop("feasibility check", checkStart);
+                return isFeasible;
+            }
+        }
+        
+        boolean isFeasible;
+        if (feasibilityOracle.isModelUpdated()) {
+            isFeasible = feasibilityOracle.isFeasible(proposedSolution, log, maxMIPSNodes);
+        } else {
+            long oracleStart = profiler.start();
+            // The profit can't exceed the bound given by the relaxed model
+            isFeasible = profitOf(proposedSolution) <= this.minimumObjOfRelaxedModel
+                    && feasibilityOracle.isFeasible(proposedSolution, log, maxMIPSNodes);
+            profiler.stop(feasibilityOracle.getName() + " feasibility check", oracleStart);
+            if (log) {
+                solverLog.trace("\nTesting solution with clusters: {}: {} ({} oracle)", proposedSolution,
+                        isFeasible ? "FEASIBLE" : "INFEASIBLE", feasibilityOracle.getName());
+            }
+        }
 
         // If the solution was feasible
         if (isFeasible) {
-            // Save the objective value for later use by other methods.
-            objectiveValueFromLastFeasibilityCheck = model.get(GRB.DoubleAttr.ObjVal);
+            // Save the objective value for later use by other methods: it's
+            // the total profit of the clusters in solution
+            lastFeasibilityCheckUpdatedModel = feasibilityOracle.isModelUpdated();
+            objectiveValueFromLastFeasibilityCheck = lastFeasibilityCheckUpdatedModel
+                    ? model.get(GRB.DoubleAttr.ObjVal)
+                    : profitOf(proposedSolution);
+            if (exclusionCutPool != null) {
+                exclusionCutPool.recordFeasibleSolution(proposedSolution);
+            }
+            if (routePool != null && lastFeasibilityCheckUpdatedModel) {
+                profiler.count("route pool/new routes", routePool.addRoutesOf(model, x));
+            }
         } else {
             // If the model was infeasible, exclude the solution
-            if(model.get(GRB.IntAttr.Status) == GRB.INFEASIBLE){
-                excludeSolutionFromModel(proposedSolution, model); //DEBUG: to test
-                env.message("TESTSOLUTION LOG: excluded solution "+String.valueOf(proposedSolution)+"\n");
+            if(feasibilityOracle.isModelUpdated() && model.get(GRB.IntAttr.Status) == GRB.INFEASIBLE){
+                // Learn the core before adding the exclusion constraint, which
+                // would make the solution infeasible by itself
+                if (nogoodStore != null && profitOf(proposedSolution) <= this.minimumObjOfRelaxedModel) {
+                    double remaining = nogoodExtractionTimeBudget - nogoodExtractionTimeSpent;
+                    if (remaining > 0) {
+                        long coreStart = profiler.start();
+                        List<Cluster> core = extractInfeasibleCore(model, proposedSolution,
+                                Math.min(timeLimitNogoodExtraction, remaining));
+                        nogoodExtractionTimeSpent += profiler.stop("infeasible core extraction", coreStart) / 1e9;
+                        if (core != null && nogoodStore.add(core)) {
+                            profiler.count("nogood learning/cores learnt");
+                            solverLog.trace("TESTSOLUTION LOG: learnt infeasible core {} ({} known cores)\n",
+                                    core, nogoodStore.size());
+                        }
+                    } else {
+                        profiler.count("nogood learning/skipped, time budget spent");
+                    }
+                }
+                GRBConstr cut = excludeSolutionFromModel(proposedSolution, model); //DEBUG: to test
+                if (exclusionCutPool != null) {
+                    exclusionCutPool.add(proposedSolution, cut);
+                }
+                solverLog.trace("TESTSOLUTION LOG: excluded solution {}\n", proposedSolution);
             }
             // Set an "error" objective value
             objectiveValueFromLastFeasibilityCheck = -1.0;
         }
 
+        profiler.count(isFeasible ? "feasibility check/feasible" : "feasibility check/infeasible");
+        profiler.stop("feasibility check", checkStart);
         return isFeasible;
     }
 
@@ -1303,7 +1572,7 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
         // See if the sum of profits in the proposed solution is above the
         // objective of the relaxed. If it is, the solution is clearly
         // infeasible
-        double profitForSolution = proposedSolution.stream().mapToDouble(c -> c.getProfit()).sum();
+        double profitForSolution = profitOf(proposedSolution);
         if(profitForSolution <= this.minimumObjOfRelaxedModel){
             // If the basic check succeeds, proceed with the Gurobi check
             
@@ -1317,32 +1586,30 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
             putInSolution(model, proposedSolution);
 
             // Setting up the callback
-            model.setCallback(new FeasibilityCallback(maxMIPSNodes));
+            model.setCallback(new FeasibilityCallback(maxMIPSNodes, cancellation));
 
             // Test the solution
+            long checkStart = profiler.start();
             model.optimize();
+            feasibilityCheckNanos += profiler.stop("gurobi feasibility check", checkStart);
+            feasibilityCheckNodes += (long) model.get(GRB.DoubleAttr.NodeCount);
             if (model.get(GRB.IntAttr.SolCount) > 0) {
                 isFeasible = true;
             }
         }
         
-        if (log) {
-            env.message("\nTesting solution with clusters: [");
-
-            proposedSolution.forEach(c -> {
-                try {
-                    env.message(c.getId() + " ");
-                } catch (GRBException ex) {
-                    Logger.getLogger(Orienteering.class.getName()).log(Level.SEVERE, null, ex);
-                }
-            });
+        if (log && solverLog.isTraceEnabled()) {
+            StringBuffer clusterIDs = new StringBuffer();
+            for (Cluster c : proposedSolution) {
+                clusterIDs.append(c.getId()).append(" ");
+            }
 
             if (isFeasible) {
-                env.message("]: FEASIBLE integer solution found!");
+                solverLog.trace("\nTesting solution with clusters: [{}]: FEASIBLE integer solution found!", clusterIDs);
                 this.logVisitedClusters(model);
                 this.logVehiclePaths(model);
             } else {
-                env.message("]: INFEASIBLE.\n\n");
+                solverLog.trace("\nTesting solution with clusters: [{}]: INFEASIBLE.\n\n", clusterIDs);
             }
         }
 
@@ -1352,6 +1619,88 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
         return isFeasible;
     }
     
+    /**
+     * Computes the total profit of the given solution.
+     *
+     * @param solution the solution to evaluate
+     * @return the sum of the profits of the clusters in solution
+     */
+    protected double profitOf(List<Cluster> solution) {
+        return (solution instanceof ClusterSolution)
+                ? ((ClusterSolution) solution).getTotalProfit()
+                : solution.stream().mapToDouble(c -> c.getProfit()).sum();
+    }
+    
+    /**
+     * Shrinks an infeasible solution to a small infeasible core, i.e. a subset
+     * of its clusters which can't be served together, using Gurobi's
+     * Irreducible Inconsistent Subsystem on the model which was just found
+     * infeasible.
+     * <br>The core is made of the clusters whose <tt>y</tt> lower bound (the
+     * one forcing them in solution) belongs to the IIS. No core is returned
+     * if the IIS relies on clusters being forced out of solution or on
+     * solution exclusion cuts, since it wouldn't hold for every superset.
+     *
+     * @param model the model where the solution was found infeasible, with
+     * the solution still in place
+     * @param infeasibleSolution the infeasible solution
+     * @param timeLimit time limit (in seconds) of the extraction
+     * @return the infeasible core, or null if none could be found within the
+     * time limit
+     */
+    protected List<Cluster> extractInfeasibleCore(GRBModel model, List<Cluster> infeasibleSolution, double timeLimit) {
+        List<Cluster> core = null;
+        double oldTimeLimit = GRB.INFINITY;
+        
+        try {
+            oldTimeLimit = model.get(GRB.DoubleParam.TimeLimit);
+            model.set(GRB.DoubleParam.TimeLimit, timeLimit);
+            model.computeIIS();
+            
+            // Cuts on single solutions don't hold for supersets
+            boolean valid = true;
+            for (GRBConstr c : model.getConstrs()) {
+                if (c.get(GRB.IntAttr.IISConstr) == 1) {
+                    String name = c.get(GRB.StringAttr.ConstrName);
+                    if (name.startsWith("Excluded_Solution") || name.startsWith("Supposedly_Infeasible")) {
+                        valid = false;
+                        break;
+                    }
+                }
+            }
+            
+            // Neither do cores which rely on clusters being out of solution
+            for (int i = 0; valid && i < y.length; i++) {
+                if (y[i].get(GRB.IntAttr.IISUB) == 1 && y[i].get(GRB.DoubleAttr.UB) == 0.0) {
+                    valid = false;
+                }
+            }
+            
+            if (valid) {
+                core = new ArrayList<>();
+                for (Cluster c : infeasibleSolution) {
+                    if (y[c.getId()].get(GRB.IntAttr.IISLB) == 1) {
+                        core.add(c);
+                    }
+                }
+                if (core.isEmpty()) {
+                    core = null;
+                }
+            }
+        } catch (GRBException ex) {
+            // No IIS within the time limit: nothing to learn
+            core = null;
+        } finally {
+            try {
+                model.set(GRB.DoubleParam.TimeLimit, oldTimeLimit);
+            } catch (GRBException ex) {
+                Logger.getLogger(Orienteering.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        
+        return core;
+    }
+    
     /**
      * A list containing all available heuristic IDs
      * NOTE: Update it every time you add an heuristic contraint!
@@ -1371,7 +1720,31 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
             throws GRBException, Exception{
         // Let's start by eventually removing leftover constraints
         toggleHeuristicConstraintsOff();
-
+        addHeuristicConstraints(toSet, model, x, y, z, heuristicConstraints);
+    }
+    
+    /**
+     * Adds the heuristic constraints specified in the list of constraints to a
+     * model, built on the given variables.
+     * 
+     * @param toSet a list of constraint IDs
+     * @param model the model to update
+     * @param x the arc variables of the model
+     * @param y the cluster variables of the model
+     * @param z the arrival time variables of the model
+     * @param added the list where the added constraints are stored, so that
+     * they can be removed later
+     * @throws gurobi.GRBException if problems arise while handling the model
+     * @throws Exception if there problems arise while handling the instance
+     */
+    private void addHeuristicConstraints(
+            List<Integer> toSet,
+            GRBModel model,
+            GRBVar[][][] x,
+            GRBVar[] y,
+            GRBVar[][] z,
+            List<GRBConstr> added
+    ) throws GRBException, Exception{
         // Some useful constants for constraint definition
         int firstNodeID = 0;
         int lastNodeID = instance.getNum_nodes() - 1;
@@ -1391,7 +1764,7 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
                         List<Integer> nodesInCluster = instance.getClusterNodeIDs(c);
                         for (int i = 0; i < nodesInCluster.size() - 1; i++) {
                             for (int v = 0; v < this.instance.getNum_vehicles(); v++) {
-                                heuristicConstraints.add(model.addConstr(x[v][nodesInCluster.get(i)][lastNodeID], GRB.EQUAL, 0.0, "hc13_c" + c + "_n" + nodesInCluster.get(i) + "_v" + v));
+                                added.add(model.addConstr(x[v][nodesInCluster.get(i)][lastNodeID], GRB.EQUAL, 0.0, "hc13_c" + c + "_n" + nodesInCluster.get(i) + "_v" + v));
                             }
                         }
                     }
@@ -1438,7 +1811,7 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
                                         // a streak, not even to go to the last node
                                         for (int i = 0; i <= lastNodeID; i++) {
                                             if (i != nextNode.getId()) {
-                                                heuristicConstraints.add(model.addConstr(x[v][currentNode.getId()][i], GRB.EQUAL, 0.0, "hc15_c" + c + "_arc(" + currentNode.getId() + "," + i + ")_v" + v));
+                                                added.add(model.addConstr(x[v][currentNode.getId()][i], GRB.EQUAL, 0.0, "hc15_c" + c + "_arc(" + currentNode.getId() + "," + i + ")_v" + v));
                                             }
                                         }
                                     }
@@ -1459,7 +1832,7 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
                     for (int c = 0; c < instance.getNum_clusters(); c++) {
                         lhs17.addTerm(1.0, y[c]);
                     }
-                    heuristicConstraints.add(model.addConstr(lhs17, GRB.GREATER_EQUAL, (double) instance.getNum_vehicles(), "hc17"));
+                    added.add(model.addConstr(lhs17, GRB.GREATER_EQUAL, (double) instance.getNum_vehicles(), "hc17"));
                     break;
                 
                 case 3:
@@ -1486,7 +1859,7 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
                             GRBLinExpr rhs18 = new GRBLinExpr();
                             rhs18.addTerm(scaleFactor, z[i][j]);
                             
-                            heuristicConstraints.add(model.addConstr(lhs18, GRB.LESS_EQUAL, rhs18, "hc18_"+i+"_"+j));
+                            added.add(model.addConstr(lhs18, GRB.LESS_EQUAL, rhs18, "hc18_"+i+"_"+j));
                         }
                     }
                     break;
@@ -1533,14 +1906,27 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
     }
     
     /**
-     * Returns the smallest list of feasible heuristic constraints for the current model.
+     * Returns the largest feasible combination of heuristic constraints for
+     * the current model.
+     * <br>The whole of <code>toTest</code> is tested first, and returned if
+     * it's feasible. Otherwise its subsets are visited once each, from the
+     * smallest to the largest: supersets of an infeasible subset are
+     * infeasible too, so they are discarded without testing them, and the
+     * search stops at the first size without feasible subsets. The first
+     * feasible subset of the largest size found, in order of enumeration, is
+     * returned. Subsets of the same size are
+     * tested concurrently, each on its own copy of the model (see
+     * <code>heuristicConstraintsSearchThreads</code>): the copies are built on
+     * the calling thread, from a <code>ModelSnapshot</code>, and every one of
+     * them is solved in its own Gurobi environment. The model itself is left
+     * without heuristic constraints.
      * 
      * @param toTest a list of heuristic constraint IDs to test
      * @param guineaPigSolution a FEASIBLE solution to test the model for feasibility with.
      * <b>IMPORTANT:</b> It <b>MUST</b> be feasible, otherwise the results of this method might be problematic!!!
      * @param maxMIPSNodes maximum number of MIPS nodes to solve in a
      * feasibility check
-     * @return the smallest list of feasible heuristic constraints for the current model. (Could be an empty list)
+     * @return the largest feasible combination of heuristic constraints for the current model. (Could be an empty list)
      * @throws Exception if anything goes wrong
      */
     public List<Integer> getLargestFeasibleCombinationOfHeuristicConstraints(
@@ -1548,30 +1934,370 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
             List<Cluster> guineaPigSolution,
             double maxMIPSNodes
     ) throws Exception {
-        List<Integer> newConstraints = new ArrayList<>();
-        
         // If we're testing an empty set of constraints, return an empty set
-        if(toTest != null && !toTest.isEmpty()){
-            // Check if the given constraints, all together, are feasible
-            boolean areFeasible = testConstraints(toTest, guineaPigSolution, maxMIPSNodes);
-
-            if(!areFeasible){
-                // if constraints toTest are not feasible, remove them
-                // one by one and keep the largest feasible set of them
-                for(Integer c : toTest){
-                    List<Integer> toTestNew = new ArrayList<>(toTest);
-                    toTestNew.remove(c);
-                    List<Integer> subset = getLargestFeasibleCombinationOfHeuristicConstraints(toTestNew, guineaPigSolution, maxMIPSNodes);
-                    if(subset.size() > newConstraints.size()){
-                        newConstraints = subset;
+        if (toTest == null || toTest.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        // Copies of the model must start without heuristic constraints
+        toggleHeuristicConstraintsOff();
+        
+        int n = toTest.size();
+        int threads = heuristicConstraintsSearchThreads > 0
+                ? heuristicConstraintsSearchThreads
+                : Runtime.getRuntime().availableProcessors();
+        int gurobiThreads = orienteeringProperties.getNumThreads() > 0
+                ? orienteeringProperties.getNumThreads()
+                : Runtime.getRuntime().availableProcessors();
+        
+        // Infeasible subsets found so far, by bitmask of their positions in toTest
+        List<Integer> infeasible = new ArrayList<>();
+        List<Integer> best = new ArrayList<>();
+        
+        // Sizes to visit: the whole set, then from the smallest subsets up
+        int[] sizes = new int[n];
+        sizes[0] = n;
+        for (int k = 1; k < n; k++) {
+            sizes[k] = k;
+        }
+        
+        ExecutorService executor = null;
+        ModelSnapshot snapshot = null;
+        try {
+            for (int size : sizes) {
+                // Collect the subsets of this size which could still be feasible
+                List<Integer> candidates = new ArrayList<>();
+                for (int mask = 1; mask < (1 << n); mask++) {
+                    if (Integer.bitCount(mask) != size) {
+                        continue;
+                    }
+                    boolean pruned = false;
+                    for (int bad : infeasible) {
+                        if ((mask & bad) == bad) {
+                            pruned = true;
+                            break;
+                        }
+                    }
+                    if (pruned) {
+                        profiler.count("heuristic constraints search/pruned");
+                    } else {
+                        candidates.add(mask);
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    break;
+                }
+                
+                // Test them, concurrently if there is more than one
+                List<Boolean> outcomes = new ArrayList<>();
+                if (candidates.size() == 1 || threads == 1) {
+                    for (int mask : candidates) {
+                        GRBModel copy = copyWithHeuristicConstraints(subsetOf(toTest, mask), gurobiThreads);
+                        try {
+                            outcomes.add(testConstraintsOnCopy(copy, guineaPigSolution, maxMIPSNodes));
+                        } finally {
+                            copy.dispose();
+                        }
+                    }
+                } else {
+                    int workers = Math.min(threads, candidates.size());
+                    int threadsPerCheck = Math.max(1, gurobiThreads / workers);
+                    if (executor == null) {
+                        executor = Executors.newFixedThreadPool(Math.min(threads, 1 << n));
+                    }
+                    if (snapshot == null) {
+                        snapshot = new ModelSnapshot(model);
+                    }
+                    
+                    // Copies are built here, one per worker at a time, and
+                    // only solved by the workers
+                    for (int from = 0; from < candidates.size(); from += workers) {
+                        List<ModelSnapshot.Copy> copies = new ArrayList<>();
+                        List<Future<Boolean>> futures = new ArrayList<>();
+                        try {
+                            for (int mask : candidates.subList(from, Math.min(from + workers, candidates.size()))) {
+                                ModelSnapshot.Copy copy = snapshot.copy();
+                                copies.add(copy);
+                                addHeuristicConstraintsToCopy(subsetOf(toTest, mask), copy.model, threadsPerCheck);
+                                futures.add(executor.submit(() -> testConstraintsOnCopy(copy.model, guineaPigSolution, maxMIPSNodes)));
+                            }
+                            for (Future<Boolean> f : futures) {
+                                outcomes.add(f.get());
+                            }
+                        } finally {
+                            // Copies can be disposed only once their solves are over
+                            for (Future<Boolean> f : futures) {
+                                try {
+                                    f.get();
+                                } catch (ExecutionException ex) {
+                                    // Already thrown by the loop above
+                                }
+                            }
+                            for (ModelSnapshot.Copy copy : copies) {
+                                copy.dispose();
+                            }
+                        }
                     }
                 }
+                
+                // Keep the first feasible subset, in order of enumeration
+                List<Integer> feasible = null;
+                for (int k = 0; k < candidates.size(); k++) {
+                    int mask = candidates.get(k);
+                    if (!outcomes.get(k)) {
+                        infeasible.add(mask);
+                    } else if (feasible == null) {
+                        feasible = subsetOf(toTest, mask);
+                    }
+                }
+                solverLog.trace("Heuristic constraints search: {} subsets of size {} tested, {} infeasible so far, feasible: {}\n",
+                        candidates.size(), size, infeasible.size(), feasible);
+                if (feasible != null) {
+                    best = feasible;
+                    if (size == n) {
+                        return best;
+                    }
+                } else if (size < n) {
+                    // Larger subsets contain an infeasible one of this size
+                    break;
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            if (snapshot != null) {
+                snapshot.delete();
+            }
+        }
+        
+        return best;
+    }
+    
+    /**
+     * Tests the heuristic constraints of a copy of the model, leaving the
+     * model untouched. Copies in an environment of their own can be tested
+     * concurrently.
+     * 
+     * @param copy a copy of the model with the heuristic constraints to test
+     * @param guineaPigSolution a solution to test the model for feasibility with
+     * @param maxMIPSNodes maximum number of MIPS nodes to solve in a
+     * feasibility check
+     * @return true if the constrained model is still feasible
+     * @throws gurobi.GRBException if there are problems while handling the model
+     */
+    private boolean testConstraintsOnCopy(
+            GRBModel copy,
+            List<Cluster> guineaPigSolution,
+            double maxMIPSNodes
+    ) throws GRBException {
+        long checkStart = profiler.start();
+        try {
+            boolean isFeasible = testSolutionOnCopy(copy, guineaPigSolution, maxMIPSNodes);
+            profiler.count("heuristic constraints search/tested");
+            return isFeasible;
+        } finally {
+            profiler.stop("heuristic constraints check", checkStart);
+        }
+    }
+    
+    /**
+     * Copies the model and adds the given heuristic constraints to the copy,
+     * built on the variables of the copy.
+     * 
+     * @param toSet a list of heuristic constraint IDs
+     * @param threads number of threads Gurobi can use on the copy
+     * @return the copy, to be disposed by the caller
+     * @throws gurobi.GRBException if there are problems while handling the model
+     * @throws Exception if other problems arise
+     */
+    private GRBModel copyWithHeuristicConstraints(List<Integer> toSet, int threads)
+            throws GRBException, Exception {
+        GRBModel copy = new GRBModel(model);
+        addHeuristicConstraintsToCopy(toSet, copy, threads);
+        return copy;
+    }
+    
+    /**
+     * Adds the given heuristic constraints to a copy of the model, built on
+     * the variables of the copy, which are looked up by name.
+     * 
+     * @param toSet a list of heuristic constraint IDs
+     * @param copy a copy of the model without heuristic constraints
+     * @param threads number of threads Gurobi can use on the copy
+     * @throws gurobi.GRBException if there are problems while handling the model
+     * @throws Exception if other problems arise
+     */
+    private void addHeuristicConstraintsToCopy(List<Integer> toSet, GRBModel copy, int threads)
+            throws GRBException, Exception {
+        // Variables of the copy, by name
+        int numNodes = instance.getNum_nodes();
+        GRBVar[][][] xCopy = new GRBVar[instance.getNum_vehicles()][numNodes][numNodes];
+        GRBVar[][] zCopy = new GRBVar[numNodes][numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            for (int j = 0; j < numNodes; j++) {
+                for (int v = 0; v < instance.getNum_vehicles(); v++) {
+                    xCopy[v][i][j] = copy.getVarByName("x_v" + v + "_arc(" + i + "," + j + ")");
+                }
+                zCopy[i][j] = copy.getVarByName("z_(" + i + "," + j + ")");
+            }
+        }
+        GRBVar[] yCopy = new GRBVar[instance.getNum_clusters()];
+        for (int c = 0; c < yCopy.length; c++) {
+            yCopy[c] = copy.getVarByName("y_c" + c);
+        }
+        
+        addHeuristicConstraints(toSet, copy, xCopy, yCopy, zCopy, new ArrayList<>());
+        copy.set(GRB.IntParam.Threads, threads);
+    }
+    
+    /**
+     * Tests a solution on a copy of the model, like
+     * <code>testSolution</code> but without logging or touching the
+     * statistics of the solver, so that copies can be used on other threads.
+     * 
+     * @param copy the copy of the model
+     * @param proposedSolution the solution to test
+     * @param maxMIPSNodes maximum number of MIPS nodes to solve in a
+     * feasibility check
+     * @return true if the solution is feasible on the copy
+     * @throws GRBException if there are problems while handling the model
+     */
+    protected boolean testSolutionOnCopy(GRBModel copy, List<Cluster> proposedSolution, double maxMIPSNodes)
+            throws GRBException {
+        copy.reset();
+        clearSolution(copy);
+        putInSolution(copy, proposedSolution);
+        copy.setCallback(new FeasibilityCallback(maxMIPSNodes, cancellation));
+        copy.optimize();
+        copy.setCallback(null);
+        return copy.get(GRB.IntAttr.SolCount) > 0;
+    }
+    
+    /**
+     * Chooses, among the combinations of heuristic constraints which keep the
+     * model feasible, the one which makes the solver fastest.
+     * <br>The candidates are the given combination, every combination with
+     * one constraint less and the empty one. Every candidate is measured on
+     * a copy of the model: first the average time of a feasibility check on
+     * the sample solutions, then the time of a local search from the first
+     * sample, bounded by <code>localSearchTimeLimit</code>. A candidate is
+     * feasible if it accepts every sample which is feasible without heuristic
+     * constraints; the feasible candidate with the smallest total time wins,
+     * ties going to the one with more constraints. Candidates are measured one
+     * at a time, so that their times can be compared.
+     * 
+     * @param largestFeasible the largest feasible combination of heuristic
+     * constraints, as found by
+     * <code>getLargestFeasibleCombinationOfHeuristicConstraints</code>
+     * @param sampleSolutions the solutions to measure the feasibility checks
+     * on. The first one <b>MUST</b> be feasible.
+     * @param maxMIPSNodes maximum number of MIPS nodes to solve in a
+     * feasibility check
+     * @param localSearchTimeLimit maximum number of seconds of the local
+     * search of every candidate
+     * @return the fastest feasible combination of heuristic constraints
+     * @throws GRBException if there are problems while handling the model
+     * @throws Exception if other problems arise
+     */
+    public List<Integer> getFastestFeasibleCombinationOfHeuristicConstraints(
+            List<Integer> largestFeasible,
+            List<List<Cluster>> sampleSolutions,
+            double maxMIPSNodes,
+            double localSearchTimeLimit
+    ) throws GRBException, Exception {
+        // Candidates, from the one with no constraints (the reference)
+        List<List<Integer>> candidates = new ArrayList<>();
+        candidates.add(new ArrayList<>());
+        for (Integer c : largestFeasible) {
+            List<Integer> candidate = new ArrayList<>(largestFeasible);
+            candidate.remove(c);
+            if (!candidates.contains(candidate)) {
+                candidates.add(candidate);
             }
-            // in case of feasible constraints, return them
-            else newConstraints = new ArrayList<>(toTest);
-        } // else, if they're empty, return an empty list
+        }
+        if (!candidates.contains(largestFeasible)) {
+            candidates.add(new ArrayList<>(largestFeasible));
+        }
+        
+        // Copies of the model must start without heuristic constraints
+        toggleHeuristicConstraintsOff();
+        int threads = orienteeringProperties.getNumThreads();
         
-        return newConstraints;
+        boolean[] reference = null;
+        List<Integer> fastest = new ArrayList<>();
+        double fastestTime = Double.POSITIVE_INFINITY;
+        solverLog.info("Heuristic constraints calibration on {} sample solutions:\n", sampleSolutions.size());
+        for (List<Integer> candidate : candidates) {
+            GRBModel copy = copyWithHeuristicConstraints(candidate, threads);
+            try {
+                // Feasibility checks
+                boolean[] accepted = new boolean[sampleSolutions.size()];
+                long checkStart = profiler.start();
+                for (int k = 0; k < accepted.length; k++) {
+                    accepted[k] = testSolutionOnCopy(copy, sampleSolutions.get(k), maxMIPSNodes);
+                }
+                double checkTime = profiler.stop("heuristic constraints calibration/feasibility checks", checkStart) / 1e9;
+                
+                boolean isFeasible = accepted.length > 0 && accepted[0];
+                if (reference == null) {
+                    reference = accepted;
+                }
+                for (int k = 0; k < accepted.length; k++) {
+                    isFeasible = isFeasible && (accepted[k] || !reference[k]);
+                }
+                
+                // Local search
+                double localSearchTime = 0.0;
+                double localSearchObj = -1.0;
+                if (isFeasible && localSearchTimeLimit > 0) {
+                    // Every cluster can be selected, starting from the first sample
+                    copy.reset();
+                    resetSolution(copy);
+                    for (Cluster c : sampleSolutions.get(0)) {
+                        copy.getVarByName("y_c" + c).set(GRB.DoubleAttr.Start, 1.0);
+                    }
+                    copy.set(GRB.DoubleParam.TimeLimit, localSearchTimeLimit);
+                    long localSearchStart = profiler.start();
+                    copy.optimize();
+                    localSearchTime = profiler.stop("heuristic constraints calibration/local search", localSearchStart) / 1e9;
+                    if (copy.get(GRB.IntAttr.SolCount) > 0) {
+                        localSearchObj = copy.get(GRB.DoubleAttr.ObjVal);
+                    }
+                }
+                
+                double totalTime = checkTime + localSearchTime;
+                solverLog.info("  {}: feasible={}, check avg {}s, local search {}s (obj {}), total {}s\n",
+                        candidate, isFeasible, checkTime / Math.max(1, accepted.length),
+                        localSearchTime, localSearchObj, totalTime);
+                if (isFeasible && (totalTime < fastestTime
+                        || (totalTime == fastestTime && candidate.size() > fastest.size()))) {
+                    fastest = candidate;
+                    fastestTime = totalTime;
+                }
+            } finally {
+                copy.dispose();
+            }
+        }
+        solverLog.info("Heuristic constraints calibration: {} is the fastest feasible combination ({}s)\n", fastest, fastestTime);
+        return fastest;
+    }
+    
+    /**
+     * Get the elements of a list selected by a bitmask of their positions.
+     * 
+     * @param list the list
+     * @param mask the bitmask
+     * @return the selected elements, in order
+     */
+    private static List<Integer> subsetOf(List<Integer> list, int mask) {
+        List<Integer> ret = new ArrayList<>();
+        for (int k = 0; k < list.size(); k++) {
+            if ((mask & (1 << k)) != 0) {
+                ret.add(list.get(k));
+            }
+        }
+        return ret;
     }
     
 //    /**
@@ -1826,6 +2552,6 @@ public class Orienteering extends SwingWorker<Boolean, OptimizationStatusMessage
         bestSolution.saveToTextFile(orienteeringProperties.getOutputFolderPath() + File.separator + instance.getName() + "_SOLUTION.txt");
         
         // Notify of the new solution
-        env.message("\nBest solution saved. \n"+bestSolution.toString());
+        solverLog.info("\nBest solution saved. \n{}", bestSolution);
     }
 }
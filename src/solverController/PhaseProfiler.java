@@ -0,0 +1,342 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects nanosecond timings and counters for the phases of a solver run
+ * (destroy, repair, feasibility checks, local search, model clones, logging),
+ * to find out where wall time goes.
+ * <br>Every phase has a latency histogram with logarithmic buckets (in the
+ * style of HDR histograms): values are kept with 7 significant bits, so
+ * percentiles are exact to within 1%, with a fixed memory footprint and no
+ * allocation while recording.
+ * <br>Phases and counters are identified by name; per-operator figures are
+ * obtained by adding the operator label to the name (e.g.
+ * <tt>destroy/Random Insertion</tt>).
+ * <br>Typical usage:
+ * <pre>
+ * long t = profiler.start();
+ * ...
+ * profiler.stop("phase name", t);
+ * </pre>
+ *
+ * @author Frash
+ */
+public class PhaseProfiler {
+
+    /**
+     * Latency histogram with logarithmic buckets, each split into
+     * <code>SUB_BUCKETS</code> linear sub-buckets.
+     */
+    public static class Histogram {
+
+        /**
+         * Significant bits kept for every value
+         */
+        private static final int PRECISION_BITS = 7;
+
+        /**
+         * Values below this are counted exactly
+         */
+        private static final int EXACT_LIMIT = 1 << PRECISION_BITS;
+
+        /**
+         * Number of sub-buckets for every power of two above EXACT_LIMIT
+         */
+        private static final int SUB_BUCKETS = EXACT_LIMIT >> 1;
+
+        /**
+         * Total number of buckets, enough for any positive long
+         */
+        private static final int NUM_BUCKETS = EXACT_LIMIT + (63 - PRECISION_BITS) * SUB_BUCKETS;
+
+        private final long[] buckets = new long[NUM_BUCKETS];
+        private long count = 0;
+        private long total = 0;
+        private long min = Long.MAX_VALUE;
+        private long max = 0;
+
+        /**
+         * Computes the bucket of a value.
+         */
+        private static int bucketOf(long value) {
+            if (value < EXACT_LIMIT) {
+                return (int) Math.max(value, 0);
+            }
+            int shift = (63 - Long.numberOfLeadingZeros(value)) - (PRECISION_BITS - 1);
+            int mantissa = (int) (value >>> shift);
+            return EXACT_LIMIT + (shift - 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+        }
+
+        /**
+         * Computes the value in the middle of a bucket.
+         */
+        private static long valueOf(int bucket) {
+            if (bucket < EXACT_LIMIT) {
+                return bucket;
+            }
+            int shift = (bucket - EXACT_LIMIT) / SUB_BUCKETS + 1;
+            long mantissa = (bucket - EXACT_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+            return (mantissa << shift) + (1L << (shift - 1));
+        }
+
+        /**
+         * Records a value.
+         *
+         * @param value the value to record (negative values count as 0)
+         */
+        public void record(long value) {
+            value = Math.max(value, 0);
+            buckets[bucketOf(value)]++;
+            count++;
+            total += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        /**
+         * Get the number of recorded values
+         *
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Get the sum of the recorded values
+         *
+         * @return the sum of the recorded values
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * Get the smallest recorded value
+         *
+         * @return the smallest recorded value, 0 if there are none
+         */
+        public long getMin() {
+            return count == 0 ? 0 : min;
+        }
+
+        /**
+         * Get the largest recorded value
+         *
+         * @return the largest recorded value
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Get the mean of the recorded values
+         *
+         * @return the mean, 0 if there are no values
+         */
+        public double getMean() {
+            return count == 0 ? 0.0 : (double) total / count;
+        }
+
+        /**
+         * Computes a percentile of the recorded values.
+         *
+         * @param percentile the percentile, in [0,100]
+         * @return the value at the given percentile (within 1%), 0 if there
+         * are no values
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0));
+            long seen = 0;
+            for (int b = 0; b < NUM_BUCKETS; b++) {
+                seen += buckets[b];
+                if (seen >= rank) {
+                    return Math.min(Math.max(valueOf(b), getMin()), max);
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Histograms of the phases, in order of first appearance
+     */
+    private final Map<String, Histogram> phases = new LinkedHashMap<>();
+
+    /**
+     * Counters, in order of first appearance
+     */
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+
+    /**
+     * Starts timing a phase.
+     *
+     * @return the start time, to be passed to <code>stop()</code>
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Stops timing a phase and records its duration.
+     *
+     * @param phase the name of the phase
+     * @param startNanos the start time returned by <code>start()</code>
+     * @return the duration of the phase, in nanoseconds
+     */
+    public long stop(String phase, long startNanos) {
+        long duration = System.nanoTime() - startNanos;
+        record(phase, duration);
+        return duration;
+    }
+
+    /**
+     * Records the duration of a phase.
+     *
+     * @param phase the name of the phase
+     * @param nanos the duration, in nanoseconds
+     */
+    public synchronized void record(String phase, long nanos) {
+        phases.computeIfAbsent(phase, k -> new Histogram()).record(nanos);
+    }
+
+    /**
+     * Increases a counter by one.
+     *
+     * @param counter the name of the counter
+     */
+    public void count(String counter) {
+        count(counter, 1);
+    }
+
+    /**
+     * Increases a counter.
+     *
+     * @param counter the name of the counter
+     * @param amount the amount to add
+     */
+    public synchronized void count(String counter, long amount) {
+        counters.merge(counter, amount, Long::sum);
+    }
+
+    /**
+     * Get the value of a counter
+     *
+     * @param counter the name of the counter
+     * @return the value of the counter, 0 if it was never increased
+     */
+    public synchronized long getCounter(String counter) {
+        return counters.getOrDefault(counter, 0L);
+    }
+
+    /**
+     * Get a copy of all the counters
+     *
+     * @return the counters, by name
+     */
+    public synchronized Map<String, Long> getCounters() {
+        return new LinkedHashMap<>(counters);
+    }
+
+    /**
+     * Get the names of all the timed phases
+     *
+     * @return the names of the phases, in order of first appearance
+     */
+    public synchronized String[] getPhaseNames() {
+        return phases.keySet().toArray(new String[phases.size()]);
+    }
+
+    /**
+     * Get the histogram of a phase. It's still updated by the solver, so
+     * synchronize on this profiler while reading it.
+     *
+     * @param phase the name of the phase
+     * @return the histogram of the phase, null if it was never timed
+     */
+    public synchronized Histogram getPhase(String phase) {
+        return phases.get(phase);
+    }
+
+    /**
+     * Forgets every timing and counter.
+     */
+    public synchronized void reset() {
+        phases.clear();
+        counters.clear();
+    }
+
+    /**
+     * Builds a summary table of phases (times in milliseconds) and counters.
+     *
+     * @return the summary table
+     */
+    public synchronized String summary() {
+        int width = "Phase".length();
+        for (String name : phases.keySet()) {
+            width = Math.max(width, name.length());
+        }
+        for (String name : counters.keySet()) {
+            width = Math.max(width, name.length());
+        }
+
+        StringBuilder sb = new StringBuilder();
+        String row = "%-" + width + "s %10s %12s %10s %10s %10s %10s %10s%n";
+        sb.append(String.format(row, "Phase", "Count", "Total ms", "Mean ms", "p50 ms", "p90 ms", "p99 ms", "Max ms"));
+        for (Map.Entry<String, Histogram> e : phases.entrySet()) {
+            Histogram h = e.getValue();
+            sb.append(String.format(row,
+                    e.getKey(),
+                    h.getCount(),
+                    ms(h.getTotal()),
+                    ms(h.getMean()),
+                    ms(h.getPercentile(50)),
+                    ms(h.getPercentile(90)),
+                    ms(h.getPercentile(99)),
+                    ms(h.getMax())));
+        }
+
+        if (!counters.isEmpty()) {
+            sb.append(String.format("%n%-" + width + "s %10s%n", "Counter", "Value"));
+            for (Map.Entry<String, Long> e : counters.entrySet()) {
+                sb.append(String.format("%-" + width + "s %10d%n", e.getKey(), e.getValue()));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the summary table to a text file.
+     *
+     * @param filePath path of the output file
+     * @param header a line to write before the table
+     * @throws IOException if the file can't be written
+     */
+    public void writeSummary(String filePath, String header) throws IOException {
+        try (PrintWriter pw = new PrintWriter(new FileWriter(filePath))) {
+            pw.println(header);
+            pw.println();
+            pw.print(summary());
+        }
+    }
+
+    /**
+     * Formats nanoseconds as milliseconds.
+     */
+    private static String ms(double nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import gurobi.GRB;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * A pool of the distinct vehicle routes found by the feasibility checks, to
+ * be recombined into new solutions (see
+ * <code>SetPartitioningRecombinator</code>).
+ * <br>Every time a check leaves a feasible solution in the model, the route of
+ * every vehicle is read from the arc variables and added to the pool, unless
+ * it's already there. When the pool is full, the oldest routes are dropped.
+ * <br>This class is thread safe: routes are added by the ALNS and read by the
+ * recombination thread.
+ *
+ * @author Frash
+ */
+public class RoutePool {
+
+    /**
+     * The route of a vehicle: the nodes it serves, in order, with their
+     * arrival times. Routes are equal if they have the same vehicle and nodes.
+     */
+    static final class Route {
+
+        final int vehicle;
+        final int[] nodes;
+        final double[] arrivals;
+
+        /**
+         * Time at which the vehicle reaches the last deposit
+         */
+        final double duration;
+
+        /**
+         * IDs of the clusters the route serves nodes of, without repetitions
+         */
+        final int[] clusters;
+
+        Route(int vehicle, int[] nodes, double[] arrivals, double duration, int[] clusters) {
+            this.vehicle = vehicle;
+            this.nodes = nodes;
+            this.arrivals = arrivals;
+            this.duration = duration;
+            this.clusters = clusters;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Route)) {
+                return false;
+            }
+            Route r = (Route) o;
+            return vehicle == r.vehicle && Arrays.equals(nodes, r.nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(nodes) + vehicle;
+        }
+
+        @Override
+        public String toString() {
+            return "v" + vehicle + ": " + Arrays.toString(nodes) + " (" + duration + ")";
+        }
+    }
+
+    /**
+     * The constraints of the instance
+     */
+    private final RoutingConstraints rc;
+
+    /**
+     * Maximum number of routes in the pool
+     */
+    private final int maxSize;
+
+    /**
+     * The routes, from the oldest
+     */
+    private final LinkedHashSet<Route> routes = new LinkedHashSet<>();
+
+    // Statistics
+    private long offered = 0;
+    private long dropped = 0;
+
+    /**
+     * Constructor for class RoutePool.
+     *
+     * @param rc the constraints of the instance
+     * @param maxSize maximum number of routes in the pool
+     */
+    RoutePool(RoutingConstraints rc, int maxSize) {
+        this.rc = rc;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Adds the routes of the solution held by a model to the pool.
+     *
+     * @param model a model holding a feasible solution
+     * @param x the arc variables of the model, by vehicle and arc
+     * @return the number of new routes
+     * @throws GRBException if the solution can't be read from the model
+     */
+    int addRoutesOf(GRBModel model, GRBVar[][][] x) throws GRBException {
+        List<Route> found = new ArrayList<>();
+        for (int v = 0; v < x.length; v++) {
+            Route r = readRoute(v, model.get(GRB.DoubleAttr.X, x[v]));
+            if (r != null) {
+                found.add(r);
+            }
+        }
+
+        int added = 0;
+        synchronized (this) {
+            for (Route r : found) {
+                offered++;
+                if (routes.add(r)) {
+                    added++;
+                }
+            }
+            Iterator<Route> oldest = routes.iterator();
+            while (routes.size() > maxSize) {
+                oldest.next();
+                oldest.remove();
+                dropped++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Follows the arcs of a vehicle from the first deposit to the last one.
+     *
+     * @param v the vehicle
+     * @param arcs the values of the arc variables of the vehicle
+     * @return the route, or null if the vehicle serves no node
+     */
+    private Route readRoute(int v, double[][] arcs) {
+        List<Integer> path = new ArrayList<>();
+        int current = 0;
+        while (current != rc.lastNode && path.size() < rc.numNodes) {
+            int next = -1;
+            for (int j = 0; j < rc.numNodes && next < 0; j++) {
+                if (arcs[current][j] > 0.5) {
+                    next = j;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            if (next != rc.lastNode) {
+                path.add(next);
+            }
+            current = next;
+        }
+        if (path.isEmpty()) {
+            return null;
+        }
+
+        // No waiting: arrival times follow from the route
+        int[] nodes = new int[path.size()];
+        double[] arrivals = new double[nodes.length];
+        LinkedHashSet<Integer> clusters = new LinkedHashSet<>();
+        int previous = 0;
+        double time = 0.0;
+        for (int k = 0; k < nodes.length; k++) {
+            nodes[k] = path.get(k);
+            time += rc.duration[previous] + rc.distance[previous][nodes[k]];
+            arrivals[k] = time;
+            clusters.add(rc.clusterOf[nodes[k]]);
+            previous = nodes[k];
+        }
+        double duration = time + rc.duration[previous] + rc.distance[previous][rc.lastNode];
+        return new Route(v, nodes, arrivals, duration,
+                clusters.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Get a copy of the routes in the pool
+     *
+     * @return the routes, from the oldest
+     */
+    synchronized List<Route> snapshot() {
+        return new ArrayList<>(routes);
+    }
+
+    /**
+     * Get the number of routes in the pool
+     *
+     * @return the number of routes
+     */
+    public synchronized int size() {
+        return routes.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Route pool: " + routes.size() + " routes (" + offered + " offered, " + dropped + " dropped)";
+    }
+}
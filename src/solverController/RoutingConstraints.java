@@ -0,0 +1,192 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import solverModel.InstanceCTOPWSS;
+
+/**
+ * The constraints of the Orienteering model on the routes of the vehicles,
+ * as plain arrays for the pure-Java feasibility checkers: every vehicle
+ * leaves the first deposit and reaches the last one within <tt>tmax</tt>,
+ * a node is served by a vehicle with the right skill, a vehicle moving inside
+ * a cluster can only go from a node to the next one, a node can be reached
+ * only after the service of the nodes preceding it is over, and vehicles
+ * never wait.
+ *
+ * @author Frash
+ */
+class RoutingConstraints {
+
+    /**
+     * Tolerance on time comparisons
+     */
+    static final double EPSILON = 1e-6;
+
+    final int numNodes;
+    final int lastNode;
+    final int numVehicles;
+    final double tmax;
+    final double[][] distance;
+
+    /**
+     * Service duration of every node (0 for the deposits)
+     */
+    final double[] duration;
+
+    /**
+     * Whether a vehicle has the skill required by a node, by vehicle and node
+     */
+    final boolean[][] canServe;
+
+    /**
+     * Highest ID of a vehicle which can serve a node (-1 if none can)
+     */
+    final int[] lastCapableVehicle;
+
+    /**
+     * Cluster of every node (-1 for the deposits)
+     */
+    final int[] clusterOf;
+
+    /**
+     * Next node in the cluster of every node (-1 for the last one)
+     */
+    final int[] nextInCluster;
+
+    /**
+     * Nodes which must be served before every node
+     */
+    final int[][] predecessors;
+
+    /**
+     * Nodes which must be served after every node
+     */
+    final int[][] successors;
+
+    /**
+     * Nodes of every cluster, in order
+     */
+    final int[][] clusterNodes;
+
+    /**
+     * Constructor for class RoutingConstraints.
+     *
+     * @param instance the instance
+     * @throws Exception if the instance data is inconsistent
+     */
+    RoutingConstraints(InstanceCTOPWSS instance) throws Exception {
+        this.numNodes = instance.getNum_nodes();
+        this.lastNode = numNodes - 1;
+        this.numVehicles = instance.getNum_vehicles();
+        this.tmax = instance.getTmax();
+
+        this.distance = new double[numNodes][numNodes];
+        this.duration = new double[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            for (int j = 0; j < numNodes; j++) {
+                distance[i][j] = instance.getDistance(i, j);
+            }
+            duration[i] = (i == 0 || i == lastNode) ? 0.0 : instance.getServiceDuration(i);
+        }
+
+        this.canServe = new boolean[numVehicles][numNodes];
+        this.lastCapableVehicle = new int[numNodes];
+        Arrays.fill(lastCapableVehicle, -1);
+        for (int v = 0; v < numVehicles; v++) {
+            for (int i = 1; i < lastNode; i++) {
+                canServe[v][i] = instance.hasSkill(v, instance.getNodeService(i)) == 1;
+                if (canServe[v][i]) {
+                    lastCapableVehicle[i] = v;
+                }
+            }
+        }
+
+        this.clusterOf = new int[numNodes];
+        this.nextInCluster = new int[numNodes];
+        Arrays.fill(clusterOf, -1);
+        Arrays.fill(nextInCluster, -1);
+        this.clusterNodes = new int[instance.getNum_clusters()][];
+        List<List<Integer>> pred = new ArrayList<>();
+        List<List<Integer>> succ = new ArrayList<>();
+        for (int i = 0; i < numNodes; i++) {
+            pred.add(new ArrayList<>());
+            succ.add(new ArrayList<>());
+        }
+        for (int c = 0; c < clusterNodes.length; c++) {
+            List<Integer> ids = instance.getClusterNodeIDs(c);
+            clusterNodes[c] = new int[ids.size()];
+            for (int k = 0; k < ids.size(); k++) {
+                int i = ids.get(k);
+                clusterNodes[c][k] = i;
+                clusterOf[i] = c;
+                if (k + 1 < ids.size()) {
+                    nextInCluster[i] = ids.get(k + 1);
+                }
+                for (int j : ids) {
+                    if (i != j && instance.getPrecedence(i, j) == 1) {
+                        pred.get(j).add(i);
+                        succ.get(i).add(j);
+                    }
+                }
+            }
+        }
+        this.predecessors = new int[numNodes][];
+        this.successors = new int[numNodes][];
+        for (int i = 0; i < numNodes; i++) {
+            predecessors[i] = pred.get(i).stream().mapToInt(Integer::intValue).toArray();
+            successors[i] = succ.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Inside a cluster, a vehicle can only move from a node to the next one.
+     *
+     * @param from the node the vehicle leaves (0 for the first deposit)
+     * @param to the node the vehicle reaches
+     * @return true if the arc can be traversed
+     */
+    boolean canMove(int from, int to) {
+        return from == 0 || clusterOf[from] != clusterOf[to] || nextInCluster[from] == to;
+    }
+
+    /**
+     * A vehicle reaching a node must still be able to reach the last deposit
+     * within <tt>tmax</tt>.
+     *
+     * @param node the node
+     * @param arrival the arrival time at the node
+     * @return true if the last deposit can be reached in time
+     */
+    boolean fitsInTime(int node, double arrival) {
+        return arrival + duration[node] + distance[node][lastNode] <= tmax + EPSILON;
+    }
+
+    /**
+     * Checks the precedences between a node and the nodes of its cluster
+     * which were already reached.
+     *
+     * @param node the node
+     * @param time the arrival time at the node
+     * @param arrival the arrival time at every node, NaN if not reached
+     * @return true if no precedence is violated
+     */
+    boolean respectsPrecedence(int node, double time, double[] arrival) {
+        for (int p : predecessors[node]) {
+            if (!Double.isNaN(arrival[p]) && arrival[p] + duration[p] > time + EPSILON) {
+                return false;
+            }
+        }
+        for (int s : successors[node]) {
+            if (!Double.isNaN(arrival[s]) && time + duration[node] > arrival[s] + EPSILON) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
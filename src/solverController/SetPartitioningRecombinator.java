@@ -0,0 +1,222 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBLinExpr;
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import solverModel.Cluster;
+import solverModel.InstanceCTOPWSS;
+
+/**
+ * Recombines the routes of a <code>RoutePool</code> into a new solution, by
+ * solving a set-partitioning MIP over them: at most one route per vehicle is
+ * selected, every node is served by at most one selected route, a cluster
+ * earns its profit if all of its nodes are served, and a route can be
+ * selected only if all the clusters it touches are served.
+ * <br>Vehicles never wait, so the arrival times of a route don't depend on
+ * the other routes: two routes of different vehicles whose arrival times
+ * violate a precedence between their nodes can't be selected together. The
+ * selected routes are therefore a feasible solution of the Orienteering
+ * model.
+ * <br>The MIP is solved in its own Gurobi environment, so recombinations can
+ * run on a thread of their own while the solver goes on.
+ *
+ * @author Frash
+ */
+public class SetPartitioningRecombinator {
+
+    /**
+     * A recombined solution
+     */
+    static final class Result {
+
+        final List<Cluster> clusters;
+        final double objective;
+        final int poolSize;
+
+        Result(List<Cluster> clusters, double objective, int poolSize) {
+            this.clusters = clusters;
+            this.objective = objective;
+            this.poolSize = poolSize;
+        }
+    }
+
+    private final InstanceCTOPWSS instance;
+    private final RoutingConstraints rc;
+    private final GRBEnv env;
+
+    /**
+     * Constructor for class SetPartitioningRecombinator.
+     *
+     * @param instance the instance
+     * @param rc the constraints of the instance
+     * @param timeLimit maximum number of seconds of a recombination
+     * @throws GRBException if the Gurobi environment can't be created
+     */
+    SetPartitioningRecombinator(InstanceCTOPWSS instance, RoutingConstraints rc, double timeLimit) throws GRBException {
+        this.instance = instance;
+        this.rc = rc;
+        this.env = new GRBEnv();
+        env.set(GRB.IntParam.OutputFlag, 0);
+        env.set(GRB.IntParam.Threads, 1);
+        env.set(GRB.DoubleParam.TimeLimit, timeLimit);
+    }
+
+    /**
+     * Finds the most profitable combination of the given routes.
+     *
+     * @param routes the routes to recombine
+     * @return the best combination found within the time limit, null if none
+     * @throws GRBException if there are problems while solving the MIP
+     */
+    Result recombine(List<RoutePool.Route> routes) throws GRBException {
+        GRBModel sp = new GRBModel(env);
+        try {
+            sp.set(GRB.IntAttr.ModelSense, GRB.MAXIMIZE);
+
+            GRBVar[] r = new GRBVar[routes.size()];
+            for (int k = 0; k < r.length; k++) {
+                r[k] = sp.addVar(0.0, 1.0, 0.0, GRB.BINARY, "r" + k);
+            }
+            GRBVar[] y = new GRBVar[instance.getNum_clusters()];
+            for (int c = 0; c < y.length; c++) {
+                y[c] = sp.addVar(0.0, 1.0, instance.getProfit(c), GRB.BINARY, "y_c" + c);
+            }
+            sp.update();
+
+            // Routes serving every node and selectable routes of every vehicle
+            List<List<Integer>> servingNode = new ArrayList<>();
+            for (int i = 0; i < rc.numNodes; i++) {
+                servingNode.add(new ArrayList<>());
+            }
+            GRBLinExpr[] perVehicle = new GRBLinExpr[rc.numVehicles];
+            for (int v = 0; v < rc.numVehicles; v++) {
+                perVehicle[v] = new GRBLinExpr();
+            }
+            for (int k = 0; k < r.length; k++) {
+                RoutePool.Route route = routes.get(k);
+                perVehicle[route.vehicle].addTerm(1.0, r[k]);
+                for (int i : route.nodes) {
+                    servingNode.get(i).add(k);
+                }
+                // A route serves only selected clusters
+                for (int c : route.clusters) {
+                    sp.addConstr(r[k], GRB.LESS_EQUAL, y[c], "touch_r" + k + "_c" + c);
+                }
+            }
+            for (int v = 0; v < rc.numVehicles; v++) {
+                sp.addConstr(perVehicle[v], GRB.LESS_EQUAL, 1.0, "vehicle" + v);
+            }
+
+            // Every node is served at most once, and by some route if its cluster is selected
+            for (int i = 0; i < rc.numNodes; i++) {
+                if (rc.clusterOf[i] < 0) {
+                    continue;
+                }
+                GRBLinExpr served = new GRBLinExpr();
+                for (int k : servingNode.get(i)) {
+                    served.addTerm(1.0, r[k]);
+                }
+                sp.addConstr(served, GRB.LESS_EQUAL, 1.0, "once_n" + i);
+                served.addTerm(-1.0, y[rc.clusterOf[i]]);
+                sp.addConstr(served, GRB.GREATER_EQUAL, 0.0, "cover_n" + i);
+            }
+
+            // Routes of different vehicles with incompatible arrival times,
+            // looked for among the routes touching the same cluster
+            List<List<Integer>> touchingCluster = new ArrayList<>();
+            for (int c = 0; c < y.length; c++) {
+                touchingCluster.add(new ArrayList<>());
+            }
+            for (int k = 0; k < r.length; k++) {
+                for (int c : routes.get(k).clusters) {
+                    touchingCluster.get(c).add(k);
+                }
+            }
+            Set<Long> pairs = new HashSet<>();
+            for (List<Integer> touching : touchingCluster) {
+                for (int p = 0; p < touching.size(); p++) {
+                    for (int q = p + 1; q < touching.size(); q++) {
+                        int a = touching.get(p);
+                        int b = touching.get(q);
+                        if (conflict(routes.get(a), routes.get(b)) && pairs.add(((long) a << 32) | b)) {
+                            GRBLinExpr pair = new GRBLinExpr();
+                            pair.addTerm(1.0, r[a]);
+                            pair.addTerm(1.0, r[b]);
+                            sp.addConstr(pair, GRB.LESS_EQUAL, 1.0, "conflict_r" + a + "_r" + b);
+                        }
+                    }
+                }
+            }
+
+            sp.optimize();
+            if (sp.get(GRB.IntAttr.SolCount) == 0) {
+                return null;
+            }
+            List<Cluster> clusters = new ArrayList<>();
+            double[] values = sp.get(GRB.DoubleAttr.X, y);
+            for (int c = 0; c < values.length; c++) {
+                if (values[c] > 0.5) {
+                    clusters.add(instance.getCluster(c));
+                }
+            }
+            return new Result(clusters, sp.get(GRB.DoubleAttr.ObjVal), routes.size());
+        } finally {
+            sp.dispose();
+        }
+    }
+
+    /**
+     * Tells whether two routes can't be selected together: they belong to
+     * different vehicles and serve nodes with a precedence which their arrival
+     * times violate. Routes of the same vehicle are excluded anyway.
+     */
+    private boolean conflict(RoutePool.Route a, RoutePool.Route b) {
+        if (a.vehicle == b.vehicle) {
+            return false;
+        }
+        for (int p = 0; p < a.nodes.length; p++) {
+            for (int q = 0; q < b.nodes.length; q++) {
+                if (!respectsPrecedence(a.nodes[p], a.arrivals[p], b.nodes[q], b.arrivals[q])
+                        || !respectsPrecedence(b.nodes[q], b.arrivals[q], a.nodes[p], a.arrivals[p])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks the precedence of node <code>i</code>, reached at time
+     * <code>ai</code>, over node <code>j</code>, reached at time
+     * <code>aj</code>.
+     */
+    private boolean respectsPrecedence(int i, double ai, int j, double aj) {
+        for (int s : rc.successors[i]) {
+            if (s == j) {
+                return ai + rc.duration[i] <= aj + RoutingConstraints.EPSILON;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Frees the Gurobi environment.
+     *
+     * @throws GRBException if the environment can't be disposed
+     */
+    void dispose() throws GRBException {
+        env.dispose();
+    }
+}
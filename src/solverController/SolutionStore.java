@@ -0,0 +1,201 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A local store of the best solutions found for every instance, kept across
+ * runs so that new runs on the same instance can start from the best-known
+ * solution instead of a constructive one.
+ * <br>Instances are identified by the hash of their file (see
+ * <code>HashUtilities</code>), so renamed copies share their solutions and
+ * edited instances don't. Every instance has a JSON file in the store folder,
+ * named after its hash, with its best solutions in decreasing order of
+ * objective value: the clusters they serve and the paths of the vehicles.
+ * <br>Files are updated with a read-modify-write under a file lock, and
+ * replaced atomically, so runs in different threads or processes can share
+ * the same store.
+ *
+ * @author Frash
+ */
+public class SolutionStore {
+
+    /**
+     * A stored solution
+     */
+    static final class Entry {
+
+        /**
+         * Name of the instance, for humans reading the store
+         */
+        String instance;
+        double objective;
+
+        /**
+         * IDs of the clusters in solution, in increasing order
+         */
+        int[] clusters;
+
+        /**
+         * Path of every vehicle, from the first deposit to the last one
+         */
+        int[][] routes;
+
+        /**
+         * When the solution was stored
+         */
+        String found;
+
+        Entry(String instance, double objective, int[] clusters, int[][] routes) {
+            this.instance = instance;
+            this.objective = objective;
+            this.clusters = clusters.clone();
+            Arrays.sort(this.clusters);
+            this.routes = routes;
+            this.found = LocalDateTime.now().toString();
+        }
+    }
+
+    /**
+     * Content of the file of an instance
+     */
+    private static final class Record {
+
+        String instanceHash;
+        List<Entry> entries = new ArrayList<>();
+    }
+
+    /**
+     * Extension of the files of the store
+     */
+    private static final String EXTENSION = ".json";
+
+    /**
+     * Serializes updates from stores of the same JVM, since file locks are
+     * held on behalf of the whole process
+     */
+    private static final Object LOCK = new Object();
+
+    /**
+     * The folder of the store
+     */
+    private final String folderPath;
+
+    /**
+     * Maximum number of solutions kept for every instance
+     */
+    private final int capacity;
+
+    /**
+     * Constructor for class SolutionStore.
+     *
+     * @param folderPath the folder of the store, created when the first
+     * solution is stored
+     * @param capacity maximum number of solutions kept for every instance
+     */
+    public SolutionStore(String folderPath, int capacity) {
+        this.folderPath = folderPath;
+        this.capacity = capacity;
+    }
+
+    private String pathOf(String instanceHash) {
+        return folderPath + File.separator + instanceHash + EXTENSION;
+    }
+
+    /**
+     * Reads the solutions stored for an instance.
+     *
+     * @param instanceHash the hash of the instance file
+     * @return the solutions, best first (empty if there's none)
+     * @throws IOException if the file of the instance can't be read
+     */
+    List<Entry> read(String instanceHash) throws IOException {
+        Path path = Paths.get(pathOf(instanceHash));
+        if (!Files.exists(path)) {
+            return Collections.emptyList();
+        }
+        String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        Record record;
+        try {
+            record = new Gson().fromJson(content, Record.class);
+        } catch (JsonSyntaxException e) {
+            throw new IOException("Broken solution store file: " + path, e);
+        }
+        if (record == null || record.entries == null) {
+            return Collections.emptyList();
+        }
+        return record.entries;
+    }
+
+    /**
+     * Offers a solution of an instance to the store. It's kept if it's among
+     * the best ones; a solution with the same clusters as a stored one
+     * replaces it only if it's better.
+     *
+     * @param instanceHash the hash of the instance file
+     * @param entry the solution
+     * @return true if the solution was kept
+     * @throws IOException if the file of the instance can't be updated
+     */
+    boolean offer(String instanceHash, Entry entry) throws IOException {
+        synchronized (LOCK) {
+            Files.createDirectories(Paths.get(folderPath));
+            Path lockPath = Paths.get(pathOf(instanceHash) + ".lock");
+            try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    List<Entry> entries = new ArrayList<>(read(instanceHash));
+                    for (int i = 0; i < entries.size(); i++) {
+                        if (Arrays.equals(entries.get(i).clusters, entry.clusters)) {
+                            if (entries.get(i).objective >= entry.objective) {
+                                return false;
+                            }
+                            entries.remove(i);
+                            break;
+                        }
+                    }
+                    entries.add(entry);
+                    entries.sort((a, b) -> Double.compare(b.objective, a.objective));
+                    if (entries.size() > capacity) {
+                        entries = new ArrayList<>(entries.subList(0, capacity));
+                    }
+                    if (!entries.contains(entry)) {
+                        return false;
+                    }
+
+                    Record record = new Record();
+                    record.instanceHash = instanceHash;
+                    record.entries = entries;
+                    ALNSCheckpoint.writeJSONAtomically(record, pathOf(instanceHash));
+                    return true;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Solution store in " + folderPath + " (" + capacity + " solutions per instance)";
+    }
+}
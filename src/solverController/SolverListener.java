@@ -0,0 +1,24 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+/**
+ * Receives the progress of a solver run: the solver calls it from its own
+ * thread at every step, so implementations must be quick and thread safe.
+ * <br>The <code>Controller</code> is the listener which brings progress to
+ * the Swing GUI; headless runs of <code>AlnsEngine</code> can use any other.
+ *
+ * @author Frash
+ */
+public interface SolverListener {
+
+    /**
+     * Called when the solver has news on its progress.
+     *
+     * @param message the status of the solver
+     */
+    public void statusChanged(OptimizationStatusMessage message);
+}
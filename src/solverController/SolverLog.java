@@ -0,0 +1,256 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * A small logging facade for the solvers, with levels and lazy messages.
+ * <br>Messages below the chosen level cost a single comparison: they are
+ * never built. They can be given either as a <code>Supplier</code> or as a
+ * pattern with <tt>{}</tt> placeholders (like SLF4J), whose arguments are
+ * turned into strings only if the message is actually written.
+ * <br>Messages can be routed to:
+ * <ul>
+ * <li>the Gurobi log, through <code>GRBEnv.message()</code> (the default,
+ * which is also what the GUI shows)</li>
+ * <li><tt>java.util.logging</tt>, under the <tt>solverController</tt> logger,
+ * with TRACE messages at level FINEST, so that any logging backend can pick
+ * them up</li>
+ * <li>nowhere</li>
+ * </ul>
+ *
+ * @author Frash
+ */
+public class SolverLog {
+
+    /**
+     * Log levels, from the least to the most verbose
+     */
+    public static enum Level {
+        /**
+         * Nothing is written
+         */
+        OFF,
+        /**
+         * Run and segment level messages
+         */
+        INFO,
+        /**
+         * Also iteration level messages, heuristics and feasibility checks
+         */
+        TRACE;
+
+        /**
+         * Parses a level name, ignoring case.
+         *
+         * @param name the name of the level
+         * @return the level with the given name, INFO if the name is unknown
+         */
+        public static Level parse(String name) {
+            for (Level l : values()) {
+                if (l.name().equalsIgnoreCase(name)) {
+                    return l;
+                }
+            }
+            return INFO;
+        }
+    }
+
+    /**
+     * Where messages are written
+     */
+    public static enum Target {
+        /**
+         * The Gurobi log
+         */
+        GUROBI,
+        /**
+         * java.util.logging
+         */
+        JUL,
+        /**
+         * Nowhere
+         */
+        NONE;
+
+        /**
+         * Parses a target name, ignoring case.
+         *
+         * @param name the name of the target
+         * @return the target with the given name, GUROBI if the name is
+         * unknown
+         */
+        public static Target parse(String name) {
+            for (Target t : values()) {
+                if (t.name().equalsIgnoreCase(name)) {
+                    return t;
+                }
+            }
+            return GUROBI;
+        }
+    }
+
+    /**
+     * The logger used for the JUL target
+     */
+    private static final Logger JUL_LOGGER = Logger.getLogger(SolverLog.class.getPackage().getName());
+
+    /**
+     * Gurobi environment, for the GUROBI target
+     */
+    private final GRBEnv env;
+
+    /**
+     * Where messages are written
+     */
+    private final Target target;
+
+    /**
+     * The most verbose level which is written
+     */
+    private final Level level;
+
+    /**
+     * Constructor for a log which writes every message to the Gurobi log.
+     *
+     * @param env the Gurobi environment
+     */
+    public SolverLog(GRBEnv env) {
+        this(env, Target.GUROBI, Level.TRACE);
+    }
+
+    /**
+     * Constructor for class SolverLog.
+     *
+     * @param env the Gurobi environment (used by the GUROBI target)
+     * @param target where messages are written
+     * @param level the most verbose level which is written
+     */
+    public SolverLog(GRBEnv env, Target target, Level level) {
+        this.env = env;
+        this.target = target;
+        this.level = (target == Target.NONE) ? Level.OFF : level;
+    }
+
+    /**
+     * Tells whether messages of the given level are written.
+     *
+     * @param l the level in question
+     * @return true if messages of that level are written
+     */
+    public boolean isEnabled(Level l) {
+        return l != Level.OFF && l.compareTo(level) <= 0;
+    }
+
+    /**
+     * Tells whether TRACE messages are written.
+     *
+     * @return true if TRACE messages are written
+     */
+    public boolean isTraceEnabled() {
+        return level == Level.TRACE;
+    }
+
+    /**
+     * Writes an INFO message.
+     *
+     * @param pattern the message, with <tt>{}</tt> placeholders for the
+     * arguments
+     * @param args the arguments of the message
+     */
+    public void info(String pattern, Object... args) {
+        if (isEnabled(Level.INFO)) {
+            write(Level.INFO, format(pattern, args));
+        }
+    }
+
+    /**
+     * Writes an INFO message, built only if needed.
+     *
+     * @param message supplier of the message
+     */
+    public void info(Supplier<String> message) {
+        if (isEnabled(Level.INFO)) {
+            write(Level.INFO, message.get());
+        }
+    }
+
+    /**
+     * Writes a TRACE message.
+     *
+     * @param pattern the message, with <tt>{}</tt> placeholders for the
+     * arguments
+     * @param args the arguments of the message
+     */
+    public void trace(String pattern, Object... args) {
+        if (isTraceEnabled()) {
+            write(Level.TRACE, format(pattern, args));
+        }
+    }
+
+    /**
+     * Writes a TRACE message, built only if needed.
+     *
+     * @param message supplier of the message
+     */
+    public void trace(Supplier<String> message) {
+        if (isTraceEnabled()) {
+            write(Level.TRACE, message.get());
+        }
+    }
+
+    /**
+     * Writes a message to the target.
+     */
+    private void write(Level l, String message) {
+        switch (target) {
+            case GUROBI:
+                try {
+                    env.message(message);
+                } catch (GRBException ex) {
+                    JUL_LOGGER.log(java.util.logging.Level.SEVERE, null, ex);
+                }
+                break;
+            case JUL:
+                String trimmed = message.trim();
+                if (!trimmed.isEmpty()) {
+                    JUL_LOGGER.log(l == Level.TRACE ? java.util.logging.Level.FINEST : java.util.logging.Level.INFO, trimmed);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Replaces every <tt>{}</tt> in the pattern with the next argument.
+     * Exceeding placeholders are left as they are, exceeding arguments are
+     * ignored.
+     *
+     * @param pattern the message pattern
+     * @param args the arguments
+     * @return the formatted message
+     */
+    static String format(String pattern, Object... args) {
+        if (args == null || args.length == 0) {
+            return pattern;
+        }
+        StringBuilder sb = new StringBuilder(pattern.length() + 16 * args.length);
+        int from = 0;
+        int arg = 0;
+        int at;
+        while (arg < args.length && (at = pattern.indexOf("{}", from)) >= 0) {
+            sb.append(pattern, from, at).append(String.valueOf(args[arg++]));
+            from = at + 2;
+        }
+        sb.append(pattern, from, pattern.length());
+        return sb.toString();
+    }
+}
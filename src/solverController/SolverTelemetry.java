@@ -0,0 +1,354 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Live state of an ALNS run, for consumers other than the GUI: it's exposed
+ * as a JMX MBean and, optionally, through a localhost-only HTTP endpoint in
+ * Prometheus text format (<tt>http://127.0.0.1:port/metrics</tt>).
+ * <br>The solver only pays for a few field writes per iteration: it publishes
+ * the last ALNS log record and the heuristic weights, while feasibility check
+ * figures are read from the <code>PhaseProfiler</code> of the run, and rates
+ * are computed, only when a consumer asks for them.
+ *
+ * @author Frash
+ */
+public class SolverTelemetry implements SolverTelemetryMBean {
+
+    /**
+     * Content type of the Prometheus text format
+     */
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Number of runs started in this JVM, so that every run gets its own ID
+     */
+    private static final AtomicLong RUNS = new AtomicLong();
+
+    private final String instanceName;
+
+    /**
+     * ID of the run, unique in this JVM: runs of the same instance (parallel
+     * or repeated) get their own MBean
+     */
+    private final long runId;
+    private final PhaseProfiler profiler;
+    private final String[] destroyLabels;
+    private final String[] repairLabels;
+    private final long startNanos;
+
+    // Published by the solver thread
+    private volatile ALNSIterationRecord lastRecord = null;
+    private volatile long iterations = 0;
+    private volatile double[] destroyWeights;
+    private volatile double[] repairWeights;
+
+    private ObjectName objectName = null;
+    private HttpServer httpServer = null;
+
+    /**
+     * Constructor for class SolverTelemetry.
+     *
+     * @param instanceName name of the instance being solved
+     * @param profiler the profiler of the run, source of the feasibility check
+     * figures
+     * @param destroyMethods the destroy heuristics
+     * @param repairMethods the repair heuristics
+     */
+    public SolverTelemetry(
+            String instanceName,
+            PhaseProfiler profiler,
+            ObjectDistribution<?> destroyMethods,
+            ObjectDistribution<?> repairMethods
+    ) {
+        this.instanceName = instanceName;
+        this.runId = RUNS.incrementAndGet();
+        this.profiler = profiler;
+        this.destroyLabels = destroyMethods.getLabels();
+        this.repairLabels = repairMethods.getLabels();
+        this.destroyWeights = destroyMethods.getWeights();
+        this.repairWeights = repairMethods.getWeights();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Publishes the state of the search after an ALNS log record.
+     *
+     * @param record the last record of the ALNS log
+     * @param destroyMethods the destroy heuristics, with their current weights
+     * @param repairMethods the repair heuristics, with their current weights
+     */
+    public void update(ALNSIterationRecord record, ObjectDistribution<?> destroyMethods, ObjectDistribution<?> repairMethods) {
+        if (!record.isSegmentEvent()) {
+            iterations++;
+        }
+        destroyWeights = destroyMethods.getWeights();
+        repairWeights = repairMethods.getWeights();
+        lastRecord = record;
+    }
+
+    /**
+     * Registers the MBean and, if a port is given, starts the HTTP endpoint.
+     * Failures are logged and don't stop the solver.
+     *
+     * @param jmx true to register the JMX MBean
+     * @param httpPort port of the Prometheus endpoint on localhost, 0 or less
+     * to disable it
+     */
+    public void start(boolean jmx, int httpPort) {
+        if (jmx) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                objectName = new ObjectName("solverController:type=ALNS,instance=" + ObjectName.quote(instanceName)
+                        + ",run=" + runId);
+                server.registerMBean(this, objectName);
+            } catch (JMException ex) {
+                Logger.getLogger(SolverTelemetry.class.getName()).log(Level.WARNING, "Can't register the ALNS MBean", ex);
+                objectName = null;
+            }
+        }
+
+        if (httpPort > 0) {
+            try {
+                httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), httpPort), 0);
+                httpServer.createContext("/metrics", exchange -> {
+                    byte[] body = toPrometheus().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", PROMETHEUS_CONTENT_TYPE);
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(body);
+                    }
+                });
+                httpServer.start();
+            } catch (IOException ex) {
+                Logger.getLogger(SolverTelemetry.class.getName()).log(Level.WARNING, "Can't start the metrics endpoint on port " + httpPort, ex);
+                httpServer = null;
+            }
+        }
+    }
+
+    /**
+     * Unregisters the MBean and stops the HTTP endpoint.
+     */
+    public void stop() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException ex) {
+                Logger.getLogger(SolverTelemetry.class.getName()).log(Level.WARNING, null, ex);
+            }
+            objectName = null;
+        }
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+    }
+
+    @Override
+    public String getInstanceName() {
+        return instanceName;
+    }
+
+    @Override
+    public long getRunId() {
+        return runId;
+    }
+
+    @Override
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    @Override
+    public long getSegment() {
+        ALNSIterationRecord r = lastRecord;
+        return r == null ? 0 : r.segment;
+    }
+
+    @Override
+    public long getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public double getIterationsPerSecond() {
+        return rate(iterations);
+    }
+
+    @Override
+    public long getFeasibilityChecks() {
+        synchronized (profiler) {
+            PhaseProfiler.Histogram h = profiler.getPhase("feasibility check");
+            return h == null ? 0 : h.getCount();
+        }
+    }
+
+    @Override
+    public double getFeasibilityChecksPerSecond() {
+        return rate(getFeasibilityChecks());
+    }
+
+    /**
+     * Get the number of feasibility checks answered without calling Gurobi
+     *
+     * @return the number of cache hits
+     */
+    public long getCacheHits() {
+        return profiler.getCounter("feasibility check/rejected by known core")
+                + profiler.getCounter("feasibility check/rejected by exclusion cache");
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        long checks = getFeasibilityChecks();
+        return checks == 0 ? 0.0 : (double) getCacheHits() / checks;
+    }
+
+    @Override
+    public double getBestObjective() {
+        ALNSIterationRecord r = lastRecord;
+        return r == null ? 0.0 : r.xGlobalBestObj;
+    }
+
+    @Override
+    public String[] getDestroyLabels() {
+        return destroyLabels.clone();
+    }
+
+    @Override
+    public double[] getDestroyWeights() {
+        return destroyWeights.clone();
+    }
+
+    @Override
+    public String[] getRepairLabels() {
+        return repairLabels.clone();
+    }
+
+    @Override
+    public double[] getRepairWeights() {
+        return repairWeights.clone();
+    }
+
+    @Override
+    public double getRouletteAverageProbability() {
+        ALNSIterationRecord r = lastRecord;
+        return r == null ? 0.0 : r.rouletteAverageProbability;
+    }
+
+    @Override
+    public long getHeapUsedBytes() {
+        return heap().getUsed();
+    }
+
+    @Override
+    public long getHeapMaxBytes() {
+        return heap().getMax();
+    }
+
+    /**
+     * Reads the current heap usage.
+     */
+    private static MemoryUsage heap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        return memory.getHeapMemoryUsage();
+    }
+
+    /**
+     * Computes an average rate since the beginning of the run.
+     */
+    private double rate(long count) {
+        double seconds = getElapsedSeconds();
+        return seconds > 0 ? count / seconds : 0.0;
+    }
+
+    /**
+     * Builds the current state in Prometheus text format.
+     *
+     * @return the metrics in Prometheus text format
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        String instance = "instance=\"" + escape(instanceName) + "\",run=\"" + runId + "\"";
+
+        metric(sb, "alns_elapsed_seconds", "gauge", "Seconds since the beginning of the ALNS run", instance, getElapsedSeconds());
+        metric(sb, "alns_segment", "gauge", "Current ALNS segment", instance, getSegment());
+        metric(sb, "alns_iterations_total", "counter", "ALNS iterations done", instance, getIterations());
+        metric(sb, "alns_iterations_per_second", "gauge", "Average ALNS iterations per second", instance, getIterationsPerSecond());
+        metric(sb, "alns_feasibility_checks_total", "counter", "Feasibility checks done", instance, getFeasibilityChecks());
+        metric(sb, "alns_feasibility_checks_per_second", "gauge", "Average feasibility checks per second", instance, getFeasibilityChecksPerSecond());
+        metric(sb, "alns_feasibility_cache_hits_total", "counter", "Feasibility checks answered without Gurobi", instance, getCacheHits());
+        metric(sb, "alns_feasibility_cache_hit_ratio", "gauge", "Fraction of feasibility checks answered without Gurobi", instance, getCacheHitRatio());
+        metric(sb, "alns_best_objective", "gauge", "Best objective value found so far", instance, getBestObjective());
+        metric(sb, "alns_roulette_average_probability", "gauge", "Average probability in the cluster roulette", instance, getRouletteAverageProbability());
+
+        sb.append("# HELP alns_heuristic_weight Current weight of each ALNS heuristic\n");
+        sb.append("# TYPE alns_heuristic_weight gauge\n");
+        double[] weights = destroyWeights;
+        for (int i = 0; i < destroyLabels.length; i++) {
+            sample(sb, "alns_heuristic_weight", instance + ",kind=\"destroy\",label=\"" + escape(destroyLabels[i]) + "\"", weights[i]);
+        }
+        weights = repairWeights;
+        for (int i = 0; i < repairLabels.length; i++) {
+            sample(sb, "alns_heuristic_weight", instance + ",kind=\"repair\",label=\"" + escape(repairLabels[i]) + "\"", weights[i]);
+        }
+
+        MemoryUsage heap = heap();
+        metric(sb, "jvm_heap_used_bytes", "gauge", "Heap memory in use", instance, heap.getUsed());
+        metric(sb, "jvm_heap_max_bytes", "gauge", "Maximum heap memory", instance, heap.getMax());
+        return sb.toString();
+    }
+
+    /**
+     * Appends a metric with a single sample.
+     */
+    private static void metric(StringBuilder sb, String name, String type, String help, String labels, double value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        sample(sb, name, labels, value);
+    }
+
+    /**
+     * Appends a sample.
+     */
+    private static void sample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name).append('{').append(labels).append("} ");
+        if (Double.isNaN(value)) {
+            sb.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            sb.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Escapes a label value for the Prometheus text format.
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
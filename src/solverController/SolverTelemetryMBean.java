@@ -0,0 +1,137 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverController;
+
+/**
+ * Management interface for the live state of an ALNS run, exposed through JMX
+ * by <code>SolverTelemetry</code>.
+ *
+ * @author Frash
+ */
+public interface SolverTelemetryMBean {
+
+    /**
+     * Get the name of the instance being solved
+     *
+     * @return the name of the instance
+     */
+    public String getInstanceName();
+
+    /**
+     * Get the ID of the run, unique in this JVM
+     *
+     * @return the ID of the run
+     */
+    public long getRunId();
+
+    /**
+     * Get the seconds elapsed since the beginning of the ALNS run
+     *
+     * @return the elapsed seconds
+     */
+    public double getElapsedSeconds();
+
+    /**
+     * Get the current segment
+     *
+     * @return the index of the current segment
+     */
+    public long getSegment();
+
+    /**
+     * Get the number of ALNS iterations done so far
+     *
+     * @return the number of iterations
+     */
+    public long getIterations();
+
+    /**
+     * Get the average number of ALNS iterations per second
+     *
+     * @return the iterations per second since the beginning of the run
+     */
+    public double getIterationsPerSecond();
+
+    /**
+     * Get the number of feasibility checks done so far, including the ones
+     * answered by the caches
+     *
+     * @return the number of feasibility checks
+     */
+    public long getFeasibilityChecks();
+
+    /**
+     * Get the average number of feasibility checks per second
+     *
+     * @return the feasibility checks per second since the beginning of the
+     * run
+     */
+    public double getFeasibilityChecksPerSecond();
+
+    /**
+     * Get the fraction of feasibility checks answered without calling Gurobi
+     * (known infeasible cores and excluded solutions)
+     *
+     * @return the cache hit ratio, in [0,1]
+     */
+    public double getCacheHitRatio();
+
+    /**
+     * Get the best objective value found so far
+     *
+     * @return the best objective value
+     */
+    public double getBestObjective();
+
+    /**
+     * Get the labels of the destroy heuristics
+     *
+     * @return the labels of the destroy heuristics
+     */
+    public String[] getDestroyLabels();
+
+    /**
+     * Get the current weights of the destroy heuristics
+     *
+     * @return the weights, in the order of <code>getDestroyLabels()</code>
+     */
+    public double[] getDestroyWeights();
+
+    /**
+     * Get the labels of the repair heuristics
+     *
+     * @return the labels of the repair heuristics
+     */
+    public String[] getRepairLabels();
+
+    /**
+     * Get the current weights of the repair heuristics
+     *
+     * @return the weights, in the order of <code>getRepairLabels()</code>
+     */
+    public double[] getRepairWeights();
+
+    /**
+     * Get the average probability in the cluster roulette
+     *
+     * @return the average probability for a cluster to be chosen
+     */
+    public double getRouletteAverageProbability();
+
+    /**
+     * Get the heap memory in use
+     *
+     * @return the used heap, in bytes
+     */
+    public long getHeapUsedBytes();
+
+    /**
+     * Get the maximum heap memory available
+     *
+     * @return the maximum heap, in bytes (-1 if undefined)
+     */
+    public long getHeapMaxBytes();
+}
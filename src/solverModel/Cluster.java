@@ -280,7 +280,9 @@ public class Cluster {
      * @return the distance between the two clusters
      */
     public double distance(Cluster c) {
-        return Math.floor((Math.sqrt(Math.pow(this.x - c.getX(), 2)+ Math.pow(this.y - c.getY(), 2))*1000))/1000.0;
+        double dx = this.x - c.getX();
+        double dy = this.y - c.getY();
+        return Math.floor((Math.sqrt(dx*dx + dy*dy)*1000))/1000.0;
     }
     
     /**
@@ -289,7 +291,9 @@ public class Cluster {
      * @return the distance between the two clusters
      */
     public double distance(Node n) {
-        return Math.floor((Math.sqrt(Math.pow(this.x - n.getX(), 2)+ Math.pow(this.y - n.getY(), 2))*1000))/1000.0;
+        double dx = this.x - n.getX();
+        double dy = this.y - n.getY();
+        return Math.floor((Math.sqrt(dx*dx + dy*dy)*1000))/1000.0;
     }
     
     /**
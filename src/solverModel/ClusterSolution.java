@@ -0,0 +1,266 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverModel;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.RandomAccess;
+
+/**
+ * A solution for the CTOPWSS expressed as a list of clusters, which keeps its
+ * aggregate values up to date as clusters are added or removed.
+ * <br>The aggregates are:
+ * <ul>
+ * <li>the sums of cluster coordinates, both plain and weighted by the service
+ * cost of each cluster (its mass)</li>
+ * <li>the total service cost and the total profit of the solution</li>
+ * </ul>
+ * Every change to the list (add, remove, set, also through iterators and
+ * sublists) updates the aggregates in O(1), reading cluster costs from the
+ * table cached by the instance. Sorting only permutes the
+ * clusters, so it leaves the aggregates untouched.
+ *
+ * @author Frash
+ */
+public class ClusterSolution extends AbstractList<Cluster> implements RandomAccess {
+
+    /**
+     * The clusters in solution.
+     */
+    private final ArrayList<Cluster> clusters;
+
+    /**
+     * Service cost of each cluster, indexed by cluster ID (cached by the
+     * instance).
+     */
+    private final double[] serviceCosts;
+
+    /**
+     * Sum of the coordinates of the clusters in solution.
+     */
+    private double sumX, sumY;
+
+    /**
+     * Sum of the coordinates of the clusters in solution, weighted by their
+     * service cost.
+     */
+    private double massSumX, massSumY;
+
+    /**
+     * Total service cost of the clusters in solution (total mass).
+     */
+    private double totalCost;
+
+    /**
+     * Total profit of the clusters in solution.
+     */
+    private double totalProfit;
+
+    /**
+     * Number of clusters in solution whose service cost is not positive.
+     * If there are any, the barycenter falls back to the geometric center.
+     */
+    private int clustersWithoutMass;
+
+    /**
+     * Constructor for an empty solution on the given instance.
+     *
+     * @param instance the instance the solution belongs to
+     */
+    public ClusterSolution(InstanceCTOPWSS instance) {
+        this.clusters = new ArrayList<>();
+        this.serviceCosts = instance.getClusterServiceCosts();
+    }
+
+    /**
+     * Constructor for a solution on the given instance, holding the given
+     * clusters.
+     *
+     * @param instance the instance the solution belongs to
+     * @param clusters the clusters to put in solution
+     */
+    public ClusterSolution(InstanceCTOPWSS instance, Collection<? extends Cluster> clusters) {
+        this(instance);
+        this.addAll(clusters);
+    }
+
+    /**
+     * Copy constructor. The aggregates are copied rather than recomputed.
+     *
+     * @param other the solution to copy
+     */
+    public ClusterSolution(ClusterSolution other) {
+        this.clusters = new ArrayList<>(other.clusters);
+        this.serviceCosts = other.serviceCosts;
+        this.sumX = other.sumX;
+        this.sumY = other.sumY;
+        this.massSumX = other.massSumX;
+        this.massSumY = other.massSumY;
+        this.totalCost = other.totalCost;
+        this.totalProfit = other.totalProfit;
+        this.clustersWithoutMass = other.clustersWithoutMass;
+    }
+
+    /**
+     * Adds the contribution of a cluster to the aggregates.
+     *
+     * @param c the cluster entering the solution
+     */
+    private void account(Cluster c) {
+        int id = c.getId();
+        double mass = serviceCosts[id];
+
+        sumX += c.getX();
+        sumY += c.getY();
+        if (mass > 0.0) {
+            massSumX += c.getX() * mass;
+            massSumY += c.getY() * mass;
+        } else {
+            clustersWithoutMass++;
+        }
+        totalCost += mass;
+        totalProfit += c.getProfit();
+    }
+
+    /**
+     * Removes the contribution of a cluster from the aggregates.
+     *
+     * @param c the cluster leaving the solution
+     */
+    private void unaccount(Cluster c) {
+        int id = c.getId();
+        double mass = serviceCosts[id];
+
+        sumX -= c.getX();
+        sumY -= c.getY();
+        if (mass > 0.0) {
+            massSumX -= c.getX() * mass;
+            massSumY -= c.getY() * mass;
+        } else {
+            clustersWithoutMass--;
+        }
+        totalCost -= mass;
+        totalProfit -= c.getProfit();
+
+        // Don't let rounding errors pile up on an empty solution
+        if (clusters.isEmpty()) {
+            resetAggregates();
+        }
+    }
+
+    /**
+     * Sets all the aggregates to their value for an empty solution.
+     */
+    private void resetAggregates() {
+        sumX = 0.0;
+        sumY = 0.0;
+        massSumX = 0.0;
+        massSumY = 0.0;
+        totalCost = 0.0;
+        totalProfit = 0.0;
+        clustersWithoutMass = 0;
+    }
+
+    @Override
+    public Cluster get(int index) {
+        return clusters.get(index);
+    }
+
+    @Override
+    public int size() {
+        return clusters.size();
+    }
+
+    @Override
+    public Cluster set(int index, Cluster element) {
+        Cluster old = clusters.set(index, element);
+        unaccount(old);
+        account(element);
+        return old;
+    }
+
+    @Override
+    public void add(int index, Cluster element) {
+        clusters.add(index, element);
+        account(element);
+        modCount++;
+    }
+
+    @Override
+    public Cluster remove(int index) {
+        Cluster old = clusters.remove(index);
+        unaccount(old);
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        clusters.clear();
+        resetAggregates();
+        modCount++;
+    }
+
+    @Override
+    public void sort(Comparator<? super Cluster> c) {
+        // A permutation doesn't change the aggregates
+        clusters.sort(c);
+        modCount++;
+    }
+
+    /**
+     * Get the total service cost of the clusters in solution
+     *
+     * @return the total service cost (excluding travel times)
+     */
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    /**
+     * Get the total profit of the clusters in solution
+     *
+     * @return the total profit
+     */
+    public double getTotalProfit() {
+        return totalProfit;
+    }
+
+    /**
+     * Tells whether the barycenter is the center of mass of the solution or
+     * its geometric center.
+     *
+     * @return true if the solution is not empty and every cluster in it has a
+     * positive service cost
+     */
+    public boolean hasCenterOfMass() {
+        return !clusters.isEmpty() && clustersWithoutMass == 0;
+    }
+
+    /**
+     * Get the x coordinate of the barycenter of the solution: the center of
+     * mass, weighted by service cost, if every cluster has a positive cost,
+     * the geometric center otherwise.
+     *
+     * @return the x coordinate of the barycenter, NaN if the solution is empty
+     */
+    public double getBarycenterX() {
+        return hasCenterOfMass() ? massSumX / totalCost : sumX / clusters.size();
+    }
+
+    /**
+     * Get the y coordinate of the barycenter of the solution: the center of
+     * mass, weighted by service cost, if every cluster has a positive cost,
+     * the geometric center otherwise.
+     *
+     * @return the y coordinate of the barycenter, NaN if the solution is empty
+     */
+    public double getBarycenterY() {
+        return hasCenterOfMass() ? massSumY / totalCost : sumY / clusters.size();
+    }
+}
@@ -99,6 +99,19 @@ public class InstanceCTOPWSS implements Serializable
         private List<Cluster> clusters;
         private List<Vehicle> vehicles;
         
+        /**
+         * Spatial index over cluster centroids.
+         * It's built lazily, once per instance, and never serialized.
+         */
+        private transient SpatialIndex clusterSpatialIndex;
+        
+        /**
+         * Service cost of every cluster, in total and for each vehicle.
+         * They are built lazily, once per instance, and never serialized.
+         */
+        private transient double[] clusterServiceCosts;
+        private transient double[][] clusterServiceCostsPerVehicle;
+        
         /**
          * Add a node to the instance
          * @param n the node to add
@@ -133,6 +146,51 @@ public class InstanceCTOPWSS implements Serializable
             return this.clusters.get(id);
         }
         
+        /**
+         * Gets the spatial index over the centroids of all the clusters in the
+         * instance, building it on first use.
+         * @return the spatial index of clusters, which uses cluster IDs
+         */
+        public synchronized SpatialIndex getClusterSpatialIndex(){
+            if(clusterSpatialIndex == null){
+                clusterSpatialIndex = SpatialIndex.forClusters(clusters);
+            }
+            return clusterSpatialIndex;
+        }
+        
+        /**
+         * Gets the total service cost of every cluster in the instance,
+         * computing it on first use.
+         * @return the array of service costs, indexed by cluster ID. Don't modify it.
+         */
+        public synchronized double[] getClusterServiceCosts(){
+            if(clusterServiceCosts == null){
+                clusterServiceCosts = new double[clusters.size()];
+                for(Cluster c : clusters){
+                    clusterServiceCosts[c.getId()] = c.getTotalCost();
+                }
+            }
+            return clusterServiceCosts;
+        }
+        
+        /**
+         * Gets the service cost of every cluster in the instance for every
+         * vehicle, computing it on first use.
+         * @return the matrix of service costs, indexed by cluster ID and
+         * vehicle ID. Don't modify it.
+         */
+        public synchronized double[][] getClusterServiceCostsPerVehicle(){
+            if(clusterServiceCostsPerVehicle == null){
+                clusterServiceCostsPerVehicle = new double[clusters.size()][vehicles.size()];
+                for(Cluster c : clusters){
+                    for(Vehicle v : vehicles){
+                        clusterServiceCostsPerVehicle[c.getId()][v.getId()] = c.getTotalCostForVehicle(v);
+                    }
+                }
+            }
+            return clusterServiceCostsPerVehicle;
+        }
+        
         /**
          * Add a vehicle to the instance
          * @param v the vehicle to add
@@ -454,4 +512,4 @@ public class InstanceCTOPWSS implements Serializable
         public List<Vehicle> getVehicles() {
             return vehicles;
         }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,269 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package solverModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * A static 2-d tree over a set of points, each one identified by an integer ID
+ * (e.g. cluster IDs for cluster centroids).
+ * <br>The tree is built once per instance and answers "the k nearest points to
+ * (x,y) that satisfy a predicate" through a best-first search, so that points
+ * are visited in order of increasing distance and the search stops as soon as
+ * k acceptable points have been found.
+ * <br>Distances are compared as squared Euclidean distances, no square roots
+ * are computed during a query.
+ *
+ * @author Frash
+ */
+public class SpatialIndex {
+
+    /**
+     * IDs of the indexed points, permuted in tree order. The median of every
+     * range [lo,hi) is the root of the subtree for that range.
+     */
+    private final int[] ids;
+
+    /**
+     * X coordinates of the indexed points, in tree order.
+     */
+    private final double[] xs;
+
+    /**
+     * Y coordinates of the indexed points, in tree order.
+     */
+    private final double[] ys;
+
+    /**
+     * Bounding box of all the indexed points.
+     */
+    private double minX, minY, maxX, maxY;
+
+    /**
+     * Constructor for class SpatialIndex.
+     *
+     * @param ids the IDs of the points to index
+     * @param xs the x coordinates of the points (same order as ids)
+     * @param ys the y coordinates of the points (same order as ids)
+     */
+    public SpatialIndex(int[] ids, double[] xs, double[] ys) {
+        this.ids = Arrays.copyOf(ids, ids.length);
+        this.xs = Arrays.copyOf(xs, xs.length);
+        this.ys = Arrays.copyOf(ys, ys.length);
+
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        maxX = Double.NEGATIVE_INFINITY;
+        maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < xs.length; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        build(0, this.ids.length, 0);
+    }
+
+    /**
+     * Builds a spatial index over the centroids of the given clusters.
+     *
+     * @param clusters the clusters to index
+     * @return the spatial index of cluster centroids, using cluster IDs
+     */
+    public static SpatialIndex forClusters(List<Cluster> clusters) {
+        int[] ids = new int[clusters.size()];
+        double[] xs = new double[clusters.size()];
+        double[] ys = new double[clusters.size()];
+        for (int i = 0; i < clusters.size(); i++) {
+            Cluster c = clusters.get(i);
+            ids[i] = c.getId();
+            xs[i] = c.getX();
+            ys[i] = c.getY();
+        }
+        return new SpatialIndex(ids, xs, ys);
+    }
+
+    /**
+     * Recursively sorts the range [lo,hi) so that its median splits it on the
+     * axis given by the depth (even = x, odd = y).
+     *
+     * @param lo first position of the range (included)
+     * @param hi last position of the range (excluded)
+     * @param depth depth of the subtree
+     */
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+
+        // Sort the range by the coordinate of the current axis
+        final double[] key = (depth % 2 == 0) ? xs : ys;
+        Integer[] positions = new Integer[hi - lo];
+        for (int i = lo; i < hi; i++) {
+            positions[i - lo] = i;
+        }
+        Arrays.sort(positions, (a, b) -> Double.compare(key[a], key[b]));
+
+        int[] sortedIds = new int[hi - lo];
+        double[] sortedXs = new double[hi - lo];
+        double[] sortedYs = new double[hi - lo];
+        for (int i = 0; i < positions.length; i++) {
+            sortedIds[i] = ids[positions[i]];
+            sortedXs[i] = xs[positions[i]];
+            sortedYs[i] = ys[positions[i]];
+        }
+        System.arraycopy(sortedIds, 0, ids, lo, hi - lo);
+        System.arraycopy(sortedXs, 0, xs, lo, hi - lo);
+        System.arraycopy(sortedYs, 0, ys, lo, hi - lo);
+
+        int mid = (lo + hi) >>> 1;
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    /**
+     * Returns the number of indexed points.
+     *
+     * @return the number of indexed points
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Finds the k points closest to (x,y) which satisfy the given predicate.
+     * <br>The predicate is evaluated at most once per point, in order of
+     * increasing distance from (x,y), and no point further than the k-th
+     * accepted one is ever tested. This makes it safe to use predicates which
+     * have side effects, such as random extractions.
+     *
+     * @param x x coordinate of the query point
+     * @param y y coordinate of the query point
+     * @param k maximum number of points to return
+     * @param accept predicate on point IDs: points which don't satisfy it are
+     * skipped (e.g. ignored clusters or clusters already in solution)
+     * @return the IDs of the accepted points, closest first
+     */
+    public List<Integer> nearest(double x, double y, int k, IntPredicate accept) {
+        List<Integer> ret = new ArrayList<>();
+        if (k <= 0 || ids.length == 0) {
+            return ret;
+        }
+
+        PriorityQueue<SearchEntry> queue = new PriorityQueue<>();
+        queue.add(new SearchEntry(0, ids.length, 0, minX, minY, maxX, maxY, boxDistance(x, y, minX, minY, maxX, maxY)));
+
+        while (!queue.isEmpty() && ret.size() < k) {
+            SearchEntry e = queue.poll();
+
+            if (e.isPoint()) {
+                // Every point still in the queue is at least this far
+                if (accept.test(ids[e.lo])) {
+                    ret.add(ids[e.lo]);
+                }
+                continue;
+            }
+
+            int mid = (e.lo + e.hi) >>> 1;
+            queue.add(new SearchEntry(mid, squaredDistance(x, y, xs[mid], ys[mid])));
+
+            // Split the bounding box of the subtree on the median
+            if (e.depth % 2 == 0) {
+                double split = xs[mid];
+                if (e.lo < mid) {
+                    queue.add(new SearchEntry(e.lo, mid, e.depth + 1, e.minX, e.minY, split, e.maxY,
+                            boxDistance(x, y, e.minX, e.minY, split, e.maxY)));
+                }
+                if (mid + 1 < e.hi) {
+                    queue.add(new SearchEntry(mid + 1, e.hi, e.depth + 1, split, e.minY, e.maxX, e.maxY,
+                            boxDistance(x, y, split, e.minY, e.maxX, e.maxY)));
+                }
+            } else {
+                double split = ys[mid];
+                if (e.lo < mid) {
+                    queue.add(new SearchEntry(e.lo, mid, e.depth + 1, e.minX, e.minY, e.maxX, split,
+                            boxDistance(x, y, e.minX, e.minY, e.maxX, split)));
+                }
+                if (mid + 1 < e.hi) {
+                    queue.add(new SearchEntry(mid + 1, e.hi, e.depth + 1, e.minX, split, e.maxX, e.maxY,
+                            boxDistance(x, y, e.minX, split, e.maxX, e.maxY)));
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Squared Euclidean distance between two points.
+     */
+    private static double squaredDistance(double x1, double y1, double x2, double y2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Squared Euclidean distance between a point and the closest point of a
+     * bounding box (0 if the point is inside the box).
+     */
+    private static double boxDistance(double x, double y, double minX, double minY, double maxX, double maxY) {
+        double dx = Math.max(Math.max(minX - x, 0.0), x - maxX);
+        double dy = Math.max(Math.max(minY - y, 0.0), y - maxY);
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * An entry in the best-first search queue: either a single point or a
+     * whole subtree with its bounding box.
+     */
+    private static class SearchEntry implements Comparable<SearchEntry> {
+
+        final int lo, hi, depth;
+        final double minX, minY, maxX, maxY;
+        final double key;
+
+        /**
+         * Constructor for a subtree entry.
+         */
+        SearchEntry(int lo, int hi, int depth, double minX, double minY, double maxX, double maxY, double key) {
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.key = key;
+        }
+
+        /**
+         * Constructor for a single point entry.
+         */
+        SearchEntry(int position, double key) {
+            this(position, -1, -1, 0, 0, 0, 0, key);
+        }
+
+        boolean isPoint() {
+            return hi == -1;
+        }
+
+        @Override
+        public int compareTo(SearchEntry o) {
+            int ret = Double.compare(key, o.key);
+            // On ties, return points before subtrees
+            if (ret == 0) {
+                ret = Boolean.compare(o.isPoint(), isPoint());
+            }
+            return ret;
+        }
+    }
+}